@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstream;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FrameAddressRegister;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.BlockSubType;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.BlockType;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.device.TileType;
+import edu.byu.ece.rapidSmith.util.FileTools;
+import edu.byu.ece.rapidSmith.util.MessageGenerator;
+
+/**
+ * This class is a precomputed index between the tiles of a Virtex 4, 5 or 6
+ * device and the configuration blocks (the frames sharing a top/bottom,
+ * block type, row and column) of its bitstream.  It finds the frame address
+ * of a tile and the tiles of a frame address in constant time, which is
+ * useful to map the frames found by a bitstream diff back to tiles.
+ *
+ * The index is built from the configuration column layout of the part and
+ * the interconnect tiles of the device: each interconnect tile column is
+ * one configuration column, except the block RAM interconnect columns of
+ * Virtex 4 (which have their own block type) and the clock column of Virtex
+ * 4 and 5 (which has no interconnect tiles).  Since building it requires
+ * the whole device, the index is saved to a file and loaded from it the
+ * next time (see getFrameTileIndex()).  By default the file of each part is
+ * kept in its device folder, the index is only kept in memory when that 
+ * folder is not writable.
+ * Created on: Oct 19, 2026
+ */
+public class FrameTileIndex {
+	/** Suffix of the frame/tile index files */
+	public static final String frameTileIndexFileSuffix = "_frames.dat";
+	/** Version of the frame/tile index files */
+	public static final String frameTileIndexFileVersion = "1.0";
+
+	/** The device of the index */
+	private Device dev;
+	/** The configuration specification of the device */
+	private XilinxConfigurationSpecification spec;
+	/**
+	 * For each block type, the frame address (minor 0) of the configuration
+	 * block of each tile (by unique tile address), -1 if it has none.
+	 */
+	private int[][] tileBlocks;
+	/** Maps the frame address (minor 0) of each configuration block to the unique addresses of its tiles */
+	private HashMap<Integer,int[]> blockTiles;
+
+	private FrameTileIndex(Device dev, XilinxConfigurationSpecification spec, int[][] tileBlocks){
+		this.dev = dev;
+		this.spec = spec;
+		this.tileBlocks = tileBlocks;
+		createBlockTiles();
+	}
+
+	//========================================================================//
+	// Creating, Loading and Saving
+	//========================================================================//
+	/**
+	 * Gets the frame/tile index of a device, cached in the device folder.
+	 * The index is loaded from the file of the part in the device folder
+	 * (see getFrameTileIndexFileName()) if it exists, otherwise it is created
+	 * and saved there.  If the device folder is not writable, the created
+	 * index is only kept in memory.
+	 * @param dev The device.
+	 * @param spec The configuration specification of the device.
+	 * @return The index, or null if the device could not be indexed.
+	 */
+	public static FrameTileIndex getFrameTileIndex(Device dev, XilinxConfigurationSpecification spec){
+		File file = new File(getFrameTileIndexFileName(dev.getPartName()));
+		if(file.exists()){
+			FrameTileIndex index = readFromFile(dev, spec, file.getPath());
+			if(index != null){
+				return index;
+			}
+		}
+		FrameTileIndex index = createFrameTileIndex(dev, spec);
+		if(index != null && file.getParentFile() != null && file.getParentFile().canWrite()){
+			if(!index.saveToFile(file)){
+				MessageGenerator.briefError("Warning: Could not save frame/tile index to " + file.getPath());
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the frame/tile index of a device, cached in a file.  The index is 
+	 * loaded from the file if it exists, otherwise it is created and saved to
+	 * the file.
+	 * @param dev The device.
+	 * @param spec The configuration specification of the device.
+	 * @param fileName The file the index is loaded from or saved to.
+	 * @return The index, or null if the device could not be indexed.
+	 */
+	public static FrameTileIndex getFrameTileIndex(Device dev, XilinxConfigurationSpecification spec, String fileName){
+		if(new File(fileName).exists()){
+			FrameTileIndex index = readFromFile(dev, spec, fileName);
+			if(index != null){
+				return index;
+			}
+		}
+		FrameTileIndex index = createFrameTileIndex(dev, spec);
+		if(index != null && !index.saveToFile(new File(fileName))){
+			MessageGenerator.briefError("Warning: Could not save frame/tile index to " + fileName);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the name of the file the frame/tile index of a part is saved to.
+	 * @param partName The name of the part.
+	 * @return The full path of the index file.
+	 */
+	public static String getFrameTileIndexFileName(String partName){
+		return FileTools.getPartFolderPath(partName) + partName + frameTileIndexFileSuffix;
+	}
+
+	/**
+	 * Creates the frame/tile index of a device.
+	 * @param dev The device.
+	 * @param spec The configuration specification of the device.
+	 * @return The index, or null if the layout of the device does not match
+	 * the configuration specification.
+	 */
+	public static FrameTileIndex createFrameTileIndex(Device dev, XilinxConfigurationSpecification spec){
+		Tile[][] tiles = dev.getTiles();
+		TreeSet<Integer> intColumns = new TreeSet<Integer>();
+		TreeSet<Integer> bramColumns = new TreeSet<Integer>();
+		int maxY = -1;
+		for(Tile[] tileRow : tiles){
+			for(Tile tile : tileRow){
+				TileType type = tile.getType();
+				if(type.equals(TileType.INT) || type.equals(TileType.INT_SO) || type.equals(TileType.INT_SO_DCM0)){
+					intColumns.add(tile.getTileXCoordinate());
+					maxY = Math.max(maxY, tile.getTileYCoordinate());
+				}
+				else if(isBlockRAM(type)){
+					bramColumns.add(tile.getTileXCoordinate());
+				}
+			}
+		}
+		int rowCount = spec.getTopNumberOfRows() + spec.getBottomNumberOfRows();
+		if(maxY < 0 || (maxY + 1) % rowCount != 0){
+			MessageGenerator.briefError("ERROR: Interconnect rows of " + dev.getPartName() +
+				" do not match the " + rowCount + " configuration rows of " + spec.getDeviceName());
+			return null;
+		}
+		int rowHeight = (maxY + 1) / rowCount;
+
+		// Find the configuration column of each interconnect column
+		BlockType logicBlockType = spec.getLogicBlockType();
+		List<BlockSubType> layout = spec.getBlockSubTypeLayout(logicBlockType);
+		ArrayList<Integer> logicColumns = new ArrayList<Integer>(intColumns);
+		boolean bramInLogic = containsSubType(layout, "BRAMINTERCONNECT");
+		if(!bramInLogic){
+			logicColumns.removeAll(bramColumns);
+		}
+		int clkColumn = -1;
+		int configColumns = countConfigurationColumns(layout);
+		if(configColumns == logicColumns.size() + 1){
+			for(int c = 0; c < layout.size(); c++){
+				if(layout.get(c).getName().equals("CLK")){
+					clkColumn = c;
+				}
+			}
+		}
+		else if(configColumns != logicColumns.size()){
+			MessageGenerator.briefError("ERROR: Interconnect columns of " + dev.getPartName() +
+				" do not match the " + configColumns + " configuration columns of " + spec.getDeviceName());
+			return null;
+		}
+		HashMap<Integer,Integer> logicColumnMap = new HashMap<Integer,Integer>();
+		int i = 0;
+		for(int c = 0; c < layout.size(); c++){
+			if(c == clkColumn || isOverhead(layout.get(c))) continue;
+			logicColumnMap.put(logicColumns.get(i++), c);
+		}
+		if(bramInLogic){
+			// Not every block RAM column has BRAM tiles (PCIe, EMAC, ...), use the layout instead
+			bramColumns.clear();
+			for(Integer x : logicColumns){
+				if(layout.get(logicColumnMap.get(x)).getName().equals("BRAMINTERCONNECT")){
+					bramColumns.add(x);
+				}
+			}
+		}
+		HashMap<Integer,Integer> bramColumnMap = new HashMap<Integer,Integer>();
+		i = 0;
+		for(Integer x : bramColumns){
+			bramColumnMap.put(x, i++);
+		}
+
+		// Assign the configuration blocks of each tile
+		List<BlockType> blockTypes = spec.getBlockTypes();
+		int[][] tileBlocks = new int[blockTypes.size()][dev.getRows() * dev.getColumns()];
+		for(int b = 0; b < blockTypes.size(); b++){
+			Arrays.fill(tileBlocks[b], -1);
+			BlockType blockType = blockTypes.get(b);
+			if(blockType != logicBlockType &&
+			   countConfigurationColumns(spec.getBlockSubTypeLayout(blockType)) != bramColumns.size()){
+				MessageGenerator.briefError("ERROR: Block RAM columns of " + dev.getPartName() +
+					" do not match the " + blockType.getName() + " columns of " + spec.getDeviceName());
+				return null;
+			}
+		}
+		for(Tile[] tileRow : tiles){
+			for(Tile tile : tileRow){
+				if(tile.getType().equals(TileType.NULL)) continue;
+				int row = tile.getTileYCoordinate() / rowHeight;
+				if(row >= rowCount) continue;
+				int topBottom = row < spec.getBottomNumberOfRows() ? 1 : 0;
+				int configRow = topBottom == 1 ? spec.getBottomNumberOfRows() - 1 - row : row - spec.getBottomNumberOfRows();
+				for(int b = 0; b < blockTypes.size(); b++){
+					Integer column;
+					if(blockTypes.get(b) == logicBlockType){
+						if(clkColumn != -1 && tile.getType().toString().startsWith("CLK")){
+							column = clkColumn;
+						}
+						else{
+							column = logicColumnMap.get(tile.getTileXCoordinate());
+						}
+					}
+					else if(blockTypes.get(b) == spec.getBRAMContentBlockType() && !isBlockRAM(tile.getType())){
+						column = null;
+					}
+					else{
+						column = bramColumnMap.get(tile.getTileXCoordinate());
+					}
+					if(column != null){
+						tileBlocks[b][tile.getUniqueAddress()] =
+							FrameAddressRegister.createFAR(spec, topBottom, b, configRow, column, 0);
+					}
+				}
+			}
+		}
+		return new FrameTileIndex(dev, spec, tileBlocks);
+	}
+
+	/**
+	 * Loads a frame/tile index saved with writeToFile().
+	 * @param dev The device of the index.
+	 * @param spec The configuration specification of the device.
+	 * @param fileName The name of the index file.
+	 * @return The index, or null if the file could not be read or is for another device.
+	 */
+	public static FrameTileIndex readFromFile(Device dev, XilinxConfigurationSpecification spec, String fileName){
+		try{
+			Hessian2Input his = FileTools.getInputStream(fileName);
+			if(his == null) return null;
+			if(!frameTileIndexFileVersion.equals(his.readString()) ||
+			   !dev.getPartName().equals(his.readString()) || his.readInt() != dev.getRows() * dev.getColumns()){
+				his.close();
+				return null;
+			}
+			int[][] tileBlocks = new int[his.readInt()][];
+			if(tileBlocks.length != spec.getBlockTypes().size()){
+				his.close();
+				return null;
+			}
+			for(int b = 0; b < tileBlocks.length; b++){
+				tileBlocks[b] = FileTools.readIntArray(his);
+			}
+			his.close();
+			return new FrameTileIndex(dev, spec, tileBlocks);
+		}
+		catch(IOException e){
+			MessageGenerator.briefError("Error reading frame/tile index file: " + fileName);
+			return null;
+		}
+	}
+
+	/**
+	 * Saves this index to a temporary file in the folder of file and renames
+	 * it to file, so an index being saved is never read by another process.
+	 * @param file The file to create.
+	 * @return True if the operation was successful, false otherwise.
+	 */
+	private boolean saveToFile(File file){
+		File tmp;
+		try{
+			File dir = file.getAbsoluteFile().getParentFile();
+			tmp = File.createTempFile(dev.getPartName(), frameTileIndexFileSuffix, dir);
+		}
+		catch(IOException e){
+			return false;
+		}
+		if(writeToFile(tmp.getPath()) && (tmp.renameTo(file) || (file.delete() && tmp.renameTo(file)))){
+			return true;
+		}
+		tmp.delete();
+		return false;
+	}
+
+	/**
+	 * Saves this index to a file.
+	 * @param fileName The name of the file to create.
+	 * @return True if the operation was successful, false otherwise.
+	 */
+	public boolean writeToFile(String fileName){
+		try{
+			Hessian2Output hos = FileTools.getOutputStream(fileName);
+			if(hos == null) return false;
+			hos.writeString(frameTileIndexFileVersion);
+			hos.writeString(dev.getPartName());
+			hos.writeInt(dev.getRows() * dev.getColumns());
+			hos.writeInt(tileBlocks.length);
+			for(int[] blocks : tileBlocks){
+				if(!FileTools.writeIntArray(hos, blocks)){
+					hos.close();
+					return false;
+				}
+			}
+			hos.close();
+			return true;
+		}
+		catch(IOException e){
+			return false;
+		}
+	}
+
+	//========================================================================//
+	// Queries
+	//========================================================================//
+	/**
+	 * @return The device of this index.
+	 */
+	public Device getDevice(){
+		return dev;
+	}
+
+	/**
+	 * @return The configuration specification of this index.
+	 */
+	public XilinxConfigurationSpecification getSpecification(){
+		return spec;
+	}
+
+	/**
+	 * Gets the frame address of the first frame (minor 0) of the configuration
+	 * block of a tile.
+	 * @param tile The tile.
+	 * @param blockType The block type number (0 for the logic block).
+	 * @return The frame address, or -1 if the tile has no frames of the block type.
+	 */
+	public int getBlockFAR(Tile tile, int blockType){
+		return tileBlocks[blockType][tile.getUniqueAddress()];
+	}
+
+	/**
+	 * Gets the address of a logic frame of a tile.
+	 * @param tile The tile.
+	 * @param minor The minor address of the frame.
+	 * @return The frame address, or -1 if the tile has no logic frames.
+	 */
+	public int getFAR(Tile tile, int minor){
+		return getFAR(tile, 0, minor);
+	}
+
+	/**
+	 * Gets the address of a frame of a tile.
+	 * @param tile The tile.
+	 * @param blockType The block type number (0 for the logic block).
+	 * @param minor The minor address of the frame.
+	 * @return The frame address, or -1 if the tile has no frames of the block type.
+	 */
+	public int getFAR(Tile tile, int blockType, int minor){
+		int far = tileBlocks[blockType][tile.getUniqueAddress()];
+		return far == -1 ? -1 : far | FrameAddressRegister.getAddressFromMinor(spec, minor);
+	}
+
+	/**
+	 * Gets the number of frames in the configuration block of a tile.
+	 * @param tile The tile.
+	 * @param blockType The block type number (0 for the logic block).
+	 * @return The number of frames, 0 if the tile has no frames of the block type.
+	 */
+	public int getFrameCount(Tile tile, int blockType){
+		int far = tileBlocks[blockType][tile.getUniqueAddress()];
+		if(far == -1) return 0;
+		return FrameAddressRegister.getFramesPerConfigurationBlock(spec, blockType,
+			FrameAddressRegister.getColumnFromAddress(spec, far));
+	}
+
+	/**
+	 * Gets the unique addresses of the tiles configured by a frame (see
+	 * Device.getTile(int)).  The returned array must not be modified.
+	 * @param far The frame address.
+	 * @return The unique addresses of the tiles, or null if the frame configures no tiles.
+	 */
+	public int[] getTileAddresses(int far){
+		return blockTiles.get(far & ~spec.getMinorMask());
+	}
+
+	/**
+	 * Gets the tiles configured by a frame.
+	 * @param far The frame address.
+	 * @return The tiles configured by the frame (empty if there are none).
+	 */
+	public List<Tile> getTiles(int far){
+		int[] addresses = getTileAddresses(far);
+		if(addresses == null){
+			return new ArrayList<Tile>(0);
+		}
+		ArrayList<Tile> tiles = new ArrayList<Tile>(addresses.length);
+		for(int address : addresses){
+			tiles.add(dev.getTile(address));
+		}
+		return tiles;
+	}
+
+	/**
+	 * Sums per-frame counts (such as the upsets found by a readback comparison)
+	 * for each tile configured by the frames.
+	 * @param fars The frame addresses.
+	 * @param counts The count of each frame address.
+	 * @return The sum of the counts of the frames of each tile, for the tiles with frames in fars.
+	 */
+	public HashMap<Tile,Integer> getTileCounts(int[] fars, int[] counts){
+		HashMap<Tile,Integer> tileCounts = new HashMap<Tile,Integer>();
+		for(int i = 0; i < fars.length; i++){
+			int[] addresses = getTileAddresses(fars[i]);
+			if(addresses == null) continue;
+			for(int address : addresses){
+				Tile tile = dev.getTile(address);
+				Integer count = tileCounts.get(tile);
+				tileCounts.put(tile, count == null ? counts[i] : count + counts[i]);
+			}
+		}
+		return tileCounts;
+	}
+
+	//========================================================================//
+	// Helper Methods
+	//========================================================================//
+	private void createBlockTiles(){
+		HashMap<Integer,ArrayList<Integer>> lists = new HashMap<Integer,ArrayList<Integer>>();
+		for(int[] blocks : tileBlocks){
+			for(int address = 0; address < blocks.length; address++){
+				if(blocks[address] == -1) continue;
+				ArrayList<Integer> list = lists.get(blocks[address]);
+				if(list == null){
+					list = new ArrayList<Integer>();
+					lists.put(blocks[address], list);
+				}
+				list.add(address);
+			}
+		}
+		blockTiles = new HashMap<Integer,int[]>();
+		for(Integer far : lists.keySet()){
+			ArrayList<Integer> list = lists.get(far);
+			int[] addresses = new int[list.size()];
+			for(int i = 0; i < addresses.length; i++){
+				addresses[i] = list.get(i);
+			}
+			blockTiles.put(far, addresses);
+		}
+	}
+
+	private static boolean isBlockRAM(TileType type){
+		return type.equals(TileType.BRAM) || type.equals(TileType.PCIE_BRAM);
+	}
+
+	private static boolean isOverhead(BlockSubType subType){
+		return subType.getName().endsWith("OVERHEAD");
+	}
+
+	private static boolean containsSubType(List<BlockSubType> layout, String name){
+		for(BlockSubType subType : layout){
+			if(subType.getName().equals(name)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int countConfigurationColumns(List<BlockSubType> layout){
+		int count = 0;
+		for(BlockSubType subType : layout){
+			if(!isOverhead(subType)){
+				count++;
+			}
+		}
+		return count;
+	}
+}
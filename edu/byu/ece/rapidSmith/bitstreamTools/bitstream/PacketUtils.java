@@ -101,6 +101,9 @@ public class PacketUtils {
 	public static Packet MFWR_CMD_TWOWORD_PACKET =
 		Packet.buildTwoWordPacket(PacketOpcode.WRITE, RegisterType.CMD, 0, 0);
 
+	// Writing the MFWR register copies the last frame written with FDRI to the frame at the FAR
+	public static Packet MFWR_WRITE_PACKET = Packet.buildOneWordPacket(PacketOpcode.WRITE, RegisterType.MFWR, 0);
+
 	public static Packet FDRI_ZERO_WORD_WRITE_PACKET = ZERO_WORD_WRITE_PACKET(RegisterType.FDRI);
 
 	// V5 packets
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstreamTools.configuration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Bitstream;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.BitstreamParseException;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.BitstreamParser;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.DeviceLookup;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+
+/**
+ * Compares many bitstreams against one golden configuration. Each bitstream
+ * is parsed and configured on its own FPGA object and compared frame by
+ * frame against the golden FPGA (as in FPGA.getDifferingFrames()), with
+ * several bitstreams processed in parallel. The golden and mask FPGAs are
+ * shared by all threads and never modified. The results can be saved as a
+ * CSV summary or as a compact binary report that includes the addresses of
+ * the differing frames.
+ */
+public class BitstreamBatchDiff {
+
+	/**
+	 * Creates a batch diff against a golden configuration.
+	 * @param golden The configured golden FPGA.
+	 * @param mask An FPGA configured with a mask bitstream (bits set to one
+	 * are ignored) or null to compare all bits.
+	 * @param ignoreUnconfiguredFrames If true, frames that are only configured
+	 * in one of the two FPGAs are not reported as differences.
+	 */
+	public BitstreamBatchDiff(FPGA golden, FPGA mask, boolean ignoreUnconfiguredFrames) {
+		this.golden = golden;
+		this.mask = mask;
+		this.ignoreUnconfiguredFrames = ignoreUnconfiguredFrames;
+	}
+
+	/**
+	 * Compares bitstream files against the golden configuration using one
+	 * thread per available processor.
+	 */
+	public Report compare(List<String> fileNames) {
+		return compare(fileNames, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Compares bitstream files against the golden configuration.
+	 * @param fileNames The bitstream files to compare.
+	 * @param threads The number of bitstreams processed at the same time.
+	 * @return The results, in the order of the file names.
+	 */
+	public Report compare(List<String> fileNames, int threads) {
+		long start = System.nanoTime();
+		ArrayList<Result> results = new ArrayList<Result>(fileNames.size());
+		if (threads > 1 && fileNames.size() > 1) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				ArrayList<Future<Result>> tasks = new ArrayList<Future<Result>>();
+				for (final String fileName : fileNames) {
+					tasks.add(pool.submit(new Callable<Result>() {
+						public Result call() {
+							return compare(fileName);
+						}
+					}));
+				}
+				for (Future<Result> task : tasks) {
+					results.add(task.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while comparing bitstreams", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			for (String fileName : fileNames) {
+				results.add(compare(fileName));
+			}
+		}
+		return new Report(results, System.nanoTime() - start);
+	}
+
+	/**
+	 * Parses a bitstream file and compares it against the golden configuration.
+	 * @return The result of the comparison. If the file could not be parsed or
+	 * is for another part, the result only holds an error message.
+	 */
+	public Result compare(String fileName) {
+		Bitstream bitstream;
+		try {
+			bitstream = BitstreamParser.parseBitstream(fileName);
+		} catch (BitstreamParseException e) {
+			return new Result(fileName, "Invalid bitstream file");
+		} catch (IOException e) {
+			return new Result(fileName, "Could not read file: " + e.getMessage());
+		}
+		XilinxConfigurationSpecification spec = golden.getDeviceSpecification();
+		if (bitstream.getHeader() != null) {
+			String partName = DeviceLookup.getRootDeviceName(bitstream.getHeader().getPartName());
+			if (!spec.getDeviceName().equalsIgnoreCase(partName)) {
+				return new Result(fileName, "Bitstream is for part " + partName + " instead of " + spec.getDeviceName());
+			}
+		}
+		FPGA fpga = new FPGA(spec);
+		fpga.configureBitstream(bitstream);
+		return compare(fileName, fpga);
+	}
+
+	/**
+	 * Compares a configured FPGA against the golden configuration.
+	 * @param name The name given to the result.
+	 * @param fpga The FPGA to compare (must be the same part as the golden FPGA).
+	 */
+	public Result compare(String name, FPGA fpga) {
+		if (!fpga.getDeviceSpecification().getDeviceName().equals(golden.getDeviceSpecification().getDeviceName())) {
+			return new Result(name, "Not the same device");
+		}
+		Result result = new Result(name, null);
+		Frame[] frames1 = golden.configData;
+		Frame[] frames2 = fpga.configData;
+		Frame[] maskFrames = mask == null ? null : mask.configData;
+		int[] differing = new int[16];
+		int count = 0;
+		for (int i = 0; i < frames1.length; i++) {
+			Frame f1 = frames1[i];
+			Frame f2 = frames2[i];
+			if (f2.isConfigured()) {
+				result.configuredFrames++;
+				if (!f2.getData().isEmpty())
+					result.nonEmptyFrames++;
+			}
+			boolean differs = false;
+			if (f1.isConfigured() != f2.isConfigured()) {
+				if (ignoreUnconfiguredFrames)
+					continue;
+				result.unconfiguredDifferences++;
+				differs = true;
+			} else if (f1.isConfigured()) {
+				FrameData d1 = f1.getData();
+				FrameData d2 = f2.getData();
+				FrameData m = maskFrames != null && maskFrames[i].isConfigured() ? maskFrames[i].getData() : null;
+				for (int w = 0; w < d1.size(); w++) {
+					int diff = d1.get(w) ^ d2.get(w);
+					if (m != null)
+						diff &= ~m.get(w);
+					if (diff != 0) {
+						result.differingBits += Integer.bitCount(diff);
+						differs = true;
+					}
+				}
+			}
+			if (differs) {
+				if (count == differing.length) {
+					int[] tmp = new int[count * 2];
+					System.arraycopy(differing, 0, tmp, 0, count);
+					differing = tmp;
+				}
+				differing[count++] = f1.getFrameAddress();
+			}
+		}
+		result.differingFrames = new int[count];
+		System.arraycopy(differing, 0, result.differingFrames, 0, count);
+		return result;
+	}
+
+	/**
+	 * The comparison of one bitstream against the golden configuration.
+	 */
+	public static class Result {
+
+		Result(String name, String error) {
+			this.name = name;
+			this.error = error;
+		}
+
+		/**
+		 * Returns the file name of the bitstream.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the reason the bitstream could not be compared, or null
+		 * if it was compared.
+		 */
+		public String getError() {
+			return error;
+		}
+
+		/**
+		 * Returns the number of frames configured by the bitstream.
+		 */
+		public int getConfiguredFrames() {
+			return configuredFrames;
+		}
+
+		/**
+		 * Returns the number of frames configured by the bitstream that are not empty.
+		 */
+		public int getNonEmptyFrames() {
+			return nonEmptyFrames;
+		}
+
+		/**
+		 * Returns the addresses of the frames that differ from the golden configuration.
+		 */
+		public int[] getDifferingFrames() {
+			return differingFrames;
+		}
+
+		/**
+		 * Returns the number of frames configured by only one of the two configurations.
+		 */
+		public int getUnconfiguredDifferences() {
+			return unconfiguredDifferences;
+		}
+
+		/**
+		 * Returns the number of unmasked bits that differ in frames configured by both configurations.
+		 */
+		public long getDifferingBits() {
+			return differingBits;
+		}
+
+		private String name;
+		private String error;
+		private int configuredFrames = 0;
+		private int nonEmptyFrames = 0;
+		private int unconfiguredDifferences = 0;
+		private long differingBits = 0;
+		private int[] differingFrames = new int[0];
+	}
+
+	/**
+	 * The results of comparing a batch of bitstreams.
+	 */
+	public static class Report {
+
+		Report(List<Result> results, long nanoseconds) {
+			this.results = Collections.unmodifiableList(results);
+			this.nanoseconds = nanoseconds;
+		}
+
+		/**
+		 * Returns the result of each bitstream, in the order they were given.
+		 */
+		public List<Result> getResults() {
+			return results;
+		}
+
+		/**
+		 * Returns the time spent comparing the bitstreams in nanoseconds.
+		 */
+		public long getNanoseconds() {
+			return nanoseconds;
+		}
+
+		/**
+		 * Returns the number of bitstreams compared per minute.
+		 */
+		public double getBitstreamsPerMinute() {
+			return nanoseconds == 0 ? 0 : results.size() * 60e9 / nanoseconds;
+		}
+
+		/**
+		 * Writes one line per bitstream (without the frame addresses) to a CSV file.
+		 */
+		public void writeCSV(String fileName) throws IOException {
+			PrintWriter out = new PrintWriter(new FileWriter(fileName));
+			out.println("bitstream,configured_frames,non_empty_frames,differing_frames,differing_bits,unconfigured_differences,error");
+			for (Result r : results) {
+				out.println(r.name + "," + r.configuredFrames + "," + r.nonEmptyFrames + "," +
+						r.differingFrames.length + "," + r.differingBits + "," + r.unconfiguredDifferences + "," +
+						(r.error == null ? "" : r.error.replace(',', ';')));
+			}
+			out.close();
+			if (out.checkError())
+				throw new IOException("Error writing " + fileName);
+		}
+
+		/**
+		 * Writes the results, including the addresses of the differing
+		 * frames, to a binary file that can be read by readBinary().
+		 */
+		public void writeBinary(String fileName) throws IOException {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+			try {
+				out.writeInt(BINARY_MAGIC);
+				out.writeLong(nanoseconds);
+				out.writeInt(results.size());
+				for (Result r : results) {
+					out.writeUTF(r.name);
+					out.writeBoolean(r.error != null);
+					if (r.error != null) {
+						out.writeUTF(r.error);
+						continue;
+					}
+					out.writeInt(r.configuredFrames);
+					out.writeInt(r.nonEmptyFrames);
+					out.writeInt(r.unconfiguredDifferences);
+					out.writeLong(r.differingBits);
+					out.writeInt(r.differingFrames.length);
+					for (int far : r.differingFrames)
+						out.writeInt(far);
+				}
+			} finally {
+				out.close();
+			}
+		}
+
+		/**
+		 * Reads a report written by writeBinary().
+		 */
+		public static Report readBinary(String fileName) throws IOException {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+			try {
+				if (in.readInt() != BINARY_MAGIC)
+					throw new IOException(fileName + " is not a bitstream diff report");
+				long nanoseconds = in.readLong();
+				int size = in.readInt();
+				ArrayList<Result> results = new ArrayList<Result>(size);
+				for (int i = 0; i < size; i++) {
+					String name = in.readUTF();
+					if (in.readBoolean()) {
+						results.add(new Result(name, in.readUTF()));
+						continue;
+					}
+					Result r = new Result(name, null);
+					r.configuredFrames = in.readInt();
+					r.nonEmptyFrames = in.readInt();
+					r.unconfiguredDifferences = in.readInt();
+					r.differingBits = in.readLong();
+					r.differingFrames = new int[in.readInt()];
+					for (int j = 0; j < r.differingFrames.length; j++)
+						r.differingFrames[j] = in.readInt();
+					results.add(r);
+				}
+				return new Report(results, nanoseconds);
+			} finally {
+				in.close();
+			}
+		}
+
+		public String toString() {
+			int errors = 0;
+			int differing = 0;
+			for (Result r : results) {
+				if (r.error != null)
+					errors++;
+				else if (r.differingFrames.length > 0)
+					differing++;
+			}
+			return results.size() + " bitstreams compared, " + differing + " differ, " + errors + " could not be compared ("
+				+ String.format("%.1f", getBitstreamsPerMinute()) + " bitstreams/min)";
+		}
+
+		private final List<Result> results;
+		private final long nanoseconds;
+	}
+
+	/** First word of the binary report files ("BDIF") */
+	private static final int BINARY_MAGIC = 0x42444946;
+
+	/** The configuration all bitstreams are compared against */
+	private final FPGA golden;
+	/** The mask configuration, or null */
+	private final FPGA mask;
+	/** Whether frames configured in only one configuration are ignored */
+	private final boolean ignoreUnconfiguredFrames;
+}
@@ -23,6 +23,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Bitstream;
@@ -285,15 +286,149 @@ public abstract class BitstreamGenerator {
     
     public abstract PacketListCRC createPartialFDRIPackets(PacketListCRC packetList, ArrayList<Integer> data) throws BitstreamException;
 
-    // TODO
-	/*
-	public static Bitstream getCompressedBitstream(FPGA fpga, String ncdFileName) {		
+	/**
+	 * Creates a compressed full bitstream from an FPGA object. Frames with identical
+	 * contents are written once with FDRI and then copied to their other addresses
+	 * with multiple frame writes (MFWR), which makes bitstreams with many empty or
+	 * repeated frames much smaller.
+	 * 
+	 * @param fpga The configured FPGA object that contains the data going into the bitstream.
+	 * @param header A preinitialized header object that will go into the full bitstream.
+	 */
+	public Bitstream createCompressedFullBitstream(FPGA fpga, BitstreamHeader header) {
+		PacketListCRC packets = createInitialFullBitstream(fpga.getDeviceSpecification().getIntDeviceIDCode());
+		try {
+			addCompressedWritePackets(packets, fpga.getDeviceSpecification(), fpga.getAllFrames());
+		} catch (BitstreamException e) {
+			System.err.println("Trying to create a bitstream with too many words");
+			return null;
+		}
+		createEndingFullBitstream(packets, fpga.getDeviceSpecification());
+		return new Bitstream(header, fpga.getDeviceSpecification().getSyncData(), packets);
 	}
-	
-	// TODO
-	public static Bitstream getRandomFrameBitstream(FPGA fpga, String ncdFileName) {
+
+	/**
+	 * Creates a compressed partial bitstream that writes the configured frames of the
+	 * FPGA object that are not empty. Identical frames are written with multiple frame
+	 * writes (see createCompressedFullBitstream()).
+	 * 
+	 * @param fpga The configured FPGA object that contains the data going into the bitstream.
+	 * @param header A preinitialized header object that will go into the partial bitstream.
+	 */
+	public Bitstream createCompressedPartialBitstream(FPGA fpga, BitstreamHeader header) {
+		PacketListCRC packets = createInitialPartialBitstream(fpga.getDeviceSpecification().getIntDeviceIDCode());
+		ArrayList<Frame> frames = new ArrayList<Frame>();
+		for (Frame f : fpga.getConfiguredFrames()) {
+			if (!f.getData().isEmpty())
+				frames.add(f);
+		}
+		try {
+			addCompressedWritePackets(packets, fpga.getDeviceSpecification(), frames);
+		} catch (BitstreamException e) {
+			System.err.println(e);
+			return null;
+		}
+		createEndingPartialBitstream(packets);
+		return new Bitstream(header, fpga.getDeviceSpecification().getSyncData(), packets);
+	}
+
+	/**
+	 * Creates the packets that write a list of frames (in increasing address order),
+	 * writing each set of identical frames only once. Frames are put in buckets by the
+	 * hash of their contents and compared within a bucket. Frames that appear once are
+	 * written with FDRI writes of consecutive frames, each followed by a pad frame of
+	 * zeros (like getPartialWritePacketsBenSellers()). Then each set of identical frames 
+	 * is loaded once into the frame buffer and copied to all of its addresses with 
+	 * multiple frame writes: WCFG, FAR, FDRI (one frame), CMD MFWR and then a FAR and
+	 * MFWR write for each address (see FPGA.MFWRCommand()).
+	 */
+	protected void addCompressedWritePackets(PacketListCRC packets, XilinxConfigurationSpecification spec,
+			List<Frame> frames) throws BitstreamException {
+		// Find the sets of identical frames
+		HashMap<Integer, ArrayList<ArrayList<Frame>>> buckets = new HashMap<Integer, ArrayList<ArrayList<Frame>>>();
+		ArrayList<ArrayList<Frame>> groups = new ArrayList<ArrayList<Frame>>();
+		for (Frame f : frames) {
+			int hash = getFrameHash(f.getData());
+			ArrayList<ArrayList<Frame>> bucket = buckets.get(hash);
+			if (bucket == null) {
+				bucket = new ArrayList<ArrayList<Frame>>(1);
+				buckets.put(hash, bucket);
+			}
+			ArrayList<Frame> group = null;
+			for (ArrayList<Frame> g : bucket) {
+				if (g.get(0).getData().isEqual(f.getData())) {
+					group = g;
+					break;
+				}
+			}
+			if (group == null) {
+				group = new ArrayList<Frame>(1);
+				bucket.add(group);
+				groups.add(group);
+			}
+			group.add(f);
+		}
+
+		// Write the unique frames, one FDRI write per run of consecutive frames
+		ArrayList<Integer> data = new ArrayList<Integer>();
+		FrameAddressRegister next = new FrameAddressRegister(spec);
+		int runAddress = 0;
+		for (ArrayList<Frame> group : groups) {
+			if (group.size() > 1)
+				continue;
+			Frame f = group.get(0);
+			if (!data.isEmpty() && f.getFrameAddress() != next.getAddress()) {
+				addPadFrame(data, spec);
+				addFDRIWritePackets(packets, runAddress, data);
+				data = new ArrayList<Integer>();
+			}
+			if (data.isEmpty())
+				runAddress = f.getFrameAddress();
+			data.addAll(f.getData().getAllFrameWords());
+			next.setFAR(f.getFrameAddress());
+			next.incrementFAR();
+		}
+		if (!data.isEmpty()) {
+			addPadFrame(data, spec);
+			addFDRIWritePackets(packets, runAddress, data);
+		}
+
+		// Load each set of identical frames once and copy it to all of its addresses
+		for (ArrayList<Frame> group : groups) {
+			if (group.size() < 2)
+				continue;
+			packets.add(PacketUtils.WCFG_CMD_PACKET);
+			packets.add(PacketUtils.NOP_PACKET);
+			packets.add(PacketUtils.FAR_WRITE_PACKET(group.get(0).getFrameAddress()));
+			packets.add(PacketUtils.NOP_PACKET);
+			packets.addAll(PacketUtils.FDRI_WRITE_PACKETS(group.get(0).getData().getAllFrameWords()));
+			packets.add(PacketUtils.MFWR_CMD_PACKET);
+			packets.add(PacketUtils.NOP_PACKET);
+			for (Frame f : group) {
+				packets.add(PacketUtils.FAR_WRITE_PACKET(f.getFrameAddress()));
+				packets.add(PacketUtils.MFWR_WRITE_PACKET);
+			}
+		}
+	}
+
+	/**
+	 * Adds a frame of zeros to the data of an FDRI write, it flushes the last frame
+	 * of the write through the frame buffer.
+	 */
+	private static void addPadFrame(List<Integer> data, XilinxConfigurationSpecification spec) {
+		for (int i = 0; i < spec.getFrameSize(); i++)
+			data.add(0x00000000);
+	}
+
+	/**
+	 * Hashes the words of a frame to find frames that may be identical.
+	 */
+	private static int getFrameHash(FrameData data) {
+		int hash = 1;
+		for (int i = 0; i < data.size(); i++)
+			hash = 31 * hash + data.get(i);
+		return hash;
 	}
-	*/
 
     /**
      * Helper class for generating a .bit file from a Bitstream.
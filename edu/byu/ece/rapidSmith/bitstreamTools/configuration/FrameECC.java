@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstreamTools.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.V5ConfigurationSpecification;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+
+/**
+ * Computes, checks and repairs the ECC bits stored in the middle word of
+ * each configuration frame. The ECC is a Hamming code: every data bit of
+ * the frame has a code index and the ECC is the XOR of the code indices of
+ * all set bits plus a parity bit. Because the code indices of the 32 bits of
+ * a word are consecutive and start on a multiple of 32, the contribution of
+ * a whole word is computed at once from a table of word bases and a few
+ * masked bit counts instead of bit by bit.
+ *
+ * The bit layout is the one used by CheckFrameECC for Virtex5 frames.
+ */
+public class FrameECC {
+
+	/**
+	 * Creates an ECC engine for the frames of a device family.
+	 * @param spec The specification of the device.
+	 * @throws IllegalArgumentException If the ECC layout of the device family is not known.
+	 */
+	public FrameECC(XilinxConfigurationSpecification spec) {
+		if (!isSupported(spec)) {
+			throw new IllegalArgumentException("Frame ECC is not supported for " + spec.getDeviceFamily());
+		}
+		frameSize = V5ConfigurationSpecification.V5_FRAME_SIZE;
+		eccWord = V5ConfigurationSpecification.V5_FRAME_SIZE / 2;
+		eccMask = V5_ECC_MASK;
+		parityBit = V5_PARITY_BIT;
+		wordBases = new int[frameSize];
+		for (int w = 0; w < frameSize; w++) {
+			// The 32 code indices starting at 1024 are skipped (power of two)
+			wordBases[w] = 32 * (V5_FIRST_WORD_BASE + w + (w >= V5_SKIP_WORD ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Determines if the ECC of the frames of a device can be computed.
+	 */
+	public static boolean isSupported(XilinxConfigurationSpecification spec) {
+		return V5ConfigurationSpecification.V5_FAMILY_NAME.equals(spec.getDeviceFamily()) &&
+			spec.getFrameSize() == V5ConfigurationSpecification.V5_FRAME_SIZE;
+	}
+
+	/**
+	 * Computes the ECC bits of the frame data. The current ECC bits of the
+	 * frame are ignored.
+	 */
+	public int computeECC(FrameData data) {
+		return computeECC(data, null);
+	}
+
+	/**
+	 * Computes the ECC bits of the frame data ignoring the bits set in the mask
+	 * (such as the dynamic bits of a readback frame).
+	 * @param data The frame data.
+	 * @param mask The mask frame data or null to use all the bits.
+	 */
+	public int computeECC(FrameData data, FrameData mask) {
+		int hcode = 0;
+		int count = 0;
+		for (int w = 0; w < frameSize; w++) {
+			int word = data.get(w);
+			if (mask != null)
+				word &= ~mask.get(w);
+			if (w == eccWord)
+				word &= ~eccMask;
+			if (word == 0)
+				continue;
+			int bits = Integer.bitCount(word);
+			count += bits;
+			// Bit 31 of the word has the lowest code index in the word,
+			// so bit b of the index is set for the bits whose position has bit b clear
+			int low = (Integer.bitCount(word & 0x55555555) & 0x1)
+				| (Integer.bitCount(word & 0x33333333) & 0x1) << 1
+				| (Integer.bitCount(word & 0x0F0F0F0F) & 0x1) << 2
+				| (Integer.bitCount(word & 0x00FF00FF) & 0x1) << 3
+				| (Integer.bitCount(word & 0x0000FFFF) & 0x1) << 4;
+			hcode ^= ((bits & 0x1) == 1 ? wordBases[w] : 0) | low;
+		}
+		if ((count & 0x1) == 1)
+			hcode ^= 0x1F;
+		return hcode | ((Integer.bitCount(hcode) + count) & 0x1) << parityBit;
+	}
+
+	/**
+	 * Determines if the ECC bits stored in the frame data are correct.
+	 */
+	public boolean checkECC(FrameData data) {
+		return computeECC(data) == data.getECCBits();
+	}
+
+	/**
+	 * Recomputes the ECC bits of the frame data and stores them in the frame.
+	 * @return true if the stored ECC bits were wrong and have been replaced,
+	 * false otherwise.
+	 */
+	public boolean repairECC(FrameData data) {
+		int ecc = computeECC(data);
+		int word = data.get(eccWord);
+		if ((word & eccMask) == ecc)
+			return false;
+		data.setData(eccWord, (word & ~eccMask) | ecc);
+		return true;
+	}
+
+	/**
+	 * Checks the ECC bits of all the configured frames of the FPGA using one
+	 * thread per available processor.
+	 */
+	public Result verify(FPGA fpga) {
+		return process(fpga, false, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Checks the ECC bits of all the configured frames of the FPGA.
+	 * @param threads The number of threads used to check the frames.
+	 */
+	public Result verify(FPGA fpga, int threads) {
+		return process(fpga, false, threads);
+	}
+
+	/**
+	 * Replaces the wrong ECC bits of all the configured frames of the FPGA
+	 * using one thread per available processor.
+	 */
+	public Result repair(FPGA fpga) {
+		return process(fpga, true, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Replaces the wrong ECC bits of all the configured frames of the FPGA.
+	 * @param threads The number of threads used to repair the frames.
+	 */
+	public Result repair(FPGA fpga, int threads) {
+		return process(fpga, true, threads);
+	}
+
+	private Result process(FPGA fpga, final boolean repair, int threads) {
+		long start = System.nanoTime();
+		final Frame[] frames = fpga.configData;
+		ArrayList<Integer> bad = new ArrayList<Integer>();
+		int checked = 0;
+		if (threads > 1 && frames.length > CHUNK_SIZE) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				ArrayList<Future<ChunkResult>> tasks = new ArrayList<Future<ChunkResult>>();
+				for (int i = 0; i < frames.length; i += CHUNK_SIZE) {
+					final int from = i;
+					final int to = Math.min(i + CHUNK_SIZE, frames.length);
+					tasks.add(pool.submit(new Callable<ChunkResult>() {
+						public ChunkResult call() {
+							return process(frames, from, to, repair);
+						}
+					}));
+				}
+				// Chunks are collected in order so the frame addresses stay sorted
+				for (Future<ChunkResult> task : tasks) {
+					ChunkResult r = task.get();
+					checked += r.checked;
+					bad.addAll(r.badFrames);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while checking frame ECC", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			ChunkResult r = process(frames, 0, frames.length, repair);
+			checked = r.checked;
+			bad = r.badFrames;
+		}
+		return new Result(checked, bad, System.nanoTime() - start);
+	}
+
+	private ChunkResult process(Frame[] frames, int from, int to, boolean repair) {
+		ChunkResult r = new ChunkResult();
+		for (int i = from; i < to; i++) {
+			Frame frame = frames[i];
+			if (!frame.isConfigured() || frame.getData() == null)
+				continue;
+			r.checked++;
+			boolean wrong = repair ? repairECC(frame.getData()) : !checkECC(frame.getData());
+			if (wrong)
+				r.badFrames.add(frame.getFrameAddress());
+		}
+		return r;
+	}
+
+	/**
+	 * Frame counts of one chunk of frames.
+	 */
+	private static class ChunkResult {
+		int checked = 0;
+		ArrayList<Integer> badFrames = new ArrayList<Integer>();
+	}
+
+	/**
+	 * The outcome of checking or repairing the ECC of all the frames of an FPGA.
+	 */
+	public static class Result {
+
+		Result(int framesChecked, List<Integer> badFrames, long nanoseconds) {
+			this.framesChecked = framesChecked;
+			this.badFrames = Collections.unmodifiableList(badFrames);
+			this.nanoseconds = nanoseconds;
+		}
+
+		/**
+		 * Returns the number of configured frames that were checked.
+		 */
+		public int getFramesChecked() {
+			return framesChecked;
+		}
+
+		/**
+		 * Returns the addresses of the frames whose ECC bits were wrong
+		 * (and have been replaced when repairing), in frame order.
+		 */
+		public List<Integer> getBadFrames() {
+			return badFrames;
+		}
+
+		/**
+		 * Returns the time spent checking the frames in nanoseconds.
+		 */
+		public long getNanoseconds() {
+			return nanoseconds;
+		}
+
+		/**
+		 * Returns the number of frames checked per second.
+		 */
+		public double getFramesPerSecond() {
+			return nanoseconds == 0 ? 0 : framesChecked * 1e9 / nanoseconds;
+		}
+
+		public String toString() {
+			return framesChecked + " frames checked, " + badFrames.size() + " with wrong ECC ("
+				+ String.format("%.0f", getFramesPerSecond()) + " frames/s)";
+		}
+
+		private final int framesChecked;
+		private final List<Integer> badFrames;
+		private final long nanoseconds;
+	}
+
+	/** Number of frames checked by each task */
+	private static final int CHUNK_SIZE = 1024;
+	/** The ECC bits in the middle word of a Virtex5 frame */
+	private static final int V5_ECC_MASK = 0x00000FFF;
+	/** The parity bit of the Virtex5 ECC */
+	private static final int V5_PARITY_BIT = 11;
+	/** The code index of the first bit of a Virtex5 frame divided by 32 */
+	private static final int V5_FIRST_WORD_BASE = 22;
+	/** The first word of a Virtex5 frame after the skipped code indices */
+	private static final int V5_SKIP_WORD = 10;
+
+	/** Number of 32-bit words in a frame */
+	private final int frameSize;
+	/** Index of the word holding the ECC bits */
+	private final int eccWord;
+	/** The ECC bits of the ECC word */
+	private final int eccMask;
+	/** The bit of the ECC holding the overall parity */
+	private final int parityBit;
+	/** The code index of the first bit of each word */
+	private final int[] wordBases;
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstreamTools.configuration;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+
+/**
+ * Compares raw readback data against the expected configuration of an FPGA
+ * and counts the upset (differing) bits of each frame. The expected frames
+ * and the mask are flattened once into contiguous word arrays so that each
+ * readback word is checked with one XOR and one AND, and readback files are
+ * streamed from a FileChannel through a reused direct buffer instead of
+ * being loaded into an FPGA object (see ReadbackFPGA). A comparator can
+ * check any number of readback files.
+ *
+ * Like ReadbackFPGA, the first frame of the readback data is a pad frame
+ * and is skipped.
+ */
+public class ReadbackComparator {
+
+	/**
+	 * Creates a comparator for the configured frames of an FPGA.
+	 * @param expected The expected configuration. Frames that are not configured are not compared.
+	 * @param mask The mask (such as a .msk file) whose set bits are not compared, or null to compare all bits.
+	 */
+	public ReadbackComparator(FPGA expected, FPGA mask) {
+		spec = expected.getDeviceSpecification();
+		if (mask != null && mask.getDeviceSpecification() != spec) {
+			throw new IllegalArgumentException("The mask is for a different part");
+		}
+		frameSize = spec.getFrameSize();
+		Frame[] frames = expected.configData;
+		frameAddresses = new int[frames.length];
+		expectedWords = new int[frames.length * frameSize];
+		compareMask = new int[frames.length * frameSize];
+		for (int i = 0; i < frames.length; i++) {
+			frameAddresses[i] = frames[i].getFrameAddress();
+			if (!frames[i].isConfigured() || frames[i].getData() == null)
+				continue;
+			FrameData data = frames[i].getData();
+			Frame maskFrame = mask == null ? null : mask.configData[i];
+			boolean masked = maskFrame != null && maskFrame.isConfigured() && maskFrame.getData() != null;
+			for (int w = 0; w < frameSize; w++) {
+				expectedWords[i * frameSize + w] = data.get(w);
+				compareMask[i * frameSize + w] = masked ? ~maskFrame.getData().get(w) : 0xFFFFFFFF;
+			}
+		}
+	}
+
+	/**
+	 * Creates a comparator that compares all the bits of the configured frames of an FPGA.
+	 */
+	public ReadbackComparator(FPGA expected) {
+		this(expected, null);
+	}
+
+	/**
+	 * Compares a raw readback file that starts at frame address 0.
+	 */
+	public Result compare(File readback) throws IOException {
+		return compare(readback, 0);
+	}
+
+	/**
+	 * Compares a raw readback file.
+	 * @param readback The readback file.
+	 * @param far The address of the first frame read back.
+	 */
+	public Result compare(File readback, int far) throws IOException {
+		FileInputStream input = new FileInputStream(readback);
+		try {
+			return compare(input.getChannel(), far);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Compares the raw readback data of a channel, reading until the end of the
+	 * channel or the last frame of the device.
+	 * @param channel The channel of the readback data (such as a FileChannel).
+	 * @param far The address of the first frame read back.
+	 */
+	public Result compare(ReadableByteChannel channel, int far) throws IOException {
+		long start = System.nanoTime();
+		int first = getFrameIndex(far);
+		int[] upsets = new int[frameAddresses.length];
+		long bytes = 0;
+		// The pad frame is skipped by starting one frame before the first frame
+		int word = (first - 1) * frameSize;
+		int end = expectedWords.length;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_FRAMES * frameSize * 4);
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		int read;
+		while (word < end && (read = channel.read(buffer)) != -1) {
+			bytes += read;
+			buffer.flip();
+			IntBuffer words = buffer.asIntBuffer();
+			int count = Math.min(words.remaining(), end - word);
+			for (int i = 0; i < count; i++, word++) {
+				int readWord = words.get(i);
+				if (word < 0)
+					continue;
+				int diff = (readWord ^ expectedWords[word]) & compareMask[word];
+				if (diff != 0)
+					upsets[word / frameSize] += Integer.bitCount(diff);
+			}
+			// Keep the bytes of an incomplete word for the next read
+			buffer.position(buffer.position() + count * 4);
+			buffer.compact();
+		}
+		int framesRead = Math.max(0, word / frameSize - first);
+		return new Result(frameAddresses, upsets, framesRead, bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Compares the frames of an FPGA (such as a ReadbackFPGA) instead of raw readback data.
+	 * Frames of the FPGA that are not configured are not compared.
+	 */
+	public Result compare(FPGA readback) {
+		if (readback.getDeviceSpecification() != spec) {
+			throw new IllegalArgumentException("The readback is for a different part");
+		}
+		long start = System.nanoTime();
+		int[] upsets = new int[frameAddresses.length];
+		int framesRead = 0;
+		for (int i = 0; i < frameAddresses.length; i++) {
+			Frame frame = readback.configData[i];
+			if (!frame.isConfigured() || frame.getData() == null)
+				continue;
+			framesRead++;
+			FrameData data = frame.getData();
+			int base = i * frameSize;
+			for (int w = 0; w < frameSize; w++) {
+				int diff = (data.get(w) ^ expectedWords[base + w]) & compareMask[base + w];
+				if (diff != 0)
+					upsets[i] += Integer.bitCount(diff);
+			}
+		}
+		return new Result(frameAddresses, upsets, framesRead, (long) framesRead * frameSize * 4,
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the part of the expected configuration.
+	 */
+	public XilinxConfigurationSpecification getDeviceSpecification() {
+		return spec;
+	}
+
+	private int getFrameIndex(int far) {
+		for (int i = 0; i < frameAddresses.length; i++) {
+			if (frameAddresses[i] == far)
+				return i;
+		}
+		throw new IllegalArgumentException("Invalid frame address 0x" + Integer.toHexString(far));
+	}
+
+	/**
+	 * The upsets found in one readback.
+	 */
+	public static class Result {
+
+		Result(int[] frameAddresses, int[] upsets, int framesRead, long bytes, long nanoseconds) {
+			int count = 0;
+			long total = 0;
+			for (int u : upsets) {
+				if (u != 0) {
+					count++;
+					total += u;
+				}
+			}
+			upsetFrames = new int[count];
+			upsetCounts = new int[count];
+			for (int i = 0, j = 0; i < upsets.length; i++) {
+				if (upsets[i] != 0) {
+					upsetFrames[j] = frameAddresses[i];
+					upsetCounts[j++] = upsets[i];
+				}
+			}
+			this.totalUpsets = total;
+			this.framesRead = framesRead;
+			this.bytes = bytes;
+			this.nanoseconds = nanoseconds;
+		}
+
+		/**
+		 * Returns the total number of upset bits.
+		 */
+		public long getTotalUpsets() {
+			return totalUpsets;
+		}
+
+		/**
+		 * Returns the addresses of the frames with upsets, in frame order.
+		 * The returned array must not be modified.
+		 */
+		public int[] getUpsetFrames() {
+			return upsetFrames;
+		}
+
+		/**
+		 * Returns the number of upset bits of each frame of getUpsetFrames().
+		 * The returned array must not be modified.
+		 */
+		public int[] getUpsetCounts() {
+			return upsetCounts;
+		}
+
+		/**
+		 * Returns the number of complete frames compared (not counting the pad frame).
+		 */
+		public int getFramesRead() {
+			return framesRead;
+		}
+
+		/**
+		 * Returns the number of bytes of readback data processed.
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Returns the time spent comparing in nanoseconds.
+		 */
+		public long getNanoseconds() {
+			return nanoseconds;
+		}
+
+		/**
+		 * Returns the number of megabytes of readback data compared per second.
+		 */
+		public double getMegabytesPerSecond() {
+			return nanoseconds == 0 ? 0 : bytes * 1e9 / nanoseconds / (1 << 20);
+		}
+
+		public String toString() {
+			return framesRead + " frames compared, " + totalUpsets + " upsets in " + upsetFrames.length +
+				" frames (" + String.format("%.1f", getMegabytesPerSecond()) + " MB/s)";
+		}
+
+		private final int[] upsetFrames;
+		private final int[] upsetCounts;
+		private final long totalUpsets;
+		private final int framesRead;
+		private final long bytes;
+		private final long nanoseconds;
+	}
+
+	/** Number of frames read from the channel at a time */
+	private static final int BUFFER_FRAMES = 1024;
+
+	/** The part of the expected configuration */
+	private final XilinxConfigurationSpecification spec;
+	/** Number of 32-bit words in a frame */
+	private final int frameSize;
+	/** The address of each frame, in configuration order */
+	private final int[] frameAddresses;
+	/** The expected words of all the frames, in configuration order */
+	private final int[] expectedWords;
+	/** The bits of each word that are compared (0 for the words of unconfigured frames) */
+	private final int[] compareMask;
+}
@@ -79,7 +79,7 @@ public class BitstreamManipulation {
 		cmdLineParser.accepts(BRAM_OPTION_STRING, "Generate BRAM");
 		cmdLineParser.accepts(PARTIAL_OPTION_STRING, "Generate Partial");
 		cmdLineParser.accepts(FULL_OPTION_STRING, "Generate Full bitstream");
-		//cmdLineParser.accepts(CONDENSE_OPTION_STRING, "Generate condensed bitstream");
+		cmdLineParser.accepts(CONDENSE_OPTION_STRING, "Generate condensed (multiple frame write) full bitstream, or partial bitstream with -t");
 		cmdLineParser.accepts(XOR_STRING, 
 				"Perform XOR operation with operational bitfile");
 		cmdLineParser.accepts(OVERWRITE_STRING, 
@@ -239,7 +239,9 @@ public class BitstreamManipulation {
 				System.err.println("Only one write can be performed.");
 				System.exit(1);
 			}
-			if (options.has(NEW_ALGORITHM)) {
+			if (options.has(CONDENSE_OPTION_STRING)) {
+				newBitstream = partInfo.getBitstreamGenerator().createCompressedPartialBitstream(fpga, newHeader);
+			} else if (options.has(NEW_ALGORITHM)) {
 				// New algorithm (currently same as old algorithm)
 				newBitstream = partInfo.getBitstreamGenerator().createPartialBitstream(fpga, newHeader);
 			} else {
@@ -269,23 +271,18 @@ public class BitstreamManipulation {
 			}				
 		}
 
-		if (options.has(CONDENSE_OPTION_STRING)) {
+		if (options.has(CONDENSE_OPTION_STRING) && !options.has(PARTIAL_OPTION_STRING)) {
 			if (newBitstream != null) {
-				System.err.println("Only one write can be performed. Option -t ignored");
+				System.err.println("Only one write can be performed. Option -c ignored");
 				System.exit(1);
 			}
-			// TODO
-			System.err.println("Condense Operation is currently not supported");
-			System.exit(1);
-			/*
-			if(fpga.WriteCondensedBitstreamToBIT(outputBitstreamFileName)) {
+			newBitstream = partInfo.getBitstreamGenerator().createCompressedFullBitstream(fpga, bitstream.getHeader());
+			if (writeBitstreamToBIT(newBitstream, outputBitstreamFileName) == 0) {
 				System.out.println("Generated Condensed Bitstream:"+outputBitstreamFileName);
-				bitstreamWritten = true;
 			} else {
 				System.err.println("Problem generating condensed bitstream");
 				System.exit(1);
-			}	
-			*/			
+			}			
 		}
 		
 		// Check for an operation: must have at least one operation specified
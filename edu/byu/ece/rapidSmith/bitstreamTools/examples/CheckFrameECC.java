@@ -26,6 +26,7 @@ import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.BitstreamParser;
 import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FPGA;
 import edu.byu.ece.rapidSmith.bitstreamTools.configuration.Frame;
 import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FrameAddressRegister;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FrameECC;
 import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.DeviceLookup;
 import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
 
@@ -188,6 +189,17 @@ public class CheckFrameECC{
 		XilinxConfigurationSpecification spec = DeviceLookup.lookupPartFromPartnameOrBitstreamExitOnError(bitstream);
 		FPGA fpga = new FPGA(spec);
 		fpga.configureBitstream(bitstream);
+		
+		// Without a mask bitstream only check the stored ECC of each frame
+		if(args.length < 2){
+			FrameECC ecc = new FrameECC(spec);
+			FrameECC.Result result = ecc.verify(fpga);
+			for(Integer far : result.getBadFrames()){
+				System.out.println(getFARString(spec, fpga.getFrame(far)));
+			}
+			System.out.println(result);
+			return;
+		}
 			
 		Bitstream bitstreamMask = BitstreamParser.parseBitstreamExitOnError(args[1]);
 		XilinxConfigurationSpecification specMask = DeviceLookup.lookupPartFromPartnameOrBitstreamExitOnError(bitstream);
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstreamTools.examples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import joptsimple.OptionSet;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Bitstream;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.BitstreamGenerator;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FPGA;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FrameAddressRegister;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+import edu.byu.ece.rapidSmith.bitstreamTools.examples.support.BitstreamOptionParser;
+
+/**
+ * This executable compares the size and generation time of the full and partial 
+ * bitstreams and of the compressed (multiple frame write) full and partial 
+ * bitstreams of a design. It checks that both full bitstreams configure the same
+ * frames and that the compressed partial bitstream, loaded on an empty FPGA, gives
+ * the frame contents of the input bitstream. The compressed full bitstream can be 
+ * written with -o.
+ */
+public class CompressedBitstreamBenchmark {
+
+	public static final String ITERATIONS_OPTION = "n";
+	public static final String ITERATIONS_OPTION_HELP = "Number of times each bitstream is generated (default: 10)";
+
+	public static final String[] HELP_DESCRIPTION = {
+		"Compares the full and partial bitstreams with the compressed full and partial bitstreams of the input bitstream",
+	};
+
+	public static void main(String[] args) {
+
+		/** Setup parser **/
+		BitstreamOptionParser cmdLineParser = new BitstreamOptionParser(HELP_DESCRIPTION);
+		cmdLineParser.addInputBitstreamOption();
+		cmdLineParser.addPartNameOption();
+		cmdLineParser.addHelpOption();
+		cmdLineParser.addOutputBitstreamOption();
+		cmdLineParser.accepts(ITERATIONS_OPTION, ITERATIONS_OPTION_HELP).withRequiredArg().ofType(Integer.class);
+
+		OptionSet options = cmdLineParser.parseArgumentsExitOnError(args);
+
+		BitstreamOptionParser.printExecutableHeaderMessage(CompressedBitstreamBenchmark.class);
+
+		cmdLineParser.checkHelpOptionExitOnHelpMessage(options);
+		int iterations = options.has(ITERATIONS_OPTION) ? (Integer) options.valueOf(ITERATIONS_OPTION) : 10;
+
+		/////////////////////////////////////////////////////////////////////
+		// 1. Configure the FPGA with the input bitstream
+		/////////////////////////////////////////////////////////////////////
+		Bitstream bitstream = cmdLineParser.parseRequiredBitstreamFromOptionsExitOnError(options, true);
+		XilinxConfigurationSpecification partInfo = cmdLineParser.getPartInfoExitOnError(options, bitstream, true);
+		FPGA fpga = new FPGA(partInfo);
+		fpga.configureBitstream(bitstream);
+		BitstreamGenerator generator = partInfo.getBitstreamGenerator();
+
+		/////////////////////////////////////////////////////////////////////
+		// 2. Generate both bitstreams
+		/////////////////////////////////////////////////////////////////////
+		Bitstream full = null;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			full = generator.createFullBitstream(fpga, bitstream.getHeader());
+		long fullTime = (System.nanoTime() - start) / iterations;
+
+		Bitstream compressed = null;
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			compressed = generator.createCompressedFullBitstream(fpga, bitstream.getHeader());
+		long compressedTime = (System.nanoTime() - start) / iterations;
+
+		Bitstream partial = null;
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			partial = generator.createPartialBitstream(fpga, bitstream.getHeader());
+		long partialTime = (System.nanoTime() - start) / iterations;
+
+		Bitstream compressedPartial = null;
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			compressedPartial = generator.createCompressedPartialBitstream(fpga, bitstream.getHeader());
+		long compressedPartialTime = (System.nanoTime() - start) / iterations;
+
+		if (full == null || compressed == null || partial == null || compressedPartial == null) {
+			System.err.println("Problem generating the bitstreams");
+			System.exit(1);
+		}
+
+		/////////////////////////////////////////////////////////////////////
+		// 3. Check that the compressed bitstreams configure the same frames
+		/////////////////////////////////////////////////////////////////////
+		FPGA fullFPGA = new FPGA(partInfo);
+		fullFPGA.configureBitstream(full);
+		FPGA compressedFPGA = new FPGA(partInfo);
+		compressedFPGA.configureBitstream(compressed);
+		ArrayList<Integer> differences = fullFPGA.getDifferingFrames(compressedFPGA, false);
+		FPGA compressedPartialFPGA = new FPGA(partInfo);
+		compressedPartialFPGA.configureBitstream(compressedPartial);
+		int partialDifferences = getDifferingFrameCount(fpga, compressedPartialFPGA);
+
+		/////////////////////////////////////////////////////////////////////
+		// 4. Print the results
+		/////////////////////////////////////////////////////////////////////
+		printSizes("Full", full, fullTime, compressed, compressedTime);
+		printSizes("Partial", partial, partialTime, compressedPartial, compressedPartialTime);
+		if (!differences.isEmpty()) {
+			System.err.println("The compressed full bitstream differs in " + differences.size() + " frames");
+			System.exit(1);
+		}
+		if (partialDifferences != 0) {
+			System.err.println("The compressed partial bitstream differs in " + partialDifferences + " frames");
+			System.exit(1);
+		}
+		System.out.println("The compressed bitstreams configure the same frames");
+
+		if (options.has(BitstreamOptionParser.OUTPUT_BITSTREAM_OPTION)) {
+			String outputFileName = cmdLineParser.getOutputFileNameStringExitOnError(options);
+			if (BitstreamManipulation.writeBitstreamToBIT(compressed, outputFileName) != 0) {
+				System.err.println("Problem writing the compressed bitstream");
+				System.exit(1);
+			}
+			System.out.println("Generated Compressed Bitstream:" + outputFileName);
+		}
+	}
+
+	/**
+	 * Returns the number of frames whose contents differ between two FPGAs, frames
+	 * which were not configured count as frames of zeros.
+	 */
+	private static int getDifferingFrameCount(FPGA expected, FPGA actual) {
+		int count = 0;
+		FrameAddressRegister far = new FrameAddressRegister(expected.getDeviceSpecification());
+		for (; far.validFARAddress(); far.incrementFAR()) {
+			if (!expected.getFrame(far).getData().isEqual(actual.getFrame(far).getData()))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Prints the sizes and generation times of a bitstream and of its compressed version.
+	 */
+	private static void printSizes(String kind, Bitstream bitstream, long time, 
+			Bitstream compressed, long compressedTime) {
+		int size = getSize(bitstream);
+		int compressedSize = getSize(compressed);
+		System.out.println(kind + " bitstream: " + size + " bytes, " +
+				String.format("%.2f", time / 1e6) + " ms");
+		System.out.println(kind + " compressed bitstream: " + compressedSize + " bytes, " +
+				String.format("%.2f", compressedTime / 1e6) + " ms");
+		System.out.println(kind + " compression ratio: " + String.format("%.2f", (double) size / compressedSize));
+	}
+
+	/**
+	 * Returns the size in bytes of the bitstream with its header.
+	 */
+	private static int getSize(Bitstream bitstream) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			bitstream.outputHeaderBitstream(out);
+		} catch (IOException e) {
+			return -1;
+		}
+		return out.size();
+	}
+}
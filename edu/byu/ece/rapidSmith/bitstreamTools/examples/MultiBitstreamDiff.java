@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstreamTools.examples;
+
+import java.io.IOException;
+import java.util.List;
+
+import joptsimple.OptionSet;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Bitstream;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.BitstreamBatchDiff;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FPGA;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+import edu.byu.ece.rapidSmith.bitstreamTools.examples.support.BitstreamOptionParser;
+
+/**
+ * This executable compares any number of bitstreams (given after the options)
+ * against a golden bitstream in parallel and summarizes the differences of
+ * each one.
+ */
+public class MultiBitstreamDiff {
+
+	public static final String MASK_BITSTREAM_OPTION = "mask";
+	public static final String MASK_BITSTREAM_OPTION_HELP = "Mask bitfile to apply to all bitstreams";
+	public static final String IGNORE_UNCONFIGURED_FRAMES_OPTION = "ignore-unconfigured";
+	public static final String IGNORE_UNCONFIGURED_FRAMES_OPTION_HELP =
+		"Ignore differences in frames when one of the frames is unconfigured.";
+	public static final String CSV_OPTION = "csv";
+	public static final String CSV_OPTION_HELP = "Filename of the CSV summary to write";
+	public static final String BINARY_OPTION = "bin";
+	public static final String BINARY_OPTION_HELP = "Filename of the binary report (with frame addresses) to write";
+	public static final String THREADS_OPTION = "threads";
+	public static final String THREADS_OPTION_HELP = "Number of bitstreams compared at the same time (default: number of processors)";
+
+	public static final String[] HELP_DESCRIPTION = {
+		"Compares many bitstreams against a golden bitstream (-i) and summarizes the differences",
+	};
+
+	public static void main(String[] args) {
+
+		/** Setup parser **/
+		BitstreamOptionParser cmdLineParser = new BitstreamOptionParser(HELP_DESCRIPTION);
+		cmdLineParser.addInputBitstreamOption();
+		cmdLineParser.addPartNameOption();
+		cmdLineParser.addHelpOption();
+		cmdLineParser.accepts(MASK_BITSTREAM_OPTION, MASK_BITSTREAM_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(IGNORE_UNCONFIGURED_FRAMES_OPTION, IGNORE_UNCONFIGURED_FRAMES_OPTION_HELP);
+		cmdLineParser.accepts(CSV_OPTION, CSV_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(BINARY_OPTION, BINARY_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(THREADS_OPTION, THREADS_OPTION_HELP).withRequiredArg().ofType(Integer.class);
+
+		OptionSet options = cmdLineParser.parseArgumentsExitOnError(args);
+
+		BitstreamOptionParser.printExecutableHeaderMessage(MultiBitstreamDiff.class);
+
+		/////////////////////////////////////////////////////////////////////
+		// Begin basic command line parsing
+		/////////////////////////////////////////////////////////////////////
+		cmdLineParser.checkHelpOptionExitOnHelpMessage(options);
+		List<String> fileNames = options.nonOptionArguments();
+		if (fileNames.isEmpty()) {
+			System.err.println("No bitstreams to compare were given");
+			System.exit(1);
+		}
+		int threads = options.has(THREADS_OPTION) ? (Integer) options.valueOf(THREADS_OPTION) :
+			Runtime.getRuntime().availableProcessors();
+
+		/////////////////////////////////////////////////////////////////////
+		// 1. Get golden and mask FPGA objects
+		/////////////////////////////////////////////////////////////////////
+		FPGA golden = cmdLineParser.createFPGAFromBitstreamOrReadbackFileExitOnError(options);
+		FPGA mask = null;
+		Bitstream maskBitstream = cmdLineParser.parseOptionalBitstreamFromOptionsExitOnError(options, MASK_BITSTREAM_OPTION, true);
+		if (maskBitstream != null) {
+			XilinxConfigurationSpecification partInfo = cmdLineParser.getPartInfoExitOnError(options, maskBitstream, true);
+			mask = new FPGA(partInfo);
+			mask.configureBitstream(maskBitstream);
+		}
+
+		/////////////////////////////////////////////////////////////////////
+		// 2. Compare the bitstreams
+		/////////////////////////////////////////////////////////////////////
+		BitstreamBatchDiff diff = new BitstreamBatchDiff(golden, mask, options.has(IGNORE_UNCONFIGURED_FRAMES_OPTION));
+		BitstreamBatchDiff.Report report = diff.compare(fileNames, threads);
+		for (BitstreamBatchDiff.Result r : report.getResults()) {
+			if (r.getError() != null)
+				System.out.println(r.getName() + ": " + r.getError());
+			else
+				System.out.println(r.getName() + ": " + r.getDifferingFrames().length + " differing frames, " +
+						r.getDifferingBits() + " differing bits");
+		}
+		System.out.println(report);
+
+		/////////////////////////////////////////////////////////////////////
+		// 3. Write the reports
+		/////////////////////////////////////////////////////////////////////
+		try {
+			if (options.has(CSV_OPTION))
+				report.writeCSV((String) options.valueOf(CSV_OPTION));
+			if (options.has(BINARY_OPTION))
+				report.writeBinary((String) options.valueOf(BINARY_OPTION));
+		} catch (IOException e) {
+			System.err.println("Error writing report: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
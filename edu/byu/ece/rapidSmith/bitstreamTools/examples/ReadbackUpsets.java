@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.bitstreamTools.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+import joptsimple.OptionSet;
+import edu.byu.ece.rapidSmith.bitstream.FrameTileIndex;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Bitstream;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FPGA;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.ReadbackComparator;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+import edu.byu.ece.rapidSmith.bitstreamTools.examples.support.BitstreamOptionParser;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.util.FileTools;
+
+/**
+ * This executable compares raw readback files (given after the options)
+ * against the configuration of a bitstream and reports the upset bits of
+ * each frame and, when a device is given, of each tile.
+ */
+public class ReadbackUpsets {
+
+	public static final String MASK_BITSTREAM_OPTION = "mask";
+	public static final String MASK_BITSTREAM_OPTION_HELP = "Mask bitfile (.msk) of the bits that are not compared";
+	public static final String FAR_OPTION = "far";
+	public static final String FAR_OPTION_HELP = "Frame address (hex) of the first frame read back (default: 0)";
+	public static final String DEVICE_OPTION = "device";
+	public static final String DEVICE_OPTION_HELP = "Name of the device with package (such as xc5vlx30tff665) to report upsets per tile";
+	public static final String INDEX_OPTION = "index";
+	public static final String INDEX_OPTION_HELP = "File the frame/tile index of the device is loaded from, or saved to if it does not exist";
+	public static final String SUMMARY_OPTION = "summary";
+	public static final String SUMMARY_OPTION_HELP = "Only print the summary of each readback file";
+
+	public static final String[] HELP_DESCRIPTION = {
+		"Counts the upset bits of readback files compared to the configuration of a bitstream (-i)",
+	};
+
+	public static void main(String[] args) {
+
+		/** Setup parser **/
+		BitstreamOptionParser cmdLineParser = new BitstreamOptionParser(HELP_DESCRIPTION);
+		cmdLineParser.addInputBitstreamOption();
+		cmdLineParser.addPartNameOption();
+		cmdLineParser.addHelpOption();
+		cmdLineParser.accepts(MASK_BITSTREAM_OPTION, MASK_BITSTREAM_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(FAR_OPTION, FAR_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(DEVICE_OPTION, DEVICE_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(INDEX_OPTION, INDEX_OPTION_HELP).withRequiredArg().ofType(String.class);
+		cmdLineParser.accepts(SUMMARY_OPTION, SUMMARY_OPTION_HELP);
+
+		OptionSet options = cmdLineParser.parseArgumentsExitOnError(args);
+
+		BitstreamOptionParser.printExecutableHeaderMessage(ReadbackUpsets.class);
+
+		cmdLineParser.checkHelpOptionExitOnHelpMessage(options);
+		List<String> fileNames = options.nonOptionArguments();
+		if (fileNames.isEmpty()) {
+			System.err.println("No readback files were given");
+			System.exit(1);
+		}
+		int far = cmdLineParser.getIntegerStringExitOnError(options, FAR_OPTION, 16, 0);
+		boolean summary = options.has(SUMMARY_OPTION);
+
+		/////////////////////////////////////////////////////////////////////
+		// 1. Get the expected and mask FPGA objects
+		/////////////////////////////////////////////////////////////////////
+		Bitstream bitstream = cmdLineParser.parseRequiredBitstreamFromOptionsExitOnError(options, true);
+		XilinxConfigurationSpecification partInfo = cmdLineParser.getPartInfoExitOnError(options, bitstream, true);
+		FPGA expected = new FPGA(partInfo);
+		expected.configureBitstream(bitstream);
+		FPGA mask = null;
+		Bitstream maskBitstream = cmdLineParser.parseOptionalBitstreamFromOptionsExitOnError(options, MASK_BITSTREAM_OPTION, true);
+		if (maskBitstream != null) {
+			mask = new FPGA(partInfo);
+			mask.configureBitstream(maskBitstream);
+		}
+		ReadbackComparator comparator = new ReadbackComparator(expected, mask);
+
+		FrameTileIndex index = null;
+		if (options.has(DEVICE_OPTION)) {
+			Device dev = FileTools.loadDevice((String) options.valueOf(DEVICE_OPTION));
+			if (dev != null && options.has(INDEX_OPTION))
+				index = FrameTileIndex.getFrameTileIndex(dev, partInfo, (String) options.valueOf(INDEX_OPTION));
+			else if (dev != null)
+				index = FrameTileIndex.getFrameTileIndex(dev, partInfo);
+			if (index == null) {
+				System.err.println("Could not index the tiles of the device");
+				System.exit(1);
+			}
+		}
+
+		/////////////////////////////////////////////////////////////////////
+		// 2. Compare each readback file
+		/////////////////////////////////////////////////////////////////////
+		for (String fileName : fileNames) {
+			ReadbackComparator.Result result = null;
+			try {
+				result = comparator.compare(new File(fileName), far);
+			} catch (IOException e) {
+				System.err.println(fileName + ": " + e.getMessage());
+				continue;
+			}
+			System.out.println(fileName + ": " + result);
+			if (summary)
+				continue;
+			int[] frames = result.getUpsetFrames();
+			int[] counts = result.getUpsetCounts();
+			for (int i = 0; i < frames.length; i++) {
+				System.out.println("  Frame 0x" + Integer.toHexString(frames[i]) + ": " + counts[i]);
+			}
+			if (index != null) {
+				HashMap<Tile, Integer> tileCounts = index.getTileCounts(frames, counts);
+				for (Tile tile : tileCounts.keySet()) {
+					System.out.println("  Tile " + tile.getName() + ": " + tileCounts.get(tile));
+				}
+			}
+		}
+	}
+}
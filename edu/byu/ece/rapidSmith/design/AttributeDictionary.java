@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.design;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.byu.ece.rapidSmith.device.PrimitiveType;
+
+/**
+ * This class holds the dictionaries used to store instance attributes
+ * compactly.  Each primitive type has its own enumeration of attribute
+ * physical names (name ordinals), which is shared by all designs as it is
+ * bounded by the attributes the primitive types define.  Logical names and
+ * values are enumerated by a dictionary object owned by each design (see
+ * Design.getAttributeDictionary()), so they are freed with the design.  An
+ * instance then only needs three ints per attribute (see Instance).
+ * Name lookups do not lock, only adding a new name does.  Like the rest of
+ * a design, a design's dictionary is not meant to be changed by several
+ * threads at once.
+ * Created on: Oct 19, 2026
+ */
+public class AttributeDictionary {
+
+	/** Index of the name table used for instances without a type */
+	private static final int NO_TYPE = PrimitiveType.values().length;
+	/** Maps physical names to name ordinals for each primitive type */
+	private static final ConcurrentHashMap<String,Integer>[] nameOrdinals;
+	/** The physical names of each primitive type, by name ordinal */
+	private static volatile String[][] names;
+	/** Open addressing table of the ordinals of the logical names and values
+	 * of this dictionary (ordinal+1, 0 marks an empty slot) */
+	private int[] stringSlots;
+	/** The logical names and values of this dictionary, by ordinal */
+	private String[] strings;
+	/** The number of strings in this dictionary */
+	private int stringCount;
+
+	static{
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ConcurrentHashMap<String,Integer>[] maps = new ConcurrentHashMap[NO_TYPE+1];
+		nameOrdinals = maps;
+		names = new String[NO_TYPE+1][];
+		for(int i=0; i < maps.length; i++){
+			maps[i] = new ConcurrentHashMap<String,Integer>();
+			names[i] = new String[16];
+		}
+	}
+
+	/**
+	 * Gets the ordinal of a physical attribute name for a primitive type,
+	 * adding the name if the type has not seen it yet.
+	 * @param type The primitive type of the instance (may be null).
+	 * @param physicalName The physical name of the attribute.
+	 * @return The ordinal of the name for the type.
+	 */
+	public static int getNameOrdinal(PrimitiveType type, String physicalName){
+		Integer ordinal = nameOrdinals[type == null ? NO_TYPE : type.ordinal()].get(physicalName);
+		return ordinal != null ? ordinal : addName(type, physicalName);
+	}
+
+	private static synchronized int addName(PrimitiveType type, String physicalName){
+		int t = type == null ? NO_TYPE : type.ordinal();
+		ConcurrentHashMap<String,Integer> map = nameOrdinals[t];
+		Integer ordinal = map.get(physicalName);
+		if(ordinal != null){
+			return ordinal;
+		}
+		int o = map.size();
+		String[] typeNames = names[t];
+		if(o == typeNames.length){
+			typeNames = Arrays.copyOf(typeNames, o*2);
+		}
+		typeNames[o] = physicalName;
+		String[][] newNames = names.clone();
+		newNames[t] = typeNames;
+		// Publish the name before its ordinal so readers of the ordinal find it
+		names = newNames;
+		map.put(physicalName, o);
+		return o;
+	}
+
+	/**
+	 * Looks up the ordinal of a physical attribute name without adding it.
+	 * @param type The primitive type of the instance (may be null).
+	 * @param physicalName The physical name of the attribute.
+	 * @return The ordinal of the name for the type, or -1 if it has none.
+	 */
+	public static int findNameOrdinal(PrimitiveType type, String physicalName){
+		Integer ordinal = nameOrdinals[type == null ? NO_TYPE : type.ordinal()].get(physicalName);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * Gets the physical attribute name of a name ordinal.
+	 * @param type The primitive type of the instance (may be null).
+	 * @param ordinal The name ordinal (from getNameOrdinal()).
+	 * @return The physical name of the attribute.
+	 */
+	public static String getName(PrimitiveType type, int ordinal){
+		return names[type == null ? NO_TYPE : type.ordinal()][ordinal];
+	}
+
+	/**
+	 * Creates an empty dictionary of logical names and values.
+	 */
+	public AttributeDictionary(){
+		stringSlots = new int[32];
+		strings = new String[16];
+		stringCount = 0;
+	}
+
+	/**
+	 * Gets the ordinal of a logical name or value, adding the string to
+	 * this dictionary if it is not in it yet.
+	 * @param string The string to look up (may be null).
+	 * @return The ordinal of the string, or -1 if string is null.
+	 */
+	public int getStringOrdinal(String string){
+		if(string == null){
+			return -1;
+		}
+		int slot = findSlot(string);
+		if(stringSlots[slot] != 0){
+			return stringSlots[slot]-1;
+		}
+		int o = stringCount++;
+		if(o == strings.length){
+			strings = Arrays.copyOf(strings, o*2);
+		}
+		strings[o] = string;
+		stringSlots[slot] = o+1;
+		// Keep the table at most half full
+		if(2*stringCount > stringSlots.length){
+			stringSlots = new int[stringSlots.length*2];
+			for(int i=0; i < stringCount; i++){
+				stringSlots[findSlot(strings[i])] = i+1;
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * Looks up the ordinal of a logical name or value without adding it.
+	 * @param string The string to look up (may be null).
+	 * @return The ordinal of the string, or -1 if it is null or not in this dictionary.
+	 */
+	public int findStringOrdinal(String string){
+		return string == null ? -1 : stringSlots[findSlot(string)]-1;
+	}
+
+	/**
+	 * Gets the logical name or value of an ordinal.
+	 * @param ordinal The ordinal of the string (from getStringOrdinal()).
+	 * @return The string, or null if ordinal is -1.
+	 */
+	public String getString(int ordinal){
+		return ordinal == -1 ? null : strings[ordinal];
+	}
+
+	/**
+	 * Gets the number of logical names and values in this dictionary.
+	 * @return The number of strings in this dictionary.
+	 */
+	public int size(){
+		return stringCount;
+	}
+
+	/**
+	 * Finds the slot of string in the table, which is the empty slot where
+	 * it would go if it is not in this dictionary.
+	 */
+	private int findSlot(String string){
+		int mask = stringSlots.length-1;
+		int h = string.hashCode();
+		int slot = (h ^ (h >>> 16)) & mask;
+		while(stringSlots[slot] != 0 && !strings[stringSlots[slot]-1].equals(string)){
+			slot = (slot+1) & mask;
+		}
+		return slot;
+	}
+}
@@ -23,11 +23,17 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import edu.byu.ece.rapidSmith.design.parser.DesignParser;
@@ -67,12 +73,19 @@ public class Design implements Serializable{
 	private HashMap<String,ModuleInstance> moduleInstances;
 	/** This is a list of all the instances of primitives and macros in the design */
 	private HashMap<String,Instance> instances;
-	/** A map used to keep track of all used primitive sites used by the design */
-	private HashMap<PrimitiveSite,Instance> usedPrimitiveSites;
+	/** Marks the primitive sites used by the design, by site index (see PrimitiveSite.getIndex()) */
+	private BitSet usedSites;
+	/** The instance using each primitive site, by site index (null until a site is used) */
+	private Instance[] siteInstances;
+	/** The device of the used primitive sites, used to turn site indices back into sites */
+	private transient Device siteDevice;
 	/** This is a list of all the nets in the design */
 	private HashMap<String,Net> nets;
 	/** A flag designating if this is a design or hard macro */
 	private boolean isHardMacro;
+	/** The logical names and values of the instance attributes of the design 
+	 * (instances write their attributes as strings when serialized) */
+	private transient AttributeDictionary attributeDictionary;
 	
 	/** This is the actual part database device for the design specified by partName */
 	private transient Device dev;
@@ -100,7 +113,7 @@ public class Design implements Serializable{
 		attributes = new ArrayList<Attribute>();
 		modules = new HashMap<String, Module>();
 		instances = new HashMap<String, Instance>();
-		usedPrimitiveSites = new HashMap<PrimitiveSite, Instance>();
+		usedSites = new BitSet();
 		nets = new HashMap<String, Net>();
 		isHardMacro = false;
 		moduleInstances = new HashMap<String, ModuleInstance>();
@@ -142,7 +155,7 @@ public class Design implements Serializable{
 	 * @return True if this design uses site, false otherwise.
 	 */
 	public boolean isPrimitiveSiteUsed(PrimitiveSite site){
-		return usedPrimitiveSites.containsKey(site);
+		return usedSites.get(getSiteIndex(site));
 	}
 
 	/**
@@ -153,11 +166,26 @@ public class Design implements Serializable{
 	 */
 	protected Instance setPrimitiveSiteUsed(PrimitiveSite site, Instance inst){
 		if(site == null) return null;
-		return usedPrimitiveSites.put(site, inst);
+		int index = getSiteIndex(site);
+		if(siteInstances == null || siteDevice != site.getTile().getDevice()){
+			siteDevice = site.getTile().getDevice();
+			siteInstances = Arrays.copyOf(siteInstances == null ? new Instance[0] : siteInstances, 
+				Math.max(siteDevice.getPrimitiveSiteCount(), index+1));
+		}
+		Instance old = siteInstances[index];
+		siteInstances[index] = inst;
+		usedSites.set(index);
+		return old;
 	}
 	
 	protected Instance releasePrimitiveSite(PrimitiveSite site){
-		return usedPrimitiveSites.remove(site);
+		if(site == null) return null;
+		int index = getSiteIndex(site);
+		if(!usedSites.get(index)) return null;
+		Instance old = siteInstances[index];
+		siteInstances[index] = null;
+		usedSites.clear(index);
+		return old;
 	}
 	
 	/**
@@ -166,7 +194,85 @@ public class Design implements Serializable{
 	 * @return The instance at site, or null if the primitive site is unoccupied.
 	 */
 	public Instance getInstanceAtPrimitiveSite(PrimitiveSite site){
-		return usedPrimitiveSites.get(site);
+		int index = getSiteIndex(site);
+		return usedSites.get(index) ? siteInstances[index] : null;
+	}
+	
+	/**
+	 * Gets the dense index of a site.  Sites of a device which has not 
+	 * indexed its sites yet (only devices being created, loaded devices 
+	 * always are) get indexed first.
+	 */
+	private static int getSiteIndex(PrimitiveSite site){
+		if(site.getIndex() < 0){
+			site.getTile().getDevice().checkSitePinIndex();
+		}
+		return site.getIndex();
+	}
+
+	/**
+	 * Gets the device of the used sites (the design device if no site has
+	 * been used since the design was created or deserialized).
+	 */
+	private Device getSiteDevice(){
+		return siteDevice != null ? siteDevice : dev;
+	}
+
+	/**
+	 * Takes a snapshot of which instance is placed on which primitive site.
+	 * Giving the snapshot to restorePlacementSnapshot() undoes all placement
+	 * changes made since, so placers can cheaply try and undo moves.
+	 * @return The snapshot of the current placement.
+	 */
+	public PlacementSnapshot createPlacementSnapshot(){
+		return new PlacementSnapshot(this, (BitSet) usedSites.clone(), 
+			siteInstances == null ? new Instance[0] : siteInstances.clone());
+	}
+
+	/**
+	 * Restores the placement of the design to the one of the snapshot.  Only
+	 * the sites which changed since the snapshot are visited, each instance 
+	 * on them is moved back to the site it had in the snapshot (or unplaced 
+	 * if it was not placed on any site).
+	 * @param snapshot A snapshot taken from this design by createPlacementSnapshot().
+	 */
+	public void restorePlacementSnapshot(PlacementSnapshot snapshot){
+		if(snapshot.getDesign() != this){
+			MessageGenerator.briefError("The placement snapshot was not taken from design " + name);
+			return;
+		}
+		Instance[] saved = snapshot.siteInstances;
+		int length = siteInstances == null ? 0 : siteInstances.length;
+		
+		// Find the sites which changed and unplace the instances on them
+		BitSet changed = (BitSet) usedSites.clone();
+		changed.xor(snapshot.usedSites);
+		for(int i=usedSites.nextSetBit(0); i >= 0; i=usedSites.nextSetBit(i+1)){
+			if(i >= saved.length || siteInstances[i] != saved[i]){
+				changed.set(i);
+			}
+		}
+		for(int i=changed.nextSetBit(0); i >= 0; i=changed.nextSetBit(i+1)){
+			if(i < length && siteInstances[i] != null){
+				siteInstances[i].setSite(null);
+			}
+			if(i < saved.length && saved[i] != null){
+				saved[i].setSite(null);
+			}
+		}
+		
+		// Put the instances back on the sites they had in the snapshot
+		usedSites = (BitSet) snapshot.usedSites.clone();
+		if(siteInstances == null || length < saved.length){
+			siteInstances = new Instance[saved.length];
+		}
+		System.arraycopy(saved, 0, siteInstances, 0, saved.length);
+		Arrays.fill(siteInstances, saved.length, siteInstances.length, null);
+		for(int i=changed.nextSetBit(0); i >= 0; i=changed.nextSetBit(i+1)){
+			if(i < saved.length && saved[i] != null){
+				saved[i].setSite(getSiteDevice().getPrimitiveSite(i));
+			}
+		}
 	}
 	
 	/**
@@ -522,7 +628,139 @@ public class Design implements Serializable{
 		instance.setNetList(null);
 		return true;
 	}
-	
+
+	/**
+	 * Removes several instances from the design the same way
+	 * removeInstance() does, in a single pass over the instances of the 
+	 * design.  Instances are matched by identity, so instances renamed 
+	 * after they were added are still removed.  Each net connected to the
+	 * instances has their pins removed in one pass and is unrouted once, 
+	 * nets left without pins are removed from the design.  Instances that 
+	 * are part of a ModuleInstance are not removed.
+	 * @param instancesToRemove The instances in the design to remove.
+	 * @return True if all instances were removed, false otherwise.
+	 */
+	public boolean removeInstances(Collection<Instance> instancesToRemove){
+		boolean success = true;
+		Set<Instance> remove = Collections.newSetFromMap(new IdentityHashMap<Instance,Boolean>());
+		for(Instance instance : instancesToRemove){
+			if(instance.getModuleInstance() != null){
+				success = false;
+			}
+			else{
+				remove.add(instance);
+			}
+		}
+		if(remove.isEmpty()){
+			return success;
+		}
+		IdentityHashMap<Net,ArrayList<Pin>> netPins = new IdentityHashMap<Net,ArrayList<Pin>>();
+		Iterator<Instance> it = instances.values().iterator();
+		while(it.hasNext()){
+			Instance instance = it.next();
+			if(!remove.contains(instance)){
+				continue;
+			}
+			it.remove();
+			for(Pin p : instance.getPins()){
+				if(p.getNet() != null){
+					ArrayList<Pin> pins = netPins.get(p.getNet());
+					if(pins == null){
+						pins = new ArrayList<Pin>();
+						netPins.put(p.getNet(), pins);
+					}
+					pins.add(p);
+				}
+			}
+			releasePrimitiveSite(instance.getPrimitiveSite());
+			instance.setDesign(null);
+			instance.setNetList(null);
+		}
+		Set<Net> emptyNets = Collections.newSetFromMap(new IdentityHashMap<Net,Boolean>());
+		for(Net net : netPins.keySet()){
+			net.removePins(netPins.get(net));
+			if(net.getPins().size() == 0){
+				emptyNets.add(net);
+			}
+		}
+		if(!emptyNets.isEmpty()){
+			nets.values().removeAll(emptyNets);
+		}
+		return success;
+	}
+
+	/**
+	 * Removes several nets from the design the same way removeNet() does, 
+	 * in a single pass over the nets of the design.  Nets are matched by 
+	 * identity, so nets renamed after they were added are still removed.
+	 * Nets which are part of a ModuleInstance are also removed from its
+	 * list of nets (in one pass for each ModuleInstance).
+	 * @param netsToRemove The nets to remove from the design.
+	 */
+	public void removeNets(Collection<Net> netsToRemove){
+		Set<Net> remove = Collections.newSetFromMap(new IdentityHashMap<Net,Boolean>());
+		remove.addAll(netsToRemove);
+		if(remove.isEmpty()){
+			return;
+		}
+		IdentityHashMap<ModuleInstance,Set<Net>> moduleInstanceNets = new IdentityHashMap<ModuleInstance,Set<Net>>();
+		Iterator<Net> it = nets.values().iterator();
+		while(it.hasNext()){
+			Net net = it.next();
+			if(!remove.contains(net)){
+				continue;
+			}
+			it.remove();
+			for(Pin p : net.getPins()){
+				if(p.getInstance() != null && p.getInstance().getNetList() != null){
+					p.getInstance().getNetList().remove(net);
+				}
+				if(net.equals(p.getNet())){
+					p.setNet(null);
+				}
+			}
+			ModuleInstance mi = net.getModuleInstance();
+			if(mi != null){
+				Set<Net> miNets = moduleInstanceNets.get(mi);
+				if(miNets == null){
+					miNets = Collections.newSetFromMap(new IdentityHashMap<Net,Boolean>());
+					moduleInstanceNets.put(mi, miNets);
+				}
+				miNets.add(net);
+			}
+		}
+		for(ModuleInstance mi : moduleInstanceNets.keySet()){
+			ArrayList<Net> remaining = new ArrayList<Net>(mi.getNets().size());
+			Set<Net> removed = moduleInstanceNets.get(mi);
+			for(Net net : mi.getNets()){
+				if(!removed.contains(net)){
+					remaining.add(net);
+				}
+			}
+			mi.setNets(remaining);
+		}
+	}
+
+	/**
+	 * Adds several instances to the design.
+	 * @param instancesToAdd The instances to add.
+	 */
+	public void addInstances(Collection<Instance> instancesToAdd){
+		for(Instance inst : instancesToAdd){
+			addInstance(inst);
+		}
+	}
+
+	/**
+	 * Adds several nets to the design.
+	 * @param netsToAdd The nets to add.
+	 */
+	public void addNets(Collection<Net> netsToAdd){
+		for(Net net : netsToAdd){
+			addNet(net);
+		}
+	}
+
 	/**
 	 * Get a module by name.
 	 * @param name The name of the module to get.
@@ -582,18 +820,60 @@ public class Design implements Serializable{
 	
 	/**
 	 * Returns the set of used primitive sites occupied by this
-	 * design's instances and module instances.
+	 * design's instances and module instances.  The set is a view of the
+	 * design's site occupancy, it changes as instances are placed.
 	 * @return The set of used primitive sites in this design.
 	 */
 	public Set<PrimitiveSite> getUsedPrimitiveSites(){
-		return usedPrimitiveSites.keySet();
+		return new AbstractSet<PrimitiveSite>(){
+			@Override
+			public boolean contains(Object o){
+				return o instanceof PrimitiveSite && isPrimitiveSiteUsed((PrimitiveSite) o);
+			}
+			
+			@Override
+			public boolean remove(Object o){
+				if(!contains(o)) return false;
+				releasePrimitiveSite((PrimitiveSite) o);
+				return true;
+			}
+			
+			@Override
+			public int size(){
+				return usedSites.cardinality();
+			}
+			
+			@Override
+			public Iterator<PrimitiveSite> iterator(){
+				return new Iterator<PrimitiveSite>(){
+					int next = usedSites.nextSetBit(0);
+					int last = -1;
+					public boolean hasNext(){
+						return next >= 0;
+					}
+					public PrimitiveSite next(){
+						if(next < 0) throw new NoSuchElementException();
+						last = next;
+						next = usedSites.nextSetBit(next+1);
+						return getSiteDevice().getPrimitiveSite(last);
+					}
+					public void remove(){
+						if(last < 0) throw new IllegalStateException();
+						siteInstances[last] = null;
+						usedSites.clear(last);
+						last = -1;
+					}
+				};
+			}
+		};
 	}
 	
 	/**
 	 * Clears out all the used sites in the design, use with caution.
 	 */
 	public void clearUsedPrimitiveSites(){
-		usedPrimitiveSites.clear();
+		usedSites.clear();
+		if(siteInstances != null) Arrays.fill(siteInstances, null);
 	}
 	
 	/**
@@ -628,6 +908,18 @@ public class Design implements Serializable{
 		return we;
 	}
 
+	/**
+	 * Gets the dictionary of the logical names and values of the instance
+	 * attributes of this design, creating it if needed.
+	 * @return The attribute dictionary of this design.
+	 */
+	public AttributeDictionary getAttributeDictionary(){
+		if(attributeDictionary == null){
+			attributeDictionary = new AttributeDictionary();
+		}
+		return attributeDictionary;
+	}
+
 	/**
 	 * Sets the WireEnumerator for this design.  
 	 * @param we The WireEnumerator to set for this design.
@@ -897,8 +1189,9 @@ public class Design implements Serializable{
 						for(Pin pin : net.getPins()){
 							bw.write("    "+pin.getPinType().toString().toLowerCase()+" \"" + pin.getInstanceName() + "\" " + pin.getName() +" ," + nl);
 						}
-						for(PIP pip : net.getPIPs()){
-							bw.write("    pip " + pip.getTile() +" "+ pip.getStartWireName(we) + " -> " + pip.getEndWireName(we) + " ," + nl);
+						PIPList netPIPs = net.getPIPs();
+						for(int k = 0; k < netPIPs.size(); k++){
+							bw.write("    pip " + netPIPs.getTile(k) +" "+ we.getWireName(netPIPs.getStartWire(k)) + " -> " + we.getWireName(netPIPs.getEndWire(k)) + " ," + nl);
 						}
 						bw.write("    ;" + nl);
 					}
@@ -1021,8 +1314,9 @@ public class Design implements Serializable{
 					for(Pin pin : net.getPins()){
 						bw.write("    "+pin.getPinType().toString().toLowerCase()+" \"" + pin.getInstanceName() + "\" " + pin.getName() +" ," + nl);
 					}
-					for(PIP pip : net.getPIPs()){
-						bw.write("    pip " + pip.getTile() +" "+ pip.getStartWireName(we) + " -> " + pip.getEndWireName(we) + " ," + nl);
+					PIPList netPIPs = net.getPIPs();
+					for(int k = 0; k < netPIPs.size(); k++){
+						bw.write("    pip " + netPIPs.getTile(k) +" "+ we.getWireName(netPIPs.getStartWire(k)) + " -> " + we.getWireName(netPIPs.getEndWire(k)) + " ," + nl);
 					}
 					bw.write("    ;" + nl);
 				}
@@ -1149,8 +1443,9 @@ public class Design implements Serializable{
 						for(Pin pin : net.getPins()){
 							bw.write("    "+pin.getPinType().toString().toLowerCase()+" \"" + pin.getInstanceName() + "\" " + pin.getName() +" ," + nl);
 						}
-						for(PIP pip : net.getPIPs()){
-							bw.write("    pip " + pip.getTile() +" "+ pip.getStartWireName(we) + " -> " + pip.getEndWireName(we) + " ," + nl);
+						PIPList netPIPs = net.getPIPs();
+						for(int k = 0; k < netPIPs.size(); k++){
+							bw.write("    pip " + netPIPs.getTile(k) +" "+ we.getWireName(netPIPs.getStartWire(k)) + " -> " + we.getWireName(netPIPs.getEndWire(k)) + " ," + nl);
 						}
 						bw.write("    ;" + nl);
 					}
@@ -1192,8 +1487,9 @@ public class Design implements Serializable{
 					}
 					//TODO need to know what nets to keep routed for ACE
 					if(net.getName().equals("clk_BUFGP/IBUFG")){
-						for(PIP pip : net.getPIPs()){
-							bw.write("    pip " + pip.getTile() +" "+ pip.getStartWireName(we) + " -> " + pip.getEndWireName(we) + " ," + nl);
+						PIPList netPIPs = net.getPIPs();
+						for(int k = 0; k < netPIPs.size(); k++){
+							bw.write("    pip " + netPIPs.getTile(k) +" "+ we.getWireName(netPIPs.getStartWire(k)) + " -> " + we.getWireName(netPIPs.getEndWire(k)) + " ," + nl);
 						}
 					}
 					bw.write("    ;" + nl);
@@ -1355,10 +1651,10 @@ public class Design implements Serializable{
 							bw.write(pins[k]);
 						}
 						
-						String[] pips = new String[net.getPIPs().size()];
+						PIPList netPIPs = net.getPIPs();
+						String[] pips = new String[netPIPs.size()];
 						for(int k = 0; k < pips.length; k++){
-							PIP pip = net.getPIPs().get(k);
-							pips[k] = ("    pip " + pip.getTile() +" "+ pip.getStartWireName(we) + " -> " + pip.getEndWireName(we) + " ," + nl);
+							pips[k] = ("    pip " + netPIPs.getTile(k) +" "+ we.getWireName(netPIPs.getStartWire(k)) + " -> " + we.getWireName(netPIPs.getEndWire(k)) + " ," + nl);
 						}
 						Arrays.sort(pips);
 						for(int k = 0; k < pips.length; k++){
@@ -1532,10 +1828,10 @@ public class Design implements Serializable{
 						bw.write(pins[k]);
 					}
 					
-					String[] pips = new String[net.getPIPs().size()];
+					PIPList netPIPs = net.getPIPs();
+					String[] pips = new String[netPIPs.size()];
 					for(int k = 0; k < pips.length; k++){
-						PIP pip = net.getPIPs().get(k);
-						pips[k] = ("    pip " + pip.getTile() +" "+ pip.getStartWireName(we) + " -> " + pip.getEndWireName(we) + " ," + nl);
+						pips[k] = ("    pip " + netPIPs.getTile(k) +" "+ we.getWireName(netPIPs.getStartWire(k)) + " -> " + we.getWireName(netPIPs.getEndWire(k)) + " ," + nl);
 					}
 					Arrays.sort(pips);
 					for(int k = 0; k < pips.length; k++){
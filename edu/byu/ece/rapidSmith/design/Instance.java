@@ -18,10 +18,17 @@
  */
 package edu.byu.ece.rapidSmith.design;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import edu.byu.ece.rapidSmith.device.PrimitiveSite;
@@ -37,15 +44,23 @@ import edu.byu.ece.rapidSmith.device.Tile;
  */
 public class Instance implements Serializable{
 
-	private static final long serialVersionUID = -7993281723620318536L;
+	private static final long serialVersionUID = 2204719311566741873L;
+	/** Shared attribute array of instances without attributes */
+	private static final int[] NO_ATTRIBUTES = new int[0];
 
 	/** Unique name of this instance */
 	private String name;
 	/** The XDL Design this instance belongs to, 
 	 * it is null if this instance is part of a module definition */
 	private transient Design design;
-	/** All of the attributes in this instance */
-	private HashMap<String, Attribute> attributes;
+	/** The attributes of this instance, packed as (name ordinal, logical name 
+	 * ordinal, value ordinal) triples (written as strings when serialized) */
+	private transient int[] attributes;
+	/** The dictionary of the logical names and values of the attributes, 
+	 * the one of the design once this instance is part of one */
+	private transient AttributeDictionary attributeDictionary;
+	/** The number of attributes in this instance */
+	private transient int attributeCount;
 	/** Type of the instance (e.g. "SLICEM" or "SLICEL") */
 	private PrimitiveType type;
 	/** When an instance is unplaced, it might be bonded (true) or unbonded (false) */
@@ -69,7 +84,7 @@ public class Instance implements Serializable{
 	public Instance(){
 		name = null;
 		design = null;
-		attributes = new HashMap<String, Attribute>();
+		attributes = NO_ATTRIBUTES;
 		type = null;
 		bonded = null;
 		site = null;
@@ -93,7 +108,7 @@ public class Instance implements Serializable{
 		this.type = type;
 		
 		design = null;
-		attributes = new HashMap<String, Attribute>();
+		attributes = NO_ATTRIBUTES;
 		bonded = null;
 		site = null;
 		netList = new HashSet<Net>();
@@ -106,11 +121,76 @@ public class Instance implements Serializable{
 	}
 
 	/**
-	 * Gets and returns the current attributes of this instance
+	 * Gets and returns the current attributes of this instance.  The
+	 * collection is a view of the packed attributes of the instance,
+	 * attributes can be added to and removed from it, and changes to the 
+	 * returned attributes are written back to the instance.
 	 * @return The current attributes of this instance
 	 */
 	public Collection<Attribute> getAttributes(){
-		return attributes.values();
+		return new AbstractCollection<Attribute>(){
+			@Override
+			public int size(){
+				return attributeCount;
+			}
+			
+			@Override
+			public Iterator<Attribute> iterator(){
+				return new Iterator<Attribute>(){
+					int next = 0;
+					int last = -1;
+					public boolean hasNext(){
+						return next < attributeCount;
+					}
+					public Attribute next(){
+						if(next >= attributeCount) throw new NoSuchElementException();
+						last = next++;
+						return createAttributeView(last);
+					}
+					public void remove(){
+						if(last < 0) throw new IllegalStateException();
+						removeAttributeAt(last);
+						next = last;
+						last = -1;
+					}
+				};
+			}
+			
+			@Override
+			public boolean add(Attribute attribute){
+				addAttribute(attribute);
+				return true;
+			}
+			
+			@Override
+			public boolean contains(Object o){
+				return indexOfAttribute(o) != -1;
+			}
+			
+			@Override
+			public boolean remove(Object o){
+				int index = indexOfAttribute(o);
+				if(index == -1) return false;
+				removeAttributeAt(index);
+				return true;
+			}
+			
+			@Override
+			public boolean removeAll(Collection<?> c){
+				boolean modified = false;
+				for(Object o : c){
+					modified |= remove(o);
+				}
+				return modified;
+			}
+			
+			@Override
+			public void clear(){
+				attributes = NO_ATTRIBUTES;
+				attributeDictionary = null;
+				attributeCount = 0;
+			}
+		};
 	}
 	
 	/**
@@ -119,15 +199,22 @@ public class Instance implements Serializable{
 	 * @param value Value to set the new attribute to.
 	 */
 	public void addAttribute(String physicalName, String logicalName, String value){
-		if(physicalName.getBytes()[0] == '_'){
-			Attribute attr = attributes.get(physicalName);
-			if(attr != null){
-				attr.setLogicalName(attr.getLogicalName() + Attribute.multiValueSeparator + logicalName);
-				attr.setValue(attr.getValue() + Attribute.multiValueSeparator + value);
-				return;
+		int nameOrdinal = AttributeDictionary.getNameOrdinal(type, physicalName);
+		int index = indexOfAttribute(nameOrdinal);
+		if(index != -1 && physicalName.charAt(0) == '_'){
+			logicalName = getLogicalName(index) + Attribute.multiValueSeparator + logicalName;
+			value = getValue(index) + Attribute.multiValueSeparator + value;
+		}
+		else if(index == -1){
+			if(3*attributeCount == attributes.length){
+				attributes = Arrays.copyOf(attributes, 3*Math.max(4, attributeCount*3/2 + 1));
 			}
+			index = attributeCount++;
 		}
-		attributes.put(physicalName, new Attribute(physicalName, logicalName, value));
+		AttributeDictionary dictionary = getAttributeDictionary();
+		attributes[3*index] = nameOrdinal;
+		attributes[3*index+1] = dictionary.getStringOrdinal(logicalName);
+		attributes[3*index+2] = dictionary.getStringOrdinal(value);
 	}
 	
 	/**
@@ -146,17 +233,19 @@ public class Instance implements Serializable{
 	 * physical name physicalName, false otherwise.
 	 */
 	public boolean hasAttribute(String physicalName){
-		return getAttribute(physicalName) != null;
+		return indexOfAttribute(physicalName) != -1;
 	}
 	
 	/**
 	 * Gets the attribute from this instance with the physical name given.
+	 * Changes made to the returned attribute are written back to this instance.
 	 * @param physicalName Name of the attribute to get
 	 * @return The attribute with the physical name specified, or null if 
 	 * no such attribute exists.
 	 */
 	public Attribute getAttribute(String physicalName){
-		return attributes.get(physicalName);
+		int index = indexOfAttribute(physicalName);
+		return index == -1 ? null : createAttributeView(index);
 	}
 	
 	/**
@@ -168,7 +257,11 @@ public class Instance implements Serializable{
 	 * @return The removed attribute, null if none such attribute exists.
 	 */
 	public Attribute removeAttribute(String physicalName){
-		return attributes.remove(physicalName);
+		int index = indexOfAttribute(physicalName);
+		if(index == -1) return null;
+		Attribute removed = new Attribute(createAttributeView(index));
+		removeAttributeAt(index);
+		return removed;
 	}
 	
 	/**
@@ -177,7 +270,11 @@ public class Instance implements Serializable{
 	 * instance.
 	 */
 	public void setAttributes(HashMap<String, Attribute> attributes){
-		this.attributes = attributes;
+		this.attributes = NO_ATTRIBUTES;
+		this.attributeCount = 0;
+		for(Attribute attr : attributes.values()){
+			addAttribute(attr);
+		}
 	}
 	
 	/**
@@ -188,8 +285,8 @@ public class Instance implements Serializable{
 	 * @return True if the value of the attribute matches, false otherwise.
 	 */
 	public boolean testAttributeValue(String physicalName, String value){
-		Attribute attr = getAttribute(physicalName); 
-		return attr==null ? false : attr.getValue().equals(value);
+		int index = indexOfAttribute(physicalName);
+		return index==-1 ? false : getValue(index).equals(value);
 	}
 	
 	/**
@@ -198,8 +295,148 @@ public class Instance implements Serializable{
 	 * @return The value of the attribute or null if none exist.
 	 */
 	public String getAttributeValue(String physicalName){
-		Attribute attr = getAttribute(physicalName); 
-		return attr==null ? null : attr.getValue();
+		int index = indexOfAttribute(physicalName);
+		return index==-1 ? null : getValue(index);
+	}
+	
+	/**
+	 * Finds the position of an attribute in the packed attribute array.
+	 * @param physicalName The physical name of the attribute.
+	 * @return The index of the attribute, or -1 if this instance does not have it.
+	 */
+	private int indexOfAttribute(String physicalName){
+		int nameOrdinal = AttributeDictionary.findNameOrdinal(type, physicalName);
+		return nameOrdinal == -1 ? -1 : indexOfAttribute(nameOrdinal);
+	}
+	
+	private int indexOfAttribute(int nameOrdinal){
+		for(int i=0; i < attributeCount; i++){
+			if(attributes[3*i] == nameOrdinal) return i;
+		}
+		return -1;
+	}
+	
+	private String getLogicalName(int index){
+		return attributeDictionary.getString(attributes[3*index+1]);
+	}
+	
+	private String getValue(int index){
+		return attributeDictionary.getString(attributes[3*index+2]);
+	}
+	
+	/**
+	 * Gets the dictionary the logical names and values of this instance are
+	 * added to: the one of its design, or one of its own until it is part of 
+	 * a design.
+	 */
+	private AttributeDictionary getAttributeDictionary(){
+		if(attributeDictionary == null){
+			attributeDictionary = design != null ? design.getAttributeDictionary() : new AttributeDictionary();
+		}
+		return attributeDictionary;
+	}
+	
+	/**
+	 * Finds the position of an attribute with the same physical name, logical
+	 * name and value as o.
+	 */
+	private int indexOfAttribute(Object o){
+		if(!(o instanceof Attribute)) return -1;
+		Attribute attr = (Attribute) o;
+		int index = indexOfAttribute(attr.getPhysicalName());
+		if(index == -1) return -1;
+		if(attributes[3*index+1] == attributeDictionary.findStringOrdinal(attr.getLogicalName()) &&
+		   attributes[3*index+2] == attributeDictionary.findStringOrdinal(attr.getValue())){
+			return index;
+		}
+		return -1;
+	}
+	
+	private void removeAttributeAt(int index){
+		System.arraycopy(attributes, 3*index+3, attributes, 3*index, 3*(attributeCount-index-1));
+		attributeCount--;
+	}
+	
+	private Attribute createAttributeView(int index){
+		return new AttributeView(this, AttributeDictionary.getName(type, attributes[3*index]),
+			getLogicalName(index), getValue(index));
+	}
+	
+	/**
+	 * An attribute returned by an instance, changes made to it are
+	 * written back to the packed attributes of the instance.
+	 */
+	private static class AttributeView extends Attribute{
+		private static final long serialVersionUID = 2942279425063215848L;
+		/** The instance of the attribute */
+		private transient Instance instance;
+		
+		AttributeView(Instance instance, String physicalName, String logicalName, String value){
+			super(physicalName, logicalName, value);
+			this.instance = instance;
+		}
+		
+		@Override
+		public void setPhysicalName(String physicalName){
+			if(instance != null){
+				int index = instance.indexOfAttribute(getPhysicalName());
+				if(index != -1){
+					// Renaming replaces any other attribute of the new name, as addAttribute() does
+					int nameOrdinal = AttributeDictionary.getNameOrdinal(instance.type, physicalName);
+					int other = instance.indexOfAttribute(nameOrdinal);
+					if(other != -1 && other != index){
+						instance.removeAttributeAt(other);
+						if(other < index) index--;
+					}
+					instance.attributes[3*index] = nameOrdinal;
+				}
+			}
+			super.setPhysicalName(physicalName);
+		}
+		
+		@Override
+		public void setLogicalName(String logicalName){
+			super.setLogicalName(logicalName);
+			update(1, logicalName);
+		}
+		
+		@Override
+		public void setValue(String value){
+			super.setValue(value);
+			update(2, value);
+		}
+		
+		private void update(int offset, String s){
+			if(instance == null) return;
+			int index = instance.indexOfAttribute(getPhysicalName());
+			if(index != -1){
+				instance.attributes[3*index+offset] = instance.getAttributeDictionary().getStringOrdinal(s);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the attributes as strings, their name ordinals are only
+	 * meaningful in this JVM.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException{
+		out.defaultWriteObject();
+		out.writeInt(attributeCount);
+		for(int i=0; i < attributeCount; i++){
+			out.writeObject(AttributeDictionary.getName(type, attributes[3*i]));
+			out.writeObject(getLogicalName(i));
+			out.writeObject(getValue(i));
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		attributes = NO_ATTRIBUTES;
+		attributeCount = 0;
+		int count = in.readInt();
+		for(int i=0; i < count; i++){
+			addAttribute((String) in.readObject(), (String) in.readObject(), (String) in.readObject());
+		}
 	}
 	
 	/**
@@ -369,6 +606,15 @@ public class Instance implements Serializable{
 	 * @param design the new design of this instance.
 	 */
 	public void setDesign(Design design){
+		if(design != null && attributeDictionary != null && attributeDictionary != design.getAttributeDictionary()){
+			// Move the logical names and values to the dictionary of the new design
+			AttributeDictionary dictionary = design.getAttributeDictionary();
+			for(int i=0; i < attributeCount; i++){
+				attributes[3*i+1] = dictionary.getStringOrdinal(getLogicalName(i));
+				attributes[3*i+2] = dictionary.getStringOrdinal(getValue(i));
+			}
+			attributeDictionary = attributeCount == 0 ? null : dictionary;
+		}
 		this.design = design;
 	}
 
@@ -394,6 +640,12 @@ public class Instance implements Serializable{
 	 * @param type The desired type for the instance
 	 */
 	public void setType(PrimitiveType type){
+		if(type != this.type){
+			// Attribute name ordinals are specific to each type
+			for(int i=0; i < attributeCount; i++){
+				attributes[3*i] = AttributeDictionary.getNameOrdinal(type, AttributeDictionary.getName(this.type, attributes[3*i]));
+			}
+		}
 		this.type = type;
 	}
 	
@@ -594,7 +846,7 @@ public class Instance implements Serializable{
 					getModuleTemplateInstance().getName() + "\" ,");
 		}
 		sb.append(nl + "  cfg \"");
-		for(Attribute attr : attributes.values()){
+		for(Attribute attr : getAttributes()){
 			sb.append(" " + attr.toString());
 		}
 		sb.append(" \"" + nl + "  ;" + nl);
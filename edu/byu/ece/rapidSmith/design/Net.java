@@ -20,6 +20,11 @@ package edu.byu.ece.rapidSmith.design;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 import edu.byu.ece.rapidSmith.device.Tile;
 import edu.byu.ece.rapidSmith.device.WireEnumerator;
@@ -44,7 +49,7 @@ public class Net implements Comparable<Net>, Serializable {
 	/** Source and sink pins of the net */
 	private ArrayList<Pin> pins;
 	/** Routing resources or Programmable-Interconnect-Points */ 
-	private ArrayList<PIP> pips;
+	private PIPList pips;
 	/** The source pin for the net */
 	private Pin source;
 	/** The number of sinks this net contains */
@@ -63,7 +68,7 @@ public class Net implements Comparable<Net>, Serializable {
 		this.name = null;
 		this.type = NetType.WIRE;
 		this.pins = new ArrayList<Pin>();
-		this.pips = new ArrayList<PIP>();
+		this.pips = new PIPList();
 		this.source = null;
 		this.fanOut = 0;
 		moduleInstance = null;
@@ -80,7 +85,7 @@ public class Net implements Comparable<Net>, Serializable {
 		this.name = name;
 		this.type = type;
 		this.pins = new ArrayList<Pin>();
-		this.pips = new ArrayList<PIP>();
+		this.pips = new PIPList();
 		this.source = null;
 		this.fanOut = 0;
 		moduleInstance = null;
@@ -113,10 +118,13 @@ public class Net implements Comparable<Net>, Serializable {
 	}
 	
 	/**
-	 * Gets the PIPs (routing resources) used by the net.
+	 * Gets the PIPs (routing resources) used by the net.  The list is the
+	 * one kept by the net, PIPs added to it or changed through it are seen
+	 * by the net.  See PIPList for how to walk the PIPs without creating 
+	 * PIP objects.
 	 * @return The PIPs used by the net.
 	 */
-	public ArrayList<PIP> getPIPs(){
+	public PIPList getPIPs(){
 		return pips;
 	}
 	
@@ -203,11 +211,13 @@ public class Net implements Comparable<Net>, Serializable {
 	}
 	
 	/**
-	 * Sets the PIPs of the net.
+	 * Sets the PIPs of the net.  Unless list is a PIPList, the PIPs are 
+	 * added to a new PIPList, so PIPs later added to list are not seen by 
+	 * the net (the PIP objects themselves are kept, changes to them are).
 	 * @param list The new list of PIPs.
 	 */
-	public void setPIPs(ArrayList<PIP> list){
-		this.pips = list;
+	public void setPIPs(List<PIP> list){
+		this.pips = list instanceof PIPList ? (PIPList) list : new PIPList(list);
 	}
 
 	/**
@@ -270,7 +280,39 @@ public class Net implements Comparable<Net>, Serializable {
 		}
 		return pins.remove(pin);
 	}
-	
+
+	/**
+	 * Removes several pins from the net in a single pass over the pin list.
+	 * Updates the fan-out and source accordingly and unroutes the net (once)
+	 * if any pin was removed.
+	 * @param pinsToRemove The pins to remove (compared by identity).
+	 * @return The number of pins removed.
+	 */
+	public int removePins(Collection<Pin> pinsToRemove){
+		Set<Pin> remove = Collections.newSetFromMap(new IdentityHashMap<Pin,Boolean>());
+		remove.addAll(pinsToRemove);
+		ArrayList<Pin> remaining = new ArrayList<Pin>(pins.size());
+		for(Pin p : pins){
+			if(!remove.contains(p)){
+				remaining.add(p);
+				continue;
+			}
+			if(p.isOutPin() && p.equals(source)){
+				this.source = null;
+			}
+			else{
+				fanOut--;
+			}
+			p.setNet(null);
+		}
+		int removed = pins.size() - remaining.size();
+		if(removed > 0){
+			pins = remaining;
+			unroute();
+		}
+		return removed;
+	}
+
 	/**
 	 * Adds a PIP to the net.
 	 * @param pip The PIP to add.
@@ -279,6 +321,16 @@ public class Net implements Comparable<Net>, Serializable {
 		pips.add(pip);
 	}
 	
+	/**
+	 * Adds a PIP to the net without creating a PIP object.
+	 * @param tile The tile of the PIP.
+	 * @param startWire The start wire of the PIP.
+	 * @param endWire The end wire of the PIP.
+	 */
+	public void addPIP(Tile tile, int startWire, int endWire){
+		pips.add(tile, startWire, endWire);
+	}
+	
 	/**
 	 * Removes a PIP from the net.
 	 * @param pip The PIP to remove.
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.design;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import edu.byu.ece.rapidSmith.device.Tile;
+
+/**
+ * This class is the list of PIPs of a net.  Rather than keeping a PIP object
+ * for each PIP, the tile of each PIP is kept in one array and its start and
+ * end wires are packed into two consecutive integers of another.  The 
+ * getTile(), getStartWire() and getEndWire() methods allow routers and 
+ * writers to walk the list without creating any PIP objects.
+ * 
+ * The list still behaves like the ArrayList of PIPs it replaces: a PIP 
+ * added with add(PIP) or set(), or handed out by get(), is kept by the list,
+ * so changes made to it later (setTile(), setStartWire(), setEndWire()) are 
+ * seen by the list and by the accessors above.  PIP objects are only created
+ * for PIPs added with add(Tile, int, int) when get() is first called for them.
+ * Created on: Oct 19, 2026
+ */
+public class PIPList extends AbstractList<PIP> implements RandomAccess, Serializable {
+
+	private static final long serialVersionUID = -3287562137851254921L;
+	/** Shared arrays of empty lists */
+	private static final Tile[] EMPTY_TILES = new Tile[0];
+	private static final int[] EMPTY_WIRES = new int[0];
+	/** The tile of each PIP */
+	private Tile[] tiles;
+	/** The start and end wire of each PIP */
+	private int[] wires;
+	/** The PIP objects kept by the list, null until the first one is kept */
+	private PIP[] objects;
+	/** The number of PIPs in the list */
+	private int size;
+
+	/**
+	 * Creates an empty PIP list.
+	 */
+	public PIPList(){
+		tiles = EMPTY_TILES;
+		wires = EMPTY_WIRES;
+		size = 0;
+	}
+
+	/**
+	 * Creates a PIP list with space for a number of PIPs.
+	 * @param initialCapacity The number of PIPs to make space for.
+	 */
+	public PIPList(int initialCapacity){
+		if(initialCapacity == 0){
+			tiles = EMPTY_TILES;
+			wires = EMPTY_WIRES;
+		}
+		else{
+			tiles = new Tile[initialCapacity];
+			wires = new int[initialCapacity*2];
+		}
+		size = 0;
+	}
+
+	/**
+	 * Creates a PIP list with the same PIPs as the collection.  The PIP 
+	 * objects of the collection are kept by the new list.
+	 * @param pips The PIPs to add to the new list.
+	 */
+	public PIPList(Collection<? extends PIP> pips){
+		this(pips.size());
+		addAll(pips);
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Gets the PIP at index.  The returned PIP is kept by the list, changes
+	 * made to it are seen by the list.
+	 * @param index Index of the PIP in the list.
+	 * @return The PIP at index.
+	 */
+	@Override
+	public PIP get(int index){
+		checkIndex(index);
+		if(objects == null){
+			objects = new PIP[tiles.length];
+		}
+		PIP pip = objects[index];
+		if(pip == null){
+			pip = new PIP(tiles[index], wires[index*2], wires[index*2+1]);
+			objects[index] = pip;
+		}
+		return pip;
+	}
+
+	@Override
+	public PIP set(int index, PIP pip){
+		PIP old = get(index);
+		store(index, pip);
+		return old;
+	}
+
+	@Override
+	public boolean add(PIP pip){
+		ensureCapacity(size+1);
+		size++;
+		modCount++;
+		store(size-1, pip);
+		return true;
+	}
+
+	@Override
+	public void add(int index, PIP pip){
+		if(index < 0 || index > size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		ensureCapacity(size+1);
+		shift(index, index+1, size-index);
+		size++;
+		modCount++;
+		store(index, pip);
+	}
+
+	/**
+	 * Adds a PIP to the end of the list without creating a PIP object.
+	 * @param tile The tile of the PIP.
+	 * @param startWire The start wire of the PIP.
+	 * @param endWire The end wire of the PIP.
+	 * @return True (as specified by Collection.add()).
+	 */
+	public boolean add(Tile tile, int startWire, int endWire){
+		ensureCapacity(size+1);
+		int index = size++;
+		modCount++;
+		tiles[index] = tile;
+		wires[index*2] = startWire;
+		wires[index*2+1] = endWire;
+		if(objects != null){
+			objects[index] = null;
+		}
+		return true;
+	}
+
+	@Override
+	public PIP remove(int index){
+		PIP old = get(index);
+		shift(index+1, index, size-index-1);
+		size--;
+		modCount++;
+		tiles[size] = null;
+		objects[size] = null;
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o){
+		int index = indexOf(o);
+		if(index == -1){
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public int indexOf(Object o){
+		if(o == null || o.getClass() != PIP.class){
+			return -1;
+		}
+		PIP pip = (PIP) o;
+		Tile tile = pip.getTile();
+		for(int i=0; i < size; i++){
+			if(getStartWire(i) == pip.getStartWire() && getEndWire(i) == pip.getEndWire() &&
+				(tile == null ? getTile(i) == null : tile.equals(getTile(i)))){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o){
+		return indexOf(o) != -1;
+	}
+
+	/**
+	 * Removes all PIPs from the list and releases the storage they used.
+	 */
+	@Override
+	public void clear(){
+		tiles = EMPTY_TILES;
+		wires = EMPTY_WIRES;
+		objects = null;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Gets the tile of the PIP at index.
+	 * @param index Index of the PIP in the list.
+	 * @return The tile of the PIP.
+	 */
+	public Tile getTile(int index){
+		checkIndex(index);
+		if(objects != null && objects[index] != null){
+			return objects[index].getTile();
+		}
+		return tiles[index];
+	}
+
+	/**
+	 * Gets the start wire of the PIP at index.
+	 * @param index Index of the PIP in the list.
+	 * @return The start wire of the PIP.
+	 */
+	public int getStartWire(int index){
+		checkIndex(index);
+		if(objects != null && objects[index] != null){
+			return objects[index].getStartWire();
+		}
+		return wires[index*2];
+	}
+
+	/**
+	 * Gets the end wire of the PIP at index.
+	 * @param index Index of the PIP in the list.
+	 * @return The end wire of the PIP.
+	 */
+	public int getEndWire(int index){
+		checkIndex(index);
+		if(objects != null && objects[index] != null){
+			return objects[index].getEndWire();
+		}
+		return wires[index*2+1];
+	}
+
+	/**
+	 * Makes sure the list can hold a number of PIPs without growing.
+	 * @param capacity The number of PIPs the list should be able to hold.
+	 */
+	public void ensureCapacity(int capacity){
+		if(capacity > tiles.length){
+			resize(Math.max(capacity, tiles.length*3/2 + 1));
+		}
+	}
+
+	/**
+	 * Shrinks the storage of the list to its size.
+	 */
+	public void trimToSize(){
+		if(size < tiles.length){
+			if(size == 0){
+				clear();
+			}
+			else{
+				resize(size);
+			}
+		}
+	}
+
+	private void resize(int capacity){
+		tiles = Arrays.copyOf(tiles, capacity);
+		wires = Arrays.copyOf(wires, capacity*2);
+		if(objects != null){
+			objects = Arrays.copyOf(objects, capacity);
+		}
+	}
+
+	private void shift(int from, int to, int length){
+		System.arraycopy(tiles, from, tiles, to, length);
+		System.arraycopy(wires, from*2, wires, to*2, length*2);
+		if(objects != null){
+			System.arraycopy(objects, from, objects, to, length);
+		}
+	}
+
+	private void store(int index, PIP pip){
+		if(objects == null){
+			objects = new PIP[tiles.length];
+		}
+		objects[index] = pip;
+		tiles[index] = pip.getTile();
+		wires[index*2] = pip.getStartWire();
+		wires[index*2+1] = pip.getEndWire();
+	}
+
+	private void checkIndex(int index){
+		if(index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -20,6 +20,7 @@ package edu.byu.ece.rapidSmith.design;
 
 import java.io.Serializable;
 
+import edu.byu.ece.rapidSmith.device.PrimitiveSite;
 import edu.byu.ece.rapidSmith.device.Tile;
 
 /**
@@ -145,6 +146,20 @@ public class Pin implements Serializable, Cloneable {
 		this.name = name;
 	}
 	
+	/**
+	 * Gets the pin ordinal of this pin on the primitive site where its instance
+	 * is placed (see Device.getPinOrdinal()).
+	 * @return The pin ordinal, or -1 if the instance is not placed or the site 
+	 * type has no pin of this name.
+	 */
+	public int getPinOrdinal(){
+		if(instance == null || instance.getPrimitiveSite() == null){
+			return -1;
+		}
+		PrimitiveSite site = instance.getPrimitiveSite();
+		return site.getTile().getDevice().getPinOrdinal(site.getType(), name);
+	}
+	
 	/**
 	 * Sets the instance to which this pin belongs.
 	 * @param instance The instance to which this pin belongs.
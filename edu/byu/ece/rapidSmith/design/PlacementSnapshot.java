@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.design;
+
+import java.util.BitSet;
+
+/**
+ * This class holds a copy of the primitive site occupancy of a design
+ * (which instance is placed on which site).  It is created by
+ * Design.createPlacementSnapshot() and given back to
+ * Design.restorePlacementSnapshot() to undo all placement changes made
+ * since, which allows placers to try moves cheaply.  Only the placement of
+ * instances is restored, instances or nets added or removed in the meantime
+ * are not.
+ * Created on: Oct 19, 2026
+ */
+public class PlacementSnapshot {
+
+	/** The design the snapshot was taken from */
+	Design design;
+	/** The used sites of the design, by site index */
+	BitSet usedSites;
+	/** The instance on each site of the design, by site index */
+	Instance[] siteInstances;
+
+	PlacementSnapshot(Design design, BitSet usedSites, Instance[] siteInstances){
+		this.design = design;
+		this.usedSites = usedSites;
+		this.siteInstances = siteInstances;
+	}
+
+	/**
+	 * @return The design this snapshot was taken from.
+	 */
+	public Design getDesign(){
+		return design;
+	}
+
+	/**
+	 * @return The number of used primitive sites at the time of the snapshot.
+	 */
+	public int getUsedPrimitiveSiteCount(){
+		return usedSites.cardinality();
+	}
+}
@@ -18,11 +18,14 @@
  */
 package edu.byu.ece.rapidSmith.design.parser;
 
-import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import edu.byu.ece.rapidSmith.design.Attribute;
@@ -32,7 +35,6 @@ import edu.byu.ece.rapidSmith.design.Module;
 import edu.byu.ece.rapidSmith.design.ModuleInstance;
 import edu.byu.ece.rapidSmith.design.Net;
 import edu.byu.ece.rapidSmith.design.NetType;
-import edu.byu.ece.rapidSmith.design.PIP;
 import edu.byu.ece.rapidSmith.design.Pin;
 import edu.byu.ece.rapidSmith.design.PinType;
 import edu.byu.ece.rapidSmith.design.Port;
@@ -93,10 +95,19 @@ public class DesignParser{
 		this.design = design;
 	}
 
-	private BufferedInputStream reader;
+	/** Size of the regions of the XDL file mapped into memory at a time */
+	private static final long MAPPED_REGION_SIZE = 1L << 26;
+	
+	private FileChannel channel;
 	
 	private String fileName;
 	
+	/** The bytes of the current token */
+	private byte[] token = new byte[8192];
+	
+	/** The number of bytes in the current token */
+	private int tokenLength;
+	
 	private ParserState state;
 	
 	private int lineNumber;
@@ -104,10 +115,14 @@ public class DesignParser{
 	/** A unique set of strings used to avoid duplicate strings in memory */
 	private StringPool pool;
 	
+	/** A unique set of device names (tiles, sites, types) used for device lookups */
+	private StringPool devicePool;
+	
 	Net currNet = null;
 	Instance currInstance = null;
 	Module currModule = null;
-	PIP currPIP = null;
+	Tile currPIPTile = null;
+	int currPIPStartWire = -1;
 	Pin currPin = null;
 	String currModuleAnchorName = null;
 	String currModuleInstanceName = null;
@@ -122,7 +137,7 @@ public class DesignParser{
 		this.fileName = fileName;
 
 		try{
-			reader = new BufferedInputStream(new FileInputStream(fileName));
+			channel = new FileInputStream(fileName).getChannel();
 		}
 		catch(FileNotFoundException e){
 			e.printStackTrace();
@@ -130,97 +145,156 @@ public class DesignParser{
 		}
 	}	
 	
-	private void expect(String expectedString, String token, ParserState state){
-		if(!expectedString.equals(token)){
+	private void expect(String expectedString, ParserState state){
+		if(!is(expectedString)){
 			new Exception().printStackTrace();
 			MessageGenerator.briefErrorAndExit("Parsing Error: Expected token: " + expectedString +
-					", encountered: " + token + " on line: " + lineNumber + " in parser state: " + state.toString());
+					", encountered: " + tokenString() + " on line: " + lineNumber + " in parser state: " + state.toString());
 		}
 	}
 	
+	/**
+	 * Checks if the current token is equal to the keyword by comparing bytes, 
+	 * no String is created.
+	 * @param keyword The keyword to compare against.
+	 * @return True if the current token is the keyword, false otherwise.
+	 */
+	private boolean is(String keyword){
+		if(keyword.length() != tokenLength) return false;
+		for(int i=0; i < tokenLength; i++){
+			if((token[i] & 0xFF) != keyword.charAt(i)) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Creates a new String of the current token (for error messages).
+	 * @return The current token as a String.
+	 */
+	private String tokenString(){
+		return new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * Gets the unique copy of the current token from the design string pool.
+	 * @return The unique copy of the current token.
+	 */
+	private String uniqueToken(){
+		return pool.getUnique(token, 0, tokenLength);
+	}
+	
+	/**
+	 * Gets the unique copy of the current token from the pool of device names.  
+	 * Used for names that are only looked up in the device, so they do not 
+	 * end up in the design string pool.
+	 * @return The unique copy of the current token.
+	 */
+	private String deviceToken(){
+		return devicePool.getUnique(token, 0, tokenLength);
+	}
+	
+	private void addToToken(int ch){
+		if(tokenLength == token.length){
+			token = Arrays.copyOf(token, token.length*2);
+		}
+		token[tokenLength++] = (byte) ch;
+	}
+	
 	public Design parseXDL(){
 		pool = new StringPool();
+		devicePool = new StringPool();
 		lineNumber = 1;
 		state = ParserState.BEGIN_DESIGN;
-		char[] buffer = new char[8192];
+		tokenLength = 0;
 		try{
 			int ch = -1;
 			int prev = -1;
-			int idx = 0;
 			boolean inComment = false;
-			while((ch = reader.read()) != -1){
-				if(ch == '\n') lineNumber++;
-				if(inComment){
-					if((prev == '\r' || prev == '\n') && (ch != '\r' && ch != '\n')){
-						inComment = false;
-						idx = 0;
-					}
-					else{
-						prev = ch;
-						continue;
-					}
-				}
-				//System.out.println("ch["+idx+"]=" + ch + "(" + (char) + ch +")");
-				switch(ch){
-					case ',':
-						if(state.equals(ParserState.ATTRIBUTE)){
-							buffer[idx++] = (char) ch;
-							break;
-						}
-					case ' ':
-					case '"':
-						if(state.equals(ParserState.ATTRIBUTE) && prev == '\\'){
-							buffer[idx++] = (char) ch;
-							break;
+			long size = channel.size();
+			for(long position = 0; position < size; position += MAPPED_REGION_SIZE){
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 
+						position, Math.min(MAPPED_REGION_SIZE, size - position));
+				while(buffer.hasRemaining()){
+					ch = buffer.get() & 0xFF;
+					if(ch == '\n') lineNumber++;
+					if(inComment){
+						if((prev == '\r' || prev == '\n') && (ch != '\r' && ch != '\n')){
+							inComment = false;
+							tokenLength = 0;
 						}
-					case '\n':
-					case '\r':
-					case '\t':
-						if(idx > 0){
-							parseToken(new String(buffer,0, idx));
-							idx = 0;
+						else{
+							prev = ch;
+							continue;
 						}
-						break;
-					case '#':
-						if(prev == '\r' || prev == '\n' || prev == -1){
-							inComment = true;
+					}
+					switch(ch){
+						case ',':
+							if(state.equals(ParserState.ATTRIBUTE)){
+								addToToken(ch);
+								break;
+							}
+						case ' ':
+						case '"':
+							if(state.equals(ParserState.ATTRIBUTE) && prev == '\\'){
+								addToToken(ch);
+								break;
+							}
+						case '\n':
+						case '\r':
+						case '\t':
+							if(tokenLength > 0){
+								parseToken();
+								tokenLength = 0;
+							}
 							break;
-						}
-					default:
-						buffer[idx++] = (char) ch;
+						case '#':
+							if(prev == '\r' || prev == '\n' || prev == -1){
+								inComment = true;
+								break;
+							}
+						default:
+							addToToken(ch);
+					}
+					prev = ch;
 				}
-				prev = ch;
 			}
 		}
 		catch(IOException e){
 			e.printStackTrace();
 			MessageGenerator.briefErrorAndExit("ERROR: IOException while reading XDL file: " + fileName);
-		} 
+		}
+		finally{
+			try{
+				channel.close();
+			}
+			catch(IOException e){
+				MessageGenerator.briefError("ERROR: Could not close XDL file: " + fileName);
+			}
+		}
 		return design;
 	}
 	
 	/**
 	 * This is the parser state machine that decides how the token created from
 	 * parseXDL should be applied to the design.  It does some amount of error
-	 * checking but is not full proof.
-	 * @param token The token to parse into the design.
+	 * checking but is not full proof.  The token is held in the token byte 
+	 * array, only names that are kept in the design are turned into Strings.
 	 */
-	private void parseToken(String token){
-		//System.out.println(lineNumber + "<" + token + ">");
+	private void parseToken(){
 		switch(state){
 			case BEGIN_DESIGN:
-				expect(DESIGN, token, ParserState.BEGIN_DESIGN);
+				expect(DESIGN, ParserState.BEGIN_DESIGN);
 				state = ParserState.DESIGN_NAME;
 				break;
 			case DESIGN_NAME:
-				design.setName(pool.getUnique(token));
+				design.setName(uniqueToken());
 				state = ParserState.PART_NAME;
 				break;
 			case PART_NAME:
 				if(design.isHardMacro()){
-					if(token.endsWith(";")){
+					if(tokenLength > 0 && token[tokenLength-1] == ';'){
 						state = ParserState.XDL_STATEMENT;
-						token = token.substring(0, token.length()-1);
+						tokenLength--;
 					}
 					else{
 						state = ParserState.CFG_STRING;
@@ -229,17 +303,17 @@ public class DesignParser{
 				else{
 					state = ParserState.NCD_VERSION;					
 				}
-				design.setPartName(pool.getUnique(token));
+				design.setPartName(uniqueToken());
 				we = design.getWireEnumerator();
 				dev = design.getDevice();
 				break;
 			case NCD_VERSION:
-				design.setNCDVersion(pool.getUnique(token));
+				design.setNCDVersion(uniqueToken());
 				state = ParserState.CFG_STRING;
 				break;
 			case CFG_STRING:
-				if(token.equals(CFG)) state = ParserState.ATTRIBUTE;
-				else if(token.equals(SEMICOLON)){
+				if(is(CFG)) state = ParserState.ATTRIBUTE;
+				else if(is(SEMICOLON)){
 					if(currModule != null){
 						state = ParserState.MODULE_STATEMENT;
 					}
@@ -247,10 +321,10 @@ public class DesignParser{
 						state = ParserState.XDL_STATEMENT;										
 					}
 				}
-				else expect("cfg or ;", token, ParserState.CFG_STRING);
+				else expect("cfg or ;", ParserState.CFG_STRING);
 				break;
 			case ATTRIBUTE:
-				if(token.equals(SEMICOLON)){
+				if(is(SEMICOLON)){
 					currInstance = null;
 					currNet = null;
 
@@ -263,11 +337,11 @@ public class DesignParser{
 						state = ParserState.XDL_STATEMENT;										
 					}
 				}
-				else if(token.equals(COMMA) && currNet != null){
+				else if(is(COMMA) && currNet != null){
 					state = ParserState.NET_STATEMENT;
 				}
 				else{
-					Attribute attribute = createAttribute(token);
+					Attribute attribute = createAttribute();
 					if(currInstance != null) currInstance.addAttribute(attribute);
 					else if(currNet != null){
 						currNet.addAttribute(attribute);
@@ -285,15 +359,15 @@ public class DesignParser{
 				}
 				break;
 			case XDL_STATEMENT:
-				if(token.equals(INST)|| token.equals(INSTANCE)){
+				if(is(INST)|| is(INSTANCE)){
 					currInstance = new Instance();
 					state = ParserState.INSTANCE_NAME;
 				}
-				else if(token.equals(NET)){
+				else if(is(NET)){
 					currNet = new Net();
 					state = ParserState.NET_NAME;
 				}
-				else if(token.equals(MODULE)){
+				else if(is(MODULE)){
 					currModule = new Module();
 					modPinMap = new HashMap<String, Pin>();
 					portNames = new ArrayList<String>();
@@ -301,15 +375,15 @@ public class DesignParser{
 					portPinNames = new ArrayList<String>();
 					state = ParserState.MODULE_NAME;
 				}
-				else if(token.equals(ENDMODULE)){
+				else if(is(ENDMODULE)){
 					state = ParserState.END_MODULE_NAME;
 				}
 				else{
-					expect("inst, net, module or endmodule", token, ParserState.XDL_STATEMENT);
+					expect("inst, net, module or endmodule", ParserState.XDL_STATEMENT);
 				}
 				break;
 			case INSTANCE_NAME:
-				currInstance.setName(pool.getUnique(token));
+				currInstance.setName(uniqueToken());
 				currInstance.setDesign(design);
 				if(currModule == null){
 					design.addInstance(currInstance);
@@ -324,76 +398,76 @@ public class DesignParser{
 				state = ParserState.INSTANCE_TYPE;
 				break;
 			case INSTANCE_TYPE:
-				  PrimitiveType t = Utils.createPrimitiveType(token);
+				  PrimitiveType t = Utils.createPrimitiveType(deviceToken());
 				  if(t == null){
-				    MessageGenerator.briefErrorAndExit("XDL Design Parser Error in file: "+ fileName +", Failed parsing Instance type: \"" + token + "\"");
+				    MessageGenerator.briefErrorAndExit("XDL Design Parser Error in file: "+ fileName +", Failed parsing Instance type: \"" + tokenString() + "\"");
 				  }
 				  currInstance.setType(t);
 				  state = ParserState.INSTANCE_PLACED;
 				break;
 			case INSTANCE_PLACED:
-				if(token.equals(PLACED)) state = ParserState.INSTANCE_TILE;
-				else if(token.equals(UNPLACED)) state = ParserState.INSTANCE_BONDED;
-				else expect("placed or unplaced", token, ParserState.INSTANCE_PLACED);
+				if(is(PLACED)) state = ParserState.INSTANCE_TILE;
+				else if(is(UNPLACED)) state = ParserState.INSTANCE_BONDED;
+				else expect("placed or unplaced", ParserState.INSTANCE_PLACED);
 				break;
 			case INSTANCE_TILE:
-				Tile tile = dev.getTile(token);
+				Tile tile = dev.getTile(deviceToken());
 				if(tile == null){
 					MessageGenerator.briefErrorAndExit("XDL Design Parser Error in file: "+ fileName +", Invalid tile " +
-							token + " on line " + lineNumber);
+							tokenString() + " on line " + lineNumber);
 				}
 				state = ParserState.INSTANCE_SITE;
 				break;
 			case INSTANCE_SITE:
-				PrimitiveSite site = dev.getPrimitiveSite(token);
+				PrimitiveSite site = dev.getPrimitiveSite(deviceToken());
 				if(site == null){
 					MessageGenerator.briefErrorAndExit("XDL Design Parser Error in file: "+ fileName +", Invalid primitive site " +
-							token + " on line " + lineNumber);
+							tokenString() + " on line " + lineNumber);
 				}
 				if(currModule != null){
-					currInstance.setSite(dev.getPrimitiveSite(token));
+					currInstance.setSite(site);
 				}else{
-					currInstance.place(dev.getPrimitiveSite(token));					
+					currInstance.place(site);					
 				}
 				state = ParserState.MODULE_INSTANCE_TOKEN;
 				break;
 			case INSTANCE_BONDED:
-				if(token.equals(COMMA)){
+				if(is(COMMA)){
 					state = ParserState.MODULE_INSTANCE_TOKEN;
 				}
-				else if(token.equals(CFG)){
+				else if(is(CFG)){
 					state = ParserState.ATTRIBUTE;
 				}
-				else if(token.equals(MODULE)){
+				else if(is(MODULE)){
 					state = ParserState.MODULE_INSTANCE_NAME;
 				}
-				else if(token.equals(BONDED)){
+				else if(is(BONDED)){
 					currInstance.setBonded(true);
 					state = ParserState.MODULE_INSTANCE_TOKEN;
 				}
-				else if(token.equals(UNBONDED)){
+				else if(is(UNBONDED)){
 					currInstance.setBonded(false);
 					state = ParserState.MODULE_INSTANCE_TOKEN;
 				}
 				else{
-					expect("bonded, unbonded or ,", token, ParserState.INSTANCE_BONDED);
+					expect("bonded, unbonded or ,", ParserState.INSTANCE_BONDED);
 				}
 				break;
 			case MODULE_INSTANCE_TOKEN:
-				if(token.equals(CFG)) state = ParserState.ATTRIBUTE;
-				else if(token.equals(MODULE)) state = ParserState.MODULE_INSTANCE_NAME;
-				else expect("cfg or module", token, ParserState.MODULE_INSTANCE_TOKEN);
+				if(is(CFG)) state = ParserState.ATTRIBUTE;
+				else if(is(MODULE)) state = ParserState.MODULE_INSTANCE_NAME;
+				else expect("cfg or module", ParserState.MODULE_INSTANCE_TOKEN);
 				break;
 			case MODULE_INSTANCE_NAME:
-				currModuleInstanceName = pool.getUnique(token);
+				currModuleInstanceName = uniqueToken();
 				state = ParserState.MODULE_TEMPLATE_NAME;
 				break;
 			case MODULE_TEMPLATE_NAME:
-				currInstance.setModuleTemplate(design.getModule(token));
+				currInstance.setModuleTemplate(design.getModule(uniqueToken()));
 				state = ParserState.MODULE_TEMPLATE_INSTANCE_NAME;
 				break;
 			case MODULE_TEMPLATE_INSTANCE_NAME:
-				currInstance.setModuleTemplateInstance(currInstance.getModuleTemplate().getInstance(token));
+				currInstance.setModuleTemplateInstance(currInstance.getModuleTemplate().getInstance(uniqueToken()));
 				ModuleInstance moduleInstance = design.addInstanceToModuleInstances(currInstance, currModuleInstanceName);
 				if(currInstance.getModuleTemplateInstance().equals(currInstance.getModuleTemplate().getAnchor())){
 					moduleInstance.setAnchor(currInstance);
@@ -401,33 +475,33 @@ public class DesignParser{
 				state = ParserState.CFG_STRING;
 				break;
 			case NET_NAME:
-				currNet.setName(pool.getUnique(token));
+				currNet.setName(uniqueToken());
 				if(currModule == null) design.addNet(currNet);
 				else currModule.addNet(currNet);
 				state = ParserState.NET_TYPE;
 				break;
 			case NET_TYPE:
-				if(token.equals(COMMA) || token.equals(WIRE)){
+				if(is(COMMA) || is(WIRE)){
 					currNet.setType(NetType.WIRE);
 				}
-				else if(token.equals(CFG)){
+				else if(is(CFG)){
 					state = ParserState.ATTRIBUTE;
 					break;
 				}
-				else if(token.equals(GND) || token.equals(GROUND)){
+				else if(is(GND) || is(GROUND)){
 					currNet.setType(NetType.GND);
 				}
-				else if(token.equals(VCC) || token.equals(POWER)){
+				else if(is(VCC) || is(POWER)){
 					currNet.setType(NetType.VCC);
 				}
-				else if(token.equals(INPIN)){
+				else if(is(INPIN)){
 					currPin = new Pin();
 					currPin.setIsOutputPin(false);
 					currNet.addPin(currPin);
 					state = ParserState.PIN_INSTANCE_NAME;
 					break;
 				}
-				else if(token.equals(OUTPIN)){
+				else if(is(OUTPIN)){
 					currPin = new Pin();
 					currPin.setIsOutputPin(true);
 					if(currNet.getSource() != null){
@@ -439,7 +513,7 @@ public class DesignParser{
 					state = ParserState.PIN_INSTANCE_NAME;
 					break;
 				}
-				else if(token.equals(INOUT)){
+				else if(is(INOUT)){
 					currPin = new Pin();
 					currPin.setPinType(PinType.INOUT);
 					currNet.addPin(currPin);
@@ -447,23 +521,21 @@ public class DesignParser{
 					break;
 				}
 				else{
-					expect("wire, vcc or power, gnd or ground or ,",token, ParserState.NET_TYPE);
+					expect("wire, vcc or power, gnd or ground or ,", ParserState.NET_TYPE);
 				}
 				state = ParserState.NET_STATEMENT; 
 				break;
 			case NET_STATEMENT:
-				if(token.equals(PIP)){
-					currPIP = new PIP();
-					currNet.addPIP(currPIP);
+				if(is(PIP)){
 					state = ParserState.PIP_TILE; 
 				}
-				else if(token.equals(INPIN)){
+				else if(is(INPIN)){
 					currPin = new Pin();
 					currPin.setIsOutputPin(false);
 					currNet.addPin(currPin);
 					state = ParserState.PIN_INSTANCE_NAME;
 				}
-				else if(token.equals(OUTPIN)){
+				else if(is(OUTPIN)){
 					currPin = new Pin();
 					currPin.setIsOutputPin(true);
 					if(currNet.getSource() != null){
@@ -474,34 +546,34 @@ public class DesignParser{
 					currNet.addPin(currPin);
 					state = ParserState.PIN_INSTANCE_NAME;
 				}
-				else if(token.equals(INOUT)){
+				else if(is(INOUT)){
 					currPin = new Pin();
 					currPin.setPinType(PinType.INOUT);
 					currNet.addPin(currPin);
 					state = ParserState.PIN_INSTANCE_NAME;
 					break;
 				}
-				else if(token.equals(SEMICOLON)){
+				else if(is(SEMICOLON)){
 					state = ParserState.XDL_STATEMENT;
 				}
-				else if(token.equals(CFG)){
+				else if(is(CFG)){
 					state = ParserState.ATTRIBUTE;
 				}
 				break;
 			case PIN_INSTANCE_NAME:
 				Instance inst;
-				if(currModule == null) inst = design.getInstance(token);
-				else inst = currModule.getInstance(token);
+				if(currModule == null) inst = design.getInstance(uniqueToken());
+				else inst = currModule.getInstance(uniqueToken());
 				if(inst == null){
 					MessageGenerator.briefErrorAndExit("ERROR: Could not find instance " +
-						token + " on line " + lineNumber);
+						tokenString() + " on line " + lineNumber);
 				}
 				currPin.setInstance(inst);
 				inst.addToNetList(currNet);
 				state = ParserState.PIN_NAME;
 				break;
 			case PIN_NAME:
-				currPin.setPinName(pool.getUnique(token));
+				currPin.setPinName(uniqueToken());
 				currPin.getInstance().addPin(currPin);
 				if(currModule != null){
 				    modPinMap.put(currPin.getInstanceName() + currPin.getName(), currPin);
@@ -509,89 +581,89 @@ public class DesignParser{
 				state = ParserState.NET_STATEMENT;
 				break;
 			case PIP_TILE:
-				Tile pipTile = dev.getTile(token);
+				Tile pipTile = dev.getTile(deviceToken());
 				if(pipTile == null){
 					MessageGenerator.briefErrorAndExit("Invalid tile " +
-							token + " on line " + lineNumber);
+							tokenString() + " on line " + lineNumber);
 				}
-				currPIP.setTile(pipTile);
+				currPIPTile = pipTile;
 				state = ParserState.PIP_WIRE0;
 				break;
 			case PIP_WIRE0:
-				int wire0 = we.getWireEnum(token);
+				int wire0 = we.getWireEnum(token, 0, tokenLength);
 				if(wire0 == -1) {
 					MessageGenerator.briefErrorAndExit("ERROR: Invalid wire: " +
-							token + " found on line " + lineNumber);
+							tokenString() + " found on line " + lineNumber);
 				}
-				currPIP.setStartWire(wire0);
+				currPIPStartWire = wire0;
 				state = ParserState.PIP_CONN_TYPE;
 				break;
 			case PIP_CONN_TYPE:
-				if(token.equals(PIP0) || token.equals(PIP1) || token.equals(PIP2) || token.equals(PIP3)){
+				if(is(PIP0) || is(PIP1) || is(PIP2) || is(PIP3)){
 					state = ParserState.PIP_WIRE1;
 				}
 				else{
-					expect("->, =-, ==, or =>", token, ParserState.PIP_CONN_TYPE);
+					expect("->, =-, ==, or =>", ParserState.PIP_CONN_TYPE);
 				}
 				break;
 			case PIP_WIRE1:
-				int wire1 = we.getWireEnum(token);
+				int wire1 = we.getWireEnum(token, 0, tokenLength);
 				if(wire1 == -1) {
 					MessageGenerator.briefErrorAndExit("XDL Design Parser Error in file: "+ fileName +", Invalid wire: " +
-							token + " found on line " + lineNumber);
+							tokenString() + " found on line " + lineNumber);
 				}
-				currPIP.setEndWire(wire1);
+				currNet.addPIP(currPIPTile, currPIPStartWire, wire1);
 				state = ParserState.NET_STATEMENT; 
 				break;
 			case MODULE_NAME:
-				currModule.setName(pool.getUnique(token));
+				currModule.setName(uniqueToken());
 				state = ParserState.MODULE_ANCHOR_NAME;
 				break;
 			case MODULE_ANCHOR_NAME:
-				currModuleAnchorName = pool.getUnique(token);
+				currModuleAnchorName = uniqueToken();
 				state = ParserState.CFG_STRING;
 				break;
 			case MODULE_STATEMENT:
-				if(token.equals(PORT)){
+				if(is(PORT)){
 					state = ParserState.PORT_NAME;
 				}
-				if(token.equals(INST)|| token.equals(INSTANCE)){
+				if(is(INST)|| is(INSTANCE)){
 					currInstance = new Instance();
 					state = ParserState.INSTANCE_NAME;
 				}
-				else if(token.equals(NET)){
+				else if(is(NET)){
 					currNet = new Net();
 					state = ParserState.NET_NAME;
 				}
-				else if(token.equals(ENDMODULE)){
+				else if(is(ENDMODULE)){
 					state = ParserState.END_MODULE_NAME;
 				}
 				break;
 			case PORT_NAME:
-				portNames.add(pool.getUnique(token));
+				portNames.add(uniqueToken());
 				state = ParserState.PORT_INSTANCE_NAME;
 				break;
 			case PORT_INSTANCE_NAME:
-				portInstanceNames.add(pool.getUnique(token));
+				portInstanceNames.add(uniqueToken());
 				state = ParserState.PORT_PIN_NAME;
 				break;
 			case PORT_PIN_NAME:
-				portPinNames.add(pool.getUnique(token));
+				portPinNames.add(uniqueToken());
 				state = ParserState.END_PORT;
 				break;
 			case END_PORT:
-				expect(SEMICOLON, token, ParserState.END_PORT);
+				expect(SEMICOLON, ParserState.END_PORT);
 				state = ParserState.MODULE_STATEMENT;
 				break;
 			case END_MODULE_NAME:
-				if(!currModule.getName().equals(token)){
+				if(!is(currModule.getName())){
 					MessageGenerator.briefErrorAndExit("XDL Design Parser Error in file: "+ fileName +", Mismatched module names: " +
-						currModule.getName() + " and " + token + " at line: " + lineNumber);
+						currModule.getName() + " and " + tokenString() + " at line: " + lineNumber);
 				}
 				state = ParserState.END_MODULE;
 				break;
 			case END_MODULE:
-				expect(SEMICOLON, token, ParserState.END_MODULE);
+				expect(SEMICOLON, ParserState.END_MODULE);
 				design.addModule(currModule);
 				for(int i = 0; i <portNames.size(); i++){
 					String key = portInstanceNames.get(i) + portPinNames.get(i);
@@ -609,21 +681,33 @@ public class DesignParser{
 	}
 	
 	/**
-	 * This method will take a string and parse it into the 3-part attribute.  It 
+	 * This method will parse the current token into the 3-part attribute.  It 
 	 * detects escaped colons ('\:') and includes them as part of the logicalName if
 	 * present.
-	 * @param attribute The original token string found from parsing the XDL file.
-	 * @return A new attribute object populated from the string attribute.
+	 * @return A new attribute object populated from the current token.
 	 */
-	private Attribute createAttribute(String attribute){
-	    int break1 = attribute.indexOf(':');
-	    int break2 = attribute.indexOf(':', break1 + 1);
-	    while(attribute.charAt(break2-1) == '\\'){
-	    	break2 = attribute.indexOf(':', break2 + 1);
+	private Attribute createAttribute(){
+	    int break1 = indexOfToken(':', 0);
+	    int break2 = indexOfToken(':', break1 + 1);
+	    while(token[break2-1] == '\\'){
+	    	break2 = indexOfToken(':', break2 + 1);
 	    }
-	    String physicalName = pool.getUnique(attribute.substring(0, break1));
-	    String logicalName = pool.getUnique(attribute.substring(break1 + 1, break2));
-	    String value = pool.getUnique(attribute.substring(break2 + 1, attribute.length()));
+	    String physicalName = pool.getUnique(token, 0, break1);
+	    String logicalName = pool.getUnique(token, break1 + 1, break2 - break1 - 1);
+	    String value = pool.getUnique(token, break2 + 1, tokenLength - break2 - 1);
 		return new Attribute(physicalName, logicalName, value);
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Finds the first occurrence of a character in the current token.
+	 * @param ch The character to find.
+	 * @param fromIndex The index to start the search from.
+	 * @return The index of the character or -1 if it is not found.
+	 */
+	private int indexOfToken(char ch, int fromIndex){
+		for(int i=fromIndex; i < tokenLength; i++){
+			if(token[i] == ch) return i;
+		}
+		return -1;
+	}
+}
@@ -21,7 +21,6 @@ package edu.byu.ece.rapidSmith.device;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
@@ -29,14 +28,21 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Stack;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.caucho.hessian.io.Deflation;
 import com.caucho.hessian.io.Hessian2Input;
 import com.caucho.hessian.io.Hessian2Output;
 
 import edu.byu.ece.rapidSmith.design.Pin;
 import edu.byu.ece.rapidSmith.device.helper.HashPool;
+import edu.byu.ece.rapidSmith.device.helper.OffHeapWireHashMap;
 import edu.byu.ece.rapidSmith.device.helper.TileSinks;
 import edu.byu.ece.rapidSmith.device.helper.TileSources;
 import edu.byu.ece.rapidSmith.device.helper.TileWires;
@@ -48,6 +54,8 @@ import edu.byu.ece.rapidSmith.util.FamilyType;
 import edu.byu.ece.rapidSmith.util.FileTools;
 import edu.byu.ece.rapidSmith.util.MessageGenerator;
 import edu.byu.ece.rapidSmith.util.PartNameTools;
+import edu.byu.ece.rapidSmith.util.SectionedFileReader;
+import edu.byu.ece.rapidSmith.util.SectionedFileWriter;
 
 /**
  * This is the main class that stores information about each Xilinx part.  It contains
@@ -66,7 +74,7 @@ public class Device implements Serializable{
 	/** The current release of the tools */
 	public static final String rapidSmithVersion = "0.5.3";
 	/** This is the current device file version (saved in file to ensure proper compatibility) */
-	public static final String deviceFileVersion = "0.4";
+	public static final String deviceFileVersion = "0.6";
 	
 	//========================================================================//
 	// Class Members
@@ -87,6 +95,8 @@ public class Device implements Serializable{
 	protected HashMap<WireConnection,PIPRouteThrough> routeThroughMap;
 	/** A Map between a tile name (string) and its actual reference */
 	protected HashMap<String,Tile> tileMap;
+	/** All PIPRouteThrough objects, indexed by WireConnection.getRouteThroughIndex() */
+	protected PIPRouteThrough[] routeThroughs;
 
 	//========================================================================//
 	// Objects that are Populated After Parsing
@@ -95,8 +105,28 @@ public class Device implements Serializable{
 	private ArrayList<PrimitiveSite[]> primitiveSiteIndex;
 	/** Created on demand when user calls getCompatibleSites(), where the ArrayList index is the ordinal of the PrimitiveType */
 	private ArrayList<PrimitiveSite[]> compatibleSiteIndex;
+	/** Site indices (see PrimitiveSite.getIndex()) of the sites of each PrimitiveType (indexed by ordinal), in tile order (null if none) */
+	private int[][] siteTypeIndices;
+	/** Site indices of the sites compatible with each PrimitiveType (indexed by ordinal), sites of the type itself first (null if none) */
+	private int[][] compatibleSiteIndices;
+	/** Minimum number of sites each thread handles when the site indices are created */
+	private static final int MIN_SITES_PER_THREAD = 4096;
 	/** A set of all TileTypes that have switch matrices in them */
 	private HashSet<TileType> switchMatrixTypes;
+	/** All primitive sites in the device, where the array index is PrimitiveSite.getIndex() */
+	private PrimitiveSite[] primitiveSiteArray;
+	/** Maps the pin names of each PrimitiveType (indexed by ordinal) to a dense pin ordinal */
+	private HashMap<String,Integer>[] pinOrdinals;
+	/** The pin names of each PrimitiveType (indexed by ordinal) in pin ordinal order */
+	private String[][] pinNames;
+	/** Switch matrix sink of each site pin, [site index][2*pin ordinal] holds the switch matrix
+	 * tile offset (same encoding as SinkPin) and [site index][2*pin ordinal+1] the sink wire (rows are shared) */
+	private int[][] sitePinSinks;
+	/** Marks a site pin in sitePinSinks which has no corresponding SinkPin in its tile */
+	private static final int NO_SINK_PIN = Integer.MIN_VALUE;
+	/** The external wire of each patched pin (see PinMappingPatch) of each instance PrimitiveType 
+	 * (indexed by ordinal), null if the type has no patched pins */
+	private HashMap<String,Integer>[] pinPatchWires;
 	
 	//========================================================================//
 	// Object Pools - To remove duplicate objects, null afterwards
@@ -155,6 +185,20 @@ public class Device implements Serializable{
 		return singleton;
 	}
 	
+	/**
+	 * Releases the device kept in memory by getInstance(), so the next call
+	 * (and so FileTools.loadDevice()) loads a new copy of the part.  This 
+	 * should be called by owners of a device whose heap wires were released
+	 * by createOffHeapWires(), so other users get a complete device.
+	 * @param device The device to release, nothing is done if it is not the 
+	 * device kept in memory.
+	 */
+	public static void releaseInstance(Device device){
+		if(singleton == device){
+			singleton = null;
+		}
+	}
+	
 	/**
 	 * Gets the corresponding wire enumerator object for this device.
 	 * @return The wire enumerator for this device.
@@ -179,12 +223,18 @@ public class Device implements Serializable{
 	}
 
 	/**
-	 * Checks if this wire is RouteThrough.
+	 * Checks if this wire is RouteThrough.  The wires of a device loaded from
+	 * file (or copied off heap) carry their route through index, only wire
+	 * objects created elsewhere are looked up in the route through map.
 	 * @param w The wire to test.
 	 * @return True if the wire is a routeThrough, false otherwise.
 	 */
 	public boolean isRouteThrough(WireConnection w){
-		return routeThroughMap.get(w) != null;
+		int index = w.getRouteThroughIndex();
+		if(routeThroughs == null || index == WireConnection.NOT_INDEXED){
+			return routeThroughMap.get(w) != null;
+		}
+		return index >= 0;
 	}
 	
 	//========================================================================//
@@ -196,18 +246,108 @@ public class Device implements Serializable{
 	 * @return The wire enumeration of the internal pin on the instance primitive of pin.
 	 */
 	public Integer getPrimitiveExternalPin(Pin pin){
+		int extPin = getPrimitiveExternalPinWire(pin);
+		return extPin == -1 ? null : extPin;
+	}
+	
+	/**
+	 * Gets the external wire enumeration on the instance pin.  This is the same
+	 * as getPrimitiveExternalPin() but avoids boxing the result and resolves
+	 * the pin through the pre-built site pin table.
+	 * @param pin The pin to get the external name from.
+	 * @return The wire enumeration of the internal pin on the instance primitive 
+	 * of pin, or -1 if none exists.
+	 */
+	public int getPrimitiveExternalPinWire(Pin pin){
 		// Check the Pin Mapping patch for proper external pin name mapping
-		String extName = PinMappingPatch.getPinMapping(pin.getInstance().getType(), pin.getName());
-		if(extName != null){
-			return WireEnumerator.getInstance(getFamilyType()).getWireEnum(extName);
+		HashMap<String,Integer> patch = getPinPatchWires()[pin.getInstance().getType().ordinal()];
+		if(patch != null){
+			Integer wire = patch.get(pin.getName());
+			if(wire != null) return wire;
 		}
 		
-		Integer extPin = pin.getInstance().getPrimitiveSite().getExternalPinWireEnum(pin.getName());
-		if(extPin != null){
-			return extPin;
+		PrimitiveSite site = pin.getInstance().getPrimitiveSite();
+		checkSitePinIndex();
+		if(site.pinWires == null){
+			// The pins of the site were changed after it was indexed
+			Integer wire = site.getExternalPinWireEnum(pin.getName());
+			return wire == null ? -1 : wire;
 		}
-		
-		return null;
+		return site.getExternalPinWire(pin.getPinOrdinal());
+	}
+	
+	/**
+	 * Checks if a pin is mapped to its external wire by the PinMappingPatch.
+	 * @param pin The pin to check.
+	 * @return True if the external wire of the pin comes from the patch.
+	 */
+	private boolean isPatchedPin(Pin pin){
+		HashMap<String,Integer> patch = getPinPatchWires()[pin.getInstance().getType().ordinal()];
+		return patch != null && patch.containsKey(pin.getName());
+	}
+	
+	/**
+	 * Gets the external wires of the patched pins (see PinMappingPatch) of
+	 * each primitive type, resolving the patch wire names the first time 
+	 * they are needed.
+	 * @return The patched pin wires indexed by PrimitiveType ordinal.
+	 */
+	@SuppressWarnings("unchecked")
+	private HashMap<String,Integer>[] getPinPatchWires(){
+		if(pinPatchWires == null){
+			HashMap<String,Integer>[] patchWires = new HashMap[PrimitiveType.values().length];
+			WireEnumerator we = null;
+			for(PrimitiveType type : PrimitiveType.values()){
+				HashMap<String,String> mappings = PinMappingPatch.getPinMappings(type);
+				if(mappings == null) continue;
+				if(we == null) we = FileTools.loadWireEnumerator(getFamilyType());
+				patchWires[type.ordinal()] = new HashMap<String,Integer>();
+				for(String internalName : mappings.keySet()){
+					patchWires[type.ordinal()].put(internalName, we == null ? -1 : we.getWireEnum(mappings.get(internalName)));
+				}
+			}
+			pinPatchWires = patchWires;
+		}
+		return pinPatchWires;
+	}
+	
+	/**
+	 * Gets the dense ordinal of a pin name among all pins found on sites of
+	 * the given primitive type in this device.  Ordinals run from 0 to 
+	 * getPinCount(type)-1.
+	 * @param type The primitive type of the site.
+	 * @param pinName The internal pin name on the site.
+	 * @return The pin ordinal, or -1 if no site of the given type has the pin.
+	 */
+	public int getPinOrdinal(PrimitiveType type, String pinName){
+		HashMap<String,Integer> ordinals = getPinOrdinals()[type.ordinal()];
+		if(ordinals == null){
+			return -1;
+		}
+		Integer ordinal = ordinals.get(pinName);
+		return ordinal == null ? -1 : ordinal;
+	}
+	
+	/**
+	 * Gets the pin name corresponding to a pin ordinal of the given primitive type.
+	 * @param type The primitive type of the site.
+	 * @param ordinal The pin ordinal (see getPinOrdinal()).
+	 * @return The name of the pin with the given ordinal.
+	 */
+	public String getPinName(PrimitiveType type, int ordinal){
+		checkSitePinIndex();
+		return pinNames[type.ordinal()][ordinal];
+	}
+	
+	/**
+	 * Gets the number of unique pin names found on sites of the given 
+	 * primitive type in this device.
+	 * @param type The primitive type of the site.
+	 * @return The number of pin ordinals of the type.
+	 */
+	public int getPinCount(PrimitiveType type){
+		HashMap<String,Integer> ordinals = getPinOrdinals()[type.ordinal()];
+		return ordinals == null ? 0 : ordinals.size();
 	}
 	
 	/**
@@ -217,8 +357,8 @@ public class Device implements Serializable{
 	 * field is null and level is zero.
 	 */
 	public Node getNodeFromPin(Pin pin){
-		Integer wire = getPrimitiveExternalPin(pin);
-		if(wire == null) return null;
+		int wire = getPrimitiveExternalPinWire(pin);
+		if(wire == -1) return null;
 		return new Node(pin.getTile(), wire, null, 0);
 	}
 	
@@ -229,8 +369,8 @@ public class Device implements Serializable{
 	 * field is null and level is zero.
 	 */
 	public Node getNodeFromPin(Pin pin, Node parent, int level){
-		Integer wire = getPrimitiveExternalPin(pin);
-		if(wire == null) return null;
+		int wire = getPrimitiveExternalPinWire(pin);
+		if(wire == -1) return null;
 		return new Node(pin.getTile(), wire, parent, level);
 	}
 	
@@ -240,7 +380,11 @@ public class Device implements Serializable{
 	 * @return The PIPRouteThrough or null if it does not exist.
 	 */
 	public PIPRouteThrough getRouteThrough(WireConnection w){
-		return routeThroughMap.get(w);
+		int index = w.getRouteThroughIndex();
+		if(routeThroughs == null || index == WireConnection.NOT_INDEXED){
+			return routeThroughMap.get(w);
+		}
+		return index == -1 ? null : routeThroughs[index];
 	}
 	
 	/**
@@ -332,14 +476,28 @@ public class Device implements Serializable{
 	 * routed to reach the sink pin. Returns null, if none exists. 
 	 */
 	public Node getSwitchMatrixSink(Pin pin){
-		int extPin = getPrimitiveExternalPin(pin);
-		Tile tile = pin.getInstance().getTile();
-		SinkPin sp = tile.getSinks().get(extPin);
-		if(sp == null) return null;
-		int y = sp.switchMatrixTileOffset;
-		int x = y >> 16;
-		y = (y << 16) >> 16; 
-		Node n = new Node(getTile(tile.getRow()+y, tile.getColumn()+x),sp.switchMatrixSinkWire,null,0);
+		PrimitiveSite site = pin.getInstance().getPrimitiveSite();
+		Tile tile = site.getTile();
+		int offset;
+		int wire;
+		int ordinal = pin.getPinOrdinal();
+		int[] sinks = ordinal == -1 ? null : getSitePinSinks()[site.getIndex()];
+		if(sinks != null && !isPatchedPin(pin)){
+			offset = sinks[2*ordinal];
+			wire = sinks[2*ordinal+1];
+			if(offset == NO_SINK_PIN) return null;
+		}
+		else{
+			// Patched pins and the pins of sites changed since they were 
+			// indexed are resolved through the tile sinks
+			SinkPin sp = tile.getSinks().get(getPrimitiveExternalPinWire(pin));
+			if(sp == null) return null;
+			offset = sp.switchMatrixTileOffset;
+			wire = sp.switchMatrixSinkWire;
+		}
+		int x = offset >> 16;
+		int y = (offset << 16) >> 16; 
+		Node n = new Node(getTile(tile.getRow()+y, tile.getColumn()+x),wire,null,0);
 		return n;
 	}
 	
@@ -449,6 +607,24 @@ public class Device implements Serializable{
 		return primitiveSites;
 	}
 
+	/**
+	 * Gets a primitive site by its dense integer index (see PrimitiveSite.getIndex()).
+	 * @param index The index of the site to get.
+	 * @return The primitive site with the given index.
+	 */
+	public PrimitiveSite getPrimitiveSite(int index){
+		return getPrimitiveSiteArray()[index];
+	}
+	
+	/**
+	 * Gets and returns the number of primitive sites in this device.  Site
+	 * indices run from 0 to this value minus one.
+	 * @return The number of primitive sites in this device.
+	 */
+	public int getPrimitiveSiteCount(){
+		return getPrimitiveSiteArray().length;
+	}
+	
 	/**
 	 * Gets and returns the HashMap of name to Tile mappings for this device.
 	 * @return The tile mappings of name to Tile object for this device.
@@ -464,6 +640,18 @@ public class Device implements Serializable{
 	public HashMap<WireConnection, PIPRouteThrough> getRouteThroughMap(){
 		return routeThroughMap;
 	}
+	
+	/**
+	 * Checks if a device file version can be read by this version of the tools.
+	 * Versions 0.4 and 0.5 are single stream files (0.5 also flags route 
+	 * through connections in bit 30 of the wire pool entries, which is masked
+	 * off as the route through indices come from the route through table).
+	 * @param version The device file version to check.
+	 * @return True if the device file can be read, false otherwise.
+	 */
+	public static boolean isCompatibleDeviceFileVersion(String version){
+		return deviceFileVersion.equals(version) || "0.5".equals(version) || "0.4".equals(version);
+	}
 
 	/**
 	 * This method will get (create if null) a data structure which stores all 
@@ -517,93 +705,289 @@ public class Device implements Serializable{
 	 * primitive type in this device.  For example, a SLICEL can be placed at 
 	 * all SLICEL sites AND all SLICEM sites.  If the type given were SLICEL, 
 	 * this method would return an array of all SLICEL and SLICEM sites.
+	 * The returned array is shared by all callers and should not be modified.
 	 * @param type The type for which to find compatible primitive sites.
 	 * @return An array of compatible sites suitable for placement of a 
-	 * primitive of type type.
+	 * primitive of type type (null if there are none).
 	 */
 	public PrimitiveSite[] getAllCompatibleSites(PrimitiveType type){
-		int size = 0;
-		// Check if there are sites of the given type
-		ArrayList<PrimitiveSite[]> compatibleList = new ArrayList<PrimitiveSite[]>();
-		PrimitiveSite[] match = getAllPrimitiveSitesOfType(type);
-		if(match != null){
-			size += match.length;
-			compatibleList.add(match);
+		return getCompatibleSiteIndex().get(type.ordinal());
+	}
+	
+	/**
+	 * Gets the site indices (see PrimitiveSite.getIndex() and getPrimitiveSite(int)) 
+	 * of all the primitive sites compatible with a primitive type, the sites of 
+	 * the type itself come first.  The returned array is shared by all callers and
+	 * must not be modified.
+	 * @param type The type for which to find compatible primitive sites.
+	 * @return The site indices of the compatible sites in this device (null if there are none).
+	 */
+	public int[] getCompatibleSiteIndices(PrimitiveType type){
+		checkSiteIndices();
+		return compatibleSiteIndices[type.ordinal()];
+	}
+	
+	/**
+	 * Gets the site indices (see PrimitiveSite.getIndex() and getPrimitiveSite(int)) 
+	 * of all the primitive sites of a primitive type, in tile order.  The returned 
+	 * array is shared by all callers and must not be modified.
+	 * @param type The type of sites to retrieve.
+	 * @return The site indices of the sites of type type in this device (null if there are none).
+	 */
+	public int[] getSiteIndicesOfType(PrimitiveType type){
+		checkSiteIndices();
+		return siteTypeIndices[type.ordinal()];
+	}
+	
+	/**
+	 * Gets the number of primitive sites compatible with a primitive type.  Together
+	 * with getCompatibleSite() this iterates over the compatible sites without 
+	 * allocating any objects:
+	 * <pre>
+	 * for(int i=0; i < dev.getCompatibleSiteCount(type); i++){
+	 *     PrimitiveSite site = dev.getCompatibleSite(type, i);
+	 * }
+	 * </pre>
+	 * @param type The type for which to find compatible primitive sites.
+	 * @return The number of compatible sites in this device.
+	 */
+	public int getCompatibleSiteCount(PrimitiveType type){
+		int[] indices = getCompatibleSiteIndices(type);
+		return indices == null ? 0 : indices.length;
+	}
+	
+	/**
+	 * Gets one of the primitive sites compatible with a primitive type (see getCompatibleSiteCount()).
+	 * @param type The type for which to find compatible primitive sites.
+	 * @param i The position of the site in the compatible sites, from 0 to getCompatibleSiteCount(type) minus one.
+	 * @return The compatible site at position i.
+	 */
+	public PrimitiveSite getCompatibleSite(PrimitiveType type, int i){
+		return getPrimitiveSite(getCompatibleSiteIndices(type)[i]);
+	}
+	
+	/**
+	 * Gets and returns an array of all primitive sites of the given primitive type.
+	 * @param type The primitive type of the site to get.
+	 * @return An array of all primitive sites in the device with primitive type type.
+	 */
+	public PrimitiveSite[] getAllSitesOfType(PrimitiveType type){
+		return getPrimitiveSiteIndex().get(type.ordinal());
+	}
+	
+	
+	/**
+	 * Creates the route through table of a device which was not loaded from
+	 * file (created from XDLRC) and sets the route through index of every 
+	 * wire connection of its tiles.
+	 */
+	private void indexRouteThroughs(){
+		HashMap<WireConnection,Integer> indices = new HashMap<WireConnection,Integer>();
+		PIPRouteThrough[] table = new PIPRouteThrough[routeThroughMap.size()];
+		for(WireConnection w : routeThroughMap.keySet()){
+			table[indices.size()] = routeThroughMap.get(w);
+			indices.put(w, indices.size());
 		}
-		
-		// Check for other compatible site types
-		PrimitiveType[] compatibleTypes = PrimitiveSite.compatibleTypesArray[getFamilyType().ordinal()].get(type);
-		if(compatibleTypes != null){
-			for(PrimitiveType compatibleType : compatibleTypes){
-				match = getAllPrimitiveSitesOfType(compatibleType);
-				if(match != null){
-					size += match.length;
-					compatibleList.add(match);
+		for(Tile[] tileArray : tiles){
+			for(Tile t : tileArray){
+				if(t.getWireHashMap() == null) continue;
+				for(WireConnection[] connections : t.getWireHashMap().values()){
+					if(connections == null) continue;
+					for(WireConnection w : connections){
+						Integer index = indices.get(w);
+						w.setRouteThroughIndex(index == null ? -1 : index);
+					}
 				}
 			}
 		}
-		
-		// If there are no compatible sites, return null
-		if(compatibleList.size() == 0){
-			return null;
+		routeThroughs = table;
+	}
+	
+	/**
+	 * Copies the wire connections of all the tiles into one direct buffer 
+	 * outside of the Java heap (see OffHeapWireHashMap), which routers can 
+	 * walk through Tile.getOffHeapWireHashMap() without creating objects.
+	 * When the heap wires are released, the WireHashMap and WireConnection 
+	 * objects of the tiles can be garbage collected, which leaves the garbage
+	 * collector far fewer live objects to trace during long routing runs.  
+	 * Tile.getWireConnections() then creates new connections on each call and
+	 * Tile.getWireHashMap() returns null, so the device can no longer be 
+	 * modified or written to a file.  The device is still the one returned 
+	 * by getInstance() (and so by FileTools.loadDevice()) until it is passed
+	 * to releaseInstance().
+	 * @param releaseHeapWires Removes the heap wire maps from the tiles.
+	 * @return The size of the buffer in bytes.
+	 */
+	public long createOffHeapWires(boolean releaseHeapWires){
+		if(routeThroughs == null){
+			indexRouteThroughs();
 		}
-		int i = 0;
-		PrimitiveSite[] newArray = new PrimitiveSite[size];
-		for(PrimitiveSite[] sites : compatibleList){
-			for(PrimitiveSite site : sites){
-				newArray[i] = site;
-				i++;
+		ArrayList<WireHashMap> maps = new ArrayList<WireHashMap>(rows*columns);
+		for(Tile[] tileArray : tiles){
+			for(Tile t : tileArray){
+				maps.add(t.getWireHashMap());
+			}
+		}
+		IdentityHashMap<WireHashMap,OffHeapWireHashMap> offHeapMaps = OffHeapWireHashMap.create(maps);
+		long size = 0;
+		for(Tile[] tileArray : tiles){
+			for(Tile t : tileArray){
+				if(t.getWireHashMap() == null) continue;
+				OffHeapWireHashMap map = offHeapMaps.get(t.getWireHashMap());
+				size = map.getBufferSize();
+				t.setOffHeapWireHashMap(map);
+				if(releaseHeapWires){
+					t.setWireHashMap(null);
+				}
 			}
 		}
-		return newArray;
+		return size;
 	}
 	
-	
 	/**
-	 * Gets and returns an array of all primitive sites of the given primitive type.
-	 * @param type The primitive type of the site to get.
-	 * @return An array of all primitive sites in the device with primitive type type.
+	 * Makes sure the primitive sites have been indexed and the site pin table
+	 * has been created (it is created when the device is loaded from file).
 	 */
-	public PrimitiveSite[] getAllSitesOfType(PrimitiveType type){
-		return getPrimitiveSiteIndex().get(type.ordinal());
+	public void checkSitePinIndex(){
+		if(primitiveSiteArray == null){
+			createSitePinIndex();
+		}
+	}
+	
+	private PrimitiveSite[] getPrimitiveSiteArray(){
+		checkSitePinIndex();
+		return primitiveSiteArray;
+	}
+	
+	private HashMap<String,Integer>[] getPinOrdinals(){
+		checkSitePinIndex();
+		return pinOrdinals;
 	}
 	
+	private int[][] getSitePinSinks(){
+		checkSitePinIndex();
+		return sitePinSinks;
+	}
+	
+	/**
+	 * Removes a site from the site pin table after its pins were changed 
+	 * (see PrimitiveSite.setPins()), its pins are then resolved by name.
+	 * @param site The site whose pins changed.
+	 */
+	void invalidateSitePins(PrimitiveSite site){
+		if(sitePinSinks != null && site.getIndex() >= 0 && site.getIndex() < sitePinSinks.length 
+				&& primitiveSiteArray[site.getIndex()] == site){
+			sitePinSinks[site.getIndex()] = null;
+		}
+	}
 	
 	//========================================================================//
 	// Object Population Methods
 	//========================================================================//
 	/**
-	 * This will create a data structure which organizes all primitive sites by types.
-	 * The outer ArrayList uses the PrimitiveType.ordinal() value as the index for
-	 * each type of primitive site.
+	 * This will assign each primitive site its dense index, enumerate the pin
+	 * names of each primitive type and replace each site's pin map with an 
+	 * array indexed by pin ordinal.  It also creates the site pin table, which 
+	 * maps a (site index, pin ordinal) pair to the switch matrix sink that 
+	 * drives the pin.  Sites which share a pin map (and tile sinks) share the 
+	 * same arrays.
 	 */
-	private void createPrimitiveSiteIndex(){
-		ArrayList<ArrayList<PrimitiveSite>> tmp = new ArrayList<ArrayList<PrimitiveSite>>(PrimitiveType.values().length);
-		for(int i = 0; i < PrimitiveType.values().length; i++){
-			tmp.add(new ArrayList<PrimitiveSite>());
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	protected void createSitePinIndex(){
+		// Index the sites in tile order
+		PrimitiveSite[] siteArray = getSitesInTileOrder();
+		for(int i=0; i < siteArray.length; i++){
+			siteArray[i].setIndex(i);
 		}
-			
-		for(int i=0; i < this.rows; i++){
-			for(int j=0; j < this.columns; j++){
-				PrimitiveSite[] sites = tiles[i][j].getPrimitiveSites();
-				if(sites == null) continue;
-				for(PrimitiveSite site : sites){
-					tmp.get(site.getType().ordinal()).add(site);
-				}
+		
+		// Collect the pin maps of the sites, pooled maps (or already compacted 
+		// arrays) are only visited once
+		IdentityHashMap<Object,HashMap<String,Integer>> pinMaps = new IdentityHashMap<Object,HashMap<String,Integer>>();
+		Object[] pinMapKeys = new Object[siteArray.length];
+		for(PrimitiveSite site : siteArray){
+			Object key = site.pins != null ? site.pins : site.pinWires;
+			if(!pinMaps.containsKey(key)){
+				HashMap<String,Integer> pinMap = site.getPinMap();
+				pinMaps.put(key, pinMap == null ? new HashMap<String,Integer>() : pinMap);
 			}
+			pinMapKeys[site.getIndex()] = key;
 		}
 		
-		ArrayList<PrimitiveSite[]> index = new ArrayList<PrimitiveSite[]>();
-		for(ArrayList<PrimitiveSite> list : tmp){
-			if(list.size() == 0){
-				index.add(null);
+		// Enumerate the pin names of each primitive type
+		TreeSet<String>[] typePinNames = new TreeSet[PrimitiveType.values().length];
+		for(PrimitiveSite site : siteArray){
+			int type = site.getType().ordinal();
+			if(typePinNames[type] == null){
+				typePinNames[type] = new TreeSet<String>();
+			}
+			typePinNames[type].addAll(pinMaps.get(pinMapKeys[site.getIndex()]).keySet());
+		}
+		HashMap<String,Integer>[] ordinals = new HashMap[typePinNames.length];
+		String[][] names = new String[typePinNames.length][];
+		for(int i=0; i < typePinNames.length; i++){
+			if(typePinNames[i] == null) continue;
+			ordinals[i] = new HashMap<String,Integer>();
+			names[i] = typePinNames[i].toArray(new String[typePinNames[i].size()]);
+			for(String name : names[i]){
+				ordinals[i].put(name, ordinals[i].size());
 			}
-			else{
-				PrimitiveSite[] tmpArray = new PrimitiveSite[list.size()];
-				index.add(list.toArray(tmpArray));
+		}
+		
+		// Populate the pin arrays and table, sharing rows between identical 
+		// pin maps and tile sinks
+		int[][] sinks = new int[siteArray.length][];
+		IdentityHashMap<Object,int[]> wireRows = new IdentityHashMap<Object,int[]>();
+		IdentityHashMap<int[],IdentityHashMap<HashMap<Integer,SinkPin>,int[]>> sinkRows = 
+			new IdentityHashMap<int[],IdentityHashMap<HashMap<Integer,SinkPin>,int[]>>();
+		for(PrimitiveSite site : siteArray){
+			HashMap<String,Integer> typeOrdinals = ordinals[site.getType().ordinal()];
+			Object key = pinMapKeys[site.getIndex()];
+			int[] wireRow = wireRows.get(key);
+			if(wireRow == null){
+				HashMap<String,Integer> pinMap = pinMaps.get(key);
+				wireRow = new int[typeOrdinals.size()];
+				Arrays.fill(wireRow, -1);
+				for(String name : pinMap.keySet()){
+					wireRow[typeOrdinals.get(name)] = pinMap.get(name);
+				}
+				wireRows.put(key, wireRow);
+			}
+			
+			HashMap<Integer,SinkPin> tileSinks = site.getTile().getSinks();
+			IdentityHashMap<HashMap<Integer,SinkPin>,int[]> rows = sinkRows.get(wireRow);
+			if(rows == null){
+				rows = new IdentityHashMap<HashMap<Integer,SinkPin>,int[]>();
+				sinkRows.put(wireRow, rows);
+			}
+			int[] sinkRow = rows.get(tileSinks);
+			if(sinkRow == null){
+				sinkRow = new int[2*wireRow.length];
+				for(int i=0; i < wireRow.length; i++){
+					SinkPin sp = (wireRow[i] == -1 || tileSinks == null) ? null : tileSinks.get(wireRow[i]);
+					sinkRow[2*i] = sp == null ? NO_SINK_PIN : sp.switchMatrixTileOffset;
+					sinkRow[2*i+1] = sp == null ? -1 : sp.switchMatrixSinkWire;
+				}
+				rows.put(tileSinks, sinkRow);
 			}
+			
+			site.setPinWires(wireRow);
+			sinks[site.getIndex()] = sinkRow;
 		}
-		this.primitiveSiteIndex = index;
+		
+		primitiveSiteArray = siteArray;
+		pinOrdinals = ordinals;
+		pinNames = names;
+		sitePinSinks = sinks;
+	}
+	
+	/**
+	 * This will create a data structure which organizes all primitive sites by types.
+	 * The outer ArrayList uses the PrimitiveType.ordinal() value as the index for
+	 * each type of primitive site.
+	 */
+	private void createPrimitiveSiteIndex(){
+		checkSiteIndices();
+		this.primitiveSiteIndex = getSiteArrays(siteTypeIndices);
 	}
 	
 	/**
@@ -613,46 +997,178 @@ public class Device implements Serializable{
 	 * the index of the type to get the compatible sites.
 	 */
 	private void createCompatibleSiteIndex(){
-		int size = 0;
-		compatibleSiteIndex = new ArrayList<PrimitiveSite[]>(PrimitiveType.values().length);
-		
-		// For each primitive type
-		for(PrimitiveType type: PrimitiveType.values()){
-			// Check if there are sites of the given type
-			ArrayList<PrimitiveSite[]> compatibleList = new ArrayList<PrimitiveSite[]>();
-			PrimitiveSite[] match = getAllPrimitiveSitesOfType(type);
-			if(match != null){
-				size += match.length;
-				compatibleList.add(match);
+		checkSiteIndices();
+		this.compatibleSiteIndex = getSiteArrays(compatibleSiteIndices);
+	}
+	
+	/**
+	 * Replaces the site indices of each primitive type by the sites themselves.
+	 */
+	private ArrayList<PrimitiveSite[]> getSiteArrays(int[][] indices){
+		PrimitiveSite[] siteArray = getPrimitiveSiteArray();
+		ArrayList<PrimitiveSite[]> index = new ArrayList<PrimitiveSite[]>(indices.length);
+		for(int[] typeIndices : indices){
+			if(typeIndices == null){
+				index.add(null);
+				continue;
 			}
-			
-			// Check for other compatible site types
-			PrimitiveType[] compatibleTypes = PrimitiveSite.compatibleTypesArray[getFamilyType().ordinal()].get(type);
-			if(compatibleTypes != null){
-				for(PrimitiveType compatibleType : compatibleTypes){
-					match = getAllPrimitiveSitesOfType(compatibleType);
-					if(match != null){
-						size += match.length;
-						compatibleList.add(match);
+			PrimitiveSite[] sites = new PrimitiveSite[typeIndices.length];
+			for(int i=0; i < sites.length; i++){
+				sites[i] = siteArray[typeIndices[i]];
+			}
+			index.add(sites);
+		}
+		return index;
+	}
+	
+	/**
+	 * Makes sure the site type and compatible site indices exist, they are read 
+	 * from the device file or created on first use.
+	 */
+	protected void checkSiteIndices(){
+		if(siteTypeIndices == null){
+			createSiteIndices(Runtime.getRuntime().availableProcessors());
+		}
+	}
+	
+	/**
+	 * Gets all the primitive sites of the device in tile order, which is the 
+	 * order of their site indices.
+	 */
+	private PrimitiveSite[] getSitesInTileOrder(){
+		ArrayList<PrimitiveSite> sites = new ArrayList<PrimitiveSite>(primitiveSites.size());
+		for(Tile[] tileArray : tiles){
+			for(Tile t : tileArray){
+				if(t.getPrimitiveSites() == null) continue;
+				for(PrimitiveSite site : t.getPrimitiveSites()){
+					sites.add(site);
+				}
+			}
+		}
+		return sites.toArray(new PrimitiveSite[sites.size()]);
+	}
+	
+	/**
+	 * Creates the site indices of each primitive type (siteTypeIndices) and the 
+	 * site indices of the sites compatible with each primitive type 
+	 * (compatibleSiteIndices).  The sites are split into contiguous ranges 
+	 * which are counted by type and then distributed into the indices 
+	 * concurrently, each range writing at its own offsets so the indices keep 
+	 * the tile order.  The compatible indices of the types are then 
+	 * concatenated concurrently.
+	 * @param threads The maximum number of threads to use.
+	 */
+	protected void createSiteIndices(int threads){
+		final PrimitiveSite[] sites = getSitesInTileOrder();
+		final int typeCount = PrimitiveType.values().length;
+		final int ranges = Math.max(1, Math.min(threads, sites.length / MIN_SITES_PER_THREAD));
+		ExecutorService pool = Executors.newFixedThreadPool(ranges);
+		try{
+			// Count the sites of each type in each range
+			ArrayList<Future<int[]>> countTasks = new ArrayList<Future<int[]>>(ranges);
+			for(int r=0; r < ranges; r++){
+				final int start = (int) ((long) sites.length * r / ranges);
+				final int end = (int) ((long) sites.length * (r+1) / ranges);
+				countTasks.add(pool.submit(new Callable<int[]>(){
+					public int[] call(){
+						int[] counts = new int[typeCount];
+						for(int i=start; i < end; i++){
+							counts[sites[i].getType().ordinal()]++;
+						}
+						return counts;
 					}
+				}));
+			}
+			
+			// Each range fills its own part of the index of each type
+			final int[][] offsets = new int[ranges][];
+			int[] totals = new int[typeCount];
+			for(int r=0; r < ranges; r++){
+				int[] counts = countTasks.get(r).get();
+				offsets[r] = totals.clone();
+				for(int t=0; t < typeCount; t++){
+					totals[t] += counts[t];
 				}
 			}
+			final int[][] typeIndices = new int[typeCount][];
+			for(int t=0; t < typeCount; t++){
+				typeIndices[t] = totals[t] == 0 ? null : new int[totals[t]];
+			}
+			ArrayList<Future<?>> fillTasks = new ArrayList<Future<?>>(ranges);
+			for(int r=0; r < ranges; r++){
+				final int start = (int) ((long) sites.length * r / ranges);
+				final int end = (int) ((long) sites.length * (r+1) / ranges);
+				final int[] next = offsets[r];
+				fillTasks.add(pool.submit(new Runnable(){
+					public void run(){
+						for(int i=start; i < end; i++){
+							int type = sites[i].getType().ordinal();
+							typeIndices[type][next[type]++] = i;
+						}
+					}
+				}));
+			}
+			for(Future<?> task : fillTasks){
+				task.get();
+			}
 			
-			// If there are no compatible sites, return null
-			if(compatibleList.size() == 0){
-				compatibleSiteIndex.set(type.ordinal(), null);
-				continue;
+			// Concatenate the indices of the compatible types of each type
+			final HashMap<PrimitiveType,PrimitiveType[]> compatibleTypesMap = 
+				PrimitiveSite.compatibleTypesArray[getFamilyType().ordinal()];
+			final PrimitiveType[] typeValues = PrimitiveType.values();
+			final int[][] compatibleIndices = new int[typeCount][];
+			ArrayList<Future<?>> compatibleTasks = new ArrayList<Future<?>>(ranges);
+			for(int r=0; r < ranges; r++){
+				final int start = typeCount * r / ranges;
+				final int end = typeCount * (r+1) / ranges;
+				compatibleTasks.add(pool.submit(new Runnable(){
+					public void run(){
+						for(int t=start; t < end; t++){
+							PrimitiveType[] compatibleTypes = compatibleTypesMap == null ? 
+									null : compatibleTypesMap.get(typeValues[t]);
+							if(compatibleTypes == null){
+								compatibleIndices[t] = typeIndices[t];
+								continue;
+							}
+							int size = typeIndices[t] == null ? 0 : typeIndices[t].length;
+							for(PrimitiveType compatibleType : compatibleTypes){
+								int[] match = typeIndices[compatibleType.ordinal()];
+								size += match == null ? 0 : match.length;
+							}
+							if(size == 0) continue;
+							int[] indices = new int[size];
+							int j = 0;
+							if(typeIndices[t] != null){
+								System.arraycopy(typeIndices[t], 0, indices, 0, typeIndices[t].length);
+								j = typeIndices[t].length;
+							}
+							for(PrimitiveType compatibleType : compatibleTypes){
+								int[] match = typeIndices[compatibleType.ordinal()];
+								if(match == null) continue;
+								System.arraycopy(match, 0, indices, j, match.length);
+								j += match.length;
+							}
+							compatibleIndices[t] = indices;
+						}
+					}
+				}));
 			}
-			int j = 0;
-			PrimitiveSite[] newArray = new PrimitiveSite[size];
-			for(PrimitiveSite[] sites : compatibleList){
-				for(PrimitiveSite site : sites){
-					newArray[j] = site;
-					j++;
-				}
+			for(Future<?> task : compatibleTasks){
+				task.get();
 			}
-			compatibleSiteIndex.set(type.ordinal(), newArray);
-		}		
+			siteTypeIndices = typeIndices;
+			compatibleSiteIndices = compatibleIndices;
+		}
+		catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			MessageGenerator.briefErrorAndExit("Interrupted while creating the site indices of " + partName);
+		}
+		catch (ExecutionException e){
+			MessageGenerator.briefErrorAndExit("Error creating the site indices of " + partName + ": " + e.getCause());
+		}
+		finally{
+			pool.shutdown();
+		}
 	}
 	
 	
@@ -861,22 +1377,18 @@ public class Device implements Serializable{
 	//========================================================================//
 	// Reading Writing Methods from/to Compact File
 	//========================================================================//
-	private static void debugWritingSize(Hessian2Output hos, FileOutputStream fos, 
-			String variableName, Long[] locations){
-		try {
-			hos.flush();
-			locations[0] = fos.getChannel().position();
-			System.out.printf("%10d bytes : %s\n",(locations[0]-locations[1]),variableName);
-			locations[1] = locations[0];
-		} catch (IOException e) {
-			return;
-		}
-		
+	/** Number of sections the tile wires of a compact device file are split into */
+	private static final int TILE_WIRES_SECTIONS = 8;
+	
+	private static void debugSectionSize(SectionedFileWriter sfw, String sectionName) throws IOException{
+		System.out.printf("%10d bytes : %s\n", sfw.endSection(), sectionName);
 	}
 	
 	/**
 	 * This function is used to write a compact version of the device to a file. The file can 
-	 * only be read by using the corresponding function readDeviceFromCompactFile().
+	 * only be read by using the corresponding function readDeviceFromCompactFile(). The 
+	 * file is a sectioned file (see SectionedFileWriter) whose sections are compressed 
+	 * independently so they can be decoded concurrently.
 	 * @param fileName Name of the file to create and store data for the device in the compact format
 	 * @return True if operation is successful, false otherwise.
 	 */
@@ -888,74 +1400,57 @@ public class Device implements Serializable{
 			}
 		}
 		try{		
-			FileOutputStream fos = new FileOutputStream(fileName);
-			Hessian2Output h2os = new Hessian2Output(fos);
-			Deflation deflate = new Deflation();
-			Hessian2Output hos = deflate.wrap(h2os);
+			SectionedFileWriter sfw = new SectionedFileWriter();
+			Hessian2Output hos;
 			
-			/* DEBUG */ Long[] locations = new Long[2];
-			/* DEBUG */ locations[1] = fos.getChannel().position();
 			/* DEBUG */ System.out.println("\n");
 			MessageGenerator.printHeader("File Usage Statistics");
 
 			//=======================================================//
+			/* - header -                                            */
 			/* public static final String deviceFileVersion;         */
-			//=======================================================//
-			hos.writeString(deviceFileVersion);			
-			/* DEBUG */ debugWritingSize(hos,fos,"deviceFileVersion",locations);
-			
-			//=======================================================//
 			/* public int tileRows;                                  */
-			//=======================================================//
-			hos.writeInt(rows);			
-			/* DEBUG */ debugWritingSize(hos,fos,"tileRows",locations);
-
-			//=======================================================//
 			/* public int tileColumns;                               */
+			/* public String partName;                               */
 			//=======================================================//
+			hos = sfw.startSection("header");
+			hos.writeString(deviceFileVersion);			
+			hos.writeInt(rows);			
 			hos.writeInt(columns);
-			/* DEBUG */ debugWritingSize(hos,fos,"tileColumns",locations);
-
+			hos.writeString(partName);
+			hos.writeInt(TILE_WIRES_SECTIONS);
+			/* DEBUG */ debugSectionSize(sfw,"header");
+			
 			//=======================================================//
 			/* - wirePool -                                          */
+			/* - wireArrayPool -                                     */
+			/* - wireConnectionPool -                                */
 			//=======================================================//
+			hos = sfw.startSection("wires");
 			hos.writeInt(wirePool.getEnumerations().size());
 			for(WireConnection w : wirePool.getEnumerations()){
 				int mask = w.isPIP() ? 0x80000000 : 0x0;
 				hos.writeInt(mask | (w.getWire()));				
 				hos.writeInt((w.getRowOffset() << 16) | (w.getColumnOffset() & 0xFFFF));
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"wirePool",locations);
-			
-			//=======================================================//
-			/* - wireArrayPool -                                     */
-			//=======================================================//
 			hos.writeInt(wireArrayPool.getEnumerations().size());
 			for(WireArray wireArray : wireArrayPool.getEnumerations()){
 				hos.writeInt(wireArray.array.length);
-				/*if(wireArray.array.length > 128){
-					System.out.println("Bad Assumption");
-					System.exit(1);
-				}*/
 				for(WireConnection w : wireArray.array){
 					hos.writeInt(wirePool.getEnumerationValue(w));
 				}
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"wireArrayPool",locations);
-
-			//=======================================================//
-			/* - wireConnectionPool -                                */
-			//=======================================================//
 			hos.writeInt(wireConnectionPool.getEnumerations().size());
 			for(WireArrayConnection wc : wireConnectionPool.getEnumerations()){
 				hos.writeInt(wc.wire);
 				hos.writeInt(wc.wireArrayEnum);
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"wireConnectionPool",locations);						
+			/* DEBUG */ debugSectionSize(sfw,"wires");
 			
 			//=======================================================//
 			/* - tileSinksPool -                                     */
 			//=======================================================//
+			hos = sfw.startSection("sinks");
 			hos.writeInt(tileSinksPool.getEnumerations().size());
 			for(TileSinks s : tileSinksPool.getEnumerations()){
 				hos.writeInt(s.sinks.size());
@@ -966,25 +1461,32 @@ public class Device implements Serializable{
 					hos.writeInt(sp.switchMatrixTileOffset);
 				}
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"tileSinksPool",locations);
+			/* DEBUG */ debugSectionSize(sfw,"sinks");
 			
 			//=======================================================//
 			/* - tileSourcesPool -                                   */
 			//=======================================================//
+			hos = sfw.startSection("sources");
 			hos.writeInt(tileSourcesPool.getEnumerations().size());
 			for(TileSources s : tileSourcesPool.getEnumerations()){
 				FileTools.writeIntArray(hos, s.sources);
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"tileSourcesPool",locations);
+			/* DEBUG */ debugSectionSize(sfw,"sources");
 			
 			//=======================================================//
 			/* - tileWiresPool -                                     */
 			//=======================================================//
-			hos.writeInt(tileWiresPool.getEnumerations().size());
-			for(TileWires tw : tileWiresPool.getEnumerations()){
-				FileTools.writeWireHashMap(hos, tw.wires, wireArrayPool, wireConnectionPool);
+			ArrayList<TileWires> tileWires = tileWiresPool.getEnumerations();
+			for(int i=0; i < TILE_WIRES_SECTIONS; i++){
+				int start = (int) ((long) tileWires.size() * i / TILE_WIRES_SECTIONS);
+				int end = (int) ((long) tileWires.size() * (i+1) / TILE_WIRES_SECTIONS);
+				hos = sfw.startSection("tileWires." + i);
+				hos.writeInt(end - start);
+				for(int j=start; j < end; j++){
+					FileTools.writeWireHashMap(hos, tileWires.get(j).wires, wireArrayPool, wireConnectionPool);
+				}
+				/* DEBUG */ debugSectionSize(sfw,"tileWires." + i);
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"tileWiresPool",locations);
 			
 			//=======================================================//
 			/* public Tile[][] tiles;                                */
@@ -994,7 +1496,7 @@ public class Device implements Serializable{
 			int[] tileTypes = new int[rows*columns];
 			int[] tileSinks = new int[rows*columns];
 			int[] tileSources = new int[rows*columns];
-			int[] tileWires = new int[rows*columns];
+			int[] tileWireMaps = new int[rows*columns];
 			int[] primitiveSitesCount = new int[rows*columns];
 			for(Tile[] tileArray : tiles){
 				for(Tile t : tileArray){
@@ -1007,39 +1509,35 @@ public class Device implements Serializable{
 					// Sources
 					tileSources[index] = tileSourcesPool.getEnumerationValue(new TileSources(t.getSources()));
 					// Wires
-					tileWires[index] = tileWiresPool.getEnumerationValue(new TileWires(t.getWireHashMap()));
+					tileWireMaps[index] = tileWiresPool.getEnumerationValue(new TileWires(t.getWireHashMap()));
 					// PrimitiveSites Count
 					primitiveSitesCount[index] = t.getPrimitiveSites() == null ?  0 : t.getPrimitiveSites().length;
 					index++;
 				}
 			}
+			hos = sfw.startSection("tiles");
 			FileTools.writeStringArray(hos, tileNames);
 			FileTools.writeIntArray(hos, tileTypes);
 			FileTools.writeIntArray(hos, tileSinks);
 			FileTools.writeIntArray(hos, tileSources);
-			FileTools.writeIntArray(hos, tileWires);
+			FileTools.writeIntArray(hos, tileWireMaps);
 			FileTools.writeIntArray(hos, primitiveSitesCount);
-			/* DEBUG */ debugWritingSize(hos,fos,"tiles[][]",locations);
-
-			//=======================================================//
-			/* public String partName;                               */
-			//=======================================================//
-			//FileTools.writeString(dos, partName);
-			hos.writeString(partName);
-			/* DEBUG */ debugWritingSize(hos,fos,"partName",locations);
+			/* DEBUG */ debugSectionSize(sfw,"tiles[][]");
 
 			//=======================================================//
 			/* - primitivePinPool -                                  */
 			//=======================================================//
+			hos = sfw.startSection("primitivePins");
 			hos.writeInt(primitivePinPool.getEnumerations().size());
 			for(PrimitivePinMap map : primitivePinPool.getEnumerations()){
 				FileTools.writeHashMap(hos, map.pins);
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"primitivePinPool",locations);
+			/* DEBUG */ debugSectionSize(sfw,"primitivePinPool");
 			
 			//=======================================================//
 			/* public HashMap<String,Primitive> primitives;          */
 			//=======================================================//		
+			hos = sfw.startSection("primitiveSites");
 			hos.writeInt(primitiveSites.values().size());
 			for(Tile[] tileArray : tiles){
 				for(Tile t : tileArray){
@@ -1050,11 +1548,27 @@ public class Device implements Serializable{
 					}
 				}
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"primitives",locations);
-			
+			/* DEBUG */ debugSectionSize(sfw,"primitives");
+
+			//=======================================================//
+			/* private int[][] siteTypeIndices;                      */
+			/* private int[][] compatibleSiteIndices;                */
+			//=======================================================//
+			checkSiteIndices();
+			hos = sfw.startSection("siteIndices");
+			hos.writeInt(siteTypeIndices.length);
+			for(int[] indices : siteTypeIndices){
+				FileTools.writeIntArray(hos, indices);
+			}
+			for(int[] indices : compatibleSiteIndices){
+				FileTools.writeIntArray(hos, indices);
+			}
+			/* DEBUG */ debugSectionSize(sfw,"siteIndices");
+
 			//=======================================================//
 			/* public HashMap<Wire,PIPRouteThrough> routeThroughMap; */
 			//=======================================================//
+			hos = sfw.startSection("routeThroughs");
 			hos.writeInt(routeThroughMap.size());
 			for(WireConnection w : routeThroughMap.keySet()){
 				PIPRouteThrough p = routeThroughMap.get(w);
@@ -1063,12 +1577,10 @@ public class Device implements Serializable{
 				hos.writeInt(p.getOutWire());
 				hos.writeInt(wirePool.getEnumerationValue(w));
 			}
-			/* DEBUG */ debugWritingSize(hos,fos,"routeThroughMap",locations);			
+			/* DEBUG */ debugSectionSize(sfw,"routeThroughMap");			
+			long total = sfw.writeToFile(fileName);
 			/* DEBUG */ System.out.println("------------------------------------------");			
-			/* DEBUG */ System.out.printf("%10d bytes : %s\n\n",(fos.getChannel().position()),"Total");
-			
-			hos.close();
-			fos.close();
+			/* DEBUG */ System.out.printf("%10d bytes : %s\n\n",total,"Total");
 		} 
 		catch (IOException e){
 			return false;
@@ -1079,10 +1591,373 @@ public class Device implements Serializable{
 	/**
 	 * This reads from the compact device file to populate all of the essential variables of this 
 	 * device.  It can only be used to read files generated with the writeDeviceToCompactFile() method.
+	 * The sections of the file are decoded using one thread per available processor.
 	 * @param fileName The name of the compact device file
 	 * @return True if operation was successful, false otherwise.
 	 */
 	public boolean readDeviceFromCompactFile(String fileName){
+		return readDeviceFromCompactFile(fileName, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * This reads from the compact device file to populate all of the essential variables of this 
+	 * device.  It can only be used to read files generated with the writeDeviceToCompactFile() method
+	 * (files written by older versions, which are a single compressed stream, are read sequentially).
+	 * @param fileName The name of the compact device file
+	 * @param threads The number of threads used to decode the sections of the file.
+	 * @return True if operation was successful, false otherwise.
+	 */
+	public boolean readDeviceFromCompactFile(String fileName, int threads){
+		if(!SectionedFileReader.isSectionedFile(fileName)){
+			return readDeviceFromLegacyCompactFile(fileName);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		try{
+			final SectionedFileReader sfr = new SectionedFileReader(fileName);
+			int size;
+			
+			//=======================================================//
+			/* - header -                                            */
+			//=======================================================//
+			Hessian2Input his = sfr.getSection("header");
+			checkDeviceFileVersion(his.readString());
+			rows = his.readInt();
+			columns = his.readInt();
+			partName = his.readString();
+			int tileWiresSections = his.readInt();
+			his.close();
+			createTileArray();
+			
+			//Create a set of Integer objects to avoid duplication
+			final Integer[] allInts = new Integer[getFamilyWireCount(fileName)];
+			for (int i = 0; i < allInts.length; i++) {
+				allInts[i] = Integer.valueOf(i);
+			}
+			final PrimitiveType[] typeValues2 = PrimitiveType.values();
+			
+			//=======================================================//
+			/* - wirePool -                                          */
+			/* - wireArrayPool -                                     */
+			/* - wireConnectionPool -                                */
+			//=======================================================//
+			Future<WirePools> wiresTask = pool.submit(new Callable<WirePools>(){
+				public WirePools call() throws IOException{
+					return readWirePools(sfr.getSection("wires"));
+				}
+			});
+			
+			//=======================================================//
+			/* - tileSinksPool -                                     */
+			//=======================================================//
+			Future<ArrayList<HashMap<Integer,SinkPin>>> sinksTask = pool.submit(new Callable<ArrayList<HashMap<Integer,SinkPin>>>(){
+				public ArrayList<HashMap<Integer,SinkPin>> call() throws IOException{
+					Hessian2Input his = sfr.getSection("sinks");
+					int size = his.readInt();
+					ArrayList<HashMap<Integer,SinkPin>> sinks = new ArrayList<HashMap<Integer,SinkPin>>(size);
+					for(int i=0; i < size; i++){
+						int length = his.readInt();
+						HashMap<Integer,SinkPin> tmp = new HashMap<Integer,SinkPin>();
+						for(int j = 0; j < length; j++){
+							tmp.put(allInts[his.readInt()], new SinkPin(his.readInt(),his.readInt()));
+						}
+						sinks.add(tmp);
+					}
+					his.close();
+					return sinks;
+				}
+			});
+			
+			//=======================================================//
+			/* - tileSourcesPool -                                   */
+			//=======================================================//
+			Future<ArrayList<int[]>> sourcesTask = pool.submit(new Callable<ArrayList<int[]>>(){
+				public ArrayList<int[]> call() throws IOException{
+					Hessian2Input his = sfr.getSection("sources");
+					int size = his.readInt();
+					ArrayList<int[]> sources = new ArrayList<int[]>(size);
+					for(int i=0; i < size; i++){
+						sources.add(FileTools.readIntArray(his));
+					}
+					his.close();
+					return sources;
+				}
+			});
+			
+			//=======================================================//
+			/* - primitivePinPool -                                  */
+			/* public HashMap<String,Primitive> primitives;          */
+			//=======================================================//
+			// The sites only need the tile array, they are added to the tiles below
+			Future<PrimitiveSite[]> sitesTask = pool.submit(new Callable<PrimitiveSite[]>(){
+				public PrimitiveSite[] call() throws IOException{
+					Hessian2Input his = sfr.getSection("primitivePins");
+					int size = his.readInt();
+					ArrayList<HashMap<String,Integer>> primitivePinMaps = new ArrayList<HashMap<String,Integer>>(size); 
+					for(int i=0; i < size; i++){
+						primitivePinMaps.add(FileTools.readHashMap(his, allInts));
+					}
+					his.close();
+					his = sfr.getSection("primitiveSites");
+					PrimitiveSite[] sites = new PrimitiveSite[his.readInt()];
+					for(int i=0; i < sites.length; i++){
+						sites[i] = FileTools.readPrimitiveSite(his, Device.this, primitivePinMaps, typeValues2);
+					}
+					his.close();
+					return sites;
+				}
+			});
+			
+			//=======================================================//
+			/* private int[][] siteTypeIndices;                      */
+			/* private int[][] compatibleSiteIndices;                */
+			//=======================================================//
+			// Older files do not have the section, the indices are then created on first use
+			Future<int[][][]> siteIndicesTask = null;
+			if(sfr.hasSection("siteIndices")){
+				siteIndicesTask = pool.submit(new Callable<int[][][]>(){
+					public int[][][] call() throws IOException{
+						Hessian2Input his = sfr.getSection("siteIndices");
+						int size = his.readInt();
+						int[][][] indices = new int[2][size][];
+						for(int i=0; i < indices.length; i++){
+							for(int j=0; j < size; j++){
+								indices[i][j] = FileTools.readIntArray(his);
+							}
+						}
+						his.close();
+						return indices;
+					}
+				});
+			}
+			
+			//=======================================================//
+			/* public Tile[][] tiles;                                */
+			//=======================================================//
+			Future<int[][]> tilesTask = pool.submit(new Callable<int[][]>(){
+				public int[][] call() throws IOException{
+					Hessian2Input his = sfr.getSection("tiles");
+					String[] tileNames = FileTools.readStringArray(his);
+					// Types, sinks, sources, wires and primitive site counts
+					int[][] tileData = new int[5][];
+					for(int i=0; i < tileData.length; i++){
+						tileData[i] = FileTools.readIntArray(his);
+					}
+					his.close();
+					// The names are set here, the rest is set once the pools are read
+					int index = 0;
+					for(Tile[] tileArray : tiles){
+						for(Tile t : tileArray){
+							t.setName(tileNames[index++]);
+						}
+					}
+					return tileData;
+				}
+			});
+			
+			//=======================================================//
+			/* - tileWiresPool -                                     */
+			//=======================================================//
+			// The tasks below wait for tasks submitted before them, which 
+			// have always been started by then
+			final Future<WirePools> wirePoolsTask = wiresTask;
+			ArrayList<Future<ArrayList<WireHashMap>>> tileWiresTasks = new ArrayList<Future<ArrayList<WireHashMap>>>();
+			for(int i=0; i < tileWiresSections; i++){
+				final String section = "tileWires." + i;
+				tileWiresTasks.add(pool.submit(new Callable<ArrayList<WireHashMap>>(){
+					public ArrayList<WireHashMap> call() throws Exception{
+						Hessian2Input his = sfr.getSection(section);
+						WirePools wirePools = wirePoolsTask.get();
+						int size = his.readInt();
+						ArrayList<WireHashMap> wireMaps = new ArrayList<WireHashMap>(size);
+						for(int i=0; i < size; i++){
+							wireMaps.add(FileTools.readWireHashMap(his, wirePools.wireArrays, wirePools.wireConnections));
+						}
+						his.close();
+						return wireMaps;
+					}
+				}));
+			}
+			
+			//=======================================================//
+			/* public HashMap<Wire,PIPRouteThrough> routeThroughMap; */
+			//=======================================================//
+			Future<PIPRouteThrough[]> routeThroughsTask = pool.submit(new Callable<PIPRouteThrough[]>(){
+				public PIPRouteThrough[] call() throws Exception{
+					Hessian2Input his = sfr.getSection("routeThroughs");
+					WireConnection[] wires = wirePoolsTask.get().wires;
+					PIPRouteThrough[] routeThroughs = new PIPRouteThrough[his.readInt()];
+					for(int i=0; i < routeThroughs.length; i++){
+						PIPRouteThrough prt = new PIPRouteThrough(typeValues2[his.readInt()],his.readInt(),his.readInt());
+						WireConnection w = wires[his.readInt()];
+						routeThroughMap.put(w, prt);
+						routeThroughs[i] = prt;
+						w.setRouteThroughIndex(i);
+					}
+					his.close();
+					return routeThroughs;
+				}
+			});
+			
+			final ArrayList<WireHashMap> wireMaps = new ArrayList<WireHashMap>();
+			for(Future<ArrayList<WireHashMap>> task : tileWiresTasks){
+				wireMaps.addAll(task.get());
+			}
+			final ArrayList<HashMap<Integer,SinkPin>> sinks = sinksTask.get();
+			final ArrayList<int[]> sources = sourcesTask.get();
+			final PrimitiveSite[] sites = sitesTask.get();
+			final int[][] tileData = tilesTask.get();
+			
+			// The tiles are assembled by rows on the pool, each row starting at
+			// the first primitive site of its first tile
+			final TileType[] typeValues = TileType.values();
+			final int[] primitiveSiteCount = tileData[4];
+			ArrayList<Future<?>> rowTasks = new ArrayList<Future<?>>();
+			int rowsPerTask = Math.max(1, rows / (4*Math.max(1, threads)));
+			int tileIndex = 0;
+			int siteIndex = 0;
+			for(int r=0; r < rows; r += rowsPerTask){
+				final int firstRow = r;
+				final int lastRow = Math.min(rows, r + rowsPerTask);
+				final int firstTile = tileIndex;
+				final int firstSite = siteIndex;
+				rowTasks.add(pool.submit(new Runnable(){
+					public void run(){
+						int index = firstTile;
+						int siteIndex = firstSite;
+						for(int row=firstRow; row < lastRow; row++){
+							for(Tile t : tiles[row]){
+								t.setType(typeValues[tileData[0][index]]);
+								t.setSinks(sinks.get(tileData[1][index]));
+								t.setSources(sources.get(tileData[2][index]));
+								t.setWireHashMap(wireMaps.get(tileData[3][index]));
+								t.setDevice(Device.this);
+								if(primitiveSiteCount[index] == 0){
+									t.setPrimitiveSites(null);
+								}
+								else{
+									PrimitiveSite[] p = new PrimitiveSite[primitiveSiteCount[index]]; 
+									System.arraycopy(sites, siteIndex, p, 0, p.length);
+									siteIndex += p.length;
+									t.setPrimitiveSites(p);
+								}
+								index++;
+							}
+						}
+					}
+				}));
+				tileIndex += (lastRow - firstRow) * columns;
+				for(int i=firstTile; i < tileIndex; i++){
+					siteIndex += primitiveSiteCount[i];
+				}
+			}
+			for(PrimitiveSite site : sites){
+				primitiveSites.put(site.getName(), site);
+			}
+			for(Future<?> task : rowTasks){
+				task.get();
+			}
+			routeThroughs = routeThroughsTask.get();
+
+			//=======================================================//
+			/* - populateDeviceTileMap -                             */
+			//=======================================================//
+			reconstructTileMap();
+			
+			//=======================================================//
+			/* - createSitePinIndex -                                */
+			//=======================================================//
+			createSitePinIndex();
+			
+			// The indices are only used if the primitive types have not changed
+			if(siteIndicesTask != null){
+				int[][][] indices = siteIndicesTask.get();
+				if(indices[0].length == PrimitiveType.values().length){
+					siteTypeIndices = indices[0];
+					compatibleSiteIndices = indices[1];
+				}
+			}
+		}
+		catch (IOException e){
+			return false;
+		}
+		catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		catch (ExecutionException e){
+			MessageGenerator.briefError("Error reading device file " + fileName + ": " + e.getCause());
+			return false;
+		}
+		finally{
+			pool.shutdown();
+		}
+		return true;
+	}
+	
+	/**
+	 * Exits with an error message if the version of a device file is not supported.
+	 * @param check The version found in the device file.
+	 */
+	private static void checkDeviceFileVersion(String check){
+		if(!isCompatibleDeviceFileVersion(check)){
+			MessageGenerator.briefErrorAndExit("Error, the current version " +
+				"of RAPIDSMITH is not compatible with the device " +
+				"file(s) present on this installation.  Delete the 'device' " +
+				"directory and run the Installer again to regenerate new " +
+				"device files.\nCurrent RAPIDSMITH device file " +
+				"version: " + deviceFileVersion +", existing device file " +
+				"version: " + check + ".");
+		}
+	}
+	
+	/**
+	 * The wire pools of a compact device file (used when reading the file).
+	 */
+	private static class WirePools{
+		WireConnection[] wires;
+		ArrayList<WireConnection[]> wireArrays;
+		ArrayList<WireArrayConnection> wireConnections;
+	}
+	
+	/**
+	 * Reads the wire pools from the wires section of a compact device file.
+	 * @param his The stream of the section.
+	 * @return The wire pools.
+	 */
+	private static WirePools readWirePools(Hessian2Input his) throws IOException{
+		WirePools pools = new WirePools();
+		pools.wires = new WireConnection[his.readInt()];
+		for(int i=0; i < pools.wires.length; i++){
+			int part1 = his.readInt();
+			int part2 = his.readInt();
+			pools.wires[i] = new WireConnection(0x3FFFFFFF&part1,part2 >> 16,(part2 << 16) >> 16,(part1 & 0x80000000) == 0x80000000, -1);
+		}
+		int size = his.readInt();
+		pools.wireArrays = new ArrayList<WireConnection[]>(size); 
+		for(int i=0; i < size; i++){
+			int len = his.readInt();
+			WireConnection[] tmp = new WireConnection[len];
+			for(int j=0; j < len; j++){
+				tmp[j] = pools.wires[his.readInt()];
+			}
+			pools.wireArrays.add(tmp);
+		}
+		size = his.readInt();
+		pools.wireConnections = new ArrayList<WireArrayConnection>(size);
+		for(int i=0; i < size; i++){
+			pools.wireConnections.add(new WireArrayConnection(his.readInt(),his.readInt()));
+		}
+		his.close();
+		return pools;
+	}
+	
+	/**
+	 * Reads a compact device file written as a single compressed stream
+	 * (device file versions 0.4 and 0.5).
+	 * @param fileName The name of the compact device file
+	 * @return True if operation was successful, false otherwise.
+	 */
+	private boolean readDeviceFromLegacyCompactFile(String fileName){
 		try {
 			Hessian2Input his = FileTools.getInputStream(fileName);
 			int size;
@@ -1090,16 +1965,7 @@ public class Device implements Serializable{
 			//=======================================================//
 			/* public static final String deviceFileVersion;         */
 			//=======================================================//
-			String check = his.readString();
-			if(!check.equals(deviceFileVersion)){
-				MessageGenerator.briefErrorAndExit("Error, the current version " +
-					"of RAPIDSMITH is not compatible with the device " +
-					"file(s) present on this installation.  Delete the 'device' " +
-					"directory and run the Installer again to regenerate new " +
-					"device files.\nCurrent RAPIDSMITH device file " +
-					"version: " + deviceFileVersion +", existing device file " +
-					"version: " + check + ".");
-			}
+			checkDeviceFileVersion(his.readString());
 			
 			//=======================================================//
 			/* public int tileRows;                                  */
@@ -1118,7 +1984,7 @@ public class Device implements Serializable{
 			for(int i=0; i < wires.length; i++){
 				int part1 = his.readInt();
 				int part2 = his.readInt();
-				wires[i] = new WireConnection(0x7FFFFFFF&part1,part2 >> 16,(part2 << 16) >> 16,(part1 & 0x80000000) == 0x80000000);
+				wires[i] = new WireConnection(0x3FFFFFFF&part1,part2 >> 16,(part2 << 16) >> 16,(part1 & 0x80000000) == 0x80000000, -1);
 			}
 
 			//=======================================================//
@@ -1261,9 +2127,13 @@ public class Device implements Serializable{
 			/* public HashMap<Wire,PIPRouteThrough> routeThroughMap; */
 			//=======================================================//
 			size = his.readInt();
+			routeThroughs = new PIPRouteThrough[size];
 			for(int i=0; i < size; i++){
 				PIPRouteThrough prt = new PIPRouteThrough(typeValues2[his.readInt()],his.readInt(),his.readInt());
-				routeThroughMap.put(wires[his.readInt()], prt);
+				WireConnection w = wires[his.readInt()];
+				routeThroughMap.put(w, prt);
+				routeThroughs[i] = prt;
+				w.setRouteThroughIndex(i);
 			}
 
 			//=======================================================//
@@ -1271,6 +2141,11 @@ public class Device implements Serializable{
 			//=======================================================//
 			reconstructTileMap();
 			
+			//=======================================================//
+			/* - createSitePinIndex -                                */
+			//=======================================================//
+			createSitePinIndex();
+			
 			his.close();
 		} 
 		catch (FileNotFoundException e){
@@ -1308,7 +2183,7 @@ public class Device implements Serializable{
 					if(t.getPrimitiveSites() != null){
 						for(PrimitiveSite ps : t.getPrimitiveSites()){
 							bw.write("  PrimitiveSite: " + ps.toString() + " " + ps.getType() + nl);
-							HashMap<String,Integer> tmp = ps.getPins();
+							HashMap<String,Integer> tmp = ps.getPinMap();
 							String[] keys = new String[tmp.size()];
 							keys = tmp.keySet().toArray(keys);
 							Arrays.sort(keys);
@@ -215,7 +215,7 @@ public class DeviceFilesCreator{
 		String primitiveDefsFileName = FileTools.getPrimitiveDefsFileName(partName);
 		boolean createPrimitiveDefs = !new File(primitiveDefsFileName).exists();
 		if(new File(deviceFileName).exists() && FileTools.getFileSize(deviceFileName) > 1000){
-			if(FileTools.getDeviceVersion(partName).equals(Device.deviceFileVersion)){
+			if(Device.isCompatibleDeviceFileVersion(FileTools.getDeviceVersion(partName))){
 				return;
 			}
 			else{
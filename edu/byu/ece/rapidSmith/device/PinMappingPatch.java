@@ -38,6 +38,10 @@ class PinMappingPatch {
 		return map == null ? null : map.get(internalName);
 	}
 
+	public static HashMap<String, String> getPinMappings(PrimitiveType type){
+		return patch.get(type);
+	}
+
 	static {
 		patch = new HashMap<PrimitiveType, HashMap<String, String>>();
 		HashMap<String, String> map = null;
@@ -39,12 +39,18 @@ public class PrimitiveSite implements Serializable{
 	protected PrimitiveType type;
 	/** The tile where this site resides */
 	protected Tile tile;
-	/** Keeps track of all the in/out pins in the primitive with their wire enumeration value */
+	/** Keeps track of all the in/out pins in the primitive with their wire enumeration value 
+	 * (null once the site has been compacted to pinWires) */
 	protected HashMap<String,Integer> pins;
+	/** External wire of each pin indexed by the device pin ordinal of this site's type, -1 if 
+	 * the site does not have the pin (shared between sites, null until the device indexes its sites) */
+	protected int[] pinWires;
 	/** The X coordinate of the instance (ex: SLICE_X#Y5) */
 	protected int instanceX;
 	/** The Y coordinate of the instance (ex: SLICE_X5Y#) */
 	protected int instanceY;
+	/** Dense index of this site in the device (assigned at device load, -1 if unassigned) */
+	protected int index;
 	/** Keeps track of extra site types on which primitive types can be placed */
 	@SuppressWarnings("unchecked")
 	public static HashMap<PrimitiveType, PrimitiveType[]>[] compatibleTypesArray = new HashMap[FamilyType.values().length];
@@ -58,6 +64,7 @@ public class PrimitiveSite implements Serializable{
 		pins = new HashMap<String,Integer>();
 		instanceX = -1;
 		instanceY = -1;
+		index = -1;
 	}
 	
 	/**
@@ -91,6 +98,24 @@ public class PrimitiveSite implements Serializable{
 		this.name = name;
 	}
 	
+	/**
+	 * Gets and returns the dense integer index of this site in its device.
+	 * Indices run from 0 to Device.getPrimitiveSiteCount()-1 in tile order. 
+	 * @return The index of this site, or -1 if it has not been assigned.
+	 */
+	public int getIndex(){
+		return index;
+	}
+	
+	/**
+	 * Sets the dense integer index of this site, should only be called by
+	 * the Device when loading or indexing its sites.
+	 * @param index The new index of this site.
+	 */
+	protected void setIndex(int index){
+		this.index = index;
+	}
+	
 	/**
 	 * Gets and returns the Tile where this primitive site resides.
 	 * @return The tile where this primitive site is.
@@ -109,10 +134,36 @@ public class PrimitiveSite implements Serializable{
 	
 	/**
 	 * Gets the input/output pins of this primitive site and
-	 * the internal to external name mappings.
+	 * the internal to external name mappings.  The returned map is the live
+	 * pin map of the site: if the device has compacted the site pins (see 
+	 * getExternalPinWire()), the site is given back a map of its own so that
+	 * changes to the returned map change the pins of the site.
 	 * @return the pins of this primitive site.
 	 */
 	public HashMap<String, Integer> getPins(){
+		if(pins == null && pinWires != null){
+			setPins(getPinMap());
+		}
+		return pins;
+	}
+	
+	/**
+	 * Gets the pins of this primitive site without giving a compacted site 
+	 * back a map of its own, for the Device to read the pins.  The returned
+	 * map must not be changed.
+	 * @return The pins of this primitive site (a new map if the site is compacted).
+	 */
+	HashMap<String, Integer> getPinMap(){
+		if(pins == null && pinWires != null){
+			HashMap<String, Integer> map = new HashMap<String, Integer>();
+			Device dev = tile.getDevice();
+			for(int i=0; i < pinWires.length; i++){
+				if(pinWires[i] != -1){
+					map.put(dev.getPinName(type, i), pinWires[i]);
+				}
+			}
+			return map;
+		}
 		return pins;
 	}
 	
@@ -124,8 +175,24 @@ public class PrimitiveSite implements Serializable{
 	 */
 	public void setPins(HashMap<String, Integer> pins) {
 		this.pins = pins;
+		this.pinWires = null;
+		if(tile != null && tile.getDevice() != null){
+			tile.getDevice().invalidateSitePins(this);
+		}
 	} 
 	
+	/**
+	 * Replaces the pin map of this site with an array of external wires 
+	 * indexed by pin ordinal (see Device.getPinOrdinal()).  Should only be
+	 * called by the Device when it indexes its sites.
+	 * @param pinWires The external wire of each pin ordinal, -1 if the site does
+	 * not have the pin.
+	 */
+	protected void setPinWires(int[] pinWires){
+		this.pinWires = pinWires;
+		this.pins = null;
+	}
+	
 	/**
 	 * Adds a pin mapping to the primitive site.
 	 * @param internalPinName The name of the wire internal to the 
@@ -133,7 +200,7 @@ public class PrimitiveSite implements Serializable{
 	 * @param externalPin The external wire integer of the mapping.
 	 */
 	public void addPin(String internalPinName, Integer externalPin){
-		this.pins.put(internalPinName, externalPin);
+		getPins().put(internalPinName, externalPin);
 	}
 	
 	/**
@@ -144,9 +211,40 @@ public class PrimitiveSite implements Serializable{
 	 * wire name. 
 	 */
 	public Integer getExternalPinWireEnum(String internalName){
+		if(pins == null){
+			int wire = getExternalPinWire(tile.getDevice().getPinOrdinal(type, internalName));
+			return wire == -1 ? null : wire;
+		}
 		return this.pins.get(internalName);
 	}
 	
+	/**
+	 * Gets the external wire enumeration of a pin by its pin ordinal (see 
+	 * Device.getPinOrdinal() and Pin.getPinOrdinal()).  This avoids any 
+	 * hashing of the pin name.
+	 * @param ordinal The pin ordinal for this site's primitive type.
+	 * @return The external wire enumeration of the pin, or -1 if this site does
+	 * not have the pin.
+	 */
+	public int getExternalPinWire(int ordinal){
+		if(pinWires == null){
+			tile.getDevice().checkSitePinIndex();
+		}
+		if(pinWires == null){
+			// The pins were replaced (setPins()/addPin()) after the device
+			// indexed its sites, look the pin up by name
+			if(ordinal < 0 || ordinal >= tile.getDevice().getPinCount(type)){
+				return -1;
+			}
+			Integer wire = pins.get(tile.getDevice().getPinName(type, ordinal));
+			return wire == null ? -1 : wire;
+		}
+		if(ordinal < 0 || ordinal >= pinWires.length){
+			return -1;
+		}
+		return pinWires[ordinal];
+	}
+	
 	/**
 	 * Gets and returns the external pin name of the given internal pin name.
 	 * @param internalName Name of the internal pin on this primitive site.
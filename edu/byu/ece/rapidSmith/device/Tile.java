@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.Set;
 
 import edu.byu.ece.rapidSmith.design.PIP;
+import edu.byu.ece.rapidSmith.device.helper.OffHeapWireHashMap;
 import edu.byu.ece.rapidSmith.device.helper.WireHashMap;
 
 
@@ -50,6 +51,8 @@ public class Tile implements Serializable{
 	private int[] sources;
 	/** This variable holds all the wires and their connections within the tile */
 	private WireHashMap wireConnections;
+	/** Off heap copy of wireConnections (see Device.createOffHeapWires()), null if none */
+	private transient OffHeapWireHashMap offHeapWireConnections;
 	/** An array of primitiveSites located within the tile (null if none) */
 	private PrimitiveSite[] primitiveSites;
 	/** Absolute tile row number - the index into the device Tiles[][] array */
@@ -144,19 +147,46 @@ public class Tile implements Serializable{
 	}
 
 	public Set<Integer> getWires(){
+		if(wireConnections == null && offHeapWireConnections != null){
+			return offHeapWireConnections.keySet();
+		}
 		return wireConnections.keySet();
 	}
 	
 	/**
 	 * This will get all of the wire connections that can be 
-	 * made from the given wire in this tile.
+	 * made from the given wire in this tile.  If the wires of the tile 
+	 * are only stored off heap, new WireConnection objects are created 
+	 * on each call.
 	 * @param wire A wire in this tile to query its potential connections.
 	 * @return An array of wires which connect to the given wire.
 	 */
 	public WireConnection[] getWireConnections(int wire){
+		if(wireConnections == null && offHeapWireConnections != null){
+			return offHeapWireConnections.get(wire);
+		}
 		return wireConnections.get(wire);
 	}
 	
+	/**
+	 * Gets the off heap copy of the wires of this tile, which allows walking
+	 * the connections of a wire without creating objects.
+	 * @return The off heap wires of this tile, or null if they were not created 
+	 * (see Device.createOffHeapWires()).
+	 */
+	public OffHeapWireHashMap getOffHeapWireHashMap(){
+		return offHeapWireConnections;
+	}
+	
+	/**
+	 * Sets the off heap copy of the wires of this tile, should not be called 
+	 * during normal usage (see Device.createOffHeapWires()).
+	 * @param wires The off heap wires of this tile.
+	 */
+	public void setOffHeapWireHashMap(OffHeapWireHashMap wires){
+		this.offHeapWireConnections = wires;
+	}
+	
 	/**
 	 * This is used to populate the tile wires and should probably not be called 
 	 * during normal usage.
@@ -249,6 +279,15 @@ public class Tile implements Serializable{
 	}
 	
 	private boolean hasConnection(int startWire, int endWire){
+		if(wireConnections == null && offHeapWireConnections != null){
+			int list = offHeapWireConnections.find(startWire);
+			for(int i=0; i < offHeapWireConnections.getConnectionCount(list); i++){
+				if(offHeapWireConnections.getWire(list, i) == endWire && offHeapWireConnections.isPIP(list, i)){
+					return true;
+				}
+			}
+			return false;
+		}
 		WireConnection[] wireConns = wireConnections.get(startWire);
 		if(wireConns == null || wireConns.length == 0){
 			return false;
@@ -383,8 +422,8 @@ public class Tile implements Serializable{
 	 */
 	public ArrayList<PIP> getPIPs(){
 		ArrayList<PIP> pips = new ArrayList<PIP>();
-		for(Integer startWire : wireConnections.keySet()){
-			for(WireConnection endWire : wireConnections.get(startWire)){
+		for(Integer startWire : getWires()){
+			for(WireConnection endWire : getWireConnections(startWire)){
 				if(endWire.isPIP()){
 					pips.add(new PIP(this, startWire, endWire.getWire()));
 				}
@@ -45,12 +45,18 @@ public class WireConnection implements Serializable, Comparable<WireConnection>{
 	private int columnOffset;
 	/** Does the source wire connected to this wire make a PIP? */
 	private boolean isPIP;
+	/** Index of the PIPRouteThrough of this connection in the device route through table, -1 if none,
+	 * NOT_INDEXED if the connection was not indexed by a device */
+	private int routeThroughIndex;
+	/** Route through index of a connection not indexed by a device (its route through is looked up in the device route through map) */
+	public static final int NOT_INDEXED = -2;
 	
 	public WireConnection(){
 		this.wire = -1;
 		this.rowOffset = 0;
 		this.columnOffset = 0;
 		this.setPIP(false);
+		this.routeThroughIndex = NOT_INDEXED;
 	}
 	
 	public WireConnection(int wire, int rowOffset, int columnOffset,boolean pip){
@@ -58,6 +64,17 @@ public class WireConnection implements Serializable, Comparable<WireConnection>{
 		this.rowOffset = rowOffset;
 		this.columnOffset = columnOffset;
 		this.setPIP(pip);
+		this.routeThroughIndex = NOT_INDEXED;
+	}
+	
+	/**
+	 * Creates a connection with its route through index (such as a connection
+	 * of a device wire pool, or one read back from an OffHeapWireHashMap).
+	 * @param routeThroughIndex The route through index, -1 if none, NOT_INDEXED if unknown.
+	 */
+	public WireConnection(int wire, int rowOffset, int columnOffset, boolean pip, int routeThroughIndex){
+		this(wire, rowOffset, columnOffset, pip);
+		this.routeThroughIndex = routeThroughIndex;
 	}
 	
 	/**
@@ -130,6 +147,36 @@ public class WireConnection implements Serializable, Comparable<WireConnection>{
 		return isPIP;
 	}
 	
+	/**
+	 * Is this connection a route through PIP?  This is set by the device 
+	 * (see Device.isRouteThrough()) and requires no hashing.  Connections 
+	 * not indexed by a device always return false, use Device.isRouteThrough()
+	 * for those.
+	 * @return True if this connection is a route through, false otherwise.
+	 */
+	public boolean isRouteThrough() {
+		return routeThroughIndex >= 0;
+	}
+	
+	/**
+	 * Gets the index of the PIPRouteThrough of this connection in its device's
+	 * route through table.
+	 * @return The route through index, -1 if this is not a route through, or
+	 * NOT_INDEXED if the connection was not indexed by a device.
+	 */
+	public int getRouteThroughIndex() {
+		return routeThroughIndex;
+	}
+	
+	/**
+	 * Sets the index of the PIPRouteThrough of this connection in its device's
+	 * route through table.  Should only be called by the Device.
+	 * @param routeThroughIndex The route through index, -1 if none, NOT_INDEXED if unknown.
+	 */
+	protected void setRouteThroughIndex(int routeThroughIndex) {
+		this.routeThroughIndex = routeThroughIndex;
+	}
+	
 	@Override
 	public int hashCode(){
 		return  ((this.rowOffset << 24) & 0xFF000000) | ((this.columnOffset << 16) & 0x00FF0000) |(this.wire);
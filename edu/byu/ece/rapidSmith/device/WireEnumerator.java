@@ -25,6 +25,7 @@ import com.caucho.hessian.io.Hessian2Input;
 import com.caucho.hessian.io.Hessian2Output;
 
 import edu.byu.ece.rapidSmith.device.helper.WireExpressions;
+import edu.byu.ece.rapidSmith.device.helper.WireNameHash;
 import edu.byu.ece.rapidSmith.util.FamilyType;
 import edu.byu.ece.rapidSmith.util.FileTools;
 import edu.byu.ece.rapidSmith.util.MessageGenerator;
@@ -43,16 +44,16 @@ public class WireEnumerator implements Serializable {
 
 	/** A list of all wire names where the index value is the enumeration value */
 	private String[] wireArray;
-	/** An array used for conversion of wire name to wire enumeration */
-	private HashMap<String,Integer> wireMap;
+	/** A perfect hash used for conversion of wire name to wire enumeration */
+	private WireNameHash wireMap;
 	/** An array used for conversion of wire enumeration to wire name */
 	private WireType[] wireTypeArray;
 	/** An array that returns the direction of a wire based on wire enumeration value */
 	private WireDirection[] wireDirectionArray;
-	/** Set of all pip sink wires */
-	private HashSet<String> pipSinks;
-	/** Set of all pip sink wires */
-	private HashSet<String> pipSources;
+	/** Set of all pip sink wires (indexed by wire enumeration) */
+	private BitSet pipSinks;
+	/** Set of all pip source wires (indexed by wire enumeration) */
+	private BitSet pipSources;
 	/** Keeps track of unique copy in memory */
 	private static WireEnumerator singleton = null;
 	/** Xilinx FPGA family name (virtex4, virtex5, ...) */
@@ -140,9 +141,8 @@ public class WireEnumerator implements Serializable {
 	public void parseXDLRCFiles(ArrayList<String> fileNames, String outputFileName){
 		SortedSet<String> wireSet = new TreeSet<>();
 		WireExpressions wireExp = new WireExpressions();
-		wireMap = new HashMap<>();
-		pipSinks = new HashSet<>();
-		pipSources = new HashSet<>();
+		HashSet<String> pipSinkNames = new HashSet<>();
+		HashSet<String> pipSourceNames = new HashSet<>();
 		BufferedReader in;
 		String line;
 		int lineCount;
@@ -164,15 +164,15 @@ public class WireEnumerator implements Serializable {
 						switch (tokens.get(1)) {
 							case "(pip":
 								wireSet.add(tokens.get(3));
-								pipSources.add(tokens.get(3));
+								pipSourceNames.add(tokens.get(3));
 								pipCount++;
 
 								if (tokens.get(5).endsWith(")")) {
 									wireSet.add(tokens.get(5).substring(0, tokens.get(5).length() - 1));
-									pipSinks.add(tokens.get(5).substring(0, tokens.get(5).length() - 1));
+									pipSinkNames.add(tokens.get(5).substring(0, tokens.get(5).length() - 1));
 								} else {
 									wireSet.add(tokens.get(5));
-									pipSinks.add(tokens.get(5));
+									pipSinkNames.add(tokens.get(5));
 								}
 								break;
 							case "(wire":
@@ -236,9 +236,13 @@ public class WireEnumerator implements Serializable {
 		wireDirectionArray = new WireDirection[wireSet.size()];
 		wireTypeArray = new WireType[wireSet.size()];
 		
+		pipSinks = new BitSet(wireSet.size());
+		pipSources = new BitSet(wireSet.size());
+		
 		for(String str : wireSet){
-			wireMap.put(str, i);
 			wireArray[i] = str;
+			pipSinks.set(i, pipSinkNames.contains(str));
+			pipSources.set(i, pipSourceNames.contains(str));
 			
 			if(externalInpin.contains(str) || externalOutpin.contains(str)){
 				if(externalInpin.contains(str)){
@@ -259,6 +263,7 @@ public class WireEnumerator implements Serializable {
 			}
 			i++;
 		}
+		wireMap = new WireNameHash(wireArray);
 
 		writeCompactEnumFile(outputFileName);
 	}
@@ -311,7 +316,7 @@ public class WireEnumerator implements Serializable {
 			hos.writeString(wireEnumeratorVersion);
 			
 			//=======================================================//
-			/* private HashMap<String,Integer> wireMap;              */
+			/* private WireNameHash wireMap;                         */
 			//=======================================================//
 		     	// We'll rebuild this from wireArray
 
@@ -339,24 +344,12 @@ public class WireEnumerator implements Serializable {
 			//=======================================================//
 			/* private HashSet<String> pipWireNames;                 */
 			//=======================================================//
-			int[] pips = new int[pipSources.size()];
-			int j=0;
-			for(String s : pipSources){
-				pips[j] = getWireEnum(s);
-				j++;
-			}
-			if(!FileTools.writeIntArray(hos, pips)){
+			if(!FileTools.writeIntArray(hos, getSetBits(pipSources))){
 				System.out.println("Failed to write out pipWires.");
 				return false;
 			}
 
-			pips = new int[pipSinks.size()];
-			j=0;
-			for(String s : pipSinks){
-				pips[j] = getWireEnum(s);
-				j++;
-			}
-			if(!FileTools.writeIntArray(hos, pips)){
+			if(!FileTools.writeIntArray(hos, getSetBits(pipSinks))){
 				System.out.println("Failed to write out pipWires.");
 				return false;
 			}
@@ -369,6 +362,30 @@ public class WireEnumerator implements Serializable {
 		return true;
 	}
 	
+	/**
+	 * Creates an array of the indices of the set bits in the bit set.
+	 * @param bits The bit set.
+	 * @return The indices of all set bits in increasing order.
+	 */
+	private static int[] getSetBits(BitSet bits){
+		int[] indices = new int[bits.cardinality()];
+		int j=0;
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1)){
+			indices[j++] = i;
+		}
+		return indices;
+	}
+	
+	/**
+	 * Loads a wire enumerator saved with writeCompactEnumFile().  Unlike the
+	 * device files, this file is still read as a single stream: nearly all of
+	 * the load time is spent building the wire name hash from the wire names,
+	 * which needs the names first, and the other members read in a few
+	 * milliseconds, so reading sections in parallel would not help.
+	 * @param fileName Name of the file to load.
+	 * @param familyType The family of the wire enumerator.
+	 * @return True if successful, false otherwise.
+	 */
 	public boolean readCompactEnumFile(String fileName, FamilyType familyType){
 		// Set the family name for this wire enumerator
 		this.familyType = familyType;
@@ -396,12 +413,9 @@ public class WireEnumerator implements Serializable {
 			wireArray = FileTools.readStringArray(his);
 
 			//=======================================================//
-			/* private HashMap<String,Integer> wireMap;              */
+			/* private WireNameHash wireMap;                         */
 			//=======================================================//
-			wireMap = new HashMap<>();
-			for(int i=0; i < wireArray.length; i++){
-				wireMap.put(wireArray[i], i);
-			}
+			wireMap = new WireNameHash(wireArray);
 			
 			//=======================================================//
 			/* private WireType[] wireTypeArray;                     */
@@ -418,20 +432,20 @@ public class WireEnumerator implements Serializable {
 			}
 			
 			//=======================================================//
-			/* private HashSet<String> pipSources;                 */
+			/* private BitSet pipSources;                            */
 			//=======================================================//
-			pipSources = new HashSet<>();
+			pipSources = new BitSet(wireArray.length);
 			for(int i : FileTools.readIntArray(his)){
-				pipSources.add(wireArray[i]);
+				pipSources.set(i);
 			}
 
+			pipSinks = new BitSet(wireArray.length);
 			if (check.equals("0.2")) {
 				//=======================================================//
-			/* private HashSet<String> pipSinks;                 */
+				/* private BitSet pipSinks;                              */
 				//=======================================================//
-				pipSinks = new HashSet<>();
 				for (int i : FileTools.readIntArray(his)) {
-					pipSinks.add(wireArray[i]);
+					pipSinks.set(i);
 				}
 			}
 			his.close();
@@ -449,13 +463,36 @@ public class WireEnumerator implements Serializable {
 	/**
 	 * Gets and returns the unique wire's integer enumeration based on name
 	 * @param name Name of the wire to get enumeration for
-	 * @return The enumeration value or -1 for a bad wire name.
+	 * @return The enumeration value or -1 for a bad (or null) wire name.
 	 */
 	public int getWireEnum(String name){
-		if(this.wireMap.containsKey(name)){
-			return this.wireMap.get(name);			
-		}
-		return -1;
+		if(name == null) return -1;
+		return wireMap.get(name);
+	}
+	
+	/**
+	 * Gets and returns the unique wire's integer enumeration based on name.
+	 * This avoids creating a String when the name is held in another 
+	 * CharSequence (such as a StringBuilder or CharBuffer).
+	 * @param name Name of the wire to get enumeration for
+	 * @return The enumeration value or -1 for a bad (or null) wire name.
+	 */
+	public int getWireEnum(CharSequence name){
+		if(name == null) return -1;
+		return wireMap.get(name);
+	}
+	
+	/**
+	 * Gets and returns the unique wire's integer enumeration based on a name 
+	 * found in a byte array (each byte is one ASCII character).  This allows
+	 * parsers to look up wires without creating a String for each token.
+	 * @param buffer The array holding the name of the wire.
+	 * @param offset Index of the first byte of the name.
+	 * @param length Number of bytes in the name.
+	 * @return The enumeration value or -1 for a bad wire name.
+	 */
+	public int getWireEnum(byte[] buffer, int offset, int length){
+		return wireMap.get(buffer, offset, length);
 	}
 	
 	/**
@@ -491,10 +528,10 @@ public class WireEnumerator implements Serializable {
 	 * @return True if the wire is the source of a PIP, false otherwise.
 	 */
 	public boolean isPIPSourceWire(String wire){
-		return pipSources.contains(wire);
+		return isPIPSourceWire(getWireEnum(wire));
 	}
 	public boolean isPIPSourceWire(int wire){
-		return pipSources.contains(getWireName(wire));
+		return wire >= 0 && pipSources.get(wire);
 	}
 
 	/**
@@ -503,10 +540,10 @@ public class WireEnumerator implements Serializable {
 	 * @return True if the wire is the sink of a PIP, false otherwise.
 	 */
 	public boolean isPIPSinkWire(String wire){
-		return pipSinks.contains(wire);
+		return isPIPSinkWire(getWireEnum(wire));
 	}
 	public boolean isPIPSinkWire(int wire){
-		return pipSinks.contains(getWireName(wire));
+		return wire >= 0 && pipSinks.get(wire);
 	}
 
 	public boolean isPIPWire(String wire) {
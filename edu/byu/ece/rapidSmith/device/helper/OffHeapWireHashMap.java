@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package edu.byu.ece.rapidSmith.device.helper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import edu.byu.ece.rapidSmith.device.WireConnection;
+
+/**
+ * A read-only copy of a WireHashMap stored outside of the Java heap.  All
+ * the maps created together by create() share one direct buffer of ints
+ * which holds, for each map, an open addressing table of keys and of
+ * offsets to the connection lists, and the connection lists themselves
+ * (each distinct WireConnection[] is stored once).  A connection is packed
+ * in three ints: the wire with the PIP flag in the top bit, the row and
+ * column offsets (16 bits each) and the route through index.
+ *
+ * Routers can walk the connections without creating any object with the
+ * flyweight methods:
+ * <pre>
+ * int list = map.find(wire);
+ * for(int i=0; i < map.getConnectionCount(list); i++){
+ *     int w = map.getWire(list, i);
+ *     ...
+ * }
+ * </pre>
+ * get() creates the WireConnection objects of a list on each call.
+ * Created on: Oct 19, 2026
+ */
+public class OffHeapWireHashMap {
+	/** Number of ints of each connection */
+	private static final int CONNECTION_INTS = 3;
+	/** Marks an empty slot of the key table or a null connection list */
+	private static final int EMPTY = -1;
+
+	/** The buffer shared by all the maps created together */
+	private final IntBuffer buffer;
+	/** Index in the buffer of the key table */
+	private final int keys;
+	/** Index in the buffer of the table of connection list offsets */
+	private final int lists;
+	/** Capacity of the tables, a power of two */
+	private final int capacity;
+	/** Number of keys */
+	private final int size;
+
+	private OffHeapWireHashMap(IntBuffer buffer, int base){
+		this.buffer = buffer;
+		this.capacity = buffer.get(base);
+		this.size = buffer.get(base+1);
+		this.keys = base + 2;
+		this.lists = keys + capacity;
+	}
+
+	/**
+	 * Copies a set of wire hash maps into one direct buffer.  Maps and
+	 * connection arrays which are shared (the same object) are only stored
+	 * once.
+	 * @param maps The maps to copy (null entries are skipped).
+	 * @return The off heap copy of each map, maps which are the same object get the same copy.
+	 */
+	public static IdentityHashMap<WireHashMap,OffHeapWireHashMap> create(List<WireHashMap> maps){
+		// Find the distinct maps and connection arrays and the space they need
+		IdentityHashMap<WireHashMap,Integer> tableOffsets = new IdentityHashMap<WireHashMap,Integer>();
+		IdentityHashMap<WireConnection[],Integer> listOffsets = new IdentityHashMap<WireConnection[],Integer>();
+		ArrayList<WireHashMap> distinctMaps = new ArrayList<WireHashMap>();
+		ArrayList<WireConnection[]> distinctLists = new ArrayList<WireConnection[]>();
+		long total = 0;
+		for(WireHashMap map : maps){
+			if(map == null || tableOffsets.containsKey(map)) continue;
+			tableOffsets.put(map, (int) total);
+			distinctMaps.add(map);
+			total += 2 + 2 * getCapacity(map.size());
+		}
+		for(WireHashMap map : distinctMaps){
+			for(int i=0; i < map.keys.length; i++){
+				WireConnection[] list = map.values[i];
+				if(map.keys[i] == EMPTY || list == null || listOffsets.containsKey(list)) continue;
+				listOffsets.put(list, (int) total);
+				distinctLists.add(list);
+				total += 1 + CONNECTION_INTS * list.length;
+			}
+		}
+		if(total * 4 > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("The wire hash maps need " + total * 4 + " bytes, more than one buffer can hold");
+		}
+
+		IntBuffer buffer = ByteBuffer.allocateDirect((int) total * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		for(WireConnection[] list : distinctLists){
+			int i = listOffsets.get(list);
+			buffer.put(i++, list.length);
+			for(WireConnection w : list){
+				buffer.put(i++, (w.isPIP() ? 0x80000000 : 0) | w.getWire());
+				buffer.put(i++, (w.getRowOffset() << 16) | (w.getColumnOffset() & 0xFFFF));
+				buffer.put(i++, w.getRouteThroughIndex());
+			}
+		}
+		IdentityHashMap<WireHashMap,OffHeapWireHashMap> result = new IdentityHashMap<WireHashMap,OffHeapWireHashMap>();
+		for(WireHashMap map : distinctMaps){
+			int base = tableOffsets.get(map);
+			int capacity = getCapacity(map.size());
+			buffer.put(base, capacity);
+			buffer.put(base+1, map.size());
+			for(int i=0; i < capacity; i++){
+				buffer.put(base + 2 + i, EMPTY);
+			}
+			for(int i=0; i < map.keys.length; i++){
+				int key = map.keys[i];
+				if(key == EMPTY) continue;
+				int slot = key & (capacity-1);
+				while(buffer.get(base + 2 + slot) != EMPTY){
+					slot = (slot + 1) & (capacity-1);
+				}
+				WireConnection[] list = map.values[i];
+				buffer.put(base + 2 + slot, key);
+				buffer.put(base + 2 + capacity + slot, list == null ? EMPTY : listOffsets.get(list));
+			}
+			result.put(map, new OffHeapWireHashMap(buffer, base));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the table capacity of a map, a power of two at least twice its size.
+	 */
+	private static int getCapacity(int size){
+		int capacity = 4;
+		while(capacity < 2 * size){
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	//========================================================================//
+	// Flyweight Accessors
+	//========================================================================//
+	/**
+	 * Finds the connection list of a wire.
+	 * @param wire The source wire.
+	 * @return The handle of the connection list of the wire to use with the
+	 * other flyweight methods, or -1 if the wire has no connections.
+	 */
+	public int find(int wire){
+		int slot = wire & (capacity-1);
+		int key;
+		while((key = buffer.get(keys + slot)) != EMPTY){
+			if(key == wire){
+				return buffer.get(lists + slot);
+			}
+			slot = (slot + 1) & (capacity-1);
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * @param list A connection list handle (from find()), or -1.
+	 * @return The number of connections of the list (0 for -1).
+	 */
+	public int getConnectionCount(int list){
+		return list == EMPTY ? 0 : buffer.get(list);
+	}
+
+	/**
+	 * @param list A connection list handle (from find()).
+	 * @param i The index of the connection in the list.
+	 * @return The wire of the connection.
+	 */
+	public int getWire(int list, int i){
+		return buffer.get(list + 1 + CONNECTION_INTS * i) & 0x7FFFFFFF;
+	}
+
+	/**
+	 * @param list A connection list handle (from find()).
+	 * @param i The index of the connection in the list.
+	 * @return True if the connection is a PIP.
+	 */
+	public boolean isPIP(int list, int i){
+		return buffer.get(list + 1 + CONNECTION_INTS * i) < 0;
+	}
+
+	/**
+	 * @param list A connection list handle (from find()).
+	 * @param i The index of the connection in the list.
+	 * @return The tile row offset of the connection (see WireConnection.getRowOffset()).
+	 */
+	public int getRowOffset(int list, int i){
+		return buffer.get(list + 2 + CONNECTION_INTS * i) >> 16;
+	}
+
+	/**
+	 * @param list A connection list handle (from find()).
+	 * @param i The index of the connection in the list.
+	 * @return The tile column offset of the connection (see WireConnection.getColumnOffset()).
+	 */
+	public int getColumnOffset(int list, int i){
+		return (short) buffer.get(list + 2 + CONNECTION_INTS * i);
+	}
+
+	/**
+	 * @param list A connection list handle (from find()).
+	 * @param i The index of the connection in the list.
+	 * @return The route through index of the connection (see WireConnection.getRouteThroughIndex()).
+	 */
+	public int getRouteThroughIndex(int list, int i){
+		return buffer.get(list + 3 + CONNECTION_INTS * i);
+	}
+
+	//========================================================================//
+	// WireHashMap Compatible Methods
+	//========================================================================//
+	/**
+	 * Creates the connections of a wire.
+	 * @param wire The source wire.
+	 * @return New WireConnection objects of the connections of the wire, or null if none.
+	 */
+	public WireConnection[] get(int wire){
+		int list = find(wire);
+		if(list == EMPTY) return null;
+		WireConnection[] connections = new WireConnection[getConnectionCount(list)];
+		for(int i=0; i < connections.length; i++){
+			connections[i] = new WireConnection(getWire(list, i), getRowOffset(list, i),
+					getColumnOffset(list, i), isPIP(list, i), getRouteThroughIndex(list, i));
+		}
+		return connections;
+	}
+
+	/**
+	 * @return The number of wires in this map.
+	 */
+	public int size(){
+		return size;
+	}
+
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * @return A new set of the wires in this map.
+	 */
+	public Set<Integer> keySet(){
+		HashSet<Integer> keySet = new HashSet<Integer>();
+		for(int i=0; i < capacity; i++){
+			int key = buffer.get(keys + i);
+			if(key != EMPTY) keySet.add(key);
+		}
+		return keySet;
+	}
+
+	/**
+	 * @return The number of bytes of the buffer shared by this map.
+	 */
+	public long getBufferSize(){
+		return buffer.capacity() * 4L;
+	}
+}
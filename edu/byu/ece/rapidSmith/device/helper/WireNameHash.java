@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.device.helper;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * This class was specially developed for the WireEnumerator wire name to
+ * wire enumeration lookup.  It is a minimal perfect hash (hash and displace)
+ * built over a fixed array of unique names, where the name at index i has
+ * enumeration value i.  Names are hashed with String.hashCode() (cached by
+ * String), so a lookup from a String costs a few multiplications, one slot 
+ * read and one equals().  Lookups can also be made from any CharSequence or 
+ * from a slice of a byte array (ASCII) without creating a String.  The few 
+ * names whose hash code equals that of another name are kept in a small 
+ * overflow list.
+ * Created on: Oct 19, 2026
+ */
+public class WireNameHash implements Serializable {
+
+	private static final long serialVersionUID = 6019871734093446181L;
+
+	/** Average number of names in each displacement bucket */
+	private static final int NAMES_PER_BUCKET = 4;
+	/** Number of displacements to try for each bucket before trying a new seed */
+	private static final int MAX_DISPLACEMENTS = 1 << 20;
+	/** Number of hash seeds to try before giving up */
+	private static final int MAX_SEEDS = 16;
+
+	/** The names (the index of a name is its enumeration value) */
+	private String[] names;
+	/** The enumeration value of the name hashed into each slot, -1 if empty (length is a power of two) */
+	private int[] slots;
+	/** Right shift giving a slot index from a 32 bit hash */
+	private int slotShift;
+	/** The displacement of each bucket (length is a power of two) */
+	private int[] displacements;
+	/** The seed of the hash function used to build this table */
+	private int seed;
+	/** Hash codes of the names not in the slots (their hash code equals that of another name) */
+	private int[] overflowHashes;
+	/** Enumeration values of the names not in the slots */
+	private int[] overflowNames;
+
+	/**
+	 * Creates the perfect hash of the names.
+	 * @param names The unique names to hash, the index of each name is its
+	 * enumeration value.
+	 */
+	public WireNameHash(String[] names){
+		this.names = names;
+		final int n = names.length;
+		
+		// Names sharing a hash code with an earlier name go to the overflow list
+		long[] sorted = new long[n];
+		for(int i=0; i < n; i++){
+			sorted[i] = ((long) names[i].hashCode() << 32) | i;
+		}
+		Arrays.sort(sorted);
+		boolean[] overflow = new boolean[n];
+		int overflowCount = 0;
+		for(int i=1; i < n; i++){
+			if((int)(sorted[i] >> 32) == (int)(sorted[i-1] >> 32)){
+				overflow[(int) sorted[i]] = true;
+				overflowCount++;
+			}
+		}
+		overflowHashes = new int[overflowCount];
+		overflowNames = new int[overflowCount];
+		int[] primary = new int[n - overflowCount];
+		for(int i=0, j=0, k=0; i < n; i++){
+			if(overflow[i]){
+				overflowHashes[k] = names[i].hashCode();
+				overflowNames[k++] = i;
+			}
+			else{
+				primary[j++] = i;
+			}
+		}
+		
+		for(int s=1; s <= MAX_SEEDS; s++){
+			if(build(primary, s * 0x9E3779B9)){
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Could not build a perfect hash of the " +
+			"wire names, are they unique?");
+	}
+
+	/**
+	 * Attempts to build the table with the given hash seed.
+	 * @param primary The names to place in the slots (their hash codes are unique).
+	 * @param s The seed of the hash function.
+	 * @return True if every name was placed, false otherwise.
+	 */
+	private boolean build(int[] primary, int s){
+		final int n = primary.length;
+		seed = s;
+		int slotCount = 2;
+		while(slotCount < n + n/4) slotCount <<= 1;
+		slots = new int[slotCount];
+		slotShift = 32 - Integer.numberOfTrailingZeros(slotCount);
+		int bucketCount = 1;
+		while(bucketCount < n / NAMES_PER_BUCKET) bucketCount <<= 1;
+		displacements = new int[bucketCount];
+		Arrays.fill(slots, -1);
+		if(n == 0) return true;
+
+		// Sort the names by bucket (counting sort)
+		int[] hashes = new int[n];
+		int[] bucketStarts = new int[bucketCount+1];
+		for(int i=0; i < n; i++){
+			hashes[i] = mix(names[primary[i]].hashCode() ^ seed);
+			bucketStarts[(hashes[i] & (bucketCount-1)) + 1]++;
+		}
+		int maxSize = 0;
+		for(int b=0; b < bucketCount; b++){
+			maxSize = Math.max(maxSize, bucketStarts[b+1]);
+			bucketStarts[b+1] += bucketStarts[b];
+		}
+		int[] members = new int[n];
+		int[] next = Arrays.copyOf(bucketStarts, bucketCount);
+		for(int i=0; i < n; i++){
+			members[next[hashes[i] & (bucketCount-1)]++] = i;
+		}
+
+		// Place the largest buckets first, while most slots are still free
+		int[] tried = new int[maxSize];
+		for(int size=maxSize; size > 0; size--){
+			for(int b=0; b < bucketCount; b++){
+				int start = bucketStarts[b];
+				if(bucketStarts[b+1] - start != size) continue;
+				boolean placed = false;
+				for(int d=0; d < MAX_DISPLACEMENTS && !placed; d++){
+					int count = 0;
+					for(; count < size; count++){
+						int slot = slot(hashes[members[start+count]], d);
+						if(slots[slot] != -1) break;
+						int j;
+						for(j=0; j < count; j++){
+							if(tried[j] == slot) break;
+						}
+						if(j < count) break;
+						tried[count] = slot;
+					}
+					if(count == size){
+						for(int j=0; j < count; j++){
+							slots[tried[j]] = primary[members[start+j]];
+						}
+						displacements[b] = d;
+						placed = true;
+					}
+				}
+				if(!placed) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the enumeration value of the name.
+	 * @param name The name to look up.
+	 * @return The enumeration value of the name, or -1 if it is not in the table.
+	 */
+	public int get(String name){
+		int h = name.hashCode();
+		int i = slots[lookupSlot(h)];
+		if(i != -1 && names[i].equals(name)) return i;
+		for(int j=0; j < overflowHashes.length; j++){
+			if(overflowHashes[j] == h && names[overflowNames[j]].equals(name)) return overflowNames[j];
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the enumeration value of the name.
+	 * @param name The name to look up.
+	 * @return The enumeration value of the name, or -1 if it is not in the table.
+	 */
+	public int get(CharSequence name){
+		if(name instanceof String) return get((String) name);
+		int h = 0;
+		for(int j=0; j < name.length(); j++){
+			h = 31*h + name.charAt(j);
+		}
+		int i = slots[lookupSlot(h)];
+		if(i != -1 && names[i].contentEquals(name)) return i;
+		for(int j=0; j < overflowHashes.length; j++){
+			if(overflowHashes[j] == h && names[overflowNames[j]].contentEquals(name)) return overflowNames[j];
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the enumeration value of the name found in a byte array (each
+	 * byte is one ASCII character of the name).
+	 * @param buffer The array holding the name.
+	 * @param offset Index of the first byte of the name.
+	 * @param length Number of bytes in the name.
+	 * @return The enumeration value of the name, or -1 if it is not in the table.
+	 */
+	public int get(byte[] buffer, int offset, int length){
+		int h = 0;
+		for(int j=offset; j < offset+length; j++){
+			h = 31*h + (buffer[j] & 0xFF);
+		}
+		int i = slots[lookupSlot(h)];
+		if(i != -1 && equals(names[i], buffer, offset, length)) return i;
+		for(int j=0; j < overflowHashes.length; j++){
+			if(overflowHashes[j] == h && equals(names[overflowNames[j]], buffer, offset, length)) return overflowNames[j];
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The number of names in the table.
+	 */
+	public int size(){
+		return names.length;
+	}
+
+	private static boolean equals(String name, byte[] buffer, int offset, int length){
+		if(name.length() != length) return false;
+		for(int j=0; j < length; j++){
+			if(name.charAt(j) != (char)(buffer[offset+j] & 0xFF)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the slot of a hash code (String.hashCode() of a name).
+	 */
+	private int lookupSlot(int h){
+		int x = mix(h ^ seed);
+		return slot(x, displacements[x & (displacements.length-1)]);
+	}
+
+	/**
+	 * Gets the slot of a mixed hash displaced by d, the multiplier is odd so 
+	 * different hashes of a bucket give different products.
+	 */
+	private int slot(int x, int d){
+		return ((x ^ d) * 0x9E3779B9) >>> slotShift;
+	}
+
+	private static int mix(int h){
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
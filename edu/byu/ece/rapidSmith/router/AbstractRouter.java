@@ -28,12 +28,14 @@ import java.util.PriorityQueue;
 import edu.byu.ece.rapidSmith.design.Design;
 import edu.byu.ece.rapidSmith.design.Net;
 import edu.byu.ece.rapidSmith.design.PIP;
+import edu.byu.ece.rapidSmith.design.PIPList;
 import edu.byu.ece.rapidSmith.design.Pin;
 import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.device.Tile;
 import edu.byu.ece.rapidSmith.device.WireConnection;
 import edu.byu.ece.rapidSmith.device.WireEnumerator;
 import edu.byu.ece.rapidSmith.device.WireType;
+import edu.byu.ece.rapidSmith.util.WireUsage;
 
 
 public abstract class AbstractRouter{
@@ -69,7 +71,7 @@ public abstract class AbstractRouter{
 	/** Current sink pin to be routed */ 
 	protected Pin currSinkPin;
 	/** PIPs of the current net being routed */
-	protected ArrayList<PIP> netPIPs;
+	protected PIPList netPIPs;
 
 	protected Node tempNode;
 	
@@ -87,6 +89,16 @@ public abstract class AbstractRouter{
 	protected int nodesProcessed;
 	/** Counts the number of times the router failed to route a connection */
 	protected int failedConnections;
+	/** Counts the number of nets routed */
+	protected int totalNetsRouted;
+	/** Counts the number of PIPs used by the routed nets */
+	protected int totalPIPs;
+	/** Largest size of the queue while routing the current connection */
+	protected int peakQueueSize;
+	/** Collects the statistics of each net and connection, null if not used */
+	protected RouterStatistics statistics;
+	/** Counts the wires and tiles used by the routed nets, null if not used */
+	protected WireUsage wireUsage;
 	NodeFactory<? extends Node> factory;
 	
 	public AbstractRouter() {
@@ -108,6 +120,8 @@ public abstract class AbstractRouter{
 		totalNodesProcessed = 0;
 		nodesProcessed = 0;
 		failedConnections = 0;
+		totalNetsRouted = 0;
+		totalPIPs = 0;
 		currSink = factory.newNode();
 	}
 	
@@ -115,6 +129,52 @@ public abstract class AbstractRouter{
 		return design;
 	}
 	
+	/**
+	 * Gets the statistics collected by this router.
+	 * @return The statistics, or null if none are collected.
+	 */
+	public RouterStatistics getStatistics(){
+		return statistics;
+	}
+	
+	/**
+	 * Sets the statistics object used to collect the statistics of each 
+	 * net and connection routed (no statistics are collected by default).
+	 * @param statistics The statistics to update, or null to stop collecting.
+	 */
+	public void setStatistics(RouterStatistics statistics){
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * Gets the wire usage counters updated by this router.
+	 * @return The wire usage, or null if none is updated.
+	 */
+	public WireUsage getWireUsage(){
+		return wireUsage;
+	}
+	
+	/**
+	 * Sets the wire usage counters which are updated as nets are routed and 
+	 * unrouted, so they always reflect the current routes (no counters are 
+	 * updated by default).  The counters should already include the nets 
+	 * that are routed when routing starts (see WireUsage(Design)).
+	 * @param wireUsage The wire usage to update, or null to stop updating.
+	 */
+	public void setWireUsage(WireUsage wireUsage){
+		this.wireUsage = wireUsage;
+	}
+	
+	/**
+	 * Sets the design to be routed along with its device and wire enumerator.
+	 * @param design The design to route.
+	 */
+	public void setDesign(Design design){
+		this.design = design;
+		this.dev = design.getDevice();
+		this.we = design.getWireEnumerator();
+	}
+	
 	/**
 	 * Sets a node (combined tile and wire) as used and maps 
 	 * the usage to the given net.
@@ -19,14 +19,22 @@
 package edu.byu.ece.rapidSmith.router;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 
 import edu.byu.ece.rapidSmith.design.Design;
+import edu.byu.ece.rapidSmith.design.Instance;
 import edu.byu.ece.rapidSmith.design.Net;
 import edu.byu.ece.rapidSmith.design.PIP;
+import edu.byu.ece.rapidSmith.design.PIPList;
 import edu.byu.ece.rapidSmith.design.Pin;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
 import edu.byu.ece.rapidSmith.device.WireConnection;
 import edu.byu.ece.rapidSmith.device.WireDirection;
+import edu.byu.ece.rapidSmith.device.helper.OffHeapWireHashMap;
 import edu.byu.ece.rapidSmith.util.MessageGenerator;
 
 /**
@@ -38,6 +46,56 @@ import edu.byu.ece.rapidSmith.util.MessageGenerator;
  */
 public class BasicRouter extends AbstractRouter{
 
+	/**
+	 * Orders the sinks of a net by the Manhattan distance of their tile to
+	 * the tile of the net's source, nearest first.
+	 */
+	public static final Comparator<Pin> NEAREST_SINK_FIRST = new Comparator<Pin>(){
+		public int compare(Pin a, Pin b){
+			return getDistanceToSource(a) - getDistanceToSource(b);
+		}
+	};
+
+	/**
+	 * Orders the sinks of a net by the Manhattan distance of their tile to
+	 * the tile of the net's source, farthest first.
+	 */
+	public static final Comparator<Pin> FARTHEST_SINK_FIRST = new Comparator<Pin>(){
+		public int compare(Pin a, Pin b){
+			return getDistanceToSource(b) - getDistanceToSource(a);
+		}
+	};
+
+	/**
+	 * When true, each connection of a net is routed from all the nodes of the
+	 * net's partial routing tree instead of only from the nodes of the
+	 * previous connection.
+	 */
+	protected boolean useRoutingTree = false;
+	/** The order in which the sinks of a net are routed, null for the order of the net's pins */
+	protected Comparator<Pin> sinkOrder = null;
+	/** The nodes of the partial routing tree of the current net */
+	protected ArrayList<Node> routingTree;
+	/**
+	 * Number of tiles the bounding box of a net extends beyond its pins, 
+	 * -1 to search the whole device
+	 */
+	protected int boundingBoxMargin = -1;
+	/** True when the search of the current connection is limited to the bounding box */
+	protected boolean useBoundingBox;
+	/** The rows and columns of the tiles of the pins of the current net */
+	protected int netMinRow, netMaxRow, netMinColumn, netMaxColumn;
+	/** The bounding box of the current connection (inclusive tile rows and columns) */
+	protected int boxMinRow, boxMaxRow, boxMinColumn, boxMaxColumn;
+	/** Counts the nodes rejected because they were outside the bounding box */
+	protected int totalNodesPruned;
+	/** Counts the times a bounding box was grown after a failed connection */
+	protected int boundingBoxGrowths;
+	/** The largest number of nodes processed for a single net */
+	protected int maxNetNodesProcessed;
+	/** Counts the nets unrouted by routeDesignIncremental() */
+	protected int ecoNetsRippedUp;
+
 	/**
 	 * Constructor to initialize router
 	 */
@@ -86,7 +144,7 @@ public class BasicRouter extends AbstractRouter{
 		// Setup the source nodes for starting the routing process
 		for(Node src : sources){
 			// Add the source nodes to the queue
-			if(src.getConnections() != null){
+			if(src.hasConnections()){
 				// Set the cost of the source
 				setCost(src, false);
 				this.queue.add(src);
@@ -113,55 +171,224 @@ public class BasicRouter extends AbstractRouter{
 			Node currNode = queue.remove();
 			nodesProcessed++;
 			
-			for(WireConnection w : currNode.getConnections()){
-				if(w.getWire() == this.currSink.wire && w.getTile(currNode.tile).equals(currSink.tile)){
-					
-					// We've found the sink, lets retrace our steps
-					Node currPathNode = new Node(w.getTile(currNode.tile), w.getWire(), currNode, currNode.level+1);
+			OffHeapWireHashMap offHeapWires = currNode.tile.getWireHashMap() == null ? 
+				currNode.tile.getOffHeapWireHashMap() : null;
+			if(offHeapWires != null){
+				// Walk the off heap connections without creating WireConnection objects
+				int list = currNode.offHeapConnections;
+				int count = offHeapWires.getConnectionCount(list);
+				for(int i=0; i < count; i++){
+					Tile tile = dev.getTile(currNode.tile.getRow() - offHeapWires.getRowOffset(list, i), 
+						currNode.tile.getColumn() - offHeapWires.getColumnOffset(list, i));
+					if(expandNode(currNode, tile, offHeapWires.getWire(list, i), 
+						offHeapWires.getRouteThroughIndex(list, i) >= 0)){
+						return;
+					}
+				}
+			}
+			else{
+				for(WireConnection w : currNode.getConnections()){
+					if(expandNode(currNode, w.getTile(currNode.tile), w.getWire(), dev.isRouteThrough(w))){
+						return;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Follows one connection of a node taken from the queue.  If the connection
+	 * reaches the sink, the PIPs of the path are added and the route is done,
+	 * otherwise the node it reaches is added to the queue if it has not been
+	 * visited or used yet.
+	 * @param currNode The node taken from the queue.
+	 * @param tile The tile of the connection.
+	 * @param wire The wire of the connection.
+	 * @param isRouteThrough True if the connection is a route through.
+	 * @return True if the sink was reached.
+	 */
+	private boolean expandNode(Node currNode, Tile tile, int wire, boolean isRouteThrough){
+		if(wire == this.currSink.wire && tile.equals(currSink.tile)){
+			
+			// We've found the sink, lets retrace our steps
+			Node currPathNode = new Node(tile, wire, currNode, currNode.level+1);
 
-					// Add this connection as a PIP, and follow it back to the source
-					while(currPathNode.parent != null){
-						
-						for(WireConnection w1 : currPathNode.parent.tile.getWireConnections(currPathNode.parent.wire)){
-							if(w1.getWire() == currPathNode.wire){
-								if(w1.isPIP() && currPathNode.parent.tile.equals(currPathNode.tile)){
-									pipList.add(new PIP(currPathNode.tile, currPathNode.parent.wire, currPathNode.wire));
-									break;
-								}
-							}
+			// Add this connection as a PIP, and follow it back to the source
+			while(currPathNode.parent != null){
+				
+				for(WireConnection w1 : currPathNode.parent.tile.getWireConnections(currPathNode.parent.wire)){
+					if(w1.getWire() == currPathNode.wire){
+						if(w1.isPIP() && currPathNode.parent.tile.equals(currPathNode.tile)){
+							pipList.add(new PIP(currPathNode.tile, currPathNode.parent.wire, currPathNode.wire));
+							break;
 						}
-						// Update the current node to the parent
-						// this way we can traverse backwards to the source
-						currPathNode = currPathNode.parent;
 					}
-					// We are now done with the routing of this connection
-					successfulRoute = true;
-					return;
-				} 
-				else{						
-					// This is not the sink, but is this wire one we should look at in the future?
-					Node tmp = new Node(w.getTile(currNode.tile), w.getWire(), currNode, currNode.level+1);
-					
-					// Check if this node has already been visited, if so don't add it
-					if(!(visitedNodes.contains(tmp))){
-						if(tmp.getConnections() != null && !usedNodes.contains(tmp)){
-							// Make sure we haven't used this node already
-							if(tmp.getConnections() != null){
-								// This looks like a possible candidate for our next node, we'll add it
-								setCost(tmp, dev.isRouteThrough(w));
-								visitedNodes.add(tmp);
-								queue.add(tmp);
-								if(currSources.contains(tmp)){
-									tmp.parent = null;
-								}
-							}
-						}
-					} 
 				}
+				// Update the current node to the parent
+				// this way we can traverse backwards to the source
+				currPathNode = currPathNode.parent;
 			}
+			// We are now done with the routing of this connection
+			successfulRoute = true;
+			return true;
+		} 
+		else{						
+			// This is not the sink, but is this wire one we should look at in the future?
+			Node tmp = new Node(tile, wire, currNode, currNode.level+1);
+			
+			// Stay inside the bounding box of the net
+			if(useBoundingBox && !isInBoundingBox(tmp.tile)){
+				totalNodesPruned++;
+				return false;
+			}
+			
+			// Check if this node has already been visited, if so don't add it
+			if(!(visitedNodes.contains(tmp))){
+				if(tmp.hasConnections() && !usedNodes.contains(tmp)){
+					// Make sure we haven't used this node already
+					if(tmp.hasConnections()){
+						// This looks like a possible candidate for our next node, we'll add it
+						setCost(tmp, isRouteThrough);
+						visitedNodes.add(tmp);
+						queue.add(tmp);
+						if(queue.size() > peakQueueSize) peakQueueSize = queue.size();
+						if(currSources.contains(tmp)){
+							tmp.parent = null;
+						}
+					}
+				}
+			} 
 		}
+		return false;
 	}
 	
+	/**
+	 * Sets whether each connection of a net is routed from the whole partial
+	 * routing tree of the net (all the nodes routed so far) rather than from
+	 * the nodes of the previous connection only.
+	 * @param useRoutingTree true to route from the whole routing tree.
+	 */
+	public void setUseRoutingTree(boolean useRoutingTree){
+		this.useRoutingTree = useRoutingTree;
+	}
+
+	/**
+	 * Sets the order in which the sinks of each net are routed (such as
+	 * NEAREST_SINK_FIRST, or a comparator based on timing criticality).
+	 * @param sinkOrder The sink comparator, or null to route the sinks in the
+	 * order of the net's pins.
+	 */
+	public void setSinkOrder(Comparator<Pin> sinkOrder){
+		this.sinkOrder = sinkOrder;
+	}
+
+	/**
+	 * Gets the Manhattan distance (in tiles) between the tile of a pin and
+	 * the tile of the source of its net.
+	 * @param pin The sink pin.
+	 * @return The distance, or 0 if the net has no source.
+	 */
+	public static int getDistanceToSource(Pin pin){
+		Pin source = pin.getNet() == null ? null : pin.getNet().getSource();
+		if(source == null) return 0;
+		int x = pin.getTile().getTileXCoordinate() - source.getTile().getTileXCoordinate();
+		int y = pin.getTile().getTileYCoordinate() - source.getTile().getTileYCoordinate();
+		return (x < 0 ? -x : x) + (y < 0 ? -y : y);
+	}
+
+	/**
+	 * Adds the nodes of the PIPs of a connection to the routing tree of the
+	 * current net.
+	 * @param pips The PIPs of the connection.
+	 */
+	protected void addToRoutingTree(ArrayList<PIP> pips){
+		for(Node n : getSourcesFromPIPs(pips)){
+			if(currSources.add(n)){
+				routingTree.add(n);
+			}
+		}
+	}
+
+	/**
+	 * Limits the search of each connection to the bounding box of the tiles
+	 * of its net's pins, extended by a margin. When a connection fails, the
+	 * margin is doubled and the connection is routed again until the box
+	 * covers the whole device. Clock connections are never limited since
+	 * they use the global clock resources.
+	 * @param margin The number of tiles the box extends beyond the pins, -1 to
+	 * search the whole device.
+	 */
+	public void setBoundingBoxMargin(int margin){
+		this.boundingBoxMargin = margin;
+	}
+
+	/**
+	 * Computes the rows and columns spanned by the pins of the current net.
+	 */
+	protected void setNetBounds(){
+		netMinRow = netMinColumn = Integer.MAX_VALUE;
+		netMaxRow = netMaxColumn = Integer.MIN_VALUE;
+		for(Pin p : currNet.getPins()){
+			Tile t = p.getTile();
+			if(t == null) continue;
+			netMinRow = Math.min(netMinRow, t.getRow());
+			netMaxRow = Math.max(netMaxRow, t.getRow());
+			netMinColumn = Math.min(netMinColumn, t.getColumn());
+			netMaxColumn = Math.max(netMaxColumn, t.getColumn());
+		}
+	}
+
+	/**
+	 * Sets the bounding box of the current connection to the bounds of the
+	 * net extended by a margin.
+	 * @param margin The number of tiles to extend the net bounds by.
+	 * @return true if the box covers the whole device.
+	 */
+	protected boolean setBoundingBox(int margin){
+		boxMinRow = Math.max(0, netMinRow - margin);
+		boxMaxRow = Math.min(dev.getRows() - 1, netMaxRow + margin);
+		boxMinColumn = Math.max(0, netMinColumn - margin);
+		boxMaxColumn = Math.min(dev.getColumns() - 1, netMaxColumn + margin);
+		return boxMinRow == 0 && boxMinColumn == 0 && 
+			boxMaxRow == dev.getRows() - 1 && boxMaxColumn == dev.getColumns() - 1;
+	}
+
+	/**
+	 * Checks if a tile is inside the bounding box of the current connection.
+	 * @param t The tile to check.
+	 * @return true if the tile is inside the bounding box.
+	 */
+	protected boolean isInBoundingBox(Tile t){
+		int row = t.getRow();
+		int column = t.getColumn();
+		return row >= boxMinRow && row <= boxMaxRow && column >= boxMinColumn && column <= boxMaxColumn;
+	}
+
+	/**
+	 * Routes a connection inside the bounding box of the net, growing the box
+	 * until the connection is routed or the box covers the whole device.
+	 * @param sources The candidate sources to attempt to route from.
+	 */
+	protected void routeConnectionInBoundingBox(ArrayList<Node> sources){
+		if(boundingBoxMargin < 0 || isCurrSinkAClkWire || netMinRow > netMaxRow){
+			useBoundingBox = false;
+			routeConnection(sources);
+			return;
+		}
+		int margin = boundingBoxMargin;
+		boolean wholeDevice = setBoundingBox(margin);
+		useBoundingBox = !wholeDevice;
+		routeConnection(sources);
+		while(!successfulRoute && !wholeDevice){
+			margin = margin * 2 + 1;
+			wholeDevice = setBoundingBox(margin);
+			useBoundingBox = !wholeDevice;
+			boundingBoxGrowths++;
+			routeConnection(sources);
+		}
+		useBoundingBox = false;
+	}
+
 	/**
 	 * This method routes all the connections within a net.  
 	 * @param i The number of the net (in sequence from the beginning)
@@ -170,15 +397,24 @@ public class BasicRouter extends AbstractRouter{
 		Pin currSource = currNet.getSource();
 		ArrayList<Node> sources = new ArrayList<Node>();
 		currSources = new HashSet<Node>();
+		routingTree = new ArrayList<Node>();
 		boolean firstConnection = true;
+		int netNodesProcessed = totalNodesProcessed;
+		setNetBounds();
+		
+		ArrayList<Pin> sinkPins = new ArrayList<Pin>(currNet.getPins());
+		if(sinkOrder != null){
+			Collections.sort(sinkPins, sinkOrder);
+		}
 		
 		// Route each pin by itself
-		for(Pin currSinkPin : currNet.getPins()){
+		for(Pin currSinkPin : sinkPins){
 			// Ignore the source pin
 			if (currSinkPin.isOutPin()) continue; 
 
 			// This will print out until the Virtex 5 patch is complete
-			if(dev.getPrimitiveExternalPin(currSinkPin) == null){
+			int sinkWire = dev.getPrimitiveExternalPinWire(currSinkPin);
+			if(sinkWire == -1){
 				MessageGenerator.printHeader("Pin Missing from V5 Patch: " + currNet.getName() + " " + currSinkPin.getName() 
 						+ " " +currSinkPin.getInstance().getTile() + " " + currSinkPin.getInstance().getType());
 				continue;
@@ -186,7 +422,7 @@ public class BasicRouter extends AbstractRouter{
 			
 			// Populate the current sink node
 			currSink.tile = currSinkPin.getInstance().getTile();
-			currSink.wire = dev.getPrimitiveExternalPin(currSinkPin);
+			currSink.wire = sinkWire;
 
 			// Is this source from a buffer (likely a clock net)?
 			boolean currNetOutputFromBUF = currSource.getInstance().getType().toString().contains("BUF");
@@ -201,16 +437,21 @@ public class BasicRouter extends AbstractRouter{
 			// Add additional sources if this is not the first sink of the net being routed
 			if(firstConnection){
 				// Error checking
-				if(dev.getPrimitiveExternalPin(currSource) == null){
+				int sourceWire = dev.getPrimitiveExternalPinWire(currSource);
+				if(sourceWire == -1){
 					MessageGenerator.briefErrorAndExit("ERROR: Could not find valid external source pin name: " +
 							currSource + " " + currSource.getInstance().getType());
 				}
 				
 				// just add the original source
-				Node n = new Node(currSource.getInstance().getTile(), 
-						dev.getPrimitiveExternalPin(currSource), null, 0);
+				Node n = new Node(currSource.getInstance().getTile(), sourceWire, null, 0);
 				sources.add(n);
 				currSources.add(n);
+				routingTree.add(n);
+			}
+			else if(useRoutingTree){
+				// Start from every node of the net routed so far
+				sources = routingTree;
 			}
 			else{
 				// Add starting point sources taken from previous routings to begin the route 
@@ -219,12 +460,23 @@ public class BasicRouter extends AbstractRouter{
 
 			// Route the current sink node
 			totalConnections++;
-			routeConnection(sources);
+			int connectionNodesProcessed = totalNodesProcessed;
+			int connectionGrowths = boundingBoxGrowths;
+			peakQueueSize = 0;
+			if(statistics != null) statistics.startConnection();
+			routeConnectionInBoundingBox(sources);
+			if(statistics != null){
+				statistics.endConnection(totalNodesProcessed - connectionNodesProcessed, peakQueueSize, 
+						boundingBoxGrowths - connectionGrowths, successfulRoute);
+			}
 
 			// Check if it was a successful routing
 			if(successfulRoute){
 				// Add these PIPs to the rest used in the net
 				netPIPs.addAll(pipList);
+				if(useRoutingTree){
+					addToRoutingTree(pipList);
+				}
 			} 
 			else{
 				failedConnections++;
@@ -233,6 +485,7 @@ public class BasicRouter extends AbstractRouter{
 			}
 			firstConnection = false;
 		}
+		maxNetNodesProcessed = Math.max(maxNetNodesProcessed, totalNodesProcessed - netNodesProcessed);
 	}
 	
 	/**
@@ -270,22 +523,83 @@ public class BasicRouter extends AbstractRouter{
 			// netPIPs are the pips that belong to a particular net, however, 
 			// because GND/VCC nets can use pips of other nets, we need a usedPIPs
 			// variable to keep everything straight.
-			netPIPs = new ArrayList<PIP>();
+			netPIPs = new PIPList();
+			if(statistics != null) statistics.startNet(currNet);
 			routeNet(i);
+			if(statistics != null) statistics.endNet(netPIPs, we);
+			totalNetsRouted++;
+			totalPIPs += netPIPs.size();
 			
-			// Mark these used PIPs as used in the data structures
-			for (PIP pip : netPIPs){
+			// Mark these used PIPs as used in the data structures (walking the
+			// list with one scratch PIP so the list does not keep PIP objects)
+			PIP pip = new PIP();
+			for (int k = 0; k < netPIPs.size(); k++){
+				pip.setTile(netPIPs.getTile(k));
+				pip.setStartWire(netPIPs.getStartWire(k));
+				pip.setEndWire(netPIPs.getEndWire(k));
 				setWireAsUsed(pip.getTile(), pip.getStartWire(), currNet);
 				setWireAsUsed(pip.getTile(), pip.getEndWire(), currNet);
 				markIntermediateNodesAsUsed(pip, currNet);
 			}
 			// Let's add these PIPs to the actual net, to be included in the design
+			// (a PIPList is kept by the net without copying)
 			currNet.setPIPs(netPIPs);
+			if(wireUsage != null) wireUsage.addNet(currNet);
 		}
 		design.setNets(netList);
 		return design;
 	}	
 	
+	/**
+	 * Gets the nets that must be re-routed after an engineering change
+	 * order (ECO): the changed nets and all the nets connected to the 
+	 * moved instances.
+	 * @param movedInstances Instances whose placement changed (may be null).
+	 * @param changedNets Nets whose pins changed (may be null).
+	 * @return The affected nets.
+	 */
+	public static HashSet<Net> getAffectedNets(Collection<Instance> movedInstances, Collection<Net> changedNets){
+		HashSet<Net> affected = new HashSet<Net>();
+		if(changedNets != null){
+			affected.addAll(changedNets);
+		}
+		if(movedInstances != null){
+			for(Instance inst : movedInstances){
+				for(Pin p : inst.getPins()){
+					if(p.getNet() != null) affected.add(p.getNet());
+				}
+			}
+		}
+		return affected;
+	}
+	
+	/**
+	 * Re-routes a routed design after an engineering change order (ECO), such
+	 * as a small placement change.  Only the nets affected by the change are
+	 * unrouted and routed again.  The PIPs of all the other nets are kept and
+	 * marked as used (see StaticSourceHandler), so the new routes avoid them.
+	 * Nets that lose their route because the change needs one of their 
+	 * resources (such as a switch box sink of a moved pin) are routed again
+	 * as well.
+	 * @param movedInstances Instances whose placement changed (may be null).
+	 * @param changedNets Nets whose pins changed (may be null).
+	 * @return The re-routed design.
+	 */
+	public Design routeDesignIncremental(Collection<Instance> movedInstances, Collection<Net> changedNets){
+		HashSet<Net> affected = getAffectedNets(movedInstances, changedNets);
+		for(Net net : affected){
+			if(wireUsage != null) wireUsage.removeNet(net);
+			net.unroute();
+		}
+		ecoNetsRippedUp += affected.size();
+		
+		// Forget the resources of any previous run, the routed nets are reloaded 
+		usedNodes.clear();
+		usedNodesMap.clear();
+		reservedNodes.clear();
+		return routeDesign();
+	}
+	
 	protected static void printTimeHelper(String timedOperation, long start) {
 		System.out.printf("%s %8.3fs\n", timedOperation,
 				(System.nanoTime() - start) / 1000000000.0);
@@ -295,25 +609,93 @@ public class BasicRouter extends AbstractRouter{
 		long[] runtimes = new long[4];
 		String nl = System.getProperty("line.separator");
 		runtimes[0] = runtimes[1] = System.nanoTime();
-		if (args.length != 2){
-			System.out.println("USAGE: Router <input.xdl> <output.xdl>");
+		if (args.length < 2){
+			System.out.println("USAGE: Router <input.xdl> <output.xdl> [-tree] [-nearest|-farthest] [-box <margin>] [-stats <file>]");
+			System.out.println("                                     [-eco <name>[,<name>...]] [-offheap]");
+			System.out.println("  -tree     Route each connection from the whole routing tree of its net");
+			System.out.println("  -nearest  Route the sinks of each net nearest to the source first");
+			System.out.println("  -farthest Route the sinks of each net farthest from the source first");
+			System.out.println("  -box      Limit the search to the bounding box of each net plus a margin (in tiles)");
+			System.out.println("  -stats    Write the routing statistics to a JSON (or .csv, one line per net) file");
+			System.out.println("            every 10 seconds and at the end, and publish them through JMX");
+			System.out.println("  -eco      Only re-route the nets of the given moved instances or changed nets of a");
+			System.out.println("            routed design, keeping the routes of all other nets");
+			System.out.println("  -offheap  Move the wire connections of the device out of the Java heap");
 			System.exit(0);
 		}
 		
 		// Initialize router and load design and device
 		BasicRouter router = new BasicRouter();
+		String statsFileName = null;
+		String[] ecoNames = null;
+		boolean offHeap = false;
+		for(int i = 2; i < args.length; i++){
+			if(args[i].equals("-tree")){
+				router.setUseRoutingTree(true);
+			}
+			else if(args[i].equals("-nearest")){
+				router.setSinkOrder(NEAREST_SINK_FIRST);
+			}
+			else if(args[i].equals("-farthest")){
+				router.setSinkOrder(FARTHEST_SINK_FIRST);
+			}
+			else if(args[i].equals("-box") && i + 1 < args.length){
+				router.setBoundingBoxMargin(Integer.parseInt(args[++i]));
+			}
+			else if(args[i].equals("-stats") && i + 1 < args.length){
+				statsFileName = args[++i];
+			}
+			else if(args[i].equals("-eco") && i + 1 < args.length){
+				ecoNames = args[++i].split(",");
+			}
+			else if(args[i].equals("-offheap")){
+				offHeap = true;
+			}
+			else{
+				MessageGenerator.briefErrorAndExit("Unknown option: " + args[i]);
+			}
+		}
 		router.design = new Design();
 		router.design.loadXDLFile(args[0]);
 		router.dev = router.design.getDevice();
 		router.we = router.design.getWireEnumerator();
+		if(offHeap){
+			long bytes = router.dev.createOffHeapWires(true);
+			Device.releaseInstance(router.dev);
+			System.out.println("Moved the device wires off heap (" + bytes / (1 << 20) + " MB)");
+		}
+		if(statsFileName != null){
+			router.setStatistics(new RouterStatistics());
+			router.statistics.register(args[0]);
+			router.statistics.startPeriodicDump(statsFileName, 10000);
+		}
 		
 		runtimes[1] = System.nanoTime() - runtimes[1];
 		runtimes[2] = System.nanoTime();
 		
 		// Route the design
-		router.routeDesign();
+		if(ecoNames != null){
+			ArrayList<Instance> movedInstances = new ArrayList<Instance>();
+			ArrayList<Net> changedNets = new ArrayList<Net>();
+			for(String name : ecoNames){
+				Instance inst = router.design.getInstance(name);
+				Net net = router.design.getNet(name);
+				if(inst != null) movedInstances.add(inst);
+				else if(net != null) changedNets.add(net);
+				else MessageGenerator.briefErrorAndExit("No instance or net named " + name);
+			}
+			router.routeDesignIncremental(movedInstances, changedNets);
+		}
+		else{
+			router.routeDesign();
+		}
 		
 		runtimes[2] = System.nanoTime() - runtimes[2];
+		if(router.statistics != null){
+			router.statistics.stopPeriodicDump();
+			router.statistics.writeFile(statsFileName);
+			router.statistics.unregister();
+		}
 		runtimes[3] = System.nanoTime();
 		
 		// Save routed design to XDL file
@@ -328,6 +710,27 @@ public class BasicRouter extends AbstractRouter{
 		System.out.println("         Total Nodes Processed : " + router.totalNodesProcessed);
 		System.out.println("             Total Connections : " + router.totalConnections);
 		System.out.println("      Total Failed Connections : " + router.failedConnections);
+		System.out.println("                    Total PIPs : " + router.totalPIPs);
+		if(router.totalNetsRouted > 0){
+			System.out.printf("       Nodes Processed per Net : %8.1f %s", 
+					(double) router.totalNodesProcessed / router.totalNetsRouted, nl);
+			System.out.printf("                  PIPs per Net : %8.1f %s", 
+					(double) router.totalPIPs / router.totalNetsRouted, nl);
+			System.out.println("   Max Nodes Processed per Net : " + router.maxNetNodesProcessed);
+		}
+		if(ecoNames != null){
+			System.out.println("            ECO Nets Ripped Up : " + router.ecoNetsRippedUp);
+		}
+		if(router.boundingBoxMargin >= 0){
+			System.out.println("   Nodes Pruned (Bounding Box) : " + router.totalNodesPruned);
+			System.out.println("          Bounding Box Growths : " + router.boundingBoxGrowths);
+		}
+		if(router.statistics != null){
+			System.out.println("----------------- SLOWEST NETS ---------------");
+			for(String net : router.statistics.getSlowestNets()){
+				System.out.println(net);
+			}
+		}
 		System.out.println("----------------------------------------------");
 		System.out.printf("    Loading Design/Device Time : %8.3fs %s", runtimes[1]/1000000000.0, nl);
 		System.out.printf("                  Routing Time : %8.3fs %s", runtimes[2]/1000000000.0, nl);
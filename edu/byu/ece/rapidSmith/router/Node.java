@@ -23,6 +23,7 @@ import edu.byu.ece.rapidSmith.device.SinkPin;
 import edu.byu.ece.rapidSmith.device.Tile;
 import edu.byu.ece.rapidSmith.device.WireConnection;
 import edu.byu.ece.rapidSmith.device.WireEnumerator;
+import edu.byu.ece.rapidSmith.device.helper.OffHeapWireHashMap;
 
 
 /**
@@ -50,6 +51,9 @@ public class Node implements Comparable<Node>{
 	protected boolean isPIP;
 	/** Keeps track of the wires that this node connects to */
 	protected WireConnection[] wires;
+	/** Handle of the connections of this node in the off heap wires of its tile when 
+	 * the tile has no heap wires (see OffHeapWireHashMap.find()), -1 otherwise */
+	protected int offHeapConnections;
 	
 	/**
 	 * Empty constructor, sets tile and wires to null. Sets wire and cost to -1.
@@ -59,6 +63,7 @@ public class Node implements Comparable<Node>{
 		tile = null;
 		wire = -1;
 		wires = null;
+		offHeapConnections = -1;
 		cost = -1;
 		level = 0;
 		history = 0;
@@ -71,8 +76,7 @@ public class Node implements Comparable<Node>{
 	 * @param wire The wire of the new node.
 	 */
 	public Node(Tile tile, int wire){
-		setTile(tile);
-		setWire(wire);
+		setTileAndWire(tile, wire);
 		setParent(null);
 		setLevel(0);
 	}
@@ -85,8 +89,7 @@ public class Node implements Comparable<Node>{
 	 * @param level The number of nodes between this node and the source node.
 	 */
 	public Node(Tile tile, int wire, Node parent, int level){
-		setTile(tile);
-		setWire(wire);
+		setTileAndWire(tile, wire);
 		setParent(parent);
 		setLevel(level);
 	}
@@ -100,8 +103,7 @@ public class Node implements Comparable<Node>{
 	 * @param isPIP A flag indicating that this node and its parent form a PIP.
 	 */
 	public Node(Tile tile, int wire, Node parent, int level, boolean isPIP){
-		setTile(tile);
-		setWire(wire);
+		setTileAndWire(tile, wire);
 		setParent(parent);
 		setLevel(level);
 		setPIP(isPIP);
@@ -113,8 +115,9 @@ public class Node implements Comparable<Node>{
 	 * @param wire The new wire of the node.
 	 */
 	public void setTileAndWire(Tile tile, int wire){
-		setTile(tile);
-		setWire(wire);
+		this.tile = tile;
+		this.wire = wire;
+		updateConnections();
 	}
 	
 	/**
@@ -122,9 +125,21 @@ public class Node implements Comparable<Node>{
 	 * @return The list of all possible connections leaving this node 
 	 */
 	public WireConnection[] getConnections(){
+		if(wires == null && offHeapConnections != -1){
+			wires = tile.getOffHeapWireHashMap().get(wire);
+		}
 		return wires;
 	}
 	
+	/**
+	 * Checks if there are connections leaving this node, without creating 
+	 * them when the wires of the tile are only stored off heap.
+	 * @return True if getConnections() is not null.
+	 */
+	public boolean hasConnections(){
+		return wires != null || offHeapConnections != -1;
+	}
+	
 	/**
 	 * Returns the current cost of this node
 	 * @return The cost of this node
@@ -159,6 +174,7 @@ public class Node implements Comparable<Node>{
 	 */
 	public void setTile(Tile tile){
 		this.tile = tile;
+		updateConnections();
 	}
 	
 	public void setCost(int cost){
@@ -191,7 +207,29 @@ public class Node implements Comparable<Node>{
 	 */
 	public void setWire(int wire){
 		this.wire = wire;
-		this.wires = tile.getWireConnections(wire);
+		updateConnections();
+	}
+	
+	/**
+	 * Looks up the connections (or their off heap handle) of the current 
+	 * tile and wire, so neither is left over from a previous tile or wire.
+	 */
+	private void updateConnections(){
+		if(tile == null || wire == -1){
+			this.wires = null;
+			this.offHeapConnections = -1;
+			return;
+		}
+		OffHeapWireHashMap offHeapWires = tile.getOffHeapWireHashMap();
+		if(tile.getWireHashMap() == null && offHeapWires != null){
+			// The connections are only created if the node is expanded
+			this.wires = null;
+			this.offHeapConnections = offHeapWires.find(wire);
+		}
+		else{
+			this.wires = tile.getWireConnections(wire);
+			this.offHeapConnections = -1;
+		}
 	}
 
 	/**
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.router;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import edu.byu.ece.rapidSmith.design.Net;
+import edu.byu.ece.rapidSmith.design.PIP;
+import edu.byu.ece.rapidSmith.device.WireEnumerator;
+import edu.byu.ece.rapidSmith.device.WireType;
+import edu.byu.ece.rapidSmith.util.MessageGenerator;
+
+/**
+ * Collects the statistics of a router while it runs: the work done for each
+ * net and connection (nodes processed, peak queue size, time, PIPs and
+ * bounding box retries), a histogram of the nodes processed per connection
+ * and the number of PIPs driving each wire type.  The statistics can be
+ * watched through JMX (see register()) and written periodically to a CSV
+ * file (one line per net) or a JSON file (totals, histograms and the worst
+ * nets) to find pathological nets without a profiler.
+ * 
+ * Created on: Oct 19, 2026
+ */
+public class RouterStatistics implements RouterStatisticsMBean {
+	/** Number of nets reported in the lists of slowest and largest nets */
+	public static final int WORST_NET_COUNT = 10;
+	/** Number of buckets of the histograms (bucket i counts values in [2^(i-1), 2^i)) */
+	public static final int HISTOGRAM_BUCKETS = 32;
+	
+	/** The statistics of each net routed, in routing order */
+	private ArrayList<NetStatistics> nets;
+	/** The net being routed */
+	private NetStatistics currNet;
+	/** Time when the current connection started */
+	private long connectionStart;
+	/** Time of the first net */
+	private long start;
+	/** Time of the last net */
+	private long end;
+	private long connections;
+	private long failedConnections;
+	private long nodesProcessed;
+	private long pips;
+	private long retries;
+	private int peakQueueSize;
+	/** Histogram of the nodes processed per connection */
+	private long[] nodesHistogram;
+	/** Histogram of the time per connection in microseconds */
+	private long[] timeHistogram;
+	/** Number of PIPs ending in each wire type, indexed by WireType ordinal */
+	private long[] wireTypeUsage;
+	/** Name used to register with JMX */
+	private ObjectName objectName;
+	/** Runs the periodic dump */
+	private ScheduledExecutorService dumpExecutor;
+	/** Lock of dumpExecutor, which is not the lock of the statistics so 
+	 * stopPeriodicDump() can wait for a dump which needs that lock */
+	private final Object dumpLock = new Object();
+	
+	/**
+	 * The statistics of one routed net.
+	 */
+	public static class NetStatistics {
+		private String name;
+		private int connections;
+		private int failedConnections;
+		private long nodesProcessed;
+		private int peakQueueSize;
+		private long nanoseconds;
+		private int pips;
+		private int retries;
+		
+		public NetStatistics(String name){
+			this.name = name;
+		}
+		
+		public String getName(){
+			return name;
+		}
+		
+		public int getConnections(){
+			return connections;
+		}
+		
+		public int getFailedConnections(){
+			return failedConnections;
+		}
+		
+		public long getNodesProcessed(){
+			return nodesProcessed;
+		}
+		
+		public int getPeakQueueSize(){
+			return peakQueueSize;
+		}
+		
+		public long getNanoseconds(){
+			return nanoseconds;
+		}
+		
+		public int getPIPs(){
+			return pips;
+		}
+		
+		public int getRetries(){
+			return retries;
+		}
+		
+		@Override
+		public String toString(){
+			return String.format("%s: %d connections (%d failed), %d nodes, peak queue %d, %.3f ms, %d PIPs, %d retries", 
+				name, connections, failedConnections, nodesProcessed, peakQueueSize, nanoseconds / 1000000.0, pips, retries);
+		}
+	}
+	
+	/** Orders nets by decreasing routing time */
+	public static final Comparator<NetStatistics> SLOWEST_FIRST = new Comparator<NetStatistics>(){
+		public int compare(NetStatistics a, NetStatistics b){
+			return a.nanoseconds < b.nanoseconds ? 1 : (a.nanoseconds > b.nanoseconds ? -1 : 0);
+		}
+	};
+	
+	/** Orders nets by decreasing number of nodes processed */
+	public static final Comparator<NetStatistics> LARGEST_FIRST = new Comparator<NetStatistics>(){
+		public int compare(NetStatistics a, NetStatistics b){
+			return a.nodesProcessed < b.nodesProcessed ? 1 : (a.nodesProcessed > b.nodesProcessed ? -1 : 0);
+		}
+	};
+	
+	public RouterStatistics(){
+		reset();
+	}
+	
+	/**
+	 * Clears all the statistics.
+	 */
+	public synchronized void reset(){
+		nets = new ArrayList<NetStatistics>();
+		currNet = null;
+		start = end = 0;
+		connections = failedConnections = nodesProcessed = pips = retries = 0;
+		peakQueueSize = 0;
+		nodesHistogram = new long[HISTOGRAM_BUCKETS];
+		timeHistogram = new long[HISTOGRAM_BUCKETS];
+		wireTypeUsage = new long[WireType.values().length];
+	}
+	
+	//========================================================================//
+	// Methods called by the router
+	//========================================================================//
+	/**
+	 * Called by the router before routing a net.
+	 * @param net The net about to be routed.
+	 */
+	public synchronized void startNet(Net net){
+		currNet = new NetStatistics(net.getName());
+		currNet.nanoseconds = System.nanoTime();
+		if(start == 0) start = currNet.nanoseconds;
+	}
+	
+	/**
+	 * Called by the router before routing a connection of the current net.
+	 */
+	public void startConnection(){
+		connectionStart = System.nanoTime();
+	}
+	
+	/**
+	 * Called by the router after routing a connection of the current net.
+	 * @param nodes Number of nodes processed for the connection.
+	 * @param queueSize Largest size of the queue while routing the connection.
+	 * @param retries Number of times the connection was routed again (such as 
+	 * with a larger bounding box).
+	 * @param successful True if the connection was routed.
+	 */
+	public synchronized void endConnection(int nodes, int queueSize, int retries, boolean successful){
+		if(currNet == null) return;
+		long time = System.nanoTime() - connectionStart;
+		currNet.connections++;
+		currNet.nodesProcessed += nodes;
+		currNet.peakQueueSize = Math.max(currNet.peakQueueSize, queueSize);
+		currNet.retries += retries;
+		if(!successful) currNet.failedConnections++;
+		connections++;
+		nodesProcessed += nodes;
+		peakQueueSize = Math.max(peakQueueSize, queueSize);
+		this.retries += retries;
+		if(!successful) failedConnections++;
+		nodesHistogram[getBucket(nodes)]++;
+		timeHistogram[getBucket(time / 1000)]++;
+	}
+	
+	/**
+	 * Called by the router after routing a net.
+	 * @param netPIPs The PIPs of the routed net.
+	 * @param we The wire enumerator of the device, used to count the wire 
+	 * types used (may be null).
+	 */
+	public synchronized void endNet(List<PIP> netPIPs, WireEnumerator we){
+		if(currNet == null) return;
+		end = System.nanoTime();
+		currNet.nanoseconds = end - currNet.nanoseconds;
+		currNet.pips = netPIPs.size();
+		pips += netPIPs.size();
+		if(we != null){
+			for(PIP pip : netPIPs){
+				wireTypeUsage[we.getWireType(pip.getEndWire()).ordinal()]++;
+			}
+		}
+		nets.add(currNet);
+		currNet = null;
+	}
+	
+	private static int getBucket(long value){
+		int bucket = 64 - Long.numberOfLeadingZeros(value);
+		return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+	}
+	
+	//========================================================================//
+	// Statistics
+	//========================================================================//
+	public synchronized String getCurrentNet(){
+		return currNet == null ? null : currNet.getName();
+	}
+	
+	public synchronized int getNetsRouted(){
+		return nets.size();
+	}
+	
+	public synchronized long getConnectionsRouted(){
+		return connections;
+	}
+	
+	public synchronized long getFailedConnections(){
+		return failedConnections;
+	}
+	
+	public synchronized long getNodesProcessed(){
+		return nodesProcessed;
+	}
+	
+	public synchronized long getPIPs(){
+		return pips;
+	}
+	
+	public synchronized long getRetries(){
+		return retries;
+	}
+	
+	public synchronized int getPeakQueueSize(){
+		return peakQueueSize;
+	}
+	
+	public synchronized double getElapsedSeconds(){
+		if(start == 0) return 0;
+		return ((currNet == null ? end : System.nanoTime()) - start) / 1000000000.0;
+	}
+	
+	public synchronized double getNodesProcessedPerSecond(){
+		double seconds = getElapsedSeconds();
+		return seconds == 0 ? 0 : nodesProcessed / seconds;
+	}
+	
+	/**
+	 * Gets the histogram of nodes processed per connection.  Bucket i counts 
+	 * the connections that processed from 2^(i-1) to 2^i-1 nodes.
+	 * @return A copy of the histogram.
+	 */
+	public synchronized long[] getNodesProcessedHistogram(){
+		return nodesHistogram.clone();
+	}
+	
+	/**
+	 * Gets the histogram of the routing time per connection.  Bucket i counts 
+	 * the connections that took from 2^(i-1) to 2^i-1 microseconds.
+	 * @return A copy of the histogram.
+	 */
+	public synchronized long[] getConnectionTimeHistogram(){
+		return timeHistogram.clone();
+	}
+	
+	/**
+	 * Gets the number of PIPs ending on each type of wire.
+	 * @return A copy of the counts, indexed by WireType ordinal.
+	 */
+	public synchronized long[] getWireTypeCounts(){
+		return wireTypeUsage.clone();
+	}
+	
+	/**
+	 * Gets the wire types used by the routed PIPs as "TYPE=count" strings.
+	 * @return The wire types with at least one PIP.
+	 */
+	public synchronized String[] getWireTypeUsage(){
+		ArrayList<String> usage = new ArrayList<String>();
+		for(WireType type : WireType.values()){
+			if(wireTypeUsage[type.ordinal()] > 0){
+				usage.add(type + "=" + wireTypeUsage[type.ordinal()]);
+			}
+		}
+		return usage.toArray(new String[usage.size()]);
+	}
+	
+	/**
+	 * Gets the statistics of the routed nets.
+	 * @return A copy of the list of nets, in routing order.
+	 */
+	public synchronized ArrayList<NetStatistics> getNets(){
+		return new ArrayList<NetStatistics>(nets);
+	}
+	
+	/**
+	 * Gets the worst routed nets.
+	 * @param order The order of the nets, such as SLOWEST_FIRST.
+	 * @param count The maximum number of nets to return.
+	 * @return The first count nets in the given order.
+	 */
+	public synchronized ArrayList<NetStatistics> getWorstNets(Comparator<NetStatistics> order, int count){
+		ArrayList<NetStatistics> sorted = new ArrayList<NetStatistics>(nets);
+		Collections.sort(sorted, order);
+		return new ArrayList<NetStatistics>(sorted.subList(0, Math.min(count, sorted.size())));
+	}
+	
+	public String[] getSlowestNets(){
+		return toStrings(getWorstNets(SLOWEST_FIRST, WORST_NET_COUNT));
+	}
+	
+	public String[] getLargestNets(){
+		return toStrings(getWorstNets(LARGEST_FIRST, WORST_NET_COUNT));
+	}
+	
+	private static String[] toStrings(ArrayList<NetStatistics> netList){
+		String[] strings = new String[netList.size()];
+		for(int i = 0; i < strings.length; i++){
+			strings[i] = netList.get(i).toString();
+		}
+		return strings;
+	}
+	
+	@Override
+	public synchronized String toString(){
+		return String.format("%d nets, %d connections (%d failed), %d nodes, %d PIPs, %d retries, peak queue %d, %.3fs",
+			nets.size(), connections, failedConnections, nodesProcessed, pips, retries, peakQueueSize, getElapsedSeconds());
+	}
+	
+	//========================================================================//
+	// Reporting
+	//========================================================================//
+	/**
+	 * Writes the statistics of each net to a CSV file.
+	 * @param fileName Name of the CSV file to create.
+	 */
+	public void writeCSVFile(String fileName){
+		ArrayList<NetStatistics> netList = getNets();
+		String nl = System.getProperty("line.separator");
+		StringBuilder sb = new StringBuilder();
+		sb.append("net,connections,failed_connections,nodes_processed,peak_queue_size,nanoseconds,pips,retries" + nl);
+		for(NetStatistics n : netList){
+			sb.append(n.name + "," + n.connections + "," + n.failedConnections + "," + n.nodesProcessed + "," + 
+				n.peakQueueSize + "," + n.nanoseconds + "," + n.pips + "," + n.retries + nl);
+		}
+		writeFile(fileName, sb.toString());
+	}
+	
+	/**
+	 * Writes the totals, histograms, wire type usage and the slowest and 
+	 * largest nets to a JSON file.
+	 * @param fileName Name of the JSON file to create.
+	 */
+	public void writeJSONFile(String fileName){
+		String nl = System.getProperty("line.separator");
+		StringBuilder sb = new StringBuilder();
+		synchronized(this){
+			sb.append("{" + nl);
+			sb.append("  \"currentNet\": " + (currNet == null ? "null" : quote(currNet.getName())) + "," + nl);
+			sb.append("  \"netsRouted\": " + nets.size() + "," + nl);
+			sb.append("  \"connectionsRouted\": " + connections + "," + nl);
+			sb.append("  \"failedConnections\": " + failedConnections + "," + nl);
+			sb.append("  \"nodesProcessed\": " + nodesProcessed + "," + nl);
+			sb.append("  \"pips\": " + pips + "," + nl);
+			sb.append("  \"retries\": " + retries + "," + nl);
+			sb.append("  \"peakQueueSize\": " + peakQueueSize + "," + nl);
+			sb.append("  \"elapsedSeconds\": " + getElapsedSeconds() + "," + nl);
+			sb.append("  \"nodesProcessedHistogram\": " + toJSON(nodesHistogram) + "," + nl);
+			sb.append("  \"connectionMicrosecondsHistogram\": " + toJSON(timeHistogram) + "," + nl);
+			sb.append("  \"wireTypeUsage\": {");
+			boolean first = true;
+			for(WireType type : WireType.values()){
+				if(wireTypeUsage[type.ordinal()] == 0) continue;
+				sb.append((first ? "" : ", ") + quote(type.toString()) + ": " + wireTypeUsage[type.ordinal()]);
+				first = false;
+			}
+			sb.append("}," + nl);
+			sb.append("  \"slowestNets\": " + toJSON(getWorstNets(SLOWEST_FIRST, WORST_NET_COUNT), nl) + "," + nl);
+			sb.append("  \"largestNets\": " + toJSON(getWorstNets(LARGEST_FIRST, WORST_NET_COUNT), nl) + nl);
+			sb.append("}" + nl);
+		}
+		writeFile(fileName, sb.toString());
+	}
+	
+	/**
+	 * Writes the statistics to a file, files ending in ".csv" get the 
+	 * statistics of each net (see writeCSVFile()), other files get the JSON 
+	 * summary (see writeJSONFile()).
+	 * @param fileName Name of the file to create.
+	 */
+	public void writeFile(String fileName){
+		if(fileName.endsWith(".csv")){
+			writeCSVFile(fileName);
+		}
+		else{
+			writeJSONFile(fileName);
+		}
+	}
+	
+	/**
+	 * Writes a snapshot of the statistics to a temporary file and renames it
+	 * to fileName, so readers of the file never see a partial write.  This 
+	 * is done without holding the lock of the statistics.
+	 */
+	private static void writeFile(String fileName, String contents){
+		File file = new File(fileName).getAbsoluteFile();
+		File tmp = null;
+		try{
+			tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			BufferedWriter bw = new BufferedWriter(new FileWriter(tmp));
+			try{
+				bw.write(contents);
+			}
+			finally{
+				bw.close();
+			}
+			if(!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))){
+				throw new IOException("could not rename " + tmp);
+			}
+		}
+		catch(IOException e){
+			if(tmp != null) tmp.delete();
+			MessageGenerator.briefError("Error writing router statistics to " + fileName + ": " + e.getMessage());
+		}
+	}
+	
+	private static String quote(String s){
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+	
+	private static String toJSON(long[] values){
+		StringBuilder sb = new StringBuilder("[");
+		for(int i = 0; i < values.length; i++){
+			sb.append((i == 0 ? "" : ", ") + values[i]);
+		}
+		return sb.append("]").toString();
+	}
+	
+	private static String toJSON(ArrayList<NetStatistics> netList, String nl){
+		StringBuilder sb = new StringBuilder("[");
+		for(int i = 0; i < netList.size(); i++){
+			NetStatistics n = netList.get(i);
+			sb.append(i == 0 ? nl : "," + nl);
+			sb.append("    {\"net\": " + quote(n.name) + ", \"connections\": " + n.connections + 
+				", \"failedConnections\": " + n.failedConnections + ", \"nodesProcessed\": " + n.nodesProcessed + 
+				", \"peakQueueSize\": " + n.peakQueueSize + ", \"nanoseconds\": " + n.nanoseconds + 
+				", \"pips\": " + n.pips + ", \"retries\": " + n.retries + "}");
+		}
+		return sb.append(netList.isEmpty() ? "]" : nl + "  ]").toString();
+	}
+	
+	/**
+	 * Writes the statistics to a file every period until stopPeriodicDump() 
+	 * is called (see writeFile()).  Each dump only holds the lock of the
+	 * statistics while it takes a snapshot, the router is not blocked while
+	 * the file is written.
+	 * @param fileName Name of the file to write.
+	 * @param periodMillis Time between writes in milliseconds.
+	 */
+	public void startPeriodicDump(final String fileName, long periodMillis){
+		synchronized(dumpLock){
+			stopPeriodicDump();
+			dumpExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+				public Thread newThread(Runnable r){
+					Thread t = new Thread(r, "RouterStatistics dump");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			dumpExecutor.scheduleAtFixedRate(new Runnable(){
+				public void run(){
+					writeFile(fileName);
+				}
+			}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Stops the periodic dump started by startPeriodicDump() and waits for 
+	 * a dump which is already running, so a final write of the same file
+	 * made after this call is not overwritten.  It must not be called while
+	 * holding the lock of these statistics.
+	 */
+	public void stopPeriodicDump(){
+		synchronized(dumpLock){
+			if(dumpExecutor == null) return;
+			dumpExecutor.shutdown();
+			try{
+				while(!dumpExecutor.awaitTermination(1, TimeUnit.SECONDS));
+			}
+			catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			dumpExecutor = null;
+		}
+	}
+	
+	//========================================================================//
+	// JMX
+	//========================================================================//
+	/**
+	 * Registers these statistics with the platform MBean server under the
+	 * name edu.byu.ece.rapidSmith.router:type=RouterStatistics,name=<name>.
+	 * @param name Name identifying the routing job.
+	 * @return True if the statistics were registered, false otherwise.
+	 */
+	public synchronized boolean register(String name){
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("edu.byu.ece.rapidSmith.router:type=RouterStatistics,name=" + ObjectName.quote(name));
+			server.registerMBean(this, objectName);
+		}
+		catch(JMException e){
+			MessageGenerator.briefError("Could not register the router statistics: " + e.getMessage());
+			objectName = null;
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Removes these statistics from the platform MBean server.
+	 */
+	public synchronized void unregister(){
+		if(objectName == null) return;
+		try{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		}
+		catch(JMException e){
+			MessageGenerator.briefError("Could not unregister the router statistics: " + e.getMessage());
+		}
+		objectName = null;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.router;
+
+/**
+ * The management interface of RouterStatistics, used to watch a routing
+ * job through JMX (such as with jconsole).
+ * 
+ * Created on: Oct 19, 2026
+ */
+public interface RouterStatisticsMBean {
+	
+	public String getCurrentNet();
+	
+	public int getNetsRouted();
+	
+	public long getConnectionsRouted();
+	
+	public long getFailedConnections();
+	
+	public long getNodesProcessed();
+	
+	public long getPIPs();
+	
+	public long getRetries();
+	
+	public int getPeakQueueSize();
+	
+	public double getElapsedSeconds();
+	
+	public double getNodesProcessedPerSecond();
+	
+	public long[] getNodesProcessedHistogram();
+	
+	public String[] getWireTypeUsage();
+	
+	public String[] getSlowestNets();
+	
+	public String[] getLargestNets();
+	
+	public void writeCSVFile(String fileName);
+	
+	public void writeJSONFile(String fileName);
+	
+	public void reset();
+}
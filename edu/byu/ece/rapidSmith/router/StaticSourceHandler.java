@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import edu.byu.ece.rapidSmith.design.Attribute;
 import edu.byu.ece.rapidSmith.design.Instance;
@@ -79,6 +81,12 @@ public class StaticSourceHandler{
 	private Pin currStaticSourcePin = null;
 	
 	private HashMap<Node, Pin> reservedGNDVCCResources;
+	/** The static source tables of the current wire enumerator */
+	private SwitchMatrixTables tables;
+	/** The TIEOFF instance used as a static source in each switch matrix tile */
+	private HashMap<Tile, Instance> tieoffs;
+	/** The static source tables of each wire enumerator still in use (released with the enumerator) */
+	private static WeakHashMap<WireEnumerator, SwitchMatrixTables> tablesMap = new WeakHashMap<WireEnumerator, SwitchMatrixTables>();
 	
 	// Attributes used in creating TIEOFFs
 	private Attribute noUserLogicAttr;
@@ -101,6 +109,8 @@ public class StaticSourceHandler{
 		finalStaticNets = new ArrayList<Net>();
 		tempNode = new Node();
 		reservedGNDVCCResources = new HashMap<Node, Pin>();
+		tieoffs = new HashMap<Tile, Instance>();
+		tables = getSwitchMatrixTables(we);
 		if(dev.getFamilyType().equals(FamilyType.VIRTEX5)){
 			slicePin = "B";
 		}
@@ -123,6 +133,90 @@ public class StaticSourceHandler{
 		}
 	}
 	
+	/**
+	 * The static source decisions of the switch matrix sinks, indexed by wire 
+	 * enumeration so no wire names are created or compared per pin.
+	 */
+	private static class SwitchMatrixTables {
+		/** The FAN wires (Virtex 5) that can drive each sink wire, null if none */
+		int[][] fanBounceWires;
+		/** The BOUNCE wire (Virtex 4) of each sink wire, -1 if none */
+		int[] v4BounceWires;
+		/** True for the CE and SR sinks (Virtex 4) */
+		boolean[] v4ControlSinks;
+		/** The critical resource of each sink wire (see getCriticalResource()), -1 if none */
+		int[] criticalResources;
+		/** The wire named without "_B" (BYP_B0 -> BYP0) of each sink wire, the sink wire itself if its name has no "_B" */
+		int[] unbufferedWires;
+		/** True for the BYP_B sinks */
+		boolean[] bypassSinks;
+		int fan0, fan7, fanB0, fanB7, ctrl1, ctrl2;
+		int[] bounces;
+		
+		SwitchMatrixTables(WireEnumerator we){
+			String[] names = we.getWires();
+			fanBounceWires = new int[names.length][];
+			v4BounceWires = new int[names.length];
+			v4ControlSinks = new boolean[names.length];
+			criticalResources = new int[names.length];
+			unbufferedWires = new int[names.length];
+			bypassSinks = new boolean[names.length];
+			for(int i = 0; i < names.length; i++){
+				String name = names[i];
+				String[] fans = fanBounceMap.get(name);
+				if(fans != null){
+					fanBounceWires[i] = new int[fans.length];
+					for(int j = 0; j < fans.length; j++){
+						fanBounceWires[i][j] = we.getWireEnum(fans[j]);
+					}
+				}
+				String bounce = v4BounceMap.get(name);
+				v4BounceWires[i] = bounce == null ? -1 : we.getWireEnum(bounce);
+				v4ControlSinks[i] = name.startsWith("CE") || name.startsWith("SR");
+				unbufferedWires[i] = name.contains("_B") ? we.getWireEnum(name.replace("_B", "")) : i;
+				bypassSinks[i] = name.startsWith("BYP_B");
+				
+				if(name.startsWith("BYP_INT_B")) // VIRTEX4
+					criticalResources[i] = i;
+				else if(name.startsWith("BYP_B")) // VIRTEX5
+					criticalResources[i] = we.getWireEnum("BYP" + name.charAt(name.length()-1));
+				else if(name.startsWith("CTRL_B")) // VIRTEX5
+					criticalResources[i] = we.getWireEnum("CTRL" + name.charAt(name.length()-1));
+				else if(name.startsWith("FAN_B")) // VIRTEX5
+					criticalResources[i] = we.getWireEnum("FAN" + name.charAt(name.length()-1));
+				else
+					criticalResources[i] = -1;
+			}
+			fan0 = we.getWireEnum("FAN0");
+			fan7 = we.getWireEnum("FAN7");
+			fanB0 = we.getWireEnum("FAN_B0");
+			fanB7 = we.getWireEnum("FAN_B7");
+			ctrl1 = we.getWireEnum("CTRL1");
+			ctrl2 = we.getWireEnum("CTRL2");
+			bounces = new int[4];
+			for(int i = 0; i < bounces.length; i++){
+				bounces[i] = we.getWireEnum("BOUNCE" + i);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the static source tables of a wire enumerator, creating them the
+	 * first time they are needed for its family.
+	 * @param we The wire enumerator.
+	 * @return The tables of the wire enumerator.
+	 */
+	private static SwitchMatrixTables getSwitchMatrixTables(WireEnumerator we){
+		synchronized(tablesMap){
+			SwitchMatrixTables t = tablesMap.get(we);
+			if(t == null){
+				t = new SwitchMatrixTables(we);
+				tablesMap.put(we, t);
+			}
+			return t;
+		}
+	}
+	
 	/**
 	 * Reserves a node for a ground or vcc inpin that has
 	 * not been assigned a final net yet.
@@ -185,7 +279,7 @@ public class StaticSourceHandler{
 			}
 		}
 		
-		Node curr = new Node(source.getTile(), dev.getPrimitiveExternalPin(source), null, 0);
+		Node curr = new Node(source.getTile(), dev.getPrimitiveExternalPinWire(source), null, 0);
 		while(!we.getWireDirection(curr.getWire()).equals(WireDirection.CLK) && !we.getWireType(curr.getWire()).equals(WireType.INT_SOURCE)){
 			WireConnection[] wires = curr.getConnections();
 			if(wires == null) return null;
@@ -221,16 +315,7 @@ public class StaticSourceHandler{
 	 * the given wire) or -1 if the resource is not critical.
 	 */
 	private int getCriticalResource(int wire){
-		String name = we.getWireName(wire); 
-		if(name.startsWith("BYP_INT_B")) // VIRTEX4
-			return wire;
-		else if(name.startsWith("BYP_B")) // VIRTEX5
-			return we.getWireEnum("BYP" + name.charAt(name.length()-1));
-		else if(name.startsWith("CTRL_B")) // VIRTEX5
-			return we.getWireEnum("CTRL" + name.charAt(name.length()-1));
-		else if(name.startsWith("FAN_B")) // VIRTEX5
-			return we.getWireEnum("FAN" + name.charAt(name.length()-1));
-		return -1;
+		return wire < 0 ? -1 : tables.criticalResources[wire];
 	}
 	
 	private void unRouteNetForCriticalNode(Node n){
@@ -246,6 +331,7 @@ public class StaticSourceHandler{
 				router.setWireAsUnused(p.getTile(), p.getEndWire(), net);
 				router.markIntermediateNodesAsUnused(p, net);
 			}
+			if(router.wireUsage != null) router.wireUsage.removeNet(net);
 			net.unroute();
 			MessageGenerator.briefError("Unrouting Net: " + net.getName());
 			MessageGenerator.briefError("  For Critical Resource: " + n.toString(we));
@@ -275,7 +361,7 @@ public class StaticSourceHandler{
 		
 		for(Pin p : net.getPins()){
 			if(p.isOutPin()) continue; // Skip outpins
-			int extPin = dev.getPrimitiveExternalPin(p);
+			int extPin = dev.getPrimitiveExternalPinWire(p);
 			tempNode.setTileAndWire(p.getInstance().getTile(), extPin);
 			Node reserved = tempNode.getSwitchBoxSink(dev);
 			if(reserved.wire == -1) continue;
@@ -421,10 +507,10 @@ public class StaticSourceHandler{
 	
 	private HashMap<Tile, PinSorter> sortPinsVirtex4(ArrayList<Net> staticSourcedNets){
 		HashMap<Tile, PinSorter> pinSwitchMatrixMap = new HashMap<Tile, PinSorter>();
-		Node bounce0 = new Node(); bounce0.wire = we.getWireEnum("BOUNCE0");
-		Node bounce1 = new Node(); bounce1.wire = we.getWireEnum("BOUNCE1");
-		Node bounce2 = new Node(); bounce2.wire = we.getWireEnum("BOUNCE2");
-		Node bounce3 = new Node(); bounce3.wire = we.getWireEnum("BOUNCE3");
+		Node bounce0 = new Node(); bounce0.wire = tables.bounces[0];
+		Node bounce1 = new Node(); bounce1.wire = tables.bounces[1];
+		Node bounce2 = new Node(); bounce2.wire = tables.bounces[2];
+		Node bounce3 = new Node(); bounce3.wire = tables.bounces[3];
 		
 		for(Net net : staticSourcedNets){
 			for(Pin pin : net.getPins()){
@@ -436,15 +522,14 @@ public class StaticSourceHandler{
 					pinSwitchMatrixMap.put(switchMatrixSink.tile, tmp);
 				}
 				
-				String wireName = we.getWireName(switchMatrixSink.wire);
-				String bounce = v4BounceMap.get(wireName);
-				if(bounce != null && net.getType().equals(NetType.GND) && 
-				   router.isNodeUsed(switchMatrixSink.tile, we.getWireEnum(bounce))){
+				int bounce = tables.v4BounceWires[switchMatrixSink.wire];
+				if(bounce != -1 && net.getType().equals(NetType.GND) && 
+				   router.isNodeUsed(switchMatrixSink.tile, bounce)){
 					bounce0.setTile(switchMatrixSink.tile);
 					bounce1.setTile(switchMatrixSink.tile);
 					bounce2.setTile(switchMatrixSink.tile);
 					bounce3.setTile(switchMatrixSink.tile);
-					if(wireName.startsWith("CE") || wireName.startsWith("SR")){
+					if(tables.v4ControlSinks[switchMatrixSink.wire]){
 						
 						if(router.isNodeUsed(bounce0) && router.isNodeUsed(bounce1) &&
 						   router.isNodeUsed(bounce2) && router.isNodeUsed(bounce3)){
@@ -525,7 +610,9 @@ public class StaticSourceHandler{
 	
 	/**
 	 * This method will separate out static sourced nets, partitioning them into localized
-	 * nets
+	 * nets.  All the static sinks are sorted by switch matrix in one pass (step 2), but
+	 * the TIEOFF sources are still assigned one sink at a time, as the resources each
+	 * sink can reserve depend on those reserved by the sinks handled before it.
 	 */
 	public void separateStaticSourceNets(){
 		ArrayList<Net> netList = router.netList;
@@ -635,13 +722,13 @@ public class StaticSourceHandler{
 			// Virtex 5 has some special pins that we should reserve
 			if(dev.getFamilyType().equals(FamilyType.VIRTEX5)){
 				for(StaticSink ss : ps.useTIEOFF){
-					String ssWireName = we.getWireName(ss.switchMatrixSink.wire);
-					String[] fans = fanBounceMap.get(ssWireName);
+					int ssWire = ss.switchMatrixSink.wire;
+					int[] fans = tables.fanBounceWires[ssWire];
 					Node newNode = null;
 
-					for(String fan : fans){
+					for(int fan : fans){
 						tempNode.setTile(tile);
-						tempNode.setWire(we.getWireEnum(fan));
+						tempNode.setWire(fan);
 						
 						/*if(ssWireName.startsWith("CLK_") && router.usedNodes.contains(tempNode)){
 							LinkedList<Net> net = router.usedNodesMap.get(tempNode);
@@ -652,32 +739,30 @@ public class StaticSourceHandler{
 						}*/
 						
 						boolean ableToReserveResource = (!router.usedNodes.contains(tempNode)) || 
-												(reservedGNDVCCResources.get(tempNode) != null && 
-												reservedGNDVCCResources.get(tempNode).equals(ss.pin)); 
+												ss.pin.equals(reservedGNDVCCResources.get(tempNode)); 
 
 						// Add this to reserved
 						if(ableToReserveResource){
-							newNode = new Node(tile, we.getWireEnum(fan), null, 0);
-							String wireName = we.getWireName(newNode.wire);				
+							newNode = new Node(tile, fan, null, 0);
 							
-							if(wireName.equals("FAN0") && !we.getWireName(ss.switchMatrixSink.wire).equals("FAN_B0")){
+							if(fan == tables.fan0 && ssWire != tables.fanB0){
 								ss.switchMatrixSink.tile = getNeighboringSwitchBox(1, ss.switchMatrixSink.tile);
 								newNode.tile = ss.switchMatrixSink.tile;
 								
 								// Special case when neighboring resources are used (hard macros)
 								tempNode.tile = ss.switchMatrixSink.tile;
-								tempNode.wire = we.getWireEnum("FAN0");
+								tempNode.wire = tables.fan0;
 								if(tempNode.tile == null || router.usedNodes.contains(tempNode)){
 									newNode = null;
 								}
 							}
-							else if(wireName.equals("FAN7") && !we.getWireName(ss.switchMatrixSink.wire).equals("FAN_B7")){
+							else if(fan == tables.fan7 && ssWire != tables.fanB7){
 								ss.switchMatrixSink.tile = getNeighboringSwitchBox(-1, ss.switchMatrixSink.tile);
 								newNode.tile = ss.switchMatrixSink.tile;
 								
 								// Special case when neighboring resources are used (hard macros)
 								tempNode.tile = ss.switchMatrixSink.tile;
-								tempNode.wire = we.getWireEnum("FAN7");
+								tempNode.wire = tables.fan7;
 								if(tempNode.tile == null || router.usedNodes.contains(tempNode)){
 									newNode = null;
 								}
@@ -688,7 +773,7 @@ public class StaticSourceHandler{
 									newNode = null;									
 								}
 								else if(ss.pin.getName().equals("SSRBU")){
-									Node n = new Node(ss.switchMatrixSink.tile, we.getWireEnum(we.getWireName(ss.switchMatrixSink.wire).replace("_B", "")),null, 0);
+									Node n = new Node(ss.switchMatrixSink.tile, tables.unbufferedWires[ssWire], null, 0);
 									if(!addReservedGNDVCCNode(n, ss.pin)){
 										MessageGenerator.briefError("ERROR: Possible problem routing pin: " + ss.pin.toString());
 									}
@@ -709,10 +794,10 @@ public class StaticSourceHandler{
 				removeThese = new ArrayList<StaticSink>();
 				for(StaticSink ss : ps.attemptTIEOFF){
 					if(ss.pin.getNet().getType().equals(NetType.GND)){
-						String[] fans = fanBounceMap.get(we.getWireName(ss.switchMatrixSink.wire));
+						int[] fans = tables.fanBounceWires[ss.switchMatrixSink.wire];
 						boolean useSLICE = true;
-						for(String fan : fans){
-							tempNode.setWire(we.getWireEnum(fan));
+						for(int fan : fans){
+							tempNode.setWire(fan);
 							// Add this to reserved
 							if(!router.usedNodes.contains(tempNode)){
 								useSLICE = false;
@@ -735,16 +820,16 @@ public class StaticSourceHandler{
 			ssLoop : for(StaticSink ss : ps.useTIEOFF){
 				Instance inst = updateTIEOFF(ss.switchMatrixSink.tile, ss.pin.getNet(), true);
 				if(dev.getFamilyType().equals(FamilyType.VIRTEX5)){				
-					String[] fanWireNames = null;
-					if((fanWireNames = fanBounceMap.get(we.getWireName(ss.switchMatrixSink.wire))) != null){
-						Node nn = new Node(inst.getTile(), we.getWireEnum(fanWireNames[0]), null, 0);
-						for(String fanWireName : fanWireNames){
-							nn.setWire(we.getWireEnum(fanWireName));
+					int[] fanWires = tables.fanBounceWires[ss.switchMatrixSink.wire];
+					if(fanWires != null){
+						Node nn = new Node(inst.getTile(), fanWires[0], null, 0);
+						for(int i = 0; i < fanWires.length; i++){
+							nn.setWire(fanWires[i]);
 							boolean reservedWire = addReservedGNDVCCNode(nn, ss.pin);
 							if(reservedWire){
 								break;
 							}
-							if(!reservedWire && fanWireName.equals(fanWireNames[fanWireNames.length-1])){
+							if(!reservedWire && i == fanWires.length-1){
 								ps.useSLICE.add(ss);
 								continue ssLoop;
 							}
@@ -778,8 +863,8 @@ public class StaticSourceHandler{
 				if(dev.getFamilyType().equals(FamilyType.VIRTEX5)){
 					int switchBoxSink = ss.switchMatrixSink.wire;			
 					
-					if(we.getWireName(ss.switchMatrixSink.getWire()).startsWith("BYP_B")){
-						Node nn = new Node(inst.getTile(), we.getWireEnum(we.getWireName(switchBoxSink).replace("_B","")), null, 0);
+					if(tables.bypassSinks[switchBoxSink]){
+						Node nn = new Node(inst.getTile(), tables.unbufferedWires[switchBoxSink], null, 0);
 						if(!addReservedGNDVCCNode(nn, ss.pin)){
 							// we need to use a SLICE 
 							ps.useSLICE.add(ss);
@@ -787,14 +872,14 @@ public class StaticSourceHandler{
 						}
 					}
 					else if(switchBoxSink == v5ctrlWires[0] || switchBoxSink == v5ctrlWires[1] || switchBoxSink == v5ctrlWires[2] || switchBoxSink == v5ctrlWires[3]){
-						Node nn = new Node(inst.getTile(), we.getWireEnum(we.getWireName(switchBoxSink).replace("_B","")), null, 0);
+						Node nn = new Node(inst.getTile(), tables.unbufferedWires[switchBoxSink], null, 0);
 						if(!addReservedGNDVCCNode(nn, ss.pin)){
 							// we need to use a SLICE 
 							ps.useSLICE.add(ss);
 							continue;
 						}
 					}else if(ss.pin.getInstance().getPrimitiveSite().getType().equals(PrimitiveType.DSP48E) && ss.pin.getName().contains("CEP")){
-						Node nn = new Node(inst.getTile(), we.getWireEnum("CTRL1"), null, 0);
+						Node nn = new Node(inst.getTile(), tables.ctrl1, null, 0);
 						if(!addReservedGNDVCCNode(nn, ss.pin)){
 							// we need to use a SLICE 
 							ps.useSLICE.add(ss);
@@ -802,7 +887,7 @@ public class StaticSourceHandler{
 						}
 					}
 					else if(ss.pin.getName().contains("ENBL")){
-						Node nn = new Node(inst.getTile(), we.getWireEnum("CTRL2"), null, 0);
+						Node nn = new Node(inst.getTile(), tables.ctrl2, null, 0);
 						if(!addReservedGNDVCCNode(nn, ss.pin)){
 							// we need to use a SLICE 
 							ps.useSLICE.add(ss);
@@ -889,9 +974,8 @@ public class StaticSourceHandler{
 		// Step 4: Finalize node reservations and re-order and assemble nets 
 		//         for router
 		//===================================================================//
-		for(Node n : reservedGNDVCCResources.keySet()){
-			Pin pinToReserve = reservedGNDVCCResources.get(n);
-			addReservedNode(n, pinToReserve.getNet());
+		for(Map.Entry<Node, Pin> e : reservedGNDVCCResources.entrySet()){
+			addReservedNode(e.getKey(), e.getValue().getNet());
 		}	
 		
 		finalStaticNets = orderGNDNetsFirst(finalStaticNets);
@@ -1061,9 +1145,15 @@ public class StaticSourceHandler{
 	 * @return The created/updated TIEOFF.
 	 */
 	private Instance updateTIEOFF(Tile tile, Net net, boolean needHard1){
-		String tileSuffix = tile.getTileNameSuffix();
-		String instName = "XDL_DUMMY_INT" + tileSuffix + "_TIEOFF" + tileSuffix;
-		Instance currInst = router.design.getInstance(instName);
+		Instance currInst = tieoffs.get(tile);
+		String tileSuffix = null;
+		String instName = null;
+		if(currInst == null){
+			tileSuffix = tile.getTileNameSuffix();
+			instName = "XDL_DUMMY_INT" + tileSuffix + "_TIEOFF" + tileSuffix;
+			currInst = router.design.getInstance(instName);
+			if(currInst != null) tieoffs.put(tile, currInst);
+		}
 		Attribute vccAttr = needHard1 ? hard1Attr : keep1Attr;
 		// Add the appropriate attribute if instance already exists
 		if(currInst != null){
@@ -1094,6 +1184,7 @@ public class StaticSourceHandler{
 				currInst.addAttribute(keep0Attr);
 			}
 			router.design.addInstance(currInst);
+			tieoffs.put(tile, currInst);
 		}
 
 		return currInst;
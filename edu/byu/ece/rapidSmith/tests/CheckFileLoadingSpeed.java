@@ -18,6 +18,7 @@
  */
 package edu.byu.ece.rapidSmith.tests;
 
+import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.util.FileTools;
 import edu.byu.ece.rapidSmith.util.MessageGenerator;
 
@@ -25,11 +26,23 @@ public class CheckFileLoadingSpeed {
 
 	
 	public static void main(String[] args) {
-		if(args.length > 2 || args.length == 0){
+		if(args.length > 3 || args.length == 0){
 			MessageGenerator.briefMessageAndExit(
-				"USAGE: [-c | --compressed] <serializedFileName>");
+				"USAGE: [-c | --compressed] <serializedFileName>\n" +
+				"       -d <deviceFileName> [maxThreads]");
 		}
-		if(args[0].contains("-c")){
+		if(args[0].equals("-d")){
+			// Load the device file with 1 to maxThreads decoding threads
+			int maxThreads = args.length == 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			for(int threads = 1; threads <= maxThreads; threads++){
+				long start = System.currentTimeMillis();
+				boolean loaded = new Device().readDeviceFromCompactFile(args[1], threads);
+				long stop = System.currentTimeMillis();
+				System.out.println((loaded ? "Loaded" : "Failed to load") + " device file " + args[1] +
+						" with " + threads + " thread(s) in " + (stop-start) + " ms");
+			}
+		}
+		else if(args[0].contains("-c")){
 			long start = System.currentTimeMillis();
 			Object o = FileTools.loadFromCompressedFile(args[1]);
 			long stop = System.currentTimeMillis();
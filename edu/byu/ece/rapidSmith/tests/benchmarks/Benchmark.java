@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.tests.benchmarks;
+
+/**
+ * A benchmark of one RapidSmith operation run by the BenchmarkRunner.  Only
+ * the run() method is timed.  The object returned by run() is consumed by the
+ * runner so that the JIT cannot remove the work being measured.
+ * 
+ * Created on: Oct 19, 2026
+ */
+public abstract class Benchmark {
+	/** Name of the benchmark as it appears in the results */
+	private String name;
+	
+	/**
+	 * Creates a new benchmark.
+	 * @param name Name of the benchmark as it appears in the results.
+	 */
+	public Benchmark(String name){
+		this.name = name;
+	}
+	
+	/**
+	 * Gets the name of this benchmark.
+	 * @return The name of this benchmark.
+	 */
+	public String getName(){
+		return name;
+	}
+	
+	/**
+	 * Called once before the warmup iterations (not timed).
+	 */
+	public void setUp() throws Exception{
+		
+	}
+	
+	/**
+	 * Called before each warmup and measurement iteration (not timed).
+	 */
+	public void setUpIteration() throws Exception{
+		
+	}
+	
+	/**
+	 * Runs the operation being measured once.
+	 * @return A result of the operation, consumed by the runner.
+	 */
+	public abstract Object run() throws Exception;
+	
+	/**
+	 * Called once after the measurement iterations (not timed).
+	 */
+	public void tearDown() throws Exception{
+		
+	}
+	
+	/**
+	 * Gets the number of operations performed by each call to run() (such as
+	 * the number of lookups), used to report the time per operation.
+	 * @return The number of operations of each run, 1 by default.
+	 */
+	public long getOperationsPerRun(){
+		return 1;
+	}
+}
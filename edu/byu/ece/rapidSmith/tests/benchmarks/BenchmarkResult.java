@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.tests.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * The measured times of one benchmark.
+ * 
+ * Created on: Oct 19, 2026
+ */
+public class BenchmarkResult {
+	/** Column names of the CSV lines created by toCSV() */
+	public static final String CSV_HEADER = "benchmark,iterations,operations,mean_ns,stddev_ns,min_ns,median_ns,max_ns,ns_per_op";
+	
+	/** Name of the benchmark */
+	private String name;
+	/** Time of each measurement iteration in nanoseconds, sorted */
+	private long[] samples;
+	/** Number of operations of each iteration */
+	private long operations;
+	
+	/**
+	 * Creates a new result.
+	 * @param name Name of the benchmark.
+	 * @param samples Time of each measurement iteration in nanoseconds.
+	 * @param operations Number of operations of each iteration.
+	 */
+	public BenchmarkResult(String name, long[] samples, long operations){
+		this.name = name;
+		this.samples = Arrays.copyOf(samples, samples.length);
+		Arrays.sort(this.samples);
+		this.operations = operations;
+	}
+	
+	public String getName(){
+		return name;
+	}
+	
+	public int getIterations(){
+		return samples.length;
+	}
+	
+	public long getOperations(){
+		return operations;
+	}
+	
+	public double getMean(){
+		double sum = 0;
+		for(long s : samples){
+			sum += s;
+		}
+		return samples.length == 0 ? 0 : sum / samples.length;
+	}
+	
+	/**
+	 * Gets the sample standard deviation of the iteration times.
+	 * @return The standard deviation in nanoseconds.
+	 */
+	public double getStandardDeviation(){
+		if(samples.length < 2) return 0;
+		double mean = getMean();
+		double sum = 0;
+		for(long s : samples){
+			sum += (s - mean) * (s - mean);
+		}
+		return Math.sqrt(sum / (samples.length - 1));
+	}
+	
+	public long getMin(){
+		return samples.length == 0 ? 0 : samples[0];
+	}
+	
+	public long getMedian(){
+		return samples.length == 0 ? 0 : samples[samples.length / 2];
+	}
+	
+	public long getMax(){
+		return samples.length == 0 ? 0 : samples[samples.length - 1];
+	}
+	
+	/**
+	 * Gets the mean time of one operation.
+	 * @return The mean time of one operation in nanoseconds.
+	 */
+	public double getTimePerOperation(){
+		return getMean() / operations;
+	}
+	
+	/**
+	 * Creates a CSV line of this result with the columns of CSV_HEADER.
+	 * @return The CSV line (without a line separator).
+	 */
+	public String toCSV(){
+		return String.format("%s,%d,%d,%.0f,%.0f,%d,%d,%d,%.3f", name, samples.length, operations, 
+				getMean(), getStandardDeviation(), getMin(), getMedian(), getMax(), getTimePerOperation());
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("%-28s %12.3f ms +/- %9.3f ms (%d iterations, %.1f ns/op)", name, 
+				getMean() / 1000000.0, getStandardDeviation() / 1000000.0, samples.length, getTimePerOperation());
+	}
+}
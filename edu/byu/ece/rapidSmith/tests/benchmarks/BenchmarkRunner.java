@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.tests.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Runs benchmarks with warmup iterations (to let the JIT compile the code
+ * being measured) followed by timed measurement iterations, and writes the 
+ * results as CSV so they can be compared across releases.
+ * 
+ * Created on: Oct 19, 2026
+ */
+public class BenchmarkRunner {
+	/** Number of untimed iterations run before measuring */
+	private int warmupIterations;
+	/** Number of timed iterations */
+	private int measurementIterations;
+	/** Results of the benchmarks run so far */
+	private ArrayList<BenchmarkResult> results;
+	/** Information about the run written at the top of the CSV file */
+	private LinkedHashMap<String,String> properties;
+	/** Consumes the values returned by the benchmarks */
+	private int sink;
+	
+	/**
+	 * Creates a new runner.
+	 * @param warmupIterations Number of untimed iterations run before measuring.
+	 * @param measurementIterations Number of timed iterations.
+	 */
+	public BenchmarkRunner(int warmupIterations, int measurementIterations){
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		results = new ArrayList<BenchmarkResult>();
+		properties = new LinkedHashMap<String,String>();
+		setProperty("java.version", System.getProperty("java.version"));
+		setProperty("java.vm.name", System.getProperty("java.vm.name"));
+		setProperty("os.arch", System.getProperty("os.arch"));
+		setProperty("processors", Integer.toString(Runtime.getRuntime().availableProcessors()));
+		setProperty("max.memory", Long.toString(Runtime.getRuntime().maxMemory()));
+		setProperty("timestamp", Long.toString(System.currentTimeMillis()));
+	}
+	
+	/**
+	 * Sets information about the run (such as the part name) to be written 
+	 * with the results.
+	 * @param key Name of the property.
+	 * @param value Value of the property.
+	 */
+	public void setProperty(String key, String value){
+		properties.put(key, value);
+	}
+	
+	/**
+	 * Runs a benchmark and keeps its result.  A benchmark that throws an 
+	 * exception is reported and has no result.
+	 * @param benchmark The benchmark to run.
+	 * @return The result of the benchmark, or null if it failed.
+	 */
+	public BenchmarkResult run(Benchmark benchmark){
+		long[] samples = new long[measurementIterations];
+		try{
+			benchmark.setUp();
+			for(int i = 0; i < warmupIterations; i++){
+				benchmark.setUpIteration();
+				consume(benchmark.run());
+			}
+			for(int i = 0; i < measurementIterations; i++){
+				benchmark.setUpIteration();
+				System.gc();
+				long start = System.nanoTime();
+				Object result = benchmark.run();
+				samples[i] = System.nanoTime() - start;
+				consume(result);
+			}
+			benchmark.tearDown();
+		}
+		catch(Exception e){
+			System.out.println("Benchmark " + benchmark.getName() + " failed: " + e);
+			return null;
+		}
+		BenchmarkResult result = new BenchmarkResult(benchmark.getName(), samples, benchmark.getOperationsPerRun());
+		results.add(result);
+		return result;
+	}
+	
+	private void consume(Object o){
+		sink += System.identityHashCode(o);
+	}
+	
+	/**
+	 * Gets the results of the benchmarks run so far.
+	 * @return The results in the order the benchmarks were run.
+	 */
+	public ArrayList<BenchmarkResult> getResults(){
+		return results;
+	}
+	
+	/**
+	 * Writes the results to a CSV file.  The properties of the run are 
+	 * written first as comment lines starting with '#'.
+	 * @param fileName Name of the CSV file to create.
+	 */
+	public void writeCSVFile(String fileName) throws IOException{
+		BufferedWriter bw = new BufferedWriter(new FileWriter(fileName));
+		String nl = System.getProperty("line.separator");
+		for(String key : properties.keySet()){
+			bw.write("# " + key + "=" + properties.get(key) + nl);
+		}
+		bw.write(BenchmarkResult.CSV_HEADER + nl);
+		for(BenchmarkResult r : results){
+			bw.write(r.toCSV() + nl);
+		}
+		bw.close();
+	}
+	
+	/**
+	 * Gets a value derived from everything returned by the benchmarks (printing
+	 * it keeps the results of the benchmarks alive).
+	 * @return The value derived from the benchmark results.
+	 */
+	public int getSink(){
+		return sink;
+	}
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.tests.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Bitstream;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.BitstreamHeader;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.BitstreamParser;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.CRC;
+import edu.byu.ece.rapidSmith.bitstreamTools.bitstream.Packet;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FPGA;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.DeviceLookup;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+import edu.byu.ece.rapidSmith.design.Design;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.device.WireConnection;
+import edu.byu.ece.rapidSmith.device.WireEnumerator;
+import edu.byu.ece.rapidSmith.router.BasicRouter;
+import edu.byu.ece.rapidSmith.util.FileTools;
+import edu.byu.ece.rapidSmith.util.MessageGenerator;
+import edu.byu.ece.rapidSmith.util.PartNameTools;
+
+/**
+ * Runs the benchmarks of the RapidSmith hot paths: device loading, wire 
+ * enumerator lookups, tile wire connections, XDL parsing and writing, routing 
+ * and bitstream parsing, generation and CRC.  The designs and bitstreams are 
+ * created by SyntheticDesigns, so only the device files of the part are needed.
+ * 
+ * Created on: Oct 19, 2026
+ */
+public class RapidSmithBenchmarks {
+	
+	/** Temporary files created for the benchmarks */
+	private static ArrayList<File> tempFiles = new ArrayList<File>();
+	
+	private static File createTempFile(String suffix) throws IOException{
+		File f = File.createTempFile("rapidSmithBenchmark", suffix);
+		f.deleteOnExit();
+		tempFiles.add(f);
+		return f;
+	}
+	
+	/**
+	 * The designs and bitstreams shared by the benchmarks.  Each one is only
+	 * created (and routed or written) the first time a benchmark asks for it
+	 * in its setUp(), so running a few benchmarks with -only doesn't build the
+	 * fixtures of the others.
+	 */
+	private static class Fixtures {
+		private String partName;
+		private int instances;
+		private XilinxConfigurationSpecification spec;
+		private File unroutedXDL;
+		private File routedXDL;
+		private FPGA fpga;
+		private BitstreamHeader header;
+		private Bitstream bitstream;
+		private File bitFile;
+		
+		Fixtures(String partName, int instances, XilinxConfigurationSpecification spec){
+			this.partName = partName;
+			this.instances = instances;
+			this.spec = spec;
+		}
+		
+		/**
+		 * Creates the synthetic design, saves it unrouted, then routes it and 
+		 * saves it routed.
+		 */
+		private void createDesignFiles() throws IOException{
+			File unrouted = createTempFile(".xdl");
+			File routed = createTempFile(".xdl");
+			Design design = SyntheticDesigns.createDesign(partName, instances, 4, 1);
+			design.saveXDLFile(unrouted.getAbsolutePath(), true);
+			BasicRouter router = new BasicRouter();
+			router.setDesign(design);
+			router.routeDesign();
+			design.saveXDLFile(routed.getAbsolutePath(), true);
+			unroutedXDL = unrouted;
+			routedXDL = routed;
+		}
+		
+		File getUnroutedXDL() throws IOException{
+			if(unroutedXDL == null) createDesignFiles();
+			return unroutedXDL;
+		}
+		
+		File getRoutedXDL() throws IOException{
+			if(routedXDL == null) createDesignFiles();
+			return routedXDL;
+		}
+		
+		FPGA getFPGA(){
+			if(fpga == null) fpga = SyntheticDesigns.createFPGA(spec, 0.3, 1);
+			return fpga;
+		}
+		
+		BitstreamHeader getHeader(){
+			if(header == null) header = new BitstreamHeader("synthetic.ncd", partName.replaceFirst("^xc", ""));
+			return header;
+		}
+		
+		Bitstream getBitstream(){
+			if(bitstream == null) bitstream = spec.getBitstreamGenerator().createFullBitstream(getFPGA(), getHeader());
+			return bitstream;
+		}
+		
+		File getBitFile() throws IOException{
+			if(bitFile == null){
+				File f = createTempFile(".bit");
+				FileOutputStream fos = new FileOutputStream(f);
+				getBitstream().outputHeaderBitstream(fos);
+				fos.close();
+				bitFile = f;
+			}
+			return bitFile;
+		}
+	}
+	
+	/**
+	 * Creates the benchmarks of a part.  The designs and bitstreams they use
+	 * are created in the setUp() of the first benchmark which needs them.
+	 * @param partName The part to benchmark (such as xc5vlx30tff665).
+	 * @param instances Number of slices of the synthetic design.
+	 * @return The benchmarks.
+	 */
+	public static ArrayList<Benchmark> createBenchmarks(final String partName, final int instances){
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		final XilinxConfigurationSpecification spec = DeviceLookup.lookupPartV4V5V6withPackageName(partName);
+		final Fixtures fixtures = new Fixtures(partName, instances, spec);
+		
+		//=======================================================//
+		/* Device and wire enumerator                            */
+		//=======================================================//
+		benchmarks.add(new Benchmark("device.load"){
+			String fileName = FileTools.getDeviceFileName(PartNameTools.removeSpeedGrade(partName));
+			public Object run(){
+				// FileTools.loadDevice() keeps the loaded device, so read the file directly
+				Device dev = new Device();
+				if(!dev.readDeviceFromCompactFile(fileName)){
+					throw new RuntimeException("Could not load " + fileName);
+				}
+				return dev;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("wireEnumerator.getWireEnum"){
+			WireEnumerator we;
+			String[] names;
+			public void setUp(){
+				we = FileTools.loadWireEnumerator(partName);
+				names = we.getWires();
+			}
+			public Object run(){
+				int sum = 0;
+				for(String name : names){
+					sum += we.getWireEnum(name);
+				}
+				return sum;
+			}
+			public long getOperationsPerRun(){
+				return names.length;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("wireEnumerator.getWireName"){
+			WireEnumerator we;
+			int count;
+			public void setUp(){
+				we = FileTools.loadWireEnumerator(partName);
+				count = we.getWires().length;
+			}
+			public Object run(){
+				int sum = 0;
+				for(int i = 0; i < count; i++){
+					sum += we.getWireName(i).length();
+				}
+				return sum;
+			}
+			public long getOperationsPerRun(){
+				return count;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("tile.getWireConnections"){
+			Tile[] tiles;
+			int[][] wires;
+			long operations;
+			public void setUp(){
+				Device dev = FileTools.loadDevice(partName);
+				ArrayList<Tile> tileList = new ArrayList<Tile>();
+				for(Tile[] tileArray : dev.getTiles()){
+					for(Tile t : tileArray){
+						if(t.getWireHashMap() != null) tileList.add(t);
+					}
+				}
+				tiles = tileList.toArray(new Tile[tileList.size()]);
+				wires = new int[tiles.length][];
+				for(int i = 0; i < tiles.length; i++){
+					wires[i] = new int[tiles[i].getWireHashMap().size()];
+					int j = 0;
+					for(Integer w : tiles[i].getWireHashMap().keySet()){
+						wires[i][j++] = w;
+					}
+					operations += wires[i].length;
+				}
+			}
+			public Object run(){
+				long sum = 0;
+				for(int i = 0; i < tiles.length; i++){
+					for(int w : wires[i]){
+						WireConnection[] wc = tiles[i].getWireConnections(w);
+						if(wc != null) sum += wc.length;
+					}
+				}
+				return sum;
+			}
+			public long getOperationsPerRun(){
+				return operations;
+			}
+		});
+		
+		//=======================================================//
+		/* XDL and routing                                       */
+		//=======================================================//
+		benchmarks.add(new Benchmark("xdl.parse"){
+			File routedXDL;
+			public void setUp() throws IOException{
+				routedXDL = fixtures.getRoutedXDL();
+			}
+			public Object run(){
+				Design d = new Design();
+				d.loadXDLFile(routedXDL.getAbsolutePath());
+				return d;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("xdl.save"){
+			Design d;
+			File savedXDL;
+			public void setUp() throws IOException{
+				d = new Design();
+				d.loadXDLFile(fixtures.getRoutedXDL().getAbsolutePath());
+				savedXDL = createTempFile(".xdl");
+			}
+			public Object run(){
+				d.saveXDLFile(savedXDL.getAbsolutePath(), true);
+				return savedXDL.length();
+			}
+		});
+		
+		benchmarks.add(new Benchmark("router.basic"){
+			Design d;
+			BasicRouter r;
+			File unroutedXDL;
+			public void setUp() throws IOException{
+				unroutedXDL = fixtures.getUnroutedXDL();
+			}
+			public void setUpIteration(){
+				d = new Design();
+				d.loadXDLFile(unroutedXDL.getAbsolutePath());
+				r = new BasicRouter();
+				r.setDesign(d);
+			}
+			public Object run(){
+				return r.routeDesign();
+			}
+		});
+		
+		//=======================================================//
+		/* Bitstreams                                            */
+		//=======================================================//
+		if(spec == null){
+			MessageGenerator.briefError("No bitstream support for " + partName + ", skipping the bitstream benchmarks.");
+			return benchmarks;
+		}
+		
+		benchmarks.add(new Benchmark("bitstream.parse"){
+			File bitFile;
+			public void setUp() throws IOException{
+				bitFile = fixtures.getBitFile();
+			}
+			public Object run() throws Exception{
+				return BitstreamParser.parseBitstream(bitFile);
+			}
+		});
+		
+		benchmarks.add(new Benchmark("bitstream.configure"){
+			Bitstream bitstream;
+			public void setUp(){
+				bitstream = fixtures.getBitstream();
+			}
+			public Object run(){
+				FPGA f = new FPGA(spec);
+				f.configureBitstream(bitstream);
+				return f;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("bitstream.generate"){
+			FPGA fpga;
+			BitstreamHeader header;
+			public void setUp(){
+				fpga = fixtures.getFPGA();
+				header = fixtures.getHeader();
+			}
+			public Object run(){
+				return spec.getBitstreamGenerator().createFullBitstream(fpga, header);
+			}
+		});
+		
+		benchmarks.add(new Benchmark("bitstream.crc"){
+			Bitstream bitstream;
+			public void setUp(){
+				bitstream = fixtures.getBitstream();
+			}
+			public Object run(){
+				CRC crc = new CRC();
+				for(Packet p : bitstream.getPackets()){
+					crc.updateCRC(p);
+				}
+				return crc.getValue();
+			}
+		});
+		
+		return benchmarks;
+	}
+	
+	public static void main(String[] args){
+		String partName = "xc5vlx30tff665";
+		int warmup = 3;
+		int iterations = 10;
+		int instances = 2000;
+		String csvFileName = null;
+		String filter = null;
+		for(int i = 0; i < args.length; i++){
+			if(args[i].equals("-part") && i + 1 < args.length){
+				partName = args[++i];
+			}
+			else if(args[i].equals("-warmup") && i + 1 < args.length){
+				warmup = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-iterations") && i + 1 < args.length){
+				iterations = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-instances") && i + 1 < args.length){
+				instances = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-csv") && i + 1 < args.length){
+				csvFileName = args[++i];
+			}
+			else if(args[i].equals("-only") && i + 1 < args.length){
+				filter = args[++i];
+			}
+			else{
+				System.out.println("USAGE: RapidSmithBenchmarks [-part <partName>] [-warmup <n>] [-iterations <n>]");
+				System.out.println("                            [-instances <n>] [-csv <results.csv>] [-only <name>]");
+				System.out.println("  -part       Part to benchmark (default: xc5vlx30tff665)");
+				System.out.println("  -warmup     Untimed iterations of each benchmark (default: 3)");
+				System.out.println("  -iterations Timed iterations of each benchmark (default: 10)");
+				System.out.println("  -instances  Number of slices of the synthetic design (default: 2000)");
+				System.out.println("  -csv        Write the results to a CSV file");
+				System.out.println("  -only       Only run the benchmarks whose names contain the given text");
+				System.exit(0);
+			}
+		}
+		
+		ArrayList<Benchmark> benchmarks = createBenchmarks(partName, instances);
+		
+		BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations);
+		runner.setProperty("part", partName);
+		runner.setProperty("instances", Integer.toString(instances));
+		ArrayList<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+		for(Benchmark b : benchmarks){
+			if(filter != null && !b.getName().contains(filter)) continue;
+			BenchmarkResult result = runner.run(b);
+			if(result != null) results.add(result);
+		}
+		
+		System.out.println();
+		System.out.println("----------------- RESULTS --------------------");
+		for(BenchmarkResult result : results){
+			System.out.println(result);
+		}
+		System.out.println("----------------------------------------------");
+		System.out.println("Result checksum: " + runner.getSink());
+		
+		if(csvFileName != null){
+			try{
+				runner.writeCSVFile(csvFileName);
+			}
+			catch(IOException e){
+				MessageGenerator.briefErrorAndExit("Error writing " + csvFileName + ": " + e.getMessage());
+			}
+		}
+		for(File f : tempFiles){
+			f.delete();
+		}
+	}
+}
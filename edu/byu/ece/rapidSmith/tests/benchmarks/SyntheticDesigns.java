@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2010-2011 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.tests.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FPGA;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.Frame;
+import edu.byu.ece.rapidSmith.bitstreamTools.configuration.FrameData;
+import edu.byu.ece.rapidSmith.bitstreamTools.configurationSpecification.XilinxConfigurationSpecification;
+import edu.byu.ece.rapidSmith.design.Design;
+import edu.byu.ece.rapidSmith.design.Instance;
+import edu.byu.ece.rapidSmith.design.Net;
+import edu.byu.ece.rapidSmith.design.NetType;
+import edu.byu.ece.rapidSmith.design.Pin;
+import edu.byu.ece.rapidSmith.device.PrimitiveSite;
+import edu.byu.ece.rapidSmith.device.PrimitiveType;
+import edu.byu.ece.rapidSmith.device.Tile;
+
+/**
+ * Creates reproducible designs and configurations for benchmarking so that
+ * no Xilinx tools or user designs are needed (only the RapidSmith device files).
+ * 
+ * Created on: Oct 19, 2026
+ */
+public class SyntheticDesigns {
+	/** The LUT input pins of a slice used as net sinks */
+	private static final String[] sliceInputs = {
+		"A1","A2","A3","A4","A5","A6","B1","B2","B3","B4","B5","B6",
+		"C1","C2","C3","C4","C5","C6","D1","D2","D3","D4","D5","D6"};
+	/** The LUT output pins of a slice used as net sources */
+	private static final String[] sliceOutputs = {"A","B","C","D"};
+	
+	/**
+	 * Creates a placed but unrouted design of slices connected by nets.  Each
+	 * net is driven by a LUT output of one slice and drives LUT inputs of 
+	 * nearby slices.
+	 * @param partName Name of the part (its device must have SLICEL sites).
+	 * @param instances Maximum number of slices in the design.
+	 * @param fanout Number of sinks of each net.
+	 * @param seed Seed of the random choices (the same seed creates the same design).
+	 * @return The new design.
+	 */
+	public static Design createDesign(String partName, int instances, int fanout, long seed){
+		Design design = new Design("synthetic", partName);
+		Random rand = new Random(seed);
+		
+		// Place the slices across the device
+		ArrayList<Instance> slices = new ArrayList<Instance>();
+		int count = 0;
+		for(Tile[] tileArray : design.getDevice().getTiles()){
+			for(Tile t : tileArray){
+				if(t.getPrimitiveSites() == null) continue;
+				for(PrimitiveSite site : t.getPrimitiveSites()){
+					if(site.getType() != PrimitiveType.SLICEL || slices.size() >= instances) continue;
+					// Spread the slices over the device
+					if(count++ % 4 != 0) continue;
+					Instance inst = new Instance("slice_" + slices.size(), PrimitiveType.SLICEL);
+					design.addInstance(inst);
+					inst.place(site);
+					slices.add(inst);
+				}
+			}
+		}
+		
+		// Connect each output to inputs of nearby slices
+		int[] usedInputs = new int[slices.size()];
+		int netCount = 0;
+		for(int i = 0; i < slices.size(); i++){
+			for(String output : sliceOutputs){
+				if(rand.nextInt(sliceOutputs.length) != 0) continue;
+				ArrayList<Integer> sinks = new ArrayList<Integer>();
+				ArrayList<String> sinkPins = new ArrayList<String>();
+				for(int j = 0; j < fanout; j++){
+					int sink = i + rand.nextInt(41) - 20;
+					if(sink < 0 || sink >= slices.size() || usedInputs[sink] == sliceInputs.length) continue;
+					sinks.add(sink);
+					sinkPins.add(sliceInputs[usedInputs[sink]++]);
+				}
+				if(sinks.isEmpty()) continue;
+				Net net = new Net("net_" + netCount++, NetType.WIRE);
+				net.addPin(new Pin(true, output, slices.get(i)));
+				for(int j = 0; j < sinks.size(); j++){
+					net.addPin(new Pin(false, sinkPins.get(j), slices.get(sinks.get(j))));
+				}
+				design.addNet(net);
+			}
+		}
+		return design;
+	}
+	
+	/**
+	 * Creates an FPGA with a configuration of random frame data.
+	 * @param spec The part of the FPGA.
+	 * @param density The fraction of frames with random data (the other frames are all zeros).
+	 * @param seed Seed of the random data (the same seed creates the same configuration).
+	 * @return The configured FPGA.
+	 */
+	public static FPGA createFPGA(XilinxConfigurationSpecification spec, double density, long seed){
+		FPGA fpga = new FPGA(spec);
+		Random rand = new Random(seed);
+		for(Frame frame : fpga.getAllFrames()){
+			FrameData data = new FrameData(spec.getFrameSize());
+			if(rand.nextDouble() < density){
+				for(int i = 0; i < spec.getFrameSize(); i++){
+					data.setData(i, rand.nextInt());
+				}
+			}
+			frame.configure(data);
+		}
+		return fpga;
+	}
+}
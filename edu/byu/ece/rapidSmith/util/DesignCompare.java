@@ -19,21 +19,20 @@
 package edu.byu.ece.rapidSmith.util;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
 
-import edu.byu.ece.rapidSmith.design.Attribute;
 import edu.byu.ece.rapidSmith.design.Design;
-import edu.byu.ece.rapidSmith.design.Instance;
 import edu.byu.ece.rapidSmith.design.Module;
-import edu.byu.ece.rapidSmith.design.Net;
 import edu.byu.ece.rapidSmith.design.Port;
 
 
 /**
  * This class compares two designs to check if they are identical.
- * Its depth is only down to the toString functions for now, which seems
- * to be sufficient.  Implement further if needed.
- * 
- * For now, its functionality is restricted to hard macro xdl designs
+ * Modules, instances and nets are compared by their structural hashes
+ * (see DesignFingerprint), use DesignDiff to find all the differences
+ * between two designs.  As before, the design names, part names and NCD 
+ * versions are not compared.
  * 
  * @author Jaren Lamprecht
  * Created on: July 8, 2010
@@ -53,85 +52,84 @@ public class DesignCompare{
 	 * @return True if the designs match, false otherwise.
 	 */
 	public static boolean compare(Design xdl1, Design xdl2){
-		boolean identical = false;
 		for(Module module1:xdl1.getModules()){
 			//check name
-			identical = false;
-			for(Module module2:xdl2.getModules()){
-				if(module1.getName().compareTo(module2.getName()) == 0){
-					identical = true;
-					//check anchorName
-					if(module1.getAnchor().getName().compareTo(module2.getAnchor().getName()) != 0){
-						status("Anchor name "+module1.getAnchor()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
-						return false;
-					}
-					//check cfgList
-					for(Attribute cfg1:module1.getAttributes()){
-						identical = false;
-						for(Attribute cfg2:module2.getAttributes()){
-							if(cfg1.toString().compareTo(cfg2.toString())==0){
-								identical = true;
-								break;
-							}
-						}
-						if(!identical){
-							status("Module config attribute "+cfg1.toString()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
-							return false;
-						}
-					}
-					//check portList
-					for(Port port1:module1.getPorts()){
-						identical = false;
-						for(Port port2:module2.getPorts()){
-							if(port1.toString().compareTo(port2.toString()) == 0){
-								identical = true;
-								break;
-							}
-						}
-						if(!identical){
-							status("Port "+port1.getName()+" from design " + xdl1.getName() + " was not found or was configured differently in design " + xdl2.getName() + ".");
-							return false;
-						}
-					}
-					//check instList
-					HashMap<String,Instance> instanceMap = xdl2.getInstanceMap();
-					for(Instance inst1:xdl1.getInstances()){
-						if(instanceMap.containsKey(inst1.getName())){
-							Instance inst2 = instanceMap.remove(inst1.getName());
-							if(inst1.toString().compareTo(inst2.toString()) != 0){
-								status("Instance "+inst1.getName()+" from design " + xdl1.getName() + " was configured differently in design " + xdl2.getName() + ".");
-								status(inst1.toString());
-								status(inst2.toString());
-								return false;
-							}
-						}else{
-							status("Instance "+inst1.getName()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
-							return false;
-						}
-					}
-					
-					//check netList
-					HashMap<String,Net> netMap = xdl2.getNetMap();
-					for(Net net1:xdl2.getNets()){
-						if(netMap.containsKey(net1.getName())){
-							Net net2 = netMap.remove(net1.getName());
-							if(net1.toString().compareTo(net2.toString()) != 0){
-								status("Net "+net1.getName()+" from design " + xdl1.getName() + " was configured differently in design " + xdl2.getName() + ".");
-								return false;
-							}
-						}else{
-							status("Net "+net1.getName()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
-							return false;
-						}
-					}					
+			Module module2 = xdl2.getModule(module1.getName());
+			if(module2 == null){
+				status("Module name "+module1.getName()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
+				return false;
+			}
+			//check anchorName
+			if(!module1.getAnchor().getName().equals(module2.getAnchor().getName())){
+				status("Anchor name "+module1.getAnchor()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
+				return false;
+			}
+			//check cfgList
+			if(module1.getAttributes().size() != module2.getAttributes().size() ||
+			   DesignFingerprint.hashAttributes(module1.getAttributes()) != DesignFingerprint.hashAttributes(module2.getAttributes())){
+				status("Module config attributes of "+module1.getName()+" from design " + xdl1.getName() + " do not match in design " + xdl2.getName() + ".");
+				return false;
+			}
+			//check portList
+			HashSet<Long> ports2 = new HashSet<Long>();
+			for(Port port2:module2.getPorts()){
+				ports2.add(DesignFingerprint.hash(port2));
+			}
+			for(Port port1:module1.getPorts()){
+				if(!ports2.contains(DesignFingerprint.hash(port1))){
+					status("Port "+port1.getName()+" from design " + xdl1.getName() + " was not found or was configured differently in design " + xdl2.getName() + ".");
+					return false;
 				}
 			}
-			if(!identical){
-				status("Module name "+module1.getName()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
+		}
+		
+		DesignFingerprint fp1 = new DesignFingerprint(xdl1);
+		DesignFingerprint fp2 = new DesignFingerprint(xdl2);
+		if(fp1.getContentHash() == fp2.getContentHash()){
+			return true;
+		}
+		if(xdl1.isHardMacro() != xdl2.isHardMacro()){
+			status("Design " + xdl1.getName() + " and design " + xdl2.getName() + " are not both hard macros.");
+			return false;
+		}
+		if(xdl1.getAttributes().size() != xdl2.getAttributes().size() ||
+		   DesignFingerprint.hashAttributes(xdl1.getAttributes()) != DesignFingerprint.hashAttributes(xdl2.getAttributes())){
+			status("Design config attributes of design " + xdl1.getName() + " do not match in design " + xdl2.getName() + ".");
+			return false;
+		}
+
+		//check instList
+		HashMap<String,Long> instanceHashes = fp2.getInstanceHashes();
+		for(Entry<String,Long> e : fp1.getInstanceHashes().entrySet()){
+			Long hash2 = instanceHashes.get(e.getKey());
+			if(hash2 == null){
+				status("Instance "+e.getKey()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
+				return false;
+			}
+			if(!hash2.equals(e.getValue())){
+				status("Instance "+e.getKey()+" from design " + xdl1.getName() + " was configured differently in design " + xdl2.getName() + ".");
+				status(xdl1.getInstance(e.getKey()).toString());
+				status(xdl2.getInstance(e.getKey()).toString());
+				return false;
+			}
+		}
+		
+		//check netList
+		HashMap<String,Long> netHashes = fp2.getNetHashes();
+		for(Entry<String,Long> e : fp1.getNetHashes().entrySet()){
+			Long hash2 = netHashes.get(e.getKey());
+			if(hash2 == null){
+				status("Net "+e.getKey()+" from design " + xdl1.getName() + " was not found in design " + xdl2.getName() + ".");
+				return false;
+			}
+			if(!hash2.equals(e.getValue())){
+				status("Net "+e.getKey()+" from design " + xdl1.getName() + " was configured differently in design " + xdl2.getName() + ".");
 				return false;
 			}
 		}
-		return true;	
+		
+		status("Design " + xdl2.getName() + " has objects or properties not found in design " + xdl1.getName() + ".");
+		return false;
 	}
 	
-}
\ No newline at end of file
+}
@@ -18,62 +18,194 @@
  */
 package edu.byu.ece.rapidSmith.util;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map.Entry;
 
 import edu.byu.ece.rapidSmith.design.Attribute;
 import edu.byu.ece.rapidSmith.design.Design;
+import edu.byu.ece.rapidSmith.design.Instance;
+import edu.byu.ece.rapidSmith.design.Module;
+import edu.byu.ece.rapidSmith.design.Net;
+import edu.byu.ece.rapidSmith.design.PIPList;
+import edu.byu.ece.rapidSmith.design.Pin;
+import edu.byu.ece.rapidSmith.design.Port;
+import edu.byu.ece.rapidSmith.device.WireEnumerator;
 
+/**
+ * This class compares two designs and reports their differences.  Both
+ * designs are first fingerprinted (see DesignFingerprint), only instances,
+ * nets and modules whose structural hashes differ are compared in detail.
+ * Each difference found is kept as a Difference and can be written to a
+ * tab separated report file with writeReport().
+ */
 public class DesignDiff{
 
+	/**
+	 * One difference found between two designs.
+	 */
+	public static class Difference{
+		/** The kind of object which differs (design, instance, net or module) */
+		private String kind;
+		/** Name of the object which differs */
+		private String name;
+		/** The property of the object which differs */
+		private String property;
+		/** The value in the first design */
+		private String value1;
+		/** The value in the second design */
+		private String value2;
+
+		public Difference(String kind, String name, String property, String value1, String value2){
+			this.kind = kind;
+			this.name = name;
+			this.property = property;
+			this.value1 = value1;
+			this.value2 = value2;
+		}
+
+		public String getKind(){
+			return kind;
+		}
+
+		public String getName(){
+			return name;
+		}
+
+		public String getProperty(){
+			return property;
+		}
+
+		public String getValue1(){
+			return value1;
+		}
+
+		public String getValue2(){
+			return value2;
+		}
+
+		/**
+		 * Creates a tab separated line of this difference (kind, name, property,
+		 * value in design 1, value in design 2).
+		 */
+		@Override
+		public String toString(){
+			return clean(kind) + "\t" + clean(name) + "\t" + clean(property) + "\t" + clean(value1) + "\t" + clean(value2);
+		}
+
+		private static String clean(String s){
+			if(s == null) return "";
+			return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+		}
+	}
+
 	private boolean identical = true;
-	
+	/** The differences found by the last comparison */
+	private ArrayList<Difference> differences = new ArrayList<Difference>();
+	/** Wire enumerator of the first design, used to print PIPs */
+	private WireEnumerator we;
+
 	public void printDifference(String name, String design1, String design2) {
 		System.out.println(name +" = ");
 		System.out.println("    Design 1: <"+design1+">");
 		System.out.println("    Design 2: <"+design2+">");
 		identical = false;
 	}
-	
+
+	/**
+	 * Records a difference and prints it if verbose.
+	 */
+	private void addDifference(boolean verbose, String kind, String name, String property, String value1, String value2){
+		differences.add(new Difference(kind, name, property, value1, value2));
+		identical = false;
+		if(verbose){
+			printDifference(kind + " " + name + " " + property, value1, value2);
+		}
+	}
+
+	/**
+	 * @return The differences found by the last call to compareDesigns().
+	 */
+	public ArrayList<Difference> getDifferences(){
+		return differences;
+	}
+
+	/**
+	 * Writes the differences found by the last comparison to a tab separated
+	 * file, one difference per line (kind, name, property, value in design 1,
+	 * value in design 2).
+	 * @param fileName Name of the report file to create.
+	 */
+	public void writeReport(String fileName){
+		String nl = System.getProperty("line.separator");
+		try{
+			BufferedWriter bw = new BufferedWriter(new FileWriter(fileName));
+			bw.write("# kind\tname\tproperty\tdesign1\tdesign2" + nl);
+			for(Difference d : differences){
+				bw.write(d.toString() + nl);
+			}
+			bw.close();
+		}
+		catch(IOException e){
+			MessageGenerator.briefErrorAndExit("Error writing file: " +
+				fileName + File.separator + e.getMessage());
+		}
+	}
+
 	public boolean compareAttributes(ArrayList<Attribute> a1, ArrayList<Attribute> a2, String verbose){
+		return compareAttributes(a1, a2, "design", verbose == null ? "" : verbose, verbose != null);
+	}
+
+	/**
+	 * Compares two collections of attributes, the order of the attributes
+	 * does not matter.  Each attribute found in only one of the collections
+	 * is reported as a difference.
+	 * @param a1 Attributes of the object in the first design (may be null).
+	 * @param a2 Attributes of the object in the second design (may be null).
+	 * @param kind The kind of object the attributes belong to.
+	 * @param name The name of the object the attributes belong to.
+	 * @param verbose Prints the differences if true.
+	 * @return True if the attributes are the same, false otherwise.
+	 */
+	public boolean compareAttributes(Collection<Attribute> a1, Collection<Attribute> a2, String kind, String name, boolean verbose){
 		if(a1 == null && a2 == null){
 			return true;
 		}
-		else if(a1 == null){
-			if(verbose != null){
-				printDifference("Attributes in "+verbose+ " don't match", "null", "non-null");
-			}
+		else if(a1 == null || a2 == null){
+			addDifference(verbose, kind, name, "attributes", a1 == null ? "null" : "non-null", a2 == null ? "null" : "non-null");
 			return false;
 		}
-		else if(a2 == null) {
-			if(verbose != null){
-				printDifference("Attributes in "+verbose+ " don't match", "non-null", "null");
-			}
-		}
-		else if(a1.size() == 0 && a2.size() == 0){
+		if(a1.size() == a2.size() && DesignFingerprint.hashAttributes(a1) == DesignFingerprint.hashAttributes(a2)){
 			return true;
 		}
-		else if(a1.size() != a2.size()){
-			if(verbose != null) printDifference("Number of Attributes in " + verbose +
-					"differ", Integer.toString(a1.size()), Integer.toString(a2.size()));
-			return false; 
+		HashMap<String,Integer> counts = new HashMap<String,Integer>();
+		for(Attribute attr : a1){
+			String s = attr.toString();
+			Integer count = counts.get(s);
+			counts.put(s, count == null ? 1 : count + 1);
 		}
-		
-		String[] a1Strings = new String[a1.size()];
-		String[] a2Strings = new String[a2.size()];
-		for(int i = 0; i < a1Strings.length; i++){
-			a1Strings[i] = a1.get(i).toString();
-			a2Strings[i] = a2.get(i).toString();
+		for(Attribute attr : a2){
+			String s = attr.toString();
+			Integer count = counts.get(s);
+			counts.put(s, count == null ? -1 : count - 1);
 		}
-		Arrays.sort(a1Strings);
-		Arrays.sort(a2Strings);
-		for(int i = 0; i < a1Strings.length; i++){
-			if(!a1Strings[i].equals(a2Strings[i])){
-				if(verbose != null) printDifference("Attributes in " + verbose + " differ", a1Strings[i], a2Strings[i]);
-				return false;				
+		boolean same = true;
+		for(Entry<String,Integer> e : counts.entrySet()){
+			for(int i=0; i < e.getValue(); i++){
+				addDifference(verbose, kind, name, "attribute", e.getKey(), "");
+				same = false;
+			}
+			for(int i=0; i > e.getValue(); i--){
+				addDifference(verbose, kind, name, "attribute", "", e.getKey());
+				same = false;
 			}
 		}
-		return true;
+		return same;
 	}
 	
 	
@@ -86,60 +218,272 @@ public class DesignDiff{
 	 * @return True if the designs are identical, false otherwise.
 	 */
 	public boolean compareDesigns(Design design1, Design design2, boolean verbose){
+		identical = true;
+		differences.clear();
+		we = design1.getWireEnumerator();
+
 		// Compare Design elements
-		if(!design1.getName().equals(design2.getName())){
-			if(verbose)	printDifference("Design Name", design1.getName(), design2.getName());
-			else return false;
+		compareValue(verbose, "design", "", "name", design1.getName(), design2.getName());
+		compareValue(verbose, "design", "", "part name", design1.getPartName(), design2.getPartName());
+		compareValue(verbose, "design", "", "NCD version", design1.getNCDVersion(), design2.getNCDVersion());
+		compareValue(verbose, "design", "", "is hard macro", Boolean.toString(design1.isHardMacro()),
+			Boolean.toString(design2.isHardMacro()));
+		if(!verbose && !identical) return false;
+		
+		// Compare Counts of Design Objects
+		compareValue(verbose, "design", "", "instance count", Integer.toString(design1.getInstances().size()),
+			Integer.toString(design2.getInstances().size()));
+		compareValue(verbose, "design", "", "net count", Integer.toString(design1.getNets().size()),
+			Integer.toString(design2.getNets().size()));
+		compareValue(verbose, "design", "", "module count", Integer.toString(design1.getModules().size()),
+			Integer.toString(design2.getModules().size()));
+		compareValue(verbose, "design", "", "module instance count", Integer.toString(design1.getModuleInstances().size()),
+			Integer.toString(design2.getModuleInstances().size()));
+		if(!verbose && !identical) return false;
+		
+		// Attributes
+		compareAttributes(design1.getAttributes(), design2.getAttributes(), "design", "", verbose);
+		if(!verbose && !identical) return false;
+
+		// Compare the fingerprints, then only the objects whose hashes differ
+		DesignFingerprint fp1 = new DesignFingerprint(design1);
+		DesignFingerprint fp2 = new DesignFingerprint(design2);
+		if(fp1.getDesignHash() == fp2.getDesignHash()){
+			return identical;
 		}
-		if(!design1.getPartName().equals(design2.getPartName())){
-			if(verbose)	printDifference("Part Name", design1.getPartName(), design2.getPartName());
-			else return false;			
+		if(!verbose){
+			addDifference(verbose, "design", "", "fingerprint", Long.toHexString(fp1.getDesignHash()),
+				Long.toHexString(fp2.getDesignHash()));
+			return false;
 		}
-		if(!design1.getNCDVersion().equals(design2.getNCDVersion())){
-			if(verbose)	printDifference("NCD Version", design1.getNCDVersion(), design2.getNCDVersion());
-			else return false;			
+
+		HashMap<String,Long> hashes2 = fp2.getInstanceHashes();
+		for(Entry<String,Long> e : fp1.getInstanceHashes().entrySet()){
+			Long h2 = hashes2.get(e.getKey());
+			if(h2 == null){
+				addDifference(verbose, "instance", e.getKey(), "exists", "true", "false");
+			}
+			else if(!h2.equals(e.getValue())){
+				compareInstances(design1.getInstance(e.getKey()), design2.getInstance(e.getKey()), verbose);
+			}
 		}
-		if(design1.isHardMacro() != design2.isHardMacro()){
-			if(verbose)	printDifference("Is Hard Macro?", Boolean.toString(design1.isHardMacro()),
-													   Boolean.toString(design2.isHardMacro()));
-			else return false;			
+		for(String name : hashes2.keySet()){
+			if(!fp1.getInstanceHashes().containsKey(name)){
+				addDifference(verbose, "instance", name, "exists", "false", "true");
+			}
 		}
-		
-		// Compare Counts of Design Objects
-		if(design1.getInstances().size() != design2.getInstances().size()){
-			if(verbose) printDifference("Design Instance Count", Integer.toString(design1.getInstances().size()),
-																  Integer.toString(design2.getInstances().size()));
-			else return false;
-		}
-		if(design1.getNets().size() != design2.getNets().size()){
-			if(verbose) printDifference("Design Net Count", Integer.toString(design1.getNets().size()),
-																  Integer.toString(design2.getNets().size()));
-			else return false;
-		}
-		if(design1.getModules().size() != design2.getModules().size()){
-			if(verbose) printDifference("Design Module Count", Integer.toString(design1.getModules().size()),
-																  Integer.toString(design2.getModules().size()));
-			else return false;
-		}
-		if(design1.getModuleInstances().size() != design2.getModuleInstances().size()){
-			if(verbose) printDifference("Design ModuleInstance Count", Integer.toString(design1.getModuleInstances().size()),
-																	 Integer.toString(design2.getModuleInstances().size()));
-			else return false;
+
+		hashes2 = fp2.getNetHashes();
+		for(Entry<String,Long> e : fp1.getNetHashes().entrySet()){
+			Long h2 = hashes2.get(e.getKey());
+			if(h2 == null){
+				addDifference(verbose, "net", e.getKey(), "exists", "true", "false");
+			}
+			else if(!h2.equals(e.getValue())){
+				compareNets(design1.getNet(e.getKey()), design2.getNet(e.getKey()), verbose);
+			}
 		}
-		
-		// Compare Individual Elements in Design
-		
-		// Attributes
-		if(!compareAttributes(design1.getAttributes(), design2.getAttributes(), "Design Attributes")){
-			identical = false;
+		for(String name : hashes2.keySet()){
+			if(!fp1.getNetHashes().containsKey(name)){
+				addDifference(verbose, "net", name, "exists", "false", "true");
+			}
+		}
+
+		hashes2 = fp2.getModuleHashes();
+		for(Entry<String,Long> e : fp1.getModuleHashes().entrySet()){
+			Long h2 = hashes2.get(e.getKey());
+			if(h2 == null){
+				addDifference(verbose, "module", e.getKey(), "exists", "true", "false");
+			}
+			else if(!h2.equals(e.getValue())){
+				compareModules(design1.getModule(e.getKey()), design2.getModule(e.getKey()), verbose);
+			}
+		}
+		for(String name : hashes2.keySet()){
+			if(!fp1.getModuleHashes().containsKey(name)){
+				addDifference(verbose, "module", name, "exists", "false", "true");
+			}
+		}
+
+		// The design hashes differ but no single object was found to (ex: module instances)
+		if(identical){
+			addDifference(verbose, "design", "", "fingerprint", Long.toHexString(fp1.getDesignHash()),
+				Long.toHexString(fp2.getDesignHash()));
 		}
-		// TODO - Finish this later
 		return identical;
 	}
+
+	private boolean compareValue(boolean verbose, String kind, String name, String property, String value1, String value2){
+		if(value1 == null ? value2 == null : value1.equals(value2)){
+			return true;
+		}
+		addDifference(verbose, kind, name, property, value1, value2);
+		return false;
+	}
+
+	/**
+	 * Compares two instances of the same name.
+	 */
+	private void compareInstances(Instance inst1, Instance inst2, boolean verbose){
+		String name = inst1.getName();
+		compareValue(verbose, "instance", name, "type", String.valueOf(inst1.getType()), String.valueOf(inst2.getType()));
+		compareValue(verbose, "instance", name, "site", inst1.getPrimitiveSiteName(), inst2.getPrimitiveSiteName());
+		compareValue(verbose, "instance", name, "bonded", String.valueOf(inst1.getBonded()), String.valueOf(inst2.getBonded()));
+		compareValue(verbose, "instance", name, "module instance", inst1.getModuleInstanceName(), inst2.getModuleInstanceName());
+		compareAttributes(inst1.getAttributes(), inst2.getAttributes(), "instance", name, verbose);
+	}
+
+	/**
+	 * Compares two nets of the same name.
+	 */
+	private void compareNets(Net net1, Net net2, boolean verbose){
+		String name = net1.getName();
+		compareValue(verbose, "net", name, "type", String.valueOf(net1.getType()), String.valueOf(net2.getType()));
+		compareValue(verbose, "net", name, "module instance",
+			net1.getModuleInstance() == null ? null : net1.getModuleInstance().getName(),
+			net2.getModuleInstance() == null ? null : net2.getModuleInstance().getName());
+		compareAttributes(net1.getAttributes(), net2.getAttributes(), "net", name, verbose);
+
+		if(DesignFingerprint.hashPins(net1.getPins()) != DesignFingerprint.hashPins(net2.getPins())){
+			HashMap<Long,ArrayList<Pin>> pins2 = new HashMap<Long,ArrayList<Pin>>();
+			for(Pin p : net2.getPins()){
+				put(pins2, DesignFingerprint.hash(p), p);
+			}
+			for(Pin p : net1.getPins()){
+				if(remove(pins2, DesignFingerprint.hash(p)) == null){
+					addDifference(verbose, "net", name, "pin", pinString(p), "");
+				}
+			}
+			for(ArrayList<Pin> pins : pins2.values()){
+				for(Pin p : pins){
+					addDifference(verbose, "net", name, "pin", "", pinString(p));
+				}
+			}
+		}
+
+		PIPList pips1 = net1.getPIPs();
+		PIPList pips2 = net2.getPIPs();
+		if(DesignFingerprint.hashPIPs(pips1) != DesignFingerprint.hashPIPs(pips2)){
+			HashMap<Long,ArrayList<Integer>> pipIndices = new HashMap<Long,ArrayList<Integer>>();
+			for(int i=0; i < pips2.size(); i++){
+				put(pipIndices, pipHash(pips2, i), i);
+			}
+			for(int i=0; i < pips1.size(); i++){
+				if(remove(pipIndices, pipHash(pips1, i)) == null){
+					addDifference(verbose, "net", name, "pip", pipString(pips1, i), "");
+				}
+			}
+			for(ArrayList<Integer> indices : pipIndices.values()){
+				for(Integer i : indices){
+					addDifference(verbose, "net", name, "pip", "", pipString(pips2, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares two modules of the same name.
+	 */
+	private void compareModules(Module module1, Module module2, boolean verbose){
+		String name = module1.getName();
+		compareValue(verbose, "module", name, "anchor",
+			module1.getAnchor() == null ? null : module1.getAnchor().getName(),
+			module2.getAnchor() == null ? null : module2.getAnchor().getName());
+		compareAttributes(module1.getAttributes(), module2.getAttributes(), "module", name, verbose);
+
+		HashMap<Long,ArrayList<Port>> ports2 = new HashMap<Long,ArrayList<Port>>();
+		for(Port p : module2.getPorts()){
+			put(ports2, DesignFingerprint.hash(p), p);
+		}
+		for(Port p : module1.getPorts()){
+			if(remove(ports2, DesignFingerprint.hash(p)) == null){
+				addDifference(verbose, "module", name, "port", p.toString().trim(), "");
+			}
+		}
+		for(ArrayList<Port> ports : ports2.values()){
+			for(Port p : ports){
+				addDifference(verbose, "module", name, "port", "", p.toString().trim());
+			}
+		}
+
+		for(Instance inst1 : module1.getInstances()){
+			Instance inst2 = module2.getInstance(inst1.getName());
+			if(inst2 == null){
+				addDifference(verbose, "module", name, "instance", inst1.getName(), "");
+			}
+			else if(DesignFingerprint.hash(inst1) != DesignFingerprint.hash(inst2)){
+				compareInstances(inst1, inst2, verbose);
+			}
+		}
+		for(Instance inst2 : module2.getInstances()){
+			if(module1.getInstance(inst2.getName()) == null){
+				addDifference(verbose, "module", name, "instance", "", inst2.getName());
+			}
+		}
+		for(Net net1 : module1.getNets()){
+			Net net2 = module2.getNet(net1.getName());
+			if(net2 == null){
+				addDifference(verbose, "module", name, "net", net1.getName(), "");
+			}
+			else if(DesignFingerprint.hash(net1) != DesignFingerprint.hash(net2)){
+				compareNets(net1, net2, verbose);
+			}
+		}
+		for(Net net2 : module2.getNets()){
+			if(module1.getNet(net2.getName()) == null){
+				addDifference(verbose, "module", name, "net", "", net2.getName());
+			}
+		}
+	}
+
+	/**
+	 * Adds an object to the list of objects with the same hash, so that 
+	 * duplicate objects are each counted.
+	 */
+	private static <T> void put(HashMap<Long,ArrayList<T>> map, long hash, T object){
+		ArrayList<T> list = map.get(hash);
+		if(list == null){
+			list = new ArrayList<T>(1);
+			map.put(hash, list);
+		}
+		list.add(object);
+	}
+
+	/**
+	 * Removes one object of a hash added with put().
+	 * @return The removed object, or null if no object with the hash is left.
+	 */
+	private static <T> T remove(HashMap<Long,ArrayList<T>> map, long hash){
+		ArrayList<T> list = map.get(hash);
+		if(list == null){
+			return null;
+		}
+		T object = list.remove(list.size()-1);
+		if(list.isEmpty()){
+			map.remove(hash);
+		}
+		return object;
+	}
+
+	private static String pinString(Pin p){
+		return p.getPinType().toString().toLowerCase() + " \"" + p.getInstanceName() + "\" " + p.getName();
+	}
+
+	private static long pipHash(PIPList pips, int i){
+		return DesignFingerprint.hashPIP(pips.getTile(i) == null ? -1 : pips.getTile(i).getUniqueAddress(),
+			pips.getStartWire(i), pips.getEndWire(i));
+	}
+
+	private String pipString(PIPList pips, int i){
+		if(we == null){
+			return pips.getTile(i) + " " + pips.getStartWire(i) + " -> " + pips.getEndWire(i);
+		}
+		return pips.getTile(i) + " " + we.getWireName(pips.getStartWire(i)) + " -> " + we.getWireName(pips.getEndWire(i));
+	}
 	
 	public static void main(String[] args){
-		if(args.length != 2){
-			MessageGenerator.briefMessageAndExit("USAGE: <design1.xdl> <design2.xdl>");			
+		if(args.length != 2 && args.length != 3){
+			MessageGenerator.briefMessageAndExit("USAGE: <design1.xdl> <design2.xdl> [report.txt]");			
 		}
 		Design design1 = new Design();
 		Design design2 = new Design();
@@ -149,5 +493,8 @@ public class DesignDiff{
 		
 		DesignDiff dd = new DesignDiff();
 		dd.compareDesigns(design1, design2, true);
+		if(args.length == 3){
+			dd.writeReport(args[2]);
+		}
 	}
 }
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.byu.ece.rapidSmith.design.Attribute;
+import edu.byu.ece.rapidSmith.design.Design;
+import edu.byu.ece.rapidSmith.design.Instance;
+import edu.byu.ece.rapidSmith.design.Module;
+import edu.byu.ece.rapidSmith.design.Net;
+import edu.byu.ece.rapidSmith.design.PIPList;
+import edu.byu.ece.rapidSmith.design.Pin;
+import edu.byu.ece.rapidSmith.design.Port;
+
+/**
+ * This class computes 64-bit structural hashes of a design and each of its
+ * instances, nets and modules.  Two objects with the same structure (name,
+ * type, placement, attributes, pins, PIPs, ...) get the same hash no matter
+ * in which order their attributes, pins or PIPs were stored.  Comparing
+ * the hashes of two designs quickly finds which objects differ, so that
+ * only those have to be compared in detail (see DesignDiff).  The instance
+ * and net hashes are computed in parallel.
+ * Created on: Oct 19, 2026
+ */
+public class DesignFingerprint {
+
+	/** Number of objects hashed by each task */
+	private static final int CHUNK_SIZE = 4096;
+	/** Multiplier used to combine hashes */
+	private static final long K = 0x9E3779B97F4A7C15L;
+
+	/** The hash of the whole design */
+	private long designHash;
+	/** The hash of the whole design without its name, part name and NCD version */
+	private long contentHash;
+	/** Maps instance names to instance hashes */
+	private HashMap<String,Long> instanceHashes;
+	/** Maps net names to net hashes */
+	private HashMap<String,Long> netHashes;
+	/** Maps module names to module hashes */
+	private HashMap<String,Long> moduleHashes;
+
+	/**
+	 * Computes the fingerprint of a design using one thread per available processor.
+	 * @param design The design to fingerprint.
+	 */
+	public DesignFingerprint(Design design){
+		this(design, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes the fingerprint of a design.
+	 * @param design The design to fingerprint.
+	 * @param threads The number of threads used to hash the instances and nets.
+	 */
+	public DesignFingerprint(Design design, int threads){
+		ArrayList<Instance> instances = new ArrayList<Instance>(design.getInstances());
+		ArrayList<Net> nets = new ArrayList<Net>(design.getNets());
+		long[] instHashes = new long[instances.size()];
+		long[] nHashes = new long[nets.size()];
+
+		if(threads > 1 && instances.size() + nets.size() > CHUNK_SIZE){
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try{
+				ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+				submitInstances(pool, tasks, instances, instHashes);
+				submitNets(pool, tasks, nets, nHashes);
+				for(Future<?> task : tasks){
+					task.get();
+				}
+			}
+			catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				MessageGenerator.briefErrorAndExit("Interrupted while fingerprinting design " + design.getName());
+			}
+			catch(ExecutionException e){
+				throw new RuntimeException(e.getCause());
+			}
+			finally{
+				pool.shutdown();
+			}
+		}
+		else{
+			hashInstances(instances, instHashes, 0, instances.size());
+			hashNets(nets, nHashes, 0, nets.size());
+		}
+
+		instanceHashes = new HashMap<String,Long>((int)(instances.size()/0.75f) + 1);
+		long instanceSet = 0;
+		for(int i=0; i < instHashes.length; i++){
+			instanceHashes.put(instances.get(i).getName(), instHashes[i]);
+			instanceSet += mix(instHashes[i]);
+		}
+		netHashes = new HashMap<String,Long>((int)(nets.size()/0.75f) + 1);
+		long netSet = 0;
+		for(int i=0; i < nHashes.length; i++){
+			netHashes.put(nets.get(i).getName(), nHashes[i]);
+			netSet += mix(nHashes[i]);
+		}
+		moduleHashes = new HashMap<String,Long>();
+		long moduleSet = 0;
+		for(Module module : design.getModules()){
+			long h = hash(module);
+			moduleHashes.put(module.getName(), h);
+			moduleSet += mix(h);
+		}
+
+		long h = design.isHardMacro() ? 1 : 0;
+		h = combine(h, hashAttributes(design.getAttributes()));
+		h = combine(h, instanceSet);
+		h = combine(h, netSet);
+		h = combine(h, moduleSet);
+		contentHash = mix(h);
+
+		h = hash(design.getName());
+		h = combine(h, hash(design.getPartName()));
+		h = combine(h, hash(design.getNCDVersion()));
+		h = combine(h, contentHash);
+		designHash = mix(h);
+	}
+
+	private static void submitInstances(ExecutorService pool, ArrayList<Future<?>> tasks,
+			final ArrayList<Instance> instances, final long[] hashes){
+		for(int start=0; start < instances.size(); start += CHUNK_SIZE){
+			final int from = start;
+			final int to = Math.min(start + CHUNK_SIZE, instances.size());
+			tasks.add(pool.submit(new Callable<Object>(){
+				public Object call(){
+					hashInstances(instances, hashes, from, to);
+					return null;
+				}
+			}));
+		}
+	}
+
+	private static void submitNets(ExecutorService pool, ArrayList<Future<?>> tasks,
+			final ArrayList<Net> nets, final long[] hashes){
+		for(int start=0; start < nets.size(); start += CHUNK_SIZE){
+			final int from = start;
+			final int to = Math.min(start + CHUNK_SIZE, nets.size());
+			tasks.add(pool.submit(new Callable<Object>(){
+				public Object call(){
+					hashNets(nets, hashes, from, to);
+					return null;
+				}
+			}));
+		}
+	}
+
+	private static void hashInstances(ArrayList<Instance> instances, long[] hashes, int from, int to){
+		for(int i=from; i < to; i++){
+			hashes[i] = hash(instances.get(i));
+		}
+	}
+
+	private static void hashNets(ArrayList<Net> nets, long[] hashes, int from, int to){
+		for(int i=from; i < to; i++){
+			hashes[i] = hash(nets.get(i));
+		}
+	}
+
+	//========================================================================//
+	// Getters
+	//========================================================================//
+	/**
+	 * @return The hash of the whole design.
+	 */
+	public long getDesignHash(){
+		return designHash;
+	}
+
+	/**
+	 * @return The hash of the design contents: the hash of the whole design
+	 * without its name, part name and NCD version.
+	 */
+	public long getContentHash(){
+		return contentHash;
+	}
+
+	/**
+	 * @return A map of the instance names to their hashes.
+	 */
+	public HashMap<String,Long> getInstanceHashes(){
+		return instanceHashes;
+	}
+
+	/**
+	 * @return A map of the net names to their hashes.
+	 */
+	public HashMap<String,Long> getNetHashes(){
+		return netHashes;
+	}
+
+	/**
+	 * @return A map of the module names to their hashes.
+	 */
+	public HashMap<String,Long> getModuleHashes(){
+		return moduleHashes;
+	}
+
+	//========================================================================//
+	// Structural Hashes
+	//========================================================================//
+	/**
+	 * Hashes an instance: its name, type, placement, bonding, module
+	 * instance and attributes.
+	 * @param inst The instance to hash.
+	 * @return The 64-bit hash of the instance.
+	 */
+	public static long hash(Instance inst){
+		long h = hash(inst.getName());
+		h = combine(h, hash(inst.getType() == null ? null : inst.getType().toString()));
+		h = combine(h, hash(inst.getPrimitiveSiteName()));
+		h = combine(h, hash(inst.getBonded() == null ? null : inst.getBonded().toString()));
+		h = combine(h, hash(inst.getModuleInstanceName()));
+		h = combine(h, hashAttributes(inst.getAttributes()));
+		return mix(h);
+	}
+
+	/**
+	 * Hashes a net: its name, type, module instance, attributes, pins and PIPs.
+	 * @param net The net to hash.
+	 * @return The 64-bit hash of the net.
+	 */
+	public static long hash(Net net){
+		long h = hash(net.getName());
+		h = combine(h, hash(net.getType() == null ? null : net.getType().toString()));
+		h = combine(h, hash(net.getModuleInstance() == null ? null : net.getModuleInstance().getName()));
+		h = combine(h, hashAttributes(net.getAttributes()));
+		h = combine(h, hashPins(net.getPins()));
+		h = combine(h, hashPIPs(net.getPIPs()));
+		return mix(h);
+	}
+
+	/**
+	 * Hashes a module: its name, anchor, attributes, ports, instances and nets.
+	 * @param module The module to hash.
+	 * @return The 64-bit hash of the module.
+	 */
+	public static long hash(Module module){
+		long h = hash(module.getName());
+		h = combine(h, hash(module.getAnchor() == null ? null : module.getAnchor().getName()));
+		h = combine(h, hashAttributes(module.getAttributes()));
+		h = combine(h, hashPorts(module.getPorts()));
+		long set = 0;
+		for(Instance inst : module.getInstances()){
+			set += mix(hash(inst));
+		}
+		h = combine(h, set);
+		set = 0;
+		for(Net net : module.getNets()){
+			set += mix(hash(net));
+		}
+		h = combine(h, set);
+		return mix(h);
+	}
+
+	/**
+	 * Hashes a pin: its instance name, pin name and direction.
+	 * @param pin The pin to hash.
+	 * @return The 64-bit hash of the pin.
+	 */
+	public static long hash(Pin pin){
+		long h = hash(pin.getInstanceName());
+		h = combine(h, hash(pin.getName()));
+		h = combine(h, hash(pin.getPinType() == null ? null : pin.getPinType().toString()));
+		return mix(h);
+	}
+
+	/**
+	 * Hashes a port: its name and the instance and pin it refers to.
+	 * @param port The port to hash.
+	 * @return The 64-bit hash of the port.
+	 */
+	public static long hash(Port port){
+		long h = hash(port.getName());
+		h = combine(h, hash(port.getInstanceName()));
+		h = combine(h, hash(port.getPinName()));
+		return mix(h);
+	}
+
+	/**
+	 * Hashes an attribute: its physical name, logical name and value.
+	 * @param attr The attribute to hash.
+	 * @return The 64-bit hash of the attribute.
+	 */
+	public static long hash(Attribute attr){
+		long h = hash(attr.getPhysicalName());
+		h = combine(h, hash(attr.getLogicalName()));
+		h = combine(h, hash(attr.getValue()));
+		return mix(h);
+	}
+
+	/**
+	 * Hashes a collection of attributes, independent of their order.
+	 * @param attributes The attributes to hash (may be null).
+	 * @return The 64-bit hash of the attributes.
+	 */
+	public static long hashAttributes(Collection<Attribute> attributes){
+		long h = 0;
+		if(attributes != null){
+			for(Attribute attr : attributes){
+				h += hash(attr);
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Hashes a collection of pins, independent of their order.
+	 * @param pins The pins to hash.
+	 * @return The 64-bit hash of the pins.
+	 */
+	public static long hashPins(Collection<Pin> pins){
+		long h = 0;
+		for(Pin pin : pins){
+			h += hash(pin);
+		}
+		return h;
+	}
+
+	/**
+	 * Hashes a collection of ports, independent of their order.
+	 * @param ports The ports to hash.
+	 * @return The 64-bit hash of the ports.
+	 */
+	public static long hashPorts(Collection<Port> ports){
+		long h = 0;
+		for(Port port : ports){
+			h += hash(port);
+		}
+		return h;
+	}
+
+	/**
+	 * Hashes the PIPs of a net, independent of their order.  PIP objects are
+	 * not created, the packed values of the list are used directly.
+	 * @param pips The PIPs to hash.
+	 * @return The 64-bit hash of the PIPs.
+	 */
+	public static long hashPIPs(PIPList pips){
+		long h = 0;
+		for(int i=0; i < pips.size(); i++){
+			h += hashPIP(pips.getTile(i) == null ? -1 : pips.getTile(i).getUniqueAddress(),
+				pips.getStartWire(i), pips.getEndWire(i));
+		}
+		return h;
+	}
+
+	/**
+	 * Hashes a single PIP.
+	 * @param tileAddress The unique address of the PIP tile.
+	 * @param startWire The start wire of the PIP.
+	 * @param endWire The end wire of the PIP.
+	 * @return The 64-bit hash of the PIP.
+	 */
+	public static long hashPIP(int tileAddress, int startWire, int endWire){
+		long h = combine(tileAddress, startWire);
+		h = combine(h, endWire);
+		return mix(h);
+	}
+
+	/**
+	 * Hashes a string (64-bit FNV-1a).
+	 * @param s The string to hash (may be null).
+	 * @return The 64-bit hash of the string.
+	 */
+	public static long hash(String s){
+		if(s == null) return 0;
+		long h = 0xCBF29CE484222325L;
+		for(int i=0; i < s.length(); i++){
+			h = (h ^ s.charAt(i)) * 0x100000001B3L;
+		}
+		return h;
+	}
+
+	private static long combine(long h, long value){
+		return (Long.rotateLeft(h, 31) ^ value) * K;
+	}
+
+	private static long mix(long h){
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -26,8 +26,11 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -59,9 +62,9 @@ import edu.byu.ece.rapidSmith.util.MessageGenerator;
 public class HardMacroGenerator {
 
 	/** This variable keeps track of which instances should be removed from the original design */
-	private ArrayList<Instance> instancesToRemove;
+	private Set<Instance> instancesToRemove;
 	/** This variable keeps track of which nets should be removed from the original design */
-	private ArrayList<Net> netsToRemove;
+	private Set<Net> netsToRemove;
 	/** This variable keeps track of which instances should be added from the original design */
 	private ArrayList<Instance> instancesToAdd;
 	/** This variable keeps track of which nets should be added from the original design */
@@ -120,8 +123,8 @@ public class HardMacroGenerator {
 		// Get the System's line terminator string
 		newLine = System.getProperty("line.separator");
 		
-		instancesToRemove = new ArrayList<Instance>();
-		netsToRemove = new ArrayList<Net>();
+		instancesToRemove = Collections.newSetFromMap(new IdentityHashMap<Instance,Boolean>());
+		netsToRemove = Collections.newSetFromMap(new IdentityHashMap<Net,Boolean>());
 		instancesToAdd = new ArrayList<Instance>();
 		netsToAdd = new ArrayList<Net>();
 		hardMacro = new Module();
@@ -183,8 +186,8 @@ public class HardMacroGenerator {
 		handleIOSERDES();
 		
 		// Remove Instances and Nets before handling tieoffs
-		design.getInstances().removeAll(instancesToRemove);
-		design.getNets().removeAll(netsToRemove);				
+		design.removeInstances(instancesToRemove);
+		design.removeNets(netsToRemove);
 		instancesToRemove.clear();
 		netsToRemove.clear();
 		
@@ -192,16 +195,12 @@ public class HardMacroGenerator {
 		handleTIEOFFS();
 
 		//add instances and nets
-		for(Instance i: instancesToAdd){
-			design.addInstance(i);
-		}
-		for(Net n: netsToAdd){
-			design.addNet(n);
-		}
+		design.addInstances(instancesToAdd);
+		design.addNets(netsToAdd);
 		
 		// Remove Instances and Nets
-		design.getInstances().removeAll(instancesToRemove);
-		design.getNets().removeAll(netsToRemove);
+		design.removeInstances(instancesToRemove);
+		design.removeNets(netsToRemove);
 		
 		netsToRemove.clear();
 		instancesToRemove.clear();
@@ -342,12 +341,10 @@ public class HardMacroGenerator {
 			}
 		}
 
-		design.getInstances().removeAll(instancesToRemove);
+		design.removeInstances(instancesToRemove);
 		instancesToRemove.clear();
 		
-		for(Instance i: instancesToAdd){
-			design.addInstance(i);
-		}
+		design.addInstances(instancesToAdd);
 		//design.getInstances().addAll(instancesToAdd);
 		instancesToAdd.clear();
 	}
@@ -71,7 +71,12 @@ public class PatchGenerator {
 			bw.write(nl);
 			
 			bw.write("\tpublic static String getPinMapping(PrimitiveType type, String internalName){" + nl);
-			bw.write("\t\treturn patch.get(type).get(internalName);" + nl);
+			bw.write("\t\tHashMap<String, String> map = patch.get(type);" + nl);
+			bw.write("\t\treturn map == null ? null : map.get(internalName);" + nl);
+			bw.write("\t}" + nl);
+			bw.write(nl);
+			bw.write("\tpublic static HashMap<String, String> getPinMappings(PrimitiveType type){" + nl);
+			bw.write("\t\treturn patch.get(type);" + nl);
 			bw.write("\t}" + nl);
 
 			bw.write(nl);
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.caucho.hessian.io.Deflation;
+import com.caucho.hessian.io.Hessian2Input;
+
+/**
+ * This class reads the files created by SectionedFileWriter.  The file is
+ * memory mapped and each section is inflated only when it is requested,
+ * so different sections can be decoded concurrently by different threads
+ * (each call to getSection() returns a new stream) and only the pages of
+ * the sections being read are loaded.
+ * Created on: Oct 19, 2026
+ */
+public class SectionedFileReader {
+	/** The contents of the file (mapped read only) */
+	private ByteBuffer data;
+	/** The names of the sections in file order */
+	private ArrayList<String> names;
+	/** Maps each section name to its offset and length */
+	private HashMap<String,long[]> index;
+
+	/**
+	 * Reads a sectioned file.
+	 * @param fileName The name of the file.
+	 * @throws IOException If the file could not be read or is not a sectioned file.
+	 */
+	public SectionedFileReader(String fileName) throws IOException{
+		FileInputStream fis = new FileInputStream(fileName);
+		try{
+			FileChannel channel = fis.getChannel();
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE){
+				throw new IOException("File too large: " + fileName);
+			}
+			// The mapping stays valid after the channel is closed
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		finally{
+			fis.close();
+		}
+		DataInputStream dis = new DataInputStream(new ByteBufferInputStream(data.duplicate()));
+		if(data.capacity() < 12 || dis.readInt() != SectionedFileWriter.MAGIC){
+			throw new IOException("Not a sectioned file: " + fileName);
+		}
+		int version = dis.readInt();
+		if(version != SectionedFileWriter.VERSION){
+			throw new IOException("Unsupported sectioned file version " + version + ": " + fileName);
+		}
+		int count = dis.readInt();
+		names = new ArrayList<String>(count);
+		index = new HashMap<String,long[]>();
+		for(int i=0; i < count; i++){
+			String name = dis.readUTF();
+			long offset = dis.readLong();
+			long length = dis.readInt();
+			if(offset + length > data.capacity()){
+				throw new IOException("Truncated section " + name + ": " + fileName);
+			}
+			names.add(name);
+			index.put(name, new long[]{offset, length});
+		}
+	}
+
+	/**
+	 * Checks if a file is a sectioned file (starts with the sectioned file
+	 * magic number).
+	 * @param fileName The name of the file.
+	 * @return True if the file is a sectioned file, false otherwise.
+	 */
+	public static boolean isSectionedFile(String fileName){
+		try{
+			DataInputStream dis = new DataInputStream(new FileInputStream(fileName));
+			try{
+				return dis.readInt() == SectionedFileWriter.MAGIC;
+			}
+			finally{
+				dis.close();
+			}
+		}
+		catch(IOException e){
+			return false;
+		}
+	}
+
+	/**
+	 * @return The names of the sections in the order they were written.
+	 */
+	public List<String> getSectionNames(){
+		return names;
+	}
+
+	/**
+	 * @param name The name of a section.
+	 * @return True if the file has the section.
+	 */
+	public boolean hasSection(String name){
+		return index.containsKey(name);
+	}
+
+	/**
+	 * Gets the compressed size of a section.
+	 * @param name The name of the section.
+	 * @return The compressed size in bytes, or -1 if there is no such section.
+	 */
+	public int getSectionSize(String name){
+		long[] location = index.get(name);
+		return location == null ? -1 : (int) location[1];
+	}
+
+	/**
+	 * Opens a new stream to read a section.  This method can be called
+	 * concurrently from different threads.
+	 * @param name The name of the section.
+	 * @return A stream to read the contents of the section.
+	 * @throws IOException If there is no such section.
+	 */
+	public Hessian2Input getSection(String name) throws IOException{
+		long[] location = index.get(name);
+		if(location == null){
+			throw new IOException("Missing section: " + name);
+		}
+		ByteBuffer section = data.duplicate();
+		section.limit((int) (location[0] + location[1]));
+		section.position((int) location[0]);
+		return new Deflation().unwrap(new Hessian2Input(new ByteBufferInputStream(section)));
+	}
+
+	/**
+	 * A stream reading the remaining bytes of a buffer.
+	 */
+	private static class ByteBufferInputStream extends InputStream{
+		private ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer){
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read(){
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len){
+			if(len == 0){
+				return 0;
+			}
+			if(!buffer.hasRemaining()){
+				return -1;
+			}
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available(){
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ * 
+ * This file is part of the BYU RapidSmith Tools.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ * 
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.caucho.hessian.io.Deflation;
+import com.caucho.hessian.io.Hessian2Output;
+
+/**
+ * This class writes a sectioned file: a small index followed by named
+ * sections that are each compressed independently (with the same Hessian
+ * and Deflation encoding as FileTools.getOutputStream()).  Since the
+ * sections do not depend on each other, a SectionedFileReader can inflate
+ * and decode them concurrently.
+ * 
+ * The file layout is: the magic number, the format version, the number of
+ * sections, then the name, offset and length of each section, then the
+ * compressed sections.
+ * Created on: Oct 19, 2026
+ */
+public class SectionedFileWriter {
+	/** Identifies sectioned files ("RSCF") */
+	public static final int MAGIC = 0x52534346;
+	/** Version of the sectioned file layout */
+	public static final int VERSION = 1;
+
+	/** The names of the finished sections */
+	private ArrayList<String> names;
+	/** The compressed bytes of the finished sections */
+	private ArrayList<byte[]> sections;
+	/** The name of the section being written */
+	private String currName;
+	/** The buffer of the section being written */
+	private ByteArrayOutputStream currBuffer;
+	/** The stream of the section being written */
+	private Hessian2Output currStream;
+
+	public SectionedFileWriter(){
+		names = new ArrayList<String>();
+		sections = new ArrayList<byte[]>();
+	}
+
+	/**
+	 * Starts a new section, finishing the current one if needed.
+	 * @param name The unique name of the section.
+	 * @return The stream to write the contents of the section to.
+	 */
+	public Hessian2Output startSection(String name) throws IOException{
+		endSection();
+		if(names.contains(name)){
+			throw new IllegalArgumentException("Duplicate section: " + name);
+		}
+		currName = name;
+		currBuffer = new ByteArrayOutputStream();
+		currStream = new Deflation().wrap(new Hessian2Output(currBuffer));
+		return currStream;
+	}
+
+	/**
+	 * Finishes the current section (if any).
+	 * @return The compressed size of the section in bytes, or 0 if there 
+	 * was no current section.
+	 */
+	public int endSection() throws IOException{
+		if(currStream == null){
+			return 0;
+		}
+		currStream.close();
+		byte[] bytes = currBuffer.toByteArray();
+		names.add(currName);
+		sections.add(bytes);
+		currName = null;
+		currBuffer = null;
+		currStream = null;
+		return bytes.length;
+	}
+
+	/**
+	 * Finishes the current section and writes the sectioned file.
+	 * @param fileName The name of the file to create.
+	 * @return The size of the file in bytes.
+	 */
+	public long writeToFile(String fileName) throws IOException{
+		endSection();
+		// Compute the size of the index to get the section offsets
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		DataOutputStream dos = new DataOutputStream(index);
+		for(String name : names){
+			dos.writeUTF(name);
+			dos.writeLong(0);
+			dos.writeInt(0);
+		}
+		long offset = 12 + index.size();
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(names.size());
+			for(int i=0; i < names.size(); i++){
+				out.writeUTF(names.get(i));
+				out.writeLong(offset);
+				out.writeInt(sections.get(i).length);
+				offset += sections.get(i).length;
+			}
+			for(byte[] section : sections){
+				out.write(section);
+			}
+		}
+		finally{
+			out.close();
+		}
+		return offset;
+	}
+}
@@ -18,12 +18,18 @@
  */
 package edu.byu.ece.rapidSmith.util;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 public class StringPool extends HashMap<String,String>{
 
 	private static final long serialVersionUID = 3200270847975999156L;
 	
+	/** Open addressing table of the unique strings interned from byte slices */
+	private transient String[] sliceTable;
+	/** Number of strings in sliceTable */
+	private transient int sliceCount;
+	
 	/**
 	 * This gets a unique copy of the String string from the HashMap. 
 	 * If the string is not in the HashMap yet, it adds it and returns
@@ -38,4 +44,80 @@ public class StringPool extends HashMap<String,String>{
 		}
 		return this.get(string);
 	}
+	
+	/**
+	 * This gets a unique copy of the String represented by a slice of a byte
+	 * array (each byte is one ISO-8859-1/ASCII character).  A String is only 
+	 * created the first time a particular sequence of bytes is seen, so 
+	 * parsers can intern names directly from their read buffers.
+	 * @param buffer The array holding the characters of the string.
+	 * @param offset Index of the first character in buffer.
+	 * @param length Number of characters in the string.
+	 * @return The unique copy of the String.
+	 */
+	public String getUnique(byte[] buffer, int offset, int length){
+		int hash = 0;
+		for(int i=offset; i < offset+length; i++){
+			hash = 31*hash + (buffer[i] & 0xFF);
+		}
+		if(sliceTable == null){
+			sliceTable = new String[64];
+		}
+		int mask = sliceTable.length-1;
+		int idx = (hash ^ (hash >>> 16)) & mask;
+		String s;
+		while((s = sliceTable[idx]) != null){
+			if(s.hashCode() == hash && matches(s, buffer, offset, length)){
+				return s;
+			}
+			idx = (idx+1) & mask;
+		}
+		s = getUnique(new String(buffer, offset, length, StandardCharsets.ISO_8859_1));
+		sliceTable[idx] = s;
+		sliceCount++;
+		if(sliceCount > sliceTable.length/2){
+			growSliceTable();
+		}
+		return s;
+	}
+	
+	@Override
+	public String remove(Object key){
+		sliceTable = null;
+		sliceCount = 0;
+		return super.remove(key);
+	}
+	
+	@Override
+	public void clear(){
+		sliceTable = null;
+		sliceCount = 0;
+		super.clear();
+	}
+	
+	/**
+	 * Checks if the string has exactly the characters found in the byte slice.
+	 */
+	private static boolean matches(String s, byte[] buffer, int offset, int length){
+		if(s.length() != length) return false;
+		for(int i=0; i < length; i++){
+			if(s.charAt(i) != (char)(buffer[offset+i] & 0xFF)) return false;
+		}
+		return true;
+	}
+	
+	private void growSliceTable(){
+		String[] old = sliceTable;
+		sliceTable = new String[old.length*2];
+		int mask = sliceTable.length-1;
+		for(String s : old){
+			if(s == null) continue;
+			int hash = s.hashCode();
+			int idx = (hash ^ (hash >>> 16)) & mask;
+			while(sliceTable[idx] != null){
+				idx = (idx+1) & mask;
+			}
+			sliceTable[idx] = s;
+		}
+	}
 }
@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2010 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License..
+ *
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.byu.ece.rapidSmith.design.Design;
+import edu.byu.ece.rapidSmith.design.Net;
+import edu.byu.ece.rapidSmith.design.PIP;
+import edu.byu.ece.rapidSmith.design.PIPList;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.device.TileType;
+import edu.byu.ece.rapidSmith.device.WireEnumerator;
+import edu.byu.ece.rapidSmith.device.WireType;
+
+/**
+ * Counts the routing resources used by the PIPs of a design: the number of
+ * PIPs driving each wire (by wire enumeration), the number of PIPs in each
+ * tile (by Tile.getUniqueAddress()) and in each region (a rectangle of
+ * tiles).  From these it derives the wire type usage, the number of switch
+ * matrices used and tile and region congestion maps.  All counters are int
+ * arrays, so a PIP is counted with a few array increments.
+ *
+ * The nets of a design are counted in parallel, each thread filling its own
+ * counters which are added up at the end.  Nets can also be added and
+ * removed one at a time as they are routed and unrouted (see
+ * AbstractRouter.setWireUsage()), these updates are not thread safe.
+ *
+ * Created on: Oct 19, 2026
+ */
+public class WireUsage {
+	/** Default height and width of a region in tiles */
+	public static final int DEFAULT_REGION_SIZE = 16;
+	/** Number of nets counted by each task */
+	private static final int CHUNK_SIZE = 2048;
+
+	/** The device of the design */
+	private Device dev;
+	/** The wire enumerator of the device */
+	private WireEnumerator we;
+	/** Number of tile columns of the device */
+	private int columns;
+	/** Height of a region in tiles */
+	private int regionHeight;
+	/** Width of a region in tiles */
+	private int regionWidth;
+	/** Number of region columns of the device */
+	private int regionColumns;
+	/** The WireType ordinal of each wire */
+	private int[] wireTypes;
+	/** Marks the tiles which have a switch matrix */
+	private boolean[] switchMatrixTiles;
+	/** Number of PIPs driving each wire */
+	private int[] wireCounts;
+	/** Number of PIPs in each tile */
+	private int[] tileCounts;
+	/** Number of PIPs in each region */
+	private int[] regionCounts;
+	/** Number of switch matrix tiles with at least one PIP */
+	private int switchMatricesUsed;
+	/** Number of nets counted */
+	private int netCount;
+	/** Number of PIPs counted */
+	private long pipCount;
+
+	/**
+	 * Creates empty counters (see addNet() and addPIPs()).
+	 * @param dev The device of the routes to count.
+	 * @param we The wire enumerator of the device.
+	 * @param regionHeight Height of a region in tiles.
+	 * @param regionWidth Width of a region in tiles.
+	 */
+	public WireUsage(Device dev, WireEnumerator we, int regionHeight, int regionWidth){
+		this.dev = dev;
+		this.we = we;
+		this.columns = dev.getColumns();
+		this.regionHeight = regionHeight;
+		this.regionWidth = regionWidth;
+		this.regionColumns = (columns + regionWidth - 1) / regionWidth;
+		int regionRows = (dev.getRows() + regionHeight - 1) / regionHeight;
+
+		String[] wires = we.getWires();
+		wireTypes = new int[wires.length];
+		for(int i=0; i < wires.length; i++){
+			WireType type = we.getWireType(i);
+			wireTypes[i] = type == null ? -1 : type.ordinal();
+		}
+		HashSet<TileType> switchMatrixTypes = dev.getSwitchMatrixTypes();
+		switchMatrixTiles = new boolean[dev.getRows() * columns];
+		for(Tile[] tiles : dev.getTiles()){
+			for(Tile t : tiles){
+				switchMatrixTiles[t.getRow() * columns + t.getColumn()] = switchMatrixTypes.contains(t.getType());
+			}
+		}
+		wireCounts = new int[wires.length];
+		tileCounts = new int[switchMatrixTiles.length];
+		regionCounts = new int[regionRows * regionColumns];
+	}
+
+	/**
+	 * Counts the PIPs of all the nets of a design using one thread per
+	 * available processor and regions of DEFAULT_REGION_SIZE tiles.
+	 * @param design The design to count.
+	 */
+	public WireUsage(Design design){
+		this(design, DEFAULT_REGION_SIZE, DEFAULT_REGION_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Counts the PIPs of all the nets of a design.
+	 * @param design The design to count.
+	 * @param regionHeight Height of a region in tiles.
+	 * @param regionWidth Width of a region in tiles.
+	 * @param threads The number of threads used to count the nets.
+	 */
+	public WireUsage(Design design, int regionHeight, int regionWidth, int threads){
+		this(design.getDevice(), design.getWireEnumerator(), regionHeight, regionWidth);
+		addNets(design.getNets(), threads);
+	}
+
+	//========================================================================//
+	// Counting
+	//========================================================================//
+	/**
+	 * Counts the PIPs of a collection of nets in parallel.
+	 * @param nets The nets to count.
+	 * @param threads The number of threads used to count the nets.
+	 */
+	public void addNets(Collection<Net> nets, int threads){
+		final ArrayList<Net> netList = new ArrayList<Net>(nets);
+		if(threads <= 1 || netList.size() <= CHUNK_SIZE){
+			for(Net n : netList){
+				addNet(n);
+			}
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			ArrayList<Future<int[][]>> tasks = new ArrayList<Future<int[][]>>();
+			for(int start=0; start < netList.size(); start += CHUNK_SIZE){
+				final int from = start;
+				final int to = Math.min(start + CHUNK_SIZE, netList.size());
+				tasks.add(pool.submit(new Callable<int[][]>(){
+					public int[][] call(){
+						int[] wires = new int[wireCounts.length];
+						int[] tiles = new int[tileCounts.length];
+						for(int i=from; i < to; i++){
+							PIPList pips = netList.get(i).getPIPs();
+							for(int k=0; k < pips.size(); k++){
+								Tile t = pips.getTile(k);
+								wires[pips.getEndWire(k)]++;
+								tiles[t.getRow() * columns + t.getColumn()]++;
+							}
+						}
+						return new int[][]{wires, tiles};
+					}
+				}));
+			}
+			for(Future<int[][]> task : tasks){
+				int[][] counts = task.get();
+				for(int i=0; i < counts[0].length; i++){
+					wireCounts[i] += counts[0][i];
+				}
+				for(int i=0; i < counts[1].length; i++){
+					if(counts[1][i] != 0) updateTile(i, counts[1][i]);
+				}
+			}
+			for(Net n : netList){
+				if(n.hasPIPs()) netCount++;
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			MessageGenerator.briefErrorAndExit("Interrupted while counting the wire usage");
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException(e.getCause());
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Counts the PIPs of a net (such as a net that was just routed).
+	 * @param net The net to count.
+	 */
+	public void addNet(Net net){
+		if(!net.hasPIPs()) return;
+		update(net.getPIPs(), 1);
+		netCount++;
+	}
+
+	/**
+	 * Removes the PIPs of a net from the counts (such as a net about to be
+	 * unrouted).  The net must have been counted with the same PIPs.
+	 * @param net The net to remove.
+	 */
+	public void removeNet(Net net){
+		if(!net.hasPIPs()) return;
+		update(net.getPIPs(), -1);
+		netCount--;
+	}
+
+	/**
+	 * Counts a list of PIPs.
+	 * @param pips The PIPs to count.
+	 */
+	public void addPIPs(List<PIP> pips){
+		for(PIP p : pips){
+			update(p, 1);
+		}
+	}
+
+	/**
+	 * Removes a list of previously counted PIPs from the counts.
+	 * @param pips The PIPs to remove.
+	 */
+	public void removePIPs(List<PIP> pips){
+		for(PIP p : pips){
+			update(p, -1);
+		}
+	}
+
+	private void update(PIPList pips, int delta){
+		for(int k=0; k < pips.size(); k++){
+			Tile t = pips.getTile(k);
+			wireCounts[pips.getEndWire(k)] += delta;
+			updateTile(t.getRow() * columns + t.getColumn(), delta);
+		}
+	}
+
+	private void update(PIP p, int delta){
+		Tile t = p.getTile();
+		wireCounts[p.getEndWire()] += delta;
+		updateTile(t.getRow() * columns + t.getColumn(), delta);
+	}
+
+	private void updateTile(int tile, int delta){
+		int before = tileCounts[tile];
+		tileCounts[tile] += delta;
+		if(switchMatrixTiles[tile]){
+			if(before == 0 && tileCounts[tile] != 0) switchMatricesUsed++;
+			else if(before != 0 && tileCounts[tile] == 0) switchMatricesUsed--;
+		}
+		int row = tile / columns;
+		int column = tile % columns;
+		regionCounts[(row / regionHeight) * regionColumns + column / regionWidth] += delta;
+		pipCount += delta;
+	}
+
+	//========================================================================//
+	// Getters
+	//========================================================================//
+	/**
+	 * Gets the number of PIPs driving a wire.
+	 * @param wire The wire enumeration.
+	 * @return The number of counted PIPs whose end wire is wire.
+	 */
+	public int getWireCount(int wire){
+		return wireCounts[wire];
+	}
+
+	/**
+	 * Gets the number of PIPs driving each wire, indexed by wire enumeration.
+	 * The returned array is updated as PIPs are counted and must not be modified.
+	 * @return The PIP counts of the wires.
+	 */
+	public int[] getWireCounts(){
+		return wireCounts;
+	}
+
+	/**
+	 * Gets the number of PIPs driving each wire type.
+	 * @return The PIP counts indexed by WireType ordinal.
+	 */
+	public int[] getWireTypeCounts(){
+		int[] counts = new int[WireType.values().length];
+		for(int i=0; i < wireCounts.length; i++){
+			if(wireCounts[i] != 0 && wireTypes[i] != -1){
+				counts[wireTypes[i]] += wireCounts[i];
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Gets the number of PIPs driving each wire type, only the wire types
+	 * used are in the map.
+	 * @return A map of the wire types to their PIP counts.
+	 */
+	public HashMap<WireType,Integer> getWireTypeHistogram(){
+		HashMap<WireType,Integer> histogram = new HashMap<WireType,Integer>();
+		int[] counts = getWireTypeCounts();
+		WireType[] types = WireType.values();
+		for(int i=0; i < counts.length; i++){
+			if(counts[i] != 0) histogram.put(types[i], counts[i]);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Gets the number of PIPs in a tile.
+	 * @param t The tile.
+	 * @return The number of counted PIPs in the tile.
+	 */
+	public int getTileCount(Tile t){
+		return tileCounts[t.getRow() * columns + t.getColumn()];
+	}
+
+	/**
+	 * Gets the number of PIPs in each tile, indexed by Tile.getUniqueAddress().
+	 * The returned array is updated as PIPs are counted and must not be modified.
+	 * @return The PIP counts of the tiles.
+	 */
+	public int[] getTileCounts(){
+		return tileCounts;
+	}
+
+	/**
+	 * Gets the number of PIPs in each tile as a congestion map.
+	 * @return The PIP counts of the tiles, indexed by [row][column].
+	 */
+	public int[][] getTileCongestionMap(){
+		int[][] map = new int[tileCounts.length / columns][columns];
+		for(int i=0; i < map.length; i++){
+			System.arraycopy(tileCounts, i * columns, map[i], 0, columns);
+		}
+		return map;
+	}
+
+	/**
+	 * Gets the number of PIPs in each region as a congestion map.
+	 * @return The PIP counts of the regions, indexed by [region row][region column].
+	 */
+	public int[][] getRegionCongestionMap(){
+		int[][] map = new int[regionCounts.length / regionColumns][regionColumns];
+		for(int i=0; i < map.length; i++){
+			System.arraycopy(regionCounts, i * regionColumns, map[i], 0, regionColumns);
+		}
+		return map;
+	}
+
+	/**
+	 * Gets the number of PIPs in the region of a tile.
+	 * @param t A tile of the region.
+	 * @return The number of counted PIPs in the region.
+	 */
+	public int getRegionCount(Tile t){
+		return regionCounts[(t.getRow() / regionHeight) * regionColumns + t.getColumn() / regionWidth];
+	}
+
+	/**
+	 * Gets the utilization histogram of the switch matrices, where entry i is
+	 * the number of switch matrix tiles with i PIPs.
+	 * @return The switch matrix histogram (with at least one entry).
+	 */
+	public int[] getSwitchMatrixHistogram(){
+		int max = 0;
+		for(int i=0; i < tileCounts.length; i++){
+			if(switchMatrixTiles[i] && tileCounts[i] > max) max = tileCounts[i];
+		}
+		int[] histogram = new int[max + 1];
+		for(int i=0; i < tileCounts.length; i++){
+			if(switchMatrixTiles[i]) histogram[tileCounts[i]]++;
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return The number of switch matrices with at least one PIP.
+	 */
+	public int getSwitchMatricesUsed(){
+		return switchMatricesUsed;
+	}
+
+	/**
+	 * @return The number of nets with PIPs counted.
+	 */
+	public int getNetCount(){
+		return netCount;
+	}
+
+	/**
+	 * @return The number of PIPs counted.
+	 */
+	public long getPIPCount(){
+		return pipCount;
+	}
+
+	/**
+	 * @return The device of the counted routes.
+	 */
+	public Device getDevice(){
+		return dev;
+	}
+
+	/**
+	 * @return The wire enumerator of the counted routes.
+	 */
+	public WireEnumerator getWireEnumerator(){
+		return we;
+	}
+
+	/**
+	 * Writes the tile congestion map to a CSV file, one line per tile row
+	 * with the PIP count of each tile.
+	 * @param fileName Name of the CSV file to create.
+	 */
+	public void writeCSVFile(String fileName){
+		String nl = System.getProperty("line.separator");
+		try{
+			BufferedWriter bw = new BufferedWriter(new FileWriter(fileName));
+			for(int i=0; i < tileCounts.length; i++){
+				bw.write(Integer.toString(tileCounts[i]));
+				bw.write((i+1) % columns == 0 ? nl : ",");
+			}
+			bw.close();
+		}
+		catch(IOException e){
+			MessageGenerator.briefError("Error writing wire usage to " + fileName + ": " + e.getMessage());
+		}
+	}
+
+	public static void main(String[] args){
+		if(args.length < 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <input.xdl> [congestion.csv]");
+		}
+		Design design = new Design();
+		design.loadXDLFile(args[0]);
+		long start = System.nanoTime();
+		WireUsage usage = new WireUsage(design);
+		long time = System.nanoTime() - start;
+
+		System.out.println("        Nets counted: " + usage.getNetCount());
+		System.out.println("        PIPs counted: " + usage.getPIPCount());
+		System.out.println("Switch matrices used: " + usage.getSwitchMatricesUsed());
+		System.out.printf ("       Counting time: %8.3fs\n", time / 1e9);
+		System.out.println("    Type counts used:");
+		HashMap<WireType,Integer> histogram = usage.getWireTypeHistogram();
+		for(WireType type : histogram.keySet()){
+			System.out.println("\t" + type + ": " + histogram.get(type));
+		}
+		if(args.length > 1){
+			usage.writeCSVFile(args[1]);
+		}
+	}
+}